@@ -0,0 +1,16 @@
+package dev.tomas.dma.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class ClockConfig {
+
+    // Injected wherever expiry or time windows are computed, so tests can fix the time
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
@@ -4,7 +4,10 @@ import dev.tomas.dma.dto.request.AuthReq;
 import dev.tomas.dma.dto.response.AuthRes;
 import dev.tomas.dma.dto.response.AuthUserRes;
 import dev.tomas.dma.dto.request.UserRegisterReq;
+import dev.tomas.dma.dto.request.UserAvailabilityReq;
+import dev.tomas.dma.dto.response.UserAvailabilityRes;
 import dev.tomas.dma.service.AuthService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
@@ -26,6 +29,11 @@ public class AuthController {
         return authService.login(authReq);
     }
 
+    @GetMapping("availability")
+    public UserAvailabilityRes availability(@ModelAttribute UserAvailabilityReq request, HttpServletRequest servletRequest) {
+        return authService.availability(request, servletRequest.getRemoteAddr());
+    }
+
     @GetMapping("me")
     public AuthUserRes getCurrentUser(Authentication authentication) {
         return authService.authMe(authentication);
@@ -1,10 +1,16 @@
 package dev.tomas.dma.controller;
 
 import dev.tomas.dma.dto.request.CampaignCreateReq;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.request.CampaignRankingReq;
+import dev.tomas.dma.dto.request.CampaignSearchReq;
 import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.dto.response.CampaignRankingRes;
 import dev.tomas.dma.dto.request.CampaignUpdateReq;
 import dev.tomas.dma.dto.common.CampaignDTO;
 import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.ExportFormat;
+import dev.tomas.dma.enums.UserRole;
 import dev.tomas.dma.service.CampaignService;
 import dev.tomas.dma.service.TicketService;
 import jakarta.validation.Valid;
@@ -18,6 +24,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Objects;
@@ -29,26 +36,43 @@ public class CampaignController {
     CampaignService campaignService;
 
     @GetMapping()
-    public ResponseEntity<CampaignGetAllRes> getAll() {
+    public ResponseEntity<CampaignGetAllRes> getAll(@Valid @ModelAttribute CampaignPageReq page) {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        boolean isAdmin = auth.getAuthorities().stream()
-                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+        boolean isAdmin = auth.getAuthorities().contains(UserRole.ADMIN.authority());
 
         if (isAdmin) {
-            return ResponseEntity.ok(campaignService.findAll());
+            return ResponseEntity.ok(campaignService.findAll(page));
         } else{
-            return ResponseEntity.ok(campaignService.findAllApproved());
+            return ResponseEntity.ok(campaignService.findAllApproved(page));
         }
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<CampaignGetAllRes> getAllByStatus(@PathVariable @NotNull CampaignStatus status) {
-        return ResponseEntity.ok(campaignService.findAllByStatus(status));
+    public ResponseEntity<CampaignGetAllRes> getAllByStatus(@PathVariable @NotNull CampaignStatus status, @Valid @ModelAttribute CampaignPageReq page) {
+        return ResponseEntity.ok(campaignService.findAllByStatus(status, page));
     }
 
     @GetMapping("/company/{companyId}")
-    public ResponseEntity<CampaignGetAllRes> getMine(@PathVariable Integer companyId) {
-        return ResponseEntity.ok(campaignService.findByCompanyId(companyId));
+    public ResponseEntity<CampaignGetAllRes> getMine(@PathVariable Integer companyId, @Valid @ModelAttribute CampaignPageReq page) {
+        return ResponseEntity.ok(campaignService.findByCompanyId(companyId, page));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<CampaignGetAllRes> search(@Valid @ModelAttribute CampaignSearchReq request) {
+        return ResponseEntity.ok(campaignService.search(request));
+    }
+
+    @GetMapping("/rankings")
+    public ResponseEntity<CampaignRankingRes> getRankings(@Valid @ModelAttribute CampaignRankingReq request) {
+        return ResponseEntity.ok(campaignService.findRankings(request));
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "JSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(out -> campaignService.exportAll(out, format));
     }
 
     @GetMapping("/{id}")
@@ -12,6 +12,7 @@ import dev.tomas.dma.dto.response.*;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.service.CompanyEmployeeService;
 import dev.tomas.dma.service.CompanyService;
+import dev.tomas.dma.service.DonorCountService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
@@ -30,6 +31,7 @@ import java.util.Optional;
 @RequestMapping("/api/companies")
 public class CompanyController {
     private final CompanyService companyService;
+    private final DonorCountService donorCountService;
 
     @GetMapping
     public ResponseEntity<CompanyGetAllRes> getAll() {
@@ -41,6 +43,11 @@ public class CompanyController {
         return ResponseEntity.ok(companyService.getById(id));
     }
 
+    @GetMapping("/{id}/donor-count")
+    public ResponseEntity<Long> getDonorCount(@PathVariable Integer id) {
+        return ResponseEntity.ok(donorCountService.companyDonors(id));
+    }
+
     @PostMapping
     public ResponseEntity<CompanyDTO> create(@Valid @RequestBody CompanyCreateReq request) {
         return ResponseEntity.ok(companyService.save(request));
@@ -6,21 +6,34 @@ import com.stripe.model.Event;
 import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.request.DonationHistoryReq;
+import dev.tomas.dma.dto.request.DonationReportReq;
+import dev.tomas.dma.dto.request.DonationTimeSeriesReq;
 import dev.tomas.dma.dto.response.DonationByUserGetAllRes;
+import dev.tomas.dma.dto.response.DonationHistoryRes;
+import dev.tomas.dma.dto.response.DonationReportRes;
+import dev.tomas.dma.dto.response.DonationTimeSeriesRes;
 import dev.tomas.dma.service.CampaignService;
+import dev.tomas.dma.service.DonationAnalyticsService;
+import dev.tomas.dma.service.DonationInboxService;
+import dev.tomas.dma.service.DonationRollupService;
 import dev.tomas.dma.service.DonationService;
+import dev.tomas.dma.service.DonorCountService;
 import dev.tomas.dma.service.PaymentService;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -29,18 +42,23 @@ public class DonationController {
     private final PaymentService paymentService;
     private final CampaignService campaignService;
     private final DonationService donationService;
+    private final DonationInboxService donationInboxService;
+    private final DonationRollupService donationRollupService;
+    private final DonationAnalyticsService donationAnalyticsService;
+    private final DonorCountService donorCountService;
 
     @Value("${stripe.webhook.private}")
     private String webhookSecret;
 
+    // Async, so the Tomcat worker is released while Stripe is called
     @PostMapping()
-    public ResponseEntity<Map<String, String>> donate(@RequestBody DonationDTO request) throws StripeException {
-        PaymentIntent paymentIntent = paymentService.createPaymentIntent(request);
+    public CompletableFuture<ResponseEntity<Map<String, String>>> donate(@RequestBody DonationDTO request) {
+        return paymentService.createPaymentIntent(request).thenApply(paymentIntent -> {
+            Map<String, String> response = new HashMap<>();
+            response.put("clientSecret", paymentIntent.getClientSecret());
 
-        Map<String, String> response = new HashMap<>();
-        response.put("clientSecret", paymentIntent.getClientSecret());
-
-        return ResponseEntity.ok(response);
+            return ResponseEntity.ok(response);
+        });
     }
 
     @GetMapping("/user/{userId}")
@@ -48,6 +66,33 @@ public class DonationController {
         return ResponseEntity.ok(donationService.getAllByUserId(userId));
     }
 
+    @GetMapping("/user/{userId}/history")
+    public ResponseEntity<DonationHistoryRes> getHistory(@PathVariable @Positive Integer userId, @Valid @ModelAttribute DonationHistoryReq page){
+        return ResponseEntity.ok(donationService.getHistory(userId, page));
+    }
+
+    @GetMapping("/campaign/{campaignId}/timeseries")
+    public ResponseEntity<DonationTimeSeriesRes> getTimeSeries(@PathVariable @Positive Integer campaignId, @Valid @ModelAttribute DonationTimeSeriesReq request) {
+        return ResponseEntity.ok(donationRollupService.getSeries(campaignId, request));
+    }
+
+    @GetMapping("/donor-count")
+    public ResponseEntity<Long> getDonorCount() {
+        return ResponseEntity.ok(donorCountService.platformDonors());
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/reports")
+    public ResponseEntity<DonationReportRes> getReport(@Valid @ModelAttribute DonationReportReq request) {
+        return ResponseEntity.ok(donationAnalyticsService.report(request));
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Integer> rebuildRollups() {
+        return ResponseEntity.ok(donationRollupService.rebuild());
+    }
+
     @PostMapping("/webhook")
     public ResponseEntity<String> handleStripeWebhook(
             @RequestBody String payload,
@@ -62,6 +107,11 @@ public class DonationController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid signature");
         }
 
+        // Stripe retries reuse the event id, so most redeliveries stop here before the payment intent is deserialised
+        if (donationInboxService.isDuplicate(event.getId())) {
+            return ResponseEntity.ok("Duplicate");
+        }
+
         // Handle the event
         if (Objects.equals(event.getType(), "payment_intent.succeeded")) {
             PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
@@ -84,11 +134,33 @@ public class DonationController {
                     throw new IllegalArgumentException("Payment intent is null");
                 }
 
-                donationService.save(donationDTO);
+                // Journaled only, the donation itself is saved by the inbox consumer
+                donationInboxService.append(event.getId(), paymentIntent.getId(), donationDTO, payload);
+                // A paid intent can't be confirmed again, so the next click for this amount needs a new one
+                paymentService.forgetPaymentIntent(donationDTO);
+            }
+        } else if (Objects.equals(event.getType(), "payment_intent.canceled")) {
+            PaymentIntent paymentIntent = (PaymentIntent) event.getDataObjectDeserializer()
+                    .getObject()
+                    .orElse(null);
+            // Nothing to save; the intent just can't be handed out again
+            if (paymentIntent != null && paymentIntent.getMetadata() != null) {
+                forgetCanceled(paymentIntent);
             }
         }
 
         return ResponseEntity.ok("Success");
     }
 
+    private void forgetCanceled(PaymentIntent paymentIntent) {
+        DonationDTO donationDTO = new DonationDTO();
+        try {
+            donationDTO.setCampaignId(Integer.parseInt(paymentIntent.getMetadata().get("campaignId")));
+            donationDTO.setUserId(Integer.parseInt(paymentIntent.getMetadata().get("userId")));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        donationDTO.setAmount(paymentIntent.getAmount());
+        paymentService.forgetPaymentIntent(donationDTO);
+    }
 }
@@ -3,10 +3,13 @@ package dev.tomas.dma.controller;
 import dev.tomas.dma.dto.request.TicketCloseReq;
 import dev.tomas.dma.dto.response.TicketDetailsGetRes;
 import dev.tomas.dma.dto.response.TicketGetAllRes;
+import dev.tomas.dma.enums.ExportFormat;
 import dev.tomas.dma.service.TicketService;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @AllArgsConstructor
@@ -24,6 +27,14 @@ public class TicketController {
         return ResponseEntity.ok(ticketService.getAll());
     }
 
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "JSON") ExportFormat format) {
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .body(out -> ticketService.exportAll(out, format));
+    }
+
     @GetMapping("/{ticketId}")
     public ResponseEntity<TicketDetailsGetRes> getByTicketId(@PathVariable Integer ticketId) {
         return ResponseEntity.ok(ticketService.getByTicketId(Long.valueOf(ticketId)));
@@ -1,7 +1,10 @@
 package dev.tomas.dma.controller;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.request.UserSearchReq;
+import dev.tomas.dma.dto.response.UserSearchRes;
 import dev.tomas.dma.service.UserService;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -28,6 +31,11 @@ public class UserController {
         return ResponseEntity.ok(userService.getByEmail(email));
     }
 
+    @GetMapping("/search")
+    public ResponseEntity<UserSearchRes> search(@Valid @ModelAttribute UserSearchReq request) {
+        return ResponseEntity.ok(userService.search(request));
+    }
+
     @GetMapping("/search/{email}")
     public ResponseEntity<List<UserDTO>> searchByEmail(@PathVariable String email) {
         return ResponseEntity.ok(userService.searchByEmail(email));
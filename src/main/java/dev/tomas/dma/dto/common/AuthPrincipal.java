@@ -0,0 +1,80 @@
+package dev.tomas.dma.dto.common;
+
+import dev.tomas.dma.entity.CompanyPermission;
+import dev.tomas.dma.entity.CompanyRole;
+import dev.tomas.dma.entity.User;
+import dev.tomas.dma.enums.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The authenticated user as kept in the security context. Immutable, with the authorities worked
+ * out once, so it can be cached and shared between requests without a JPA session behind it.
+ */
+public record AuthPrincipal(
+        Integer id,
+        String email,
+        String username,
+        String firstName,
+        String lastName,
+        UserRole role,
+        boolean enabled,
+        Integer companyId,
+        Integer companyRoleId,
+        String companyRoleName,
+        Integer companyRoleVersion,
+        List<Integer> permissionIds,
+        Set<GrantedAuthority> authorities
+) implements UserDetails {
+
+    public static AuthPrincipal of(User user) {
+        CompanyRole companyRole = user.getCompanyRole();
+        List<Integer> permissionIds = new ArrayList<>();
+        if (companyRole != null && companyRole.getPermissions() != null) {
+            companyRole.getPermissions().stream()
+                    .map(CompanyPermission::getId)
+                    .filter(Objects::nonNull)
+                    .forEach(permissionIds::add);
+        }
+        return new AuthPrincipal(
+                user.getId(),
+                user.getEmail(),
+                user.getActualUsername(),
+                user.getFirstName(),
+                user.getLastName(),
+                user.getRole(),
+                user.isEnabled(),
+                companyRole != null && companyRole.getCompany() != null ? companyRole.getCompany().getId() : null,
+                companyRole != null ? companyRole.getId() : null,
+                companyRole != null ? companyRole.getName() : null,
+                companyRole != null ? companyRole.getPermissionVersion() : null,
+                List.copyOf(permissionIds),
+                Set.copyOf(user.getAuthorities()));
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public String getPassword() {
+        return null;
+    }
+
+    @Override
+    public String getUsername() {
+        return email;  // Using email as username, like User
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
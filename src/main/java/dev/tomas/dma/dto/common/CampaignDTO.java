@@ -25,5 +25,7 @@ public class CampaignDTO {
     private LocalDate endDate;
     private CampaignStatus status;
     private Integer companyId;
+    // Distinct donors, estimated within a couple of percent
+    private long donorCount;
     private List<AppFileDTO> files = new ArrayList<>();
 }
@@ -0,0 +1,16 @@
+package dev.tomas.dma.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CampaignRankingDTO {
+    private CampaignDTO campaign;
+    // Raised inside the requested window
+    private BigDecimal amount;
+}
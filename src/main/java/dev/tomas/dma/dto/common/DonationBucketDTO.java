@@ -0,0 +1,17 @@
+package dev.tomas.dma.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DonationBucketDTO {
+    private LocalDateTime start;
+    // Cents
+    private long amount;
+    private long donationCount;
+}
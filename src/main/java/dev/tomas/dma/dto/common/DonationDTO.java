@@ -12,4 +12,5 @@ public class DonationDTO {
     private Integer userId;
     private Long amount;
     private LocalDateTime date;
+    private String paymentIntentId;
 }
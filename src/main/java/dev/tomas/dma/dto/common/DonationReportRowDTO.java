@@ -0,0 +1,15 @@
+package dev.tomas.dma.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DonationReportRowDTO {
+    private String key;
+    // Cents
+    private long amount;
+    private long donationCount;
+}
@@ -0,0 +1,28 @@
+package dev.tomas.dma.dto.common;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Date;
+
+/**
+ * A JWT whose signature has been checked, with the claims read from it. Holding one means the
+ * token needs no further parsing for the rest of the request.
+ */
+public record VerifiedToken(
+        String subject,
+        Date expiration,
+        Claims claims
+) {
+    // Claims a token carries besides the subject, enough to authorise a request without the database
+    public static final String USER_ID = "UserId";
+    public static final String SYSTEM_ROLE = "SystemRole";
+    public static final String COMPANY = "Company";
+    public static final String ROLE = "Role";
+    public static final String ROLE_ID = "RoleId";
+    public static final String ROLE_VERSION = "RoleVersion";
+    public static final String PERMISSIONS = "Permissions";
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+}
@@ -0,0 +1,12 @@
+package dev.tomas.dma.dto.projection;
+
+import dev.tomas.dma.enums.CampaignStatus;
+
+public record CampaignDimensionRow(
+        Integer id,
+        String name,
+        CampaignStatus status,
+        Integer companyTypeId,
+        String companyTypeName
+) {
+}
@@ -0,0 +1,24 @@
+package dev.tomas.dma.dto.projection;
+
+import dev.tomas.dma.enums.CampaignStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record CampaignListRow(
+        Integer id,
+        String name,
+        String description,
+        BigDecimal fundGoal,
+        BigDecimal raisedFunds,
+        BigDecimal availableFunds,
+        BigDecimal remainingFunds,
+        LocalDate startDate,
+        LocalDate endDate,
+        CampaignStatus status,
+        Integer companyId,
+        Integer companyTypeId,
+        LocalDate createDate,
+        BigDecimal fundingProgress
+) {
+}
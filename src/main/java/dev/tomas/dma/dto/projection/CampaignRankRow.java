@@ -0,0 +1,8 @@
+package dev.tomas.dma.dto.projection;
+
+// Amount in cents, like Donation.amount
+public record CampaignRankRow(
+        Integer campaignId,
+        long amount
+) {
+}
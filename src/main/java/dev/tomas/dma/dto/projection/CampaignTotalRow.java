@@ -0,0 +1,8 @@
+package dev.tomas.dma.dto.projection;
+
+// All-time donation total of a campaign, in cents
+public record CampaignTotalRow(
+        Integer id,
+        Long amount
+) {
+}
@@ -0,0 +1,15 @@
+package dev.tomas.dma.dto.projection;
+
+import dev.tomas.dma.enums.CompanyStatus;
+
+public record CompanyListRow(
+        Integer id,
+        String name,
+        String registrationNumber,
+        String taxId,
+        Integer typeId,
+        String typeName,
+        String typeDescription,
+        CompanyStatus status
+) {
+}
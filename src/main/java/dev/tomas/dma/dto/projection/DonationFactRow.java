@@ -0,0 +1,12 @@
+package dev.tomas.dma.dto.projection;
+
+import java.time.LocalDateTime;
+
+public record DonationFactRow(
+        Integer id,
+        Integer campaignId,
+        Integer userId,
+        Long amount,
+        LocalDateTime date
+) {
+}
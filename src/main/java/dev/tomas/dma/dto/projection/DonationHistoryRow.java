@@ -0,0 +1,15 @@
+package dev.tomas.dma.dto.projection;
+
+import java.time.LocalDateTime;
+
+public record DonationHistoryRow(
+        Integer id,
+        LocalDateTime date,
+        Long amount,
+        Integer userId,
+        Integer campaignId,
+        String campaignName,
+        Integer companyId,
+        String companyName
+) {
+}
@@ -0,0 +1,10 @@
+package dev.tomas.dma.dto.projection;
+
+import java.time.LocalDateTime;
+
+public record DonationWindowRow(
+        Integer campaignId,
+        Long amount,
+        LocalDateTime date
+) {
+}
@@ -0,0 +1,16 @@
+package dev.tomas.dma.dto.projection;
+
+public record EmployeeListRow(
+        Integer id,
+        String email,
+        String phoneNumber,
+        String address,
+        String firstName,
+        String lastName,
+        String middleNames,
+        String username,
+        Integer companyId,
+        Integer companyRoleId,
+        String companyRoleName
+) {
+}
@@ -0,0 +1,7 @@
+package dev.tomas.dma.dto.projection;
+
+public record InboxKeyRow(
+        String eventId,
+        String paymentIntentId
+) {
+}
@@ -0,0 +1,20 @@
+package dev.tomas.dma.dto.projection;
+
+import dev.tomas.dma.enums.UserRole;
+
+public record PrincipalRow(
+        Integer id,
+        String email,
+        String username,
+        String firstName,
+        String lastName,
+        UserRole role,
+        boolean enabled,
+        Integer companyId,
+        Integer companyRoleId,
+        String companyRoleName,
+        Integer companyRoleVersion,
+        Integer permissionId,
+        String permission
+) {
+}
@@ -0,0 +1,9 @@
+package dev.tomas.dma.dto.projection;
+
+public record RoleGrantRow(
+        Integer roleId,
+        int version,
+        Integer permissionId,
+        String permission
+) {
+}
@@ -0,0 +1,19 @@
+package dev.tomas.dma.dto.projection;
+
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.Status;
+
+import java.time.LocalDateTime;
+
+public record TicketListRow(
+        Long id,
+        String name,
+        String additionalInfo,
+        EntityType type,
+        Integer entityId,
+        Status status,
+        String message,
+        LocalDateTime closeDate,
+        LocalDateTime createDate
+) {
+}
@@ -0,0 +1,9 @@
+package dev.tomas.dma.dto.projection;
+
+import java.time.LocalDateTime;
+
+public record UserAuthChangeRow(
+        Integer userId,
+        LocalDateTime changedAt
+) {
+}
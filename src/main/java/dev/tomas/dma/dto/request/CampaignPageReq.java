@@ -0,0 +1,36 @@
+package dev.tomas.dma.dto.request;
+
+import dev.tomas.dma.enums.CampaignSortField;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+public class CampaignPageReq {
+    // Opaque value returned as nextCursor by the previous page
+    private String cursor;
+
+    @NotNull
+    @Min(1) @Max(100)
+    private Integer size = 20;
+
+    @NotNull
+    private CampaignSortField sort = CampaignSortField.CREATE_DATE;
+
+    @NotNull
+    private Sort.Direction direction = Sort.Direction.DESC;
+
+    private Integer companyTypeId;
+
+    // Only campaigns running at some point between from and to
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+}
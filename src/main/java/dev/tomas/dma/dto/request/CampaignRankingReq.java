@@ -0,0 +1,17 @@
+package dev.tomas.dma.dto.request;
+
+import dev.tomas.dma.enums.RankingWindow;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CampaignRankingReq {
+    @NotNull
+    private RankingWindow window = RankingWindow.LAST_24_HOURS;
+
+    @NotNull
+    @Min(1) @Max(100)
+    private Integer limit = 10;
+}
@@ -0,0 +1,17 @@
+package dev.tomas.dma.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class CampaignSearchReq {
+    @NotBlank
+    private String q;
+
+    @NotNull
+    @Min(1) @Max(100)
+    private Integer limit = 20;
+}
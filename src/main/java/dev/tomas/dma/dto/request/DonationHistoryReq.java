@@ -0,0 +1,16 @@
+package dev.tomas.dma.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class DonationHistoryReq {
+    // Opaque value returned as nextCursor by the previous page
+    private String cursor;
+
+    @NotNull
+    @Min(1) @Max(100)
+    private Integer size = 20;
+}
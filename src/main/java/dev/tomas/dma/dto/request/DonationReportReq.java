@@ -0,0 +1,26 @@
+package dev.tomas.dma.dto.request;
+
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.ReportDimension;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+@Data
+public class DonationReportReq {
+    @NotNull
+    private ReportDimension groupBy = ReportDimension.COMPANY_TYPE;
+
+    // Only donations made between from and to, both days included
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private CampaignStatus status;
+
+    private Integer companyTypeId;
+}
@@ -0,0 +1,22 @@
+package dev.tomas.dma.dto.request;
+
+import dev.tomas.dma.enums.RollupGranularity;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+@Data
+public class DonationTimeSeriesReq {
+    @NotNull
+    private RollupGranularity granularity = RollupGranularity.DAY;
+
+    // Defaults to the granularity's default range before to
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    // Defaults to now
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
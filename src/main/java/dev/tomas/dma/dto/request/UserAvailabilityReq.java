@@ -0,0 +1,9 @@
+package dev.tomas.dma.dto.request;
+
+import lombok.Data;
+
+@Data
+public class UserAvailabilityReq {
+    private String email;
+    private String username;
+}
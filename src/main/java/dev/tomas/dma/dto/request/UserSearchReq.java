@@ -0,0 +1,20 @@
+package dev.tomas.dma.dto.request;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class UserSearchReq {
+    @NotBlank
+    private String q;
+
+    // Opaque position returned as nextCursor by the previous page
+    private String cursor;
+
+    @NotNull
+    @Min(1) @Max(50)
+    private Integer limit = 20;
+}
@@ -11,4 +11,5 @@ import java.util.List;
 @Data
 public class CampaignGetAllRes {
     public List<CampaignDTO> campaigns = new ArrayList<>();
+    public String nextCursor;
 }
@@ -0,0 +1,16 @@
+package dev.tomas.dma.dto.response;
+
+import dev.tomas.dma.dto.common.CampaignRankingDTO;
+import dev.tomas.dma.enums.RankingWindow;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Data
+public class CampaignRankingRes {
+    public RankingWindow window;
+    public List<CampaignRankingDTO> campaigns = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package dev.tomas.dma.dto.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Data
+public class DonationHistoryRes {
+    public List<DonationByUserGetAllRes> donations = new ArrayList<>();
+    public String nextCursor;
+    // Lifetime figures from the donor summary, amounts in cents like the donations
+    public long totalAmount;
+    public long donationCount;
+    public int campaignCount;
+}
@@ -0,0 +1,19 @@
+package dev.tomas.dma.dto.response;
+
+import dev.tomas.dma.dto.common.DonationReportRowDTO;
+import dev.tomas.dma.enums.ReportDimension;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Data
+public class DonationReportRes {
+    public ReportDimension groupBy;
+    // Months in order, everything else by amount, highest first
+    public List<DonationReportRowDTO> rows = new ArrayList<>();
+    public long totalAmount;
+    public long donationCount;
+}
@@ -0,0 +1,18 @@
+package dev.tomas.dma.dto.response;
+
+import dev.tomas.dma.dto.common.DonationBucketDTO;
+import dev.tomas.dma.enums.RollupGranularity;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Data
+public class DonationTimeSeriesRes {
+    public Integer campaignId;
+    public RollupGranularity granularity;
+    // One entry per bucket in the range, empty buckets included
+    public List<DonationBucketDTO> buckets = new ArrayList<>();
+}
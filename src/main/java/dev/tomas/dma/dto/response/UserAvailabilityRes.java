@@ -0,0 +1,14 @@
+package dev.tomas.dma.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Null for a field that wasn't asked about
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class UserAvailabilityRes {
+    private Boolean emailAvailable;
+    private Boolean usernameAvailable;
+}
@@ -0,0 +1,15 @@
+package dev.tomas.dma.dto.response;
+
+import dev.tomas.dma.dto.common.UserDTO;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@NoArgsConstructor
+@Data
+public class UserSearchRes {
+    public List<UserDTO> users = new ArrayList<>();
+    public String nextCursor;
+}
@@ -13,7 +13,9 @@ import lombok.Setter;
 @AllArgsConstructor
 @Setter
 @Getter
-@Table(name = "app_file")
+@Table(name = "app_file", indexes = {
+        @Index(name = "idx_app_file_entity", columnList = "entity_type, file_type, entity_id")
+})
 public class AppFile {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
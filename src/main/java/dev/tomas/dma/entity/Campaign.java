@@ -18,7 +18,13 @@ import java.util.List;
 @AllArgsConstructor
 @Setter
 @Getter
-@Table(name = "campaign")
+@Table(name = "campaign", indexes = {
+        @Index(name = "idx_campaign_status", columnList = "status"),
+        @Index(name = "idx_campaign_sort_create_date", columnList = "sort_create_date, id"),
+        @Index(name = "idx_campaign_sort_end_date", columnList = "sort_end_date, id"),
+        @Index(name = "idx_campaign_sort_raised_funds", columnList = "sort_raised_funds, id"),
+        @Index(name = "idx_campaign_sort_funding_progress", columnList = "sort_funding_progress, id")
+})
 public class Campaign {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -59,7 +65,30 @@ public class Campaign {
 
     @Max(999999999)
     @Column(name = "raised_funds")
-    private BigDecimal raisedFunds;
+    private BigDecimal raisedFunds = BigDecimal.ZERO;
+
+    // Computed by the database; null when there is no goal to measure against
+    @Column(name = "funding_progress", insertable = false, updatable = false,
+            columnDefinition = "DECIMAL(19,6) GENERATED ALWAYS AS (COALESCE(raised_funds, 0) / NULLIF(fund_goal, 0)) STORED")
+    private BigDecimal fundingProgress;
+
+    // Listing sort keys: the sort columns with their missing values filled in, so a page seeks on a
+    // bare indexed column. They must agree with CampaignRepoCustomImpl's defaults and CampaignCursor.keyOf
+    @Column(name = "sort_create_date", insertable = false, updatable = false,
+            columnDefinition = "DATE GENERATED ALWAYS AS (COALESCE(create_date, DATE '1970-01-01')) STORED")
+    private LocalDate sortCreateDate;
+
+    @Column(name = "sort_end_date", insertable = false, updatable = false,
+            columnDefinition = "DATE GENERATED ALWAYS AS (COALESCE(end_date, DATE '9999-12-31')) STORED")
+    private LocalDate sortEndDate;
+
+    @Column(name = "sort_raised_funds", insertable = false, updatable = false,
+            columnDefinition = "DECIMAL(38,2) GENERATED ALWAYS AS (COALESCE(raised_funds, 0)) STORED")
+    private BigDecimal sortRaisedFunds;
+
+    @Column(name = "sort_funding_progress", insertable = false, updatable = false,
+            columnDefinition = "DECIMAL(19,6) GENERATED ALWAYS AS (COALESCE(COALESCE(raised_funds, 0) / NULLIF(fund_goal, 0), 0)) STORED")
+    private BigDecimal sortFundingProgress;
 
     @Max(999999999)
     @Column(name="available_funds")
@@ -39,4 +39,8 @@ public class CompanyRole {
 
     @Column(name = "create_date")
     private LocalDate createDate = LocalDate.now();
+
+    // Bumped whenever the role changes, so tokens carrying the old permissions are recognised as stale
+    @Column(name = "permission_version", nullable = false)
+    private int permissionVersion = 0;
 }
@@ -7,6 +7,16 @@ import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "donation",
+        indexes = {
+                @Index(name = "idx_donation_date", columnList = "date"),
+                // Covers the donation history keyset
+                @Index(name = "idx_donation_user_date", columnList = "user_id, date, id")
+        },
+        uniqueConstraints = {
+                // A payment can only ever be counted once, whichever path saves it
+                @UniqueConstraint(name = "uk_donation_payment_intent", columnNames = "payment_intent_id")
+        })
 @Setter
 @Getter
 public class Donation {
@@ -22,4 +32,7 @@ public class Donation {
 
     private Long amount;
     private LocalDateTime date = LocalDateTime.now();
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
 }
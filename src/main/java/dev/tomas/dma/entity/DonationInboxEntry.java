@@ -0,0 +1,62 @@
+package dev.tomas.dma.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Stripe payment waiting to be turned into a donation. Rows are never deleted, processed
+ * ones keep their processed date (and the reason when they were rejected) as an audit trail.
+ */
+@Entity
+@Table(name = "donation_inbox",
+        indexes = {
+                @Index(name = "idx_donation_inbox_pending", columnList = "processed_at, id")
+        },
+        uniqueConstraints = {
+                // Stripe retries deliver the same event id again
+                @UniqueConstraint(name = DonationInboxEntry.UK_EVENT, columnNames = "event_id"),
+                @UniqueConstraint(name = DonationInboxEntry.UK_PAYMENT_INTENT, columnNames = "payment_intent_id")
+        })
+@Getter
+@Setter
+public class DonationInboxEntry {
+    public static final String UK_EVENT = "uk_donation_inbox_event";
+    public static final String UK_PAYMENT_INTENT = "uk_donation_inbox_payment_intent";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "event_id")
+    private String eventId;
+
+    @Column(name = "payment_intent_id")
+    private String paymentIntentId;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Integer campaignId;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(nullable = false)
+    private Long amount;
+
+    @Lob
+    @Column(columnDefinition = "LONGTEXT")
+    private String payload;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt = LocalDateTime.now();
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    private int attempts;
+
+    @Column(length = 1000)
+    private String error;
+}
@@ -0,0 +1,42 @@
+package dev.tomas.dma.entity;
+
+import dev.tomas.dma.enums.RollupGranularity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Donations to one campaign within one hour or day, kept up to date as donations are saved.
+ */
+@Entity
+@Table(name = "donation_rollup",
+        uniqueConstraints = {
+                // Also the index the time series reads through
+                @UniqueConstraint(name = "uk_donation_rollup", columnNames = {"campaign_id", "granularity", "bucket_start"})
+        })
+@Getter
+@Setter
+public class DonationRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Integer campaignId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private RollupGranularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    // Cents, like Donation.amount
+    @Column(nullable = false)
+    private long amount;
+
+    @Column(name = "donation_count", nullable = false)
+    private long donationCount;
+}
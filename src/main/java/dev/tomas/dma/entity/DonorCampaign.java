@@ -0,0 +1,28 @@
+package dev.tomas.dma.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One row per campaign a user has donated to, so the number of campaigns supported can be kept
+ * without a distinct count over the user's donations.
+ */
+@Entity
+@Table(name = "donor_campaign",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_donor_campaign", columnNames = {"user_id", "campaign_id"})
+        })
+@Getter
+@Setter
+public class DonorCampaign {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+
+    @Column(name = "campaign_id", nullable = false)
+    private Integer campaignId;
+}
@@ -0,0 +1,44 @@
+package dev.tomas.dma.entity;
+
+import dev.tomas.dma.enums.SketchScope;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * HyperLogLog sketch of the users who donated to one campaign, one company or the whole platform.
+ */
+@Entity
+@Table(name = "donor_sketch",
+        indexes = {
+                // Lets each instance read only the sketches written since it last looked
+                @Index(name = "idx_donor_sketch_updated_at", columnList = "updated_at")
+        },
+        uniqueConstraints = {
+                @UniqueConstraint(name = "uk_donor_sketch", columnNames = {"scope", "scope_id"})
+        })
+@Getter
+@Setter
+public class DonorSketch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private SketchScope scope;
+
+    @Column(name = "scope_id", nullable = false)
+    private Integer scopeId;
+
+    // Sparse or dense registers, at most 4 KB
+    @Column(nullable = false, length = 4097)
+    private byte[] registers;
+
+    // Set by the database whenever the registers change
+    @Column(name = "updated_at", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6)")
+    private LocalDateTime updatedAt;
+}
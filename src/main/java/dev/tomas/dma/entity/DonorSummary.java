@@ -0,0 +1,34 @@
+package dev.tomas.dma.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lifetime donation figures per user, updated in the same transaction as the donations themselves
+ * so the history endpoint never has to aggregate the donation table.
+ */
+@Entity
+@Table(name = "donor_summary")
+@Getter
+@Setter
+public class DonorSummary {
+    @Id
+    @Column(name = "user_id")
+    private Integer userId;
+
+    // Cents, like Donation.amount
+    @Column(name = "total_amount", nullable = false)
+    private long totalAmount;
+
+    @Column(name = "donation_count", nullable = false)
+    private long donationCount;
+
+    @Column(name = "campaign_count", nullable = false)
+    private int campaignCount;
+
+    @Column(name = "last_donation_date")
+    private LocalDateTime lastDonationDate;
+}
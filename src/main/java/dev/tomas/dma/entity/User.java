@@ -10,6 +10,7 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -17,20 +18,32 @@ import java.util.List;
 @Entity
 @Setter
 @Getter
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        // Named so a failed insert can say which field is taken; db/drop-legacy-user-unique-keys.sql
+        // removes the auto-named keys older schemas still have on the same columns
+        @UniqueConstraint(name = User.UK_EMAIL, columnNames = "email"),
+        @UniqueConstraint(name = User.UK_USERNAME, columnNames = "username"),
+        @UniqueConstraint(name = User.UK_PHONE_NUMBER, columnNames = "phone_number")
+}, indexes = {
+        @Index(name = "idx_users_auth_changed_at", columnList = "auth_changed_at"),
+        @Index(name = "idx_users_search_key", columnList = "search_key")
+})
 public class User implements UserDetails {
+    public static final String UK_EMAIL = "uk_users_email";
+    public static final String UK_USERNAME = "uk_users_username";
+    public static final String UK_PHONE_NUMBER = "uk_users_phone_number";
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
     private String password;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String phoneNumber;
 
     @Column(nullable = false)
@@ -45,7 +58,7 @@ public class User implements UserDetails {
     @Column
     private String middleNames;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
     @ManyToOne
@@ -63,6 +76,14 @@ public class User implements UserDetails {
     @Column(nullable = false)
     private UserRole role = UserRole.DONOR;
 
+    // Last change to the user's company or company role; tokens issued before it are stale
+    @Column(name = "auth_changed_at")
+    private LocalDateTime authChangedAt;
+
+    // Folded email the user search matches by prefix; null until the user has been indexed
+    @Column(name = "search_key")
+    private String searchKey;
+
     @OneToMany(mappedBy = "user")
     private List<Donation> donations = new  ArrayList<>();
 
@@ -73,7 +94,7 @@ public class User implements UserDetails {
         List<GrantedAuthority> authorities = new ArrayList<>();
 
         // Add system role
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.name()));
+        authorities.add(role.authority());
 
         // Add company permissions if member
         if (companyRole != null ) {
@@ -0,0 +1,32 @@
+package dev.tomas.dma.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * One three-letter piece of a user's name, username or email local part, for the user search to
+ * find users by any part of a word.
+ */
+@Entity
+@Table(name = "user_search_gram",
+        uniqueConstraints = {
+                // Also the index candidates are read through, in user id order
+                @UniqueConstraint(name = "uk_user_search_gram", columnNames = {"gram", "user_id"})
+        },
+        indexes = {
+                @Index(name = "idx_user_search_gram_user", columnList = "user_id")
+        })
+@Getter
+@Setter
+public class UserSearchGram {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 3)
+    private String gram;
+
+    @Column(name = "user_id", nullable = false)
+    private Integer userId;
+}
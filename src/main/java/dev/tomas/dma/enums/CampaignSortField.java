@@ -0,0 +1,8 @@
+package dev.tomas.dma.enums;
+
+public enum CampaignSortField {
+    CREATE_DATE,
+    END_DATE,
+    RAISED_FUNDS,
+    FUNDING_PROGRESS
+}
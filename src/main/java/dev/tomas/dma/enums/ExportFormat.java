@@ -0,0 +1,18 @@
+package dev.tomas.dma.enums;
+
+import lombok.Getter;
+import org.springframework.http.MediaType;
+
+@Getter
+public enum ExportFormat {
+    // One JSON array
+    JSON(MediaType.APPLICATION_JSON),
+    // One JSON object per line
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    ExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+}
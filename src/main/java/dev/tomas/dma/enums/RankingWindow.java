@@ -0,0 +1,7 @@
+package dev.tomas.dma.enums;
+
+public enum RankingWindow {
+    LAST_24_HOURS,
+    LAST_7_DAYS,
+    ALL_TIME
+}
@@ -0,0 +1,8 @@
+package dev.tomas.dma.enums;
+
+public enum ReportDimension {
+    COMPANY_TYPE,
+    MONTH,
+    CAMPAIGN_STATUS,
+    CAMPAIGN
+}
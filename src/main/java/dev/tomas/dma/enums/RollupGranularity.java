@@ -0,0 +1,21 @@
+package dev.tomas.dma.enums;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+
+@Getter
+public enum RollupGranularity {
+    HOUR(ChronoUnit.HOURS, Duration.ofHours(48)),
+    DAY(ChronoUnit.DAYS, Duration.ofDays(30));
+
+    private final ChronoUnit unit;
+    // Range returned when the request doesn't give a start
+    private final Duration defaultRange;
+
+    RollupGranularity(ChronoUnit unit, Duration defaultRange) {
+        this.unit = unit;
+        this.defaultRange = defaultRange;
+    }
+}
@@ -0,0 +1,8 @@
+package dev.tomas.dma.enums;
+
+public enum SketchScope {
+    CAMPAIGN,
+    COMPANY,
+    // A single sketch with scope id 0
+    PLATFORM
+}
@@ -1,7 +1,17 @@
 package dev.tomas.dma.enums;
 
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
 public enum UserRole {
     DONOR,
     ADMIN,
-    COMPANY_ACCOUNT,
+    COMPANY_ACCOUNT;
+
+    // One authority object per role, shared by every principal that has it
+    private final GrantedAuthority authority = new SimpleGrantedAuthority("ROLE_" + name());
+
+    public GrantedAuthority authority() {
+        return authority;
+    }
 }
@@ -1,6 +1,7 @@
 package dev.tomas.dma.mapper;
 
 import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.dto.projection.CampaignListRow;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.entity.AppFile;
 import dev.tomas.dma.entity.Company;
@@ -15,11 +16,18 @@ import java.util.stream.Collectors;
 public interface CampaignMapper {
 
     @Mapping(target = "companyId", source = "company", qualifiedByName = "companyToId")
+    @Mapping(target = "donorCount", ignore = true)
     CampaignDTO entityToDTO(Campaign campaign);
 
     @Mapping(target = "companyId", source = "company", qualifiedByName = "companyToId")
     List<CampaignDTO> entitiesToDTO(List<Campaign> campaigns);
 
+    @Mapping(target = "donorCount", ignore = true)
+    CampaignDTO rowToDTO(CampaignListRow row);
+
+    @Mapping(target = "donorCount", ignore = true)
+    CampaignDTO copy(CampaignDTO campaign);
+
     @Named("companyToId")
     default Integer companyToId(Company company) {
         if (company == null) {
@@ -1,6 +1,7 @@
 package dev.tomas.dma.mapper;
 
 import dev.tomas.dma.dto.common.TicketDTO;
+import dev.tomas.dma.dto.projection.TicketListRow;
 import dev.tomas.dma.entity.Ticket;
 import org.mapstruct.Mapper;
 
@@ -10,6 +11,8 @@ import java.util.List;
 public interface TicketMapper {
     TicketDTO toDTO(Ticket ticket);
     List<TicketDTO> toDTOs(List<Ticket> tickets);
+    TicketDTO rowToDTO(TicketListRow row);
+    List<TicketDTO> rowsToDTOs(List<TicketListRow> rows);
     Ticket toEntity(TicketDTO dto);
     List<Ticket> toEntities(List<TicketDTO> dtos);
 }
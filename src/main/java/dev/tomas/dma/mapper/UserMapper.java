@@ -1,6 +1,7 @@
 package dev.tomas.dma.mapper;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.projection.EmployeeListRow;
 import dev.tomas.dma.entity.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -12,5 +13,6 @@ public interface UserMapper {
     @Mapping(source = "companyRole.name", target = "companyRoleName")
     @Mapping(source = "actualUsername", target = "username")
     UserDTO toDTO(User user);
+    UserDTO rowToDTO(EmployeeListRow row);
     User toEntity(UserDTO userDTO);
 }
@@ -6,6 +6,7 @@ import dev.tomas.dma.enums.FileType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,4 +21,10 @@ public interface AppFileRepo extends JpaRepository<AppFile, Long> {
             EntityType entityType,
             Integer entityId
     );
+
+    List<AppFile> findByEntityTypeAndFileTypeAndEntityIdIn(
+            EntityType entityType,
+            FileType fileType,
+            Collection<Integer> entityIds
+    );
 }
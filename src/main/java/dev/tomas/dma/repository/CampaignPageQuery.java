@@ -0,0 +1,28 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.enums.CampaignSortField;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.Status;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One keyset page of campaigns. Null filters are not applied. When afterId is set only rows strictly
+ * after (afterValue, afterId) in the requested order are returned.
+ */
+public record CampaignPageQuery(
+        List<CampaignStatus> statuses,
+        Integer companyId,
+        List<Status> excludedTicketStatuses,
+        Integer companyTypeId,
+        LocalDate from,
+        LocalDate to,
+        CampaignSortField sort,
+        Sort.Direction direction,
+        Object afterValue,
+        Integer afterId,
+        int limit
+) {
+}
@@ -1,27 +1,42 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.CampaignCompanyRow;
+import dev.tomas.dma.dto.projection.CampaignDimensionRow;
+import dev.tomas.dma.dto.projection.CampaignListRow;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.enums.CampaignStatus;
 import dev.tomas.dma.enums.EntityType;
 import dev.tomas.dma.enums.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface CampaignRepo extends JpaRepository<Campaign, Integer> {
+public interface CampaignRepo extends JpaRepository<Campaign, Integer>, CampaignRepoCustom {
     List<Campaign> findAllByCompanyId(Integer companyId);
 
     List<Campaign> findAllByStatus(CampaignStatus status);
     List<Campaign> findAllByStatusIn(List<CampaignStatus> statuses);
 
     @Query("""
-    SELECT c FROM Campaign c 
-    WHERE c.status IN :statuses 
+    SELECT new dev.tomas.dma.dto.projection.CampaignListRow(
+        c.id, c.name, c.description, c.fundGoal, c.raisedFunds, c.availableFunds, c.remainingFunds,
+        c.startDate, c.endDate, c.status, co.id, co.type.id, c.createDate, c.fundingProgress)
+    FROM Campaign c
+    JOIN c.company co
+    WHERE c.status IN :statuses
     AND NOT EXISTS (
         SELECT t FROM Ticket t 
         WHERE t.entityId = c.id 
@@ -29,9 +44,54 @@ public interface CampaignRepo extends JpaRepository<Campaign, Integer> {
         AND t.status IN :ticketStatuses
     )
 """)
-    List<Campaign> findAllByStatusInExcludingTickets(
+    List<CampaignListRow> findRowsByStatusInExcludingTickets(
             @Param("statuses") List<CampaignStatus> statuses,
             @Param("entityType") EntityType entityType,
             @Param("ticketStatuses") List<Status> ticketStatuses
     );
-}
\ No newline at end of file
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.CampaignListRow(
+        c.id, c.name, c.description, c.fundGoal, c.raisedFunds, c.availableFunds, c.remainingFunds,
+        c.startDate, c.endDate, c.status, co.id, co.type.id, c.createDate, c.fundingProgress)
+    FROM Campaign c
+    JOIN c.company co
+    WHERE c.id = :id
+""")
+    Optional<CampaignListRow> findRowById(@Param("id") Integer id);
+
+    @Query("SELECT c.id FROM Campaign c WHERE c.id IN :ids")
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    @Query("SELECT new dev.tomas.dma.dto.projection.CampaignCompanyRow(c.id, c.company.id) FROM Campaign c WHERE c.id IN :ids")
+    List<CampaignCompanyRow> findCompanyIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Locks the rows in id order, so concurrent batches queue on them instead of deadlocking
+    @Query(value = "SELECT id FROM campaign WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Integer> lockIdsIn(@Param("ids") Collection<Integer> ids);
+
+    // Single atomic increment, so concurrent donations can't overwrite each other's totals
+    @Modifying
+    @Query("UPDATE Campaign c SET c.raisedFunds = COALESCE(c.raisedFunds, 0) + :amount WHERE c.id = :id")
+    int addRaisedFunds(@Param("id") Integer id, @Param("amount") BigDecimal amount);
+
+    // MySQL only streams rows one by one with this fetch size; any other value buffers the whole result
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.CampaignListRow(
+        c.id, c.name, c.description, c.fundGoal, c.raisedFunds, c.availableFunds, c.remainingFunds,
+        c.startDate, c.endDate, c.status, co.id, co.type.id, c.createDate, c.fundingProgress)
+    FROM Campaign c
+    JOIN c.company co
+    ORDER BY c.id
+""")
+    Stream<CampaignListRow> streamAllRows();
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.CampaignDimensionRow(c.id, c.name, c.status, t.id, t.name)
+    FROM Campaign c
+    JOIN c.company co
+    LEFT JOIN co.type t
+""")
+    List<CampaignDimensionRow> findDimensions();
+}
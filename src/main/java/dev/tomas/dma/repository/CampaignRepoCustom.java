@@ -0,0 +1,9 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.dto.projection.CampaignListRow;
+
+import java.util.List;
+
+public interface CampaignRepoCustom {
+    List<CampaignListRow> findPage(CampaignPageQuery query);
+}
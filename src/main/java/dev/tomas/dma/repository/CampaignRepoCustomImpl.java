@@ -0,0 +1,112 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.dto.projection.CampaignListRow;
+import dev.tomas.dma.entity.Campaign;
+import dev.tomas.dma.entity.Company;
+import dev.tomas.dma.entity.Ticket;
+import dev.tomas.dma.enums.EntityType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CampaignRepoCustomImpl implements CampaignRepoCustom {
+    // Campaigns without an end date sort as if they never end
+    public static final LocalDate OPEN_END_DATE = LocalDate.of(9999, 12, 31);
+    // Older rows may lack these; they sort as the oldest and as nothing raised, like the feed does.
+    // The sort_* columns on campaign fill in the same values
+    public static final LocalDate UNKNOWN_CREATE_DATE = LocalDate.EPOCH;
+    public static final BigDecimal NO_FUNDS = BigDecimal.ZERO;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Builds the page as a seek on (sort key, id) instead of an OFFSET, so every page costs the same
+     * no matter how deep the client has scrolled. The seek and the order compare the stored sort_* columns,
+     * which have missing values filled in, so both run on the (key, id) indexes on campaign.
+     * Only the listed columns are selected, nothing is loaded into the persistence context.
+     */
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<CampaignListRow> findPage(CampaignPageQuery query) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CampaignListRow> cq = cb.createQuery(CampaignListRow.class);
+        Root<Campaign> campaign = cq.from(Campaign.class);
+        Join<Campaign, Company> company = campaign.join("company");
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (query.statuses() != null) {
+            predicates.add(campaign.get("status").in(query.statuses()));
+        }
+        if (query.companyId() != null) {
+            predicates.add(cb.equal(company.get("id"), query.companyId()));
+        }
+        if (query.companyTypeId() != null) {
+            predicates.add(cb.equal(company.get("type").get("id"), query.companyTypeId()));
+        }
+        if (query.from() != null) {
+            predicates.add(cb.or(cb.isNull(campaign.get("endDate")), cb.greaterThanOrEqualTo(campaign.get("endDate"), query.from())));
+        }
+        if (query.to() != null) {
+            predicates.add(cb.or(cb.isNull(campaign.get("startDate")), cb.lessThanOrEqualTo(campaign.get("startDate"), query.to())));
+        }
+        if (query.excludedTicketStatuses() != null && !query.excludedTicketStatuses().isEmpty()) {
+            Subquery<Long> tickets = cq.subquery(Long.class);
+            Root<Ticket> ticket = tickets.from(Ticket.class);
+            tickets.select(ticket.get("id")).where(
+                    cb.equal(ticket.get("entityId"), campaign.get("id")),
+                    cb.equal(ticket.get("type"), EntityType.CAMPAIGN),
+                    ticket.get("status").in(query.excludedTicketStatuses())
+            );
+            predicates.add(cb.not(cb.exists(tickets)));
+        }
+
+        Expression key = sortKey(campaign, query);
+        Path<Integer> id = campaign.get("id");
+        boolean ascending = query.direction() == Sort.Direction.ASC;
+
+        if (query.afterId() != null) {
+            Comparable value = (Comparable) query.afterValue();
+            predicates.add(ascending
+                    ? cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, query.afterId())))
+                    : cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, query.afterId()))));
+        }
+
+        cq.select(cb.construct(CampaignListRow.class,
+                        campaign.get("id"),
+                        campaign.get("name"),
+                        campaign.get("description"),
+                        campaign.get("fundGoal"),
+                        campaign.get("raisedFunds"),
+                        campaign.get("availableFunds"),
+                        campaign.get("remainingFunds"),
+                        campaign.get("startDate"),
+                        campaign.get("endDate"),
+                        campaign.get("status"),
+                        company.get("id"),
+                        company.get("type").get("id"),
+                        campaign.get("createDate"),
+                        campaign.get("fundingProgress")))
+                .where(predicates.toArray(Predicate[]::new))
+                .orderBy(ascending ? List.of(cb.asc(key), cb.asc(id)) : List.of(cb.desc(key), cb.desc(id)));
+
+        return entityManager.createQuery(cq)
+                .setMaxResults(query.limit())
+                .getResultList();
+    }
+
+    private Expression<?> sortKey(Root<Campaign> campaign, CampaignPageQuery query) {
+        return switch (query.sort()) {
+            case CREATE_DATE -> campaign.<LocalDate>get("sortCreateDate");
+            case END_DATE -> campaign.<LocalDate>get("sortEndDate");
+            case RAISED_FUNDS -> campaign.<BigDecimal>get("sortRaisedFunds");
+            case FUNDING_PROGRESS -> campaign.<BigDecimal>get("sortFundingProgress");
+        };
+    }
+}
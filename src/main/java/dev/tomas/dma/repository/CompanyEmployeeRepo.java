@@ -1,7 +1,7 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.EmployeeListRow;
 import dev.tomas.dma.entity.CompanyRole;
-import dev.tomas.dma.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +12,13 @@ import java.util.List;
 @Repository
 public interface CompanyEmployeeRepo extends JpaRepository<CompanyRole, Integer> {
 
-    @Query("SELECT u FROM User u WHERE u.company.id = :companyId")
-    List<User> findAllUsersByCompanyId(@Param("companyId") Integer companyId);
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.EmployeeListRow(
+        u.id, u.email, u.phoneNumber, u.address, u.firstName, u.lastName, u.middleNames, u.username,
+        u.company.id, r.id, r.name)
+    FROM User u
+    LEFT JOIN u.companyRole r
+    WHERE u.company.id = :companyId
+""")
+    List<EmployeeListRow> findAllRowsByCompanyId(@Param("companyId") Integer companyId);
 }
@@ -1,8 +1,10 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.CompanyListRow;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.enums.CompanyStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
@@ -13,4 +15,12 @@ public interface CompanyRepo extends JpaRepository<Company, Integer> {
     Company getReferenceById(Integer id);
     List<Company> findCompaniesByStatus(CompanyStatus status);
     boolean existsByTypeId(Integer typeId);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.CompanyListRow(
+        c.id, c.name, c.registrationNumber, c.taxId, t.id, t.name, t.description, c.status)
+    FROM Company c
+    JOIN c.type t
+""")
+    List<CompanyListRow> findAllRows();
 }
@@ -1,10 +1,13 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.RoleGrantRow;
 import dev.tomas.dma.entity.CompanyRole;
 import dev.tomas.dma.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,4 +16,20 @@ public interface CompanyRoleRepo extends Repository<CompanyRole, Integer>, JpaRe
     CompanyRole findByCompanyIdAndName(Integer companyId, String name);
 
     List<CompanyRole> findAllByCompanyId(Integer companyId);
+
+    // One row per permission, and one with no permission for a role that has none
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.RoleGrantRow(r.id, r.permissionVersion, p.id, p.name)
+    FROM CompanyRole r
+    LEFT JOIN r.permissions p
+""")
+    List<RoleGrantRow> findAllGrants();
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.RoleGrantRow(r.id, r.permissionVersion, p.id, p.name)
+    FROM CompanyRole r
+    LEFT JOIN r.permissions p
+    WHERE r.id = :id
+""")
+    List<RoleGrantRow> findGrantsById(@Param("id") Integer id);
 }
@@ -0,0 +1,47 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.dto.projection.InboxKeyRow;
+import dev.tomas.dma.entity.DonationInboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface DonationInboxRepo extends JpaRepository<DonationInboxEntry, Long> {
+    // SKIP LOCKED lets several consumers drain the inbox without waiting on each other's batches
+    @Query(value = """
+    SELECT * FROM donation_inbox
+    WHERE processed_at IS NULL AND attempts < :maxAttempts
+    ORDER BY id
+    LIMIT :limit
+    FOR UPDATE SKIP LOCKED
+""", nativeQuery = true)
+    List<DonationInboxEntry> lockPending(@Param("maxAttempts") int maxAttempts, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE DonationInboxEntry e SET e.processedAt = :processedAt WHERE e.id IN :ids")
+    int markProcessed(@Param("ids") Collection<Long> ids, @Param("processedAt") LocalDateTime processedAt);
+
+    @Modifying
+    @Query("UPDATE DonationInboxEntry e SET e.attempts = e.attempts + 1, e.error = :error WHERE e.id IN :ids")
+    int recordFailure(@Param("ids") Collection<Long> ids, @Param("error") String error);
+
+    @Query("SELECT COUNT(e) FROM DonationInboxEntry e WHERE e.processedAt IS NULL AND e.attempts < :maxAttempts")
+    long countPending(@Param("maxAttempts") int maxAttempts);
+
+    boolean existsByEventId(String eventId);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.InboxKeyRow(e.eventId, e.paymentIntentId)
+    FROM DonationInboxEntry e
+    WHERE e.receivedAt >= :since
+""")
+    List<InboxKeyRow> findKeysReceivedSince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT MIN(e.receivedAt) FROM DonationInboxEntry e WHERE e.processedAt IS NULL AND e.attempts < :maxAttempts")
+    LocalDateTime findOldestPending(@Param("maxAttempts") int maxAttempts);
+}
@@ -1,10 +1,90 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.CampaignTotalRow;
+import dev.tomas.dma.dto.projection.DonationFactRow;
+import dev.tomas.dma.dto.projection.DonationHistoryRow;
+import dev.tomas.dma.dto.projection.DonationIntentRow;
+import dev.tomas.dma.dto.projection.DonationWindowRow;
 import dev.tomas.dma.entity.Donation;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface DonationRepository extends JpaRepository<Donation, Integer> {
-    List<Donation> findAllByUserId(Integer userId);
+    // Newest first, undated legacy rows last (MySQL sorts nulls last when descending); the page size
+    // comes in through the Pageable, always page 0
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationHistoryRow(
+        d.id, d.date, d.amount, d.user.id, c.id, c.name, co.id, co.name)
+    FROM Donation d
+    JOIN d.campaign c
+    JOIN c.company co
+    WHERE d.user.id = :userId
+    ORDER BY d.date DESC, d.id DESC
+""")
+    List<DonationHistoryRow> findHistory(@Param("userId") Integer userId, Pageable page);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationHistoryRow(
+        d.id, d.date, d.amount, d.user.id, c.id, c.name, co.id, co.name)
+    FROM Donation d
+    JOIN d.campaign c
+    JOIN c.company co
+    WHERE d.user.id = :userId
+    AND (d.date < :date OR (d.date = :date AND d.id < :id) OR d.date IS NULL)
+    ORDER BY d.date DESC, d.id DESC
+""")
+    List<DonationHistoryRow> findHistoryBefore(@Param("userId") Integer userId, @Param("date") LocalDateTime date,
+                                               @Param("id") Integer id, Pageable page);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationHistoryRow(
+        d.id, d.date, d.amount, d.user.id, c.id, c.name, co.id, co.name)
+    FROM Donation d
+    JOIN d.campaign c
+    JOIN c.company co
+    WHERE d.user.id = :userId
+    AND d.date IS NULL AND d.id < :id
+    ORDER BY d.id DESC
+""")
+    List<DonationHistoryRow> findUndatedHistoryBefore(@Param("userId") Integer userId, @Param("id") Integer id, Pageable page);
+
+    @Query("SELECT d.paymentIntentId FROM Donation d WHERE d.paymentIntentId IN :paymentIntentIds")
+    List<String> findPaymentIntentIdsIn(@Param("paymentIntentIds") Collection<String> paymentIntentIds);
+
+    @Query("SELECT new dev.tomas.dma.dto.projection.DonationIntentRow(d.id, d.paymentIntentId) FROM Donation d WHERE d.paymentIntentId IN :paymentIntentIds")
+    List<DonationIntentRow> findIdsByPaymentIntentIdIn(@Param("paymentIntentIds") Collection<String> paymentIntentIds);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.CampaignTotalRow(d.campaign.id, SUM(d.amount))
+    FROM Donation d
+    GROUP BY d.campaign.id
+    HAVING SUM(d.amount) > 0
+""")
+    List<CampaignTotalRow> findCampaignTotals();
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationWindowRow(d.campaign.id, d.amount, d.date)
+    FROM Donation d
+    WHERE d.date >= :since
+""")
+    List<DonationWindowRow> findWindowRowsSince(@Param("since") LocalDateTime since);
+
+    // Streamed row by row (MySQL only streams with this fetch size) for the analytics store
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationFactRow(d.id, d.campaign.id, d.user.id, d.amount, d.date)
+    FROM Donation d
+    ORDER BY d.id
+""")
+    Stream<DonationFactRow> streamFacts();
 }
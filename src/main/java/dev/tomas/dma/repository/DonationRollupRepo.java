@@ -0,0 +1,26 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.dto.projection.DonationBucketRow;
+import dev.tomas.dma.entity.DonationRollup;
+import dev.tomas.dma.enums.RollupGranularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DonationRollupRepo extends JpaRepository<DonationRollup, Long> {
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.DonationBucketRow(r.bucketStart, r.amount, r.donationCount)
+    FROM DonationRollup r
+    WHERE r.campaignId = :campaignId
+    AND r.granularity = :granularity
+    AND r.bucketStart BETWEEN :from AND :to
+    ORDER BY r.bucketStart
+""")
+    List<DonationBucketRow> findSeries(@Param("campaignId") Integer campaignId,
+                                       @Param("granularity") RollupGranularity granularity,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+}
@@ -0,0 +1,7 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.entity.DonorSketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DonorSketchRepo extends JpaRepository<DonorSketch, Long> {
+}
@@ -0,0 +1,30 @@
+package dev.tomas.dma.repository;
+
+import dev.tomas.dma.entity.DonorSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface DonorSummaryRepo extends JpaRepository<DonorSummary, Integer> {
+    // One-off backfill for donations saved before the summaries existed
+    @Modifying
+    @Transactional
+    @Query(value = """
+    INSERT IGNORE INTO donor_campaign (user_id, campaign_id)
+    SELECT DISTINCT user_id, campaign_id FROM donation
+    WHERE user_id IS NOT NULL AND campaign_id IS NOT NULL
+""", nativeQuery = true)
+    int backfillCampaigns();
+
+    @Modifying
+    @Transactional
+    @Query(value = """
+    INSERT IGNORE INTO donor_summary (user_id, total_amount, donation_count, campaign_count, last_donation_date)
+    SELECT user_id, COALESCE(SUM(amount), 0), COUNT(*), COUNT(DISTINCT campaign_id), MAX(date)
+    FROM donation
+    WHERE user_id IS NOT NULL
+    GROUP BY user_id
+""", nativeQuery = true)
+    int backfillSummaries();
+}
@@ -1,16 +1,51 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.TicketListRow;
 import dev.tomas.dma.entity.Ticket;
 import dev.tomas.dma.enums.EntityType;
 import dev.tomas.dma.enums.Status;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface TicketRepo extends JpaRepository<Ticket, Long> {
     List<Ticket> findAllByStatus(Status status);
 
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.TicketListRow(
+        t.id, t.name, t.additionalInfo, t.type, t.entityId, t.status, t.message, t.closeDate, t.createDate)
+    FROM Ticket t
+""")
+    List<TicketListRow> findAllRows();
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.TicketListRow(
+        t.id, t.name, t.additionalInfo, t.type, t.entityId, t.status, t.message, t.closeDate, t.createDate)
+    FROM Ticket t
+    WHERE t.status = :status
+""")
+    List<TicketListRow> findAllRowsByStatus(@Param("status") Status status);
+
+    // MySQL only streams rows one by one with this fetch size; any other value buffers the whole result
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.TicketListRow(
+        t.id, t.name, t.additionalInfo, t.type, t.entityId, t.status, t.message, t.closeDate, t.createDate)
+    FROM Ticket t
+    ORDER BY t.id
+""")
+    Stream<TicketListRow> streamAllRows();
+
     boolean existsByEntityIdAndTypeAndStatus(Integer entityId, EntityType type, Status status);
 
+    @Query("SELECT DISTINCT t.entityId FROM Ticket t WHERE t.type = :type AND t.status = :status")
+    List<Integer> findEntityIdsByTypeAndStatus(@Param("type") EntityType type, @Param("status") Status status);
+
     boolean existsByEntityIdAndTypeAndStatusIn(Integer entityId, EntityType entityType, List<Status> statuses);
 }
@@ -1,13 +1,89 @@
 package dev.tomas.dma.repository;
 
+import dev.tomas.dma.dto.projection.EmployeeListRow;
+import dev.tomas.dma.dto.projection.PrincipalRow;
+import dev.tomas.dma.dto.projection.UserAuthChangeRow;
 import dev.tomas.dma.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface UserRepo extends JpaRepository<User, Integer> {
     Optional<User> findByEmail(String email);
     Optional<User> findByUsername(String username);
-    List<User> findByEmailContainingIgnoreCase(String emailPart);
+    boolean existsByEmail(String email);
+    boolean existsByUsername(String username);
+    boolean existsByPhoneNumber(String phoneNumber);
+
+    // One page of users whose search key starts with the pattern, after (afterKey, afterId); reads idx_users_search_key
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.EmployeeListRow(
+        u.id, u.email, u.phoneNumber, u.address, u.firstName, u.lastName, u.middleNames, u.username,
+        u.company.id, r.id, r.name)
+    FROM User u
+    LEFT JOIN u.companyRole r
+    WHERE u.searchKey LIKE :pattern ESCAPE '!'
+      AND (u.searchKey > :afterKey OR (u.searchKey = :afterKey AND u.id > :afterId))
+    ORDER BY u.searchKey, u.id
+""")
+    List<EmployeeListRow> findSearchPage(@Param("pattern") String pattern, @Param("afterKey") String afterKey,
+                                         @Param("afterId") Integer afterId, Pageable page);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.EmployeeListRow(
+        u.id, u.email, u.phoneNumber, u.address, u.firstName, u.lastName, u.middleNames, u.username,
+        u.company.id, r.id, r.name)
+    FROM User u
+    LEFT JOIN u.companyRole r
+    WHERE u.id IN :ids
+""")
+    List<EmployeeListRow> findSearchRowsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // Everything sign-in reads, in one query; two rows when the login is one user's username and another's email
+    @Query("""
+    SELECT u FROM User u
+    LEFT JOIN FETCH u.company
+    LEFT JOIN FETCH u.companyRole r
+    LEFT JOIN FETCH r.company
+    LEFT JOIN FETCH r.permissions
+    WHERE u.username = :login OR u.email = :login
+""")
+    List<User> findAllByLogin(@Param("login") String login);
+
+    // Only replaces the hash it was made from, so a password changed meanwhile isn't overwritten
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :hash WHERE u.id = :id AND u.password = :previous")
+    int updatePasswordHash(@Param("id") Integer id, @Param("previous") String previous, @Param("hash") String hash);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Integer> findIdsByIdIn(@Param("ids") Collection<Integer> ids);
+
+    // One row per permission, so the principal is built from a single query
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.PrincipalRow(
+        u.id, u.email, u.username, u.firstName, u.lastName, u.role, u.enabled,
+        rc.id, r.id, r.name, r.permissionVersion, p.id, p.name)
+    FROM User u
+    LEFT JOIN u.companyRole r
+    LEFT JOIN r.company rc
+    LEFT JOIN r.permissions p
+    WHERE u.email = :login OR u.username = :login
+""")
+    List<PrincipalRow> findPrincipalRows(@Param("login") String login);
+
+    @Query("""
+    SELECT new dev.tomas.dma.dto.projection.UserAuthChangeRow(u.id, u.authChangedAt)
+    FROM User u
+    WHERE u.authChangedAt > :since
+""")
+    List<UserAuthChangeRow> findAuthChangesSince(@Param("since") LocalDateTime since);
 }
@@ -0,0 +1,19 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.response.CampaignGetAllRes;
+
+import java.util.Optional;
+
+public interface CampaignFeedService {
+    CampaignGetAllRes findPage(CampaignPageReq page);
+
+    Optional<CampaignDTO> findById(Integer id);
+
+    CampaignGetAllRes search(String query, int limit);
+
+    void rebuild();
+
+    void refresh(Integer campaignId);
+}
@@ -0,0 +1,21 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.projection.CampaignRankRow;
+import dev.tomas.dma.enums.RankingWindow;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface CampaignRankingService {
+    List<CampaignRankRow> top(RankingWindow window);
+
+    void record(Integer campaignId, long amount, LocalDateTime date);
+
+    void rebuild();
+
+    // The campaigns the public feed holds; only these are ranked
+    void setVisible(Collection<Integer> campaignIds);
+
+    void setVisible(Integer campaignId, boolean visible);
+}
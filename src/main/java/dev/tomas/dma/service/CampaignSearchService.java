@@ -0,0 +1,16 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.CampaignDTO;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CampaignSearchService {
+    List<Integer> search(String query, int limit);
+
+    void index(CampaignDTO campaign);
+
+    void remove(Integer campaignId);
+
+    void rebuild(Collection<CampaignDTO> campaigns);
+}
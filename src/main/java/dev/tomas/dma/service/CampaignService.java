@@ -1,21 +1,35 @@
 package dev.tomas.dma.service;
 
 import dev.tomas.dma.dto.request.CampaignCreateReq;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.request.CampaignRankingReq;
+import dev.tomas.dma.dto.request.CampaignSearchReq;
 import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.dto.response.CampaignRankingRes;
 import dev.tomas.dma.dto.request.CampaignUpdateReq;
 import dev.tomas.dma.dto.common.CampaignDTO;
 import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.ExportFormat;
 import org.springframework.http.ResponseEntity;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 public interface CampaignService {
-    CampaignGetAllRes findAll();
+    CampaignGetAllRes findAll(CampaignPageReq page);
 
-    CampaignGetAllRes findAllApproved();
+    CampaignGetAllRes findAllApproved(CampaignPageReq page);
 
-    CampaignGetAllRes findAllByStatus(CampaignStatus status);
+    CampaignGetAllRes findAllByStatus(CampaignStatus status, CampaignPageReq page);
 
     CampaignDTO findById(Integer id);
 
+    CampaignGetAllRes search(CampaignSearchReq request);
+
+    CampaignRankingRes findRankings(CampaignRankingReq request);
+
+    void exportAll(OutputStream out, ExportFormat format) throws IOException;
+
     CampaignDTO save(CampaignCreateReq request);
 
     CampaignDTO update(CampaignUpdateReq request);
@@ -24,5 +38,5 @@ public interface CampaignService {
 
     Integer deleteById(Integer id);
 
-    CampaignGetAllRes findByCompanyId(Integer companyId);
+    CampaignGetAllRes findByCompanyId(Integer companyId, CampaignPageReq page);
 }
@@ -0,0 +1,7 @@
+package dev.tomas.dma.service;
+
+public interface CompanyActivationService {
+    boolean isActive(Integer companyId);
+
+    void refresh(Integer companyId);
+}
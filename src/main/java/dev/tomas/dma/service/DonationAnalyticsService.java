@@ -0,0 +1,14 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.request.DonationReportReq;
+import dev.tomas.dma.dto.response.DonationReportRes;
+
+import java.time.LocalDateTime;
+
+public interface DonationAnalyticsService {
+    void append(Integer donationId, Integer campaignId, Integer userId, long amount, LocalDateTime date);
+
+    void rebuild();
+
+    DonationReportRes report(DonationReportReq request);
+}
@@ -0,0 +1,11 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+
+public interface DonationInboxService {
+    boolean isDuplicate(String eventId);
+
+    void append(String eventId, String paymentIntentId, DonationDTO donation, String payload);
+
+    int drain();
+}
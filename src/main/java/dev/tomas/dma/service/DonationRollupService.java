@@ -0,0 +1,16 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.request.DonationTimeSeriesReq;
+import dev.tomas.dma.dto.response.DonationTimeSeriesRes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface DonationRollupService {
+    void add(List<DonationDTO> donations, LocalDateTime defaultDate);
+
+    DonationTimeSeriesRes getSeries(Integer campaignId, DonationTimeSeriesReq request);
+
+    int rebuild();
+}
@@ -1,12 +1,16 @@
 package dev.tomas.dma.service;
 
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.request.DonationHistoryReq;
 import dev.tomas.dma.dto.response.DonationByUserGetAllRes;
+import dev.tomas.dma.dto.response.DonationHistoryRes;
 
 import java.util.List;
 import java.util.Map;
 
 public interface DonationService {
     void save(DonationDTO dto);
+    void saveAll(List<DonationDTO> dtos);
     List<DonationByUserGetAllRes> getAllByUserId(Integer userId);
+    DonationHistoryRes getHistory(Integer userId, DonationHistoryReq page);
 }
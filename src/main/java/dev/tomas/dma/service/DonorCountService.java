@@ -0,0 +1,15 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+
+import java.util.List;
+
+public interface DonorCountService {
+    void add(List<DonationDTO> donations);
+
+    long campaignDonors(Integer campaignId);
+
+    long companyDonors(Integer companyId);
+
+    long platformDonors();
+}
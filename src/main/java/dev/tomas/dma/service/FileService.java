@@ -4,6 +4,12 @@ import dev.tomas.dma.entity.AppFile;
 import dev.tomas.dma.enums.EntityType;
 import dev.tomas.dma.enums.FileType;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 public interface FileService {
     AppFile saveFile(Integer entityId, String imgUrl, FileType fileType, EntityType entityType);
+
+    Map<Integer, List<AppFile>> findAllByEntityIds(EntityType entityType, FileType fileType, Collection<Integer> entityIds);
 }
@@ -1,15 +1,20 @@
 package dev.tomas.dma.service;
 
+import dev.tomas.dma.dto.common.AuthPrincipal;
+import dev.tomas.dma.dto.common.VerifiedToken;
 import dev.tomas.dma.entity.User;
 import io.jsonwebtoken.Claims;
+import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Date;
 import java.util.function.Function;
 
 public interface JWTService {
+    VerifiedToken verify(String token);
     String extractUsername(String token);
     Date extractExpiration(String token);
     <T> T extractClaim(String token, Function<Claims, T> claimsResolver);
     String generateToken(User user);
-    Boolean validateToken(String token, User user);
+    String refreshToken(AuthPrincipal principal);
+    Boolean validateToken(String token, UserDetails user);
 }
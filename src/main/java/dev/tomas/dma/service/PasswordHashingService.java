@@ -0,0 +1,9 @@
+package dev.tomas.dma.service;
+
+import java.util.function.Consumer;
+
+public interface PasswordHashingService {
+    String hash(String rawPassword);
+
+    boolean verify(String rawPassword, String hash, Consumer<String> rehash);
+}
@@ -1,9 +1,12 @@
 package dev.tomas.dma.service;
 
-import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import dev.tomas.dma.dto.common.DonationDTO;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface PaymentService {
-    PaymentIntent createPaymentIntent(DonationDTO req) throws StripeException;
+    CompletableFuture<PaymentIntent> createPaymentIntent(DonationDTO req);
+
+    void forgetPaymentIntent(DonationDTO donation);
 }
@@ -0,0 +1,19 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.enums.UserRole;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Date;
+import java.util.Set;
+
+public interface PermissionRegistryService {
+    Set<GrantedAuthority> authorities(UserRole role, Integer companyRoleId, Integer version);
+
+    boolean changedSince(Integer userId, Date issuedAt);
+
+    void roleChanged(Integer roleId);
+
+    void userChanged(Integer userId);
+
+    void permissionsChanged();
+}
@@ -0,0 +1,16 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.common.AuthPrincipal;
+import dev.tomas.dma.dto.common.VerifiedToken;
+
+public interface PrincipalCacheService {
+    AuthPrincipal load(String login);
+
+    AuthPrincipal fromToken(VerifiedToken token);
+
+    void evictUser(Integer userId);
+
+    void evictRole(Integer roleId);
+
+    void evictAll();
+}
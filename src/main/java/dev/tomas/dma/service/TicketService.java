@@ -8,6 +8,10 @@ import dev.tomas.dma.dto.response.TicketGetAllRes;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.FundRequest;
+import dev.tomas.dma.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface TicketService {
     TicketDTO save(TicketSaveReq req);
@@ -16,6 +20,7 @@ public interface TicketService {
     TicketDTO save(FundRequest fundReq);
     TicketGetAllRes getAllOpen();
     TicketGetAllRes getAll();
+    void exportAll(OutputStream out, ExportFormat format) throws IOException;
     TicketDetailsGetRes getByTicketId(Long ticketId);
     void closeTicket(TicketCloseReq req);
 }
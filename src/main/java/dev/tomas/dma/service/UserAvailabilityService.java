@@ -0,0 +1,12 @@
+package dev.tomas.dma.service;
+
+public interface UserAvailabilityService {
+    boolean isEmailAvailable(String email);
+
+    boolean isUsernameAvailable(String username);
+
+    void registered(String email, String username);
+
+    // Counts one probe of the public endpoint; false once the client has used up its allowance
+    boolean tryProbe(String client);
+}
@@ -0,0 +1,9 @@
+package dev.tomas.dma.service;
+
+import dev.tomas.dma.dto.response.UserSearchRes;
+
+public interface UserSearchService {
+    UserSearchRes search(String query, String cursor, int limit);
+
+    void indexPending();
+}
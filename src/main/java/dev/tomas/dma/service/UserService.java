@@ -1,11 +1,14 @@
 package dev.tomas.dma.service;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.request.UserSearchReq;
+import dev.tomas.dma.dto.response.UserSearchRes;
 
 import java.util.List;
 
 public interface UserService {
     UserDTO getById(Integer id);
     UserDTO getByEmail(String email);
+    UserSearchRes search(UserSearchReq request);
     List<UserDTO> searchByEmail(String email);
 }
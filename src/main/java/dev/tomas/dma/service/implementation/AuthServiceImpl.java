@@ -2,62 +2,81 @@ package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.response.AuthRes;
 import dev.tomas.dma.dto.response.AuthUserRes;
+import dev.tomas.dma.dto.response.UserAvailabilityRes;
+import dev.tomas.dma.dto.request.UserAvailabilityReq;
 import dev.tomas.dma.dto.request.UserRegisterReq;
 import dev.tomas.dma.dto.request.AuthReq;
+import dev.tomas.dma.dto.common.AuthPrincipal;
 import dev.tomas.dma.entity.User;
-import dev.tomas.dma.enums.EntityType;
-import dev.tomas.dma.enums.Status;
 import dev.tomas.dma.enums.UserRole;
 import dev.tomas.dma.mapper.AuthResponseMapper;
-import dev.tomas.dma.repository.TicketRepo;
 import dev.tomas.dma.repository.UserRepo;
 import dev.tomas.dma.service.AuthService;
+import dev.tomas.dma.service.CompanyActivationService;
 import dev.tomas.dma.service.JWTService;
-import org.springframework.context.annotation.Lazy;
+import dev.tomas.dma.service.PasswordHashingService;
+import dev.tomas.dma.service.PrincipalCacheService;
+import dev.tomas.dma.service.UserAvailabilityService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 @Service
 public class AuthServiceImpl implements AuthService, UserDetailsService {
     private final UserRepo userRepo;
     private final JWTService jwtService;
-    private final PasswordEncoder passwordEncoder;
-    private final AuthenticationManager authManager;
-    private final TicketRepo ticketRepo;
+    private final PasswordHashingService passwordHashingService;
+    private final CompanyActivationService companyActivationService;
+    private final PrincipalCacheService principalCacheService;
+    private final UserAvailabilityService userAvailabilityService;
+    private final UserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
 
     public AuthServiceImpl(UserRepo userRepo,
                            JWTService jwtService,
-                           PasswordEncoder passwordEncoder,
-                           @Lazy AuthenticationManager authManager, TicketRepo ticketRepo
+                           PasswordHashingService passwordHashingService,
+                           CompanyActivationService companyActivationService,
+                           PrincipalCacheService principalCacheService,
+                           UserAvailabilityService userAvailabilityService
     ) {
         this.userRepo = userRepo;
         this.jwtService = jwtService;
-        this.passwordEncoder = passwordEncoder;
-        this.authManager = authManager;
-        this.ticketRepo = ticketRepo;
+        this.passwordHashingService = passwordHashingService;
+        this.companyActivationService = companyActivationService;
+        this.principalCacheService = principalCacheService;
+        this.userAvailabilityService = userAvailabilityService;
     }
 
+    /**
+     * Registers with a single insert: the unique constraints decide whether the email, username and
+     * phone number are free, and a violation is turned into a 409 from the constraint's name. Names
+     * already known to be taken are refused before the password is hashed.
+     */
     @Override
     public AuthRes register(UserRegisterReq request) {
-
-        if (request.getEmail() != null && userRepo.findByEmail(request.getEmail()).isPresent()) {
+        if (!userAvailabilityService.isEmailAvailable(request.getEmail())) {
             throw new DuplicateKeyException("Email already exists");
         }
-        if (request.getUsername() != null && userRepo.findByUsername(request.getUsername()).isPresent()) {
+        if (!userAvailabilityService.isUsernameAvailable(request.getUsername())) {
             throw new DuplicateKeyException("Username already exists");
         }
 
         User toSave = new User();
         toSave.setEmail(request.getEmail());
-        toSave.setPassword(passwordEncoder.encode(request.getPassword()));
+        toSave.setPassword(passwordHashingService.hash(request.getPassword()));
         toSave.setPhoneNumber(request.getPhoneNumber());
         toSave.setAddress(request.getAddress());
         toSave.setFirstName(request.getFirstName());
@@ -71,67 +90,127 @@ public class AuthServiceImpl implements AuthService, UserDetailsService {
             toSave.setRole(UserRole.DONOR);
         }
 
-        User user = userRepo.save(toSave);
+        User user;
+        try {
+            user = userRepo.save(toSave);
+        } catch (DataIntegrityViolationException e) {
+            throw duplicate(e, request);
+        }
+        userAvailabilityService.registered(user.getEmail(), user.getActualUsername());
 
         return new AuthRes(jwtService.generateToken(user), AuthResponseMapper.INSTANCE.convertToDTO(user));
     }
 
+    /**
+     * Answers the sign-up form's probe. Each client gets a few checks a minute, so the endpoint can't
+     * be used to find out which of a list of emails are registered.
+     */
     @Override
-    public AuthRes login(AuthReq authReq) {
-        try {
-            UsernamePasswordAuthenticationToken authRequestToken =
-                    new UsernamePasswordAuthenticationToken(authReq.getUsername() == null ? authReq.getEmail() : authReq.getUsername(), authReq.getPassword());
-
-            Authentication authentication = authManager.authenticate(authRequestToken);
-            User user = (User) authentication.getPrincipal();
-            AuthUserRes res = new AuthUserRes();
-
-            res.setId(user.getId());
-            res.setEmail(user.getEmail());
-            res.setUsername(user.getUsername());
-            res.setFirstName(user.getFirstName());
-            res.setLastName(user.getLastName());
-            if (user.getCompanyRole() != null) {
-                res.setCompanyId(user.getCompanyRole().getCompany().getId());
-                res.setCompanyRole(user.getCompanyRole().getName());
-                res.setCompanyActive(!ticketRepo.existsByEntityIdAndTypeAndStatus(res.getCompanyId(), EntityType.COMPANY, Status.PENDING));
-            }
-            res.setRole(user.getRole().toString());
-
-            return new AuthRes(jwtService.generateToken(user), res);
-
-        } catch (BadCredentialsException e) {
-            throw new BadCredentialsException("Invalid username/email or password");
+    public UserAvailabilityRes availability(UserAvailabilityReq request, String client) {
+        boolean hasEmail = request.getEmail() != null && !request.getEmail().isBlank();
+        boolean hasUsername = request.getUsername() != null && !request.getUsername().isBlank();
+        if (!hasEmail && !hasUsername) {
+            throw new IllegalArgumentException("Email or username is required");
+        }
+        if (!userAvailabilityService.tryProbe(client)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many availability checks, try again later");
         }
+        return new UserAvailabilityRes(
+                hasEmail ? userAvailabilityService.isEmailAvailable(request.getEmail()) : null,
+                hasUsername ? userAvailabilityService.isUsernameAvailable(request.getUsername()) : null);
     }
 
-    public AuthUserRes authMe(Authentication authentication) {
-        if (authentication == null || !authentication.isAuthenticated() ||
-                !(authentication.getPrincipal() instanceof User user)) {
-            throw new BadCredentialsException("User not authenticated");
+    /**
+     * Signs in with one query for the user, their company role and its permissions. The password is
+     * checked on the hashing pool, and a hash made at an outdated cost is replaced on the way.
+     */
+    @Override
+    public AuthRes login(AuthReq authReq) {
+        String login = authReq.getUsername() == null ? authReq.getEmail() : authReq.getUsername();
+        User user = findByLogin(login).orElse(null);
+        boolean verified = passwordHashingService.verify(authReq.getPassword(), user != null ? user.getPassword() : null,
+                hash -> userRepo.updatePasswordHash(user.getId(), user.getPassword(), hash));
+        if (!verified) {
+            throw new BadCredentialsException("Invalid username/email or password");
         }
+        accountStatusChecker.check(user);
 
         AuthUserRes res = new AuthUserRes();
 
         res.setId(user.getId());
         res.setEmail(user.getEmail());
-        res.setUsername(user.getActualUsername());
+        res.setUsername(user.getUsername());
         res.setFirstName(user.getFirstName());
         res.setLastName(user.getLastName());
         if (user.getCompanyRole() != null) {
             res.setCompanyId(user.getCompanyRole().getCompany().getId());
             res.setCompanyRole(user.getCompanyRole().getName());
-            res.setCompanyActive(!ticketRepo.existsByEntityIdAndTypeAndStatus(res.getCompanyId(), EntityType.COMPANY, Status.PENDING));
+            res.setCompanyActive(companyActivationService.isActive(res.getCompanyId()));
         }
         res.setRole(user.getRole().toString());
 
+        return new AuthRes(jwtService.generateToken(user), res);
+    }
+
+    public AuthUserRes authMe(Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated() ||
+                !(authentication.getPrincipal() instanceof AuthPrincipal principal)) {
+            throw new BadCredentialsException("User not authenticated");
+        }
+        // A principal read from the token has no profile fields; the cached one does
+        AuthPrincipal user = principal.firstName() != null ? principal : principalCacheService.load(principal.getUsername());
+
+        AuthUserRes res = new AuthUserRes();
+
+        res.setId(user.id());
+        res.setEmail(user.email());
+        res.setUsername(user.username());
+        res.setFirstName(user.firstName());
+        res.setLastName(user.lastName());
+        if (user.companyRoleId() != null) {
+            res.setCompanyId(user.companyId());
+            res.setCompanyRole(user.companyRoleName());
+            res.setCompanyActive(companyActivationService.isActive(res.getCompanyId()));
+        }
+        res.setRole(user.role().toString());
+
         return res;
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepo.findByUsername(username).or(() -> userRepo.findByEmail(username))
+        return findByLogin(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username or email: " + username));
     }
-}
 
+    // A login can be one user's username and another's email; the username wins, as it always has
+    private Optional<User> findByLogin(String login) {
+        List<User> users = userRepo.findAllByLogin(login);
+        return users.stream()
+                .filter(user -> login.equals(user.getActualUsername()))
+                .findFirst()
+                .or(() -> users.stream().findFirst());
+    }
+
+    // Names the taken field from the violated constraint; only a constraint without a known name costs lookups
+    private RuntimeException duplicate(DataIntegrityViolationException e, UserRegisterReq request) {
+        String constraint = e.getCause() instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                ? violation.getConstraintName() : "";
+        // MySQL reports the key as table.name
+        String field = switch (constraint.substring(constraint.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT)) {
+            case User.UK_EMAIL -> "Email";
+            case User.UK_USERNAME -> "Username";
+            case User.UK_PHONE_NUMBER -> "Phone number";
+            default -> {
+                if (userRepo.existsByEmail(request.getEmail())) {
+                    yield "Email";
+                }
+                if (userRepo.existsByUsername(request.getUsername())) {
+                    yield "Username";
+                }
+                yield userRepo.existsByPhoneNumber(request.getPhoneNumber()) ? "Phone number" : null;
+            }
+        };
+        return field != null ? new DuplicateKeyException(field + " already exists", e) : e;
+    }
+}
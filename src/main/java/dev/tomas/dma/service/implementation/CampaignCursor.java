@@ -0,0 +1,66 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.CampaignListRow;
+import dev.tomas.dma.enums.CampaignSortField;
+import dev.tomas.dma.repository.CampaignRepoCustomImpl;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position of the last campaign of a page, handed to clients as an opaque string.
+ * The sort it was issued for is part of the token so it can't be replayed against a different order.
+ */
+record CampaignCursor(CampaignSortField sort, Sort.Direction direction, Object value, Integer id) {
+
+    static CampaignCursor of(CampaignListRow row, CampaignSortField sort, Sort.Direction direction) {
+        return new CampaignCursor(sort, direction, keyOf(row, sort), row.id());
+    }
+
+    static Object keyOf(CampaignListRow row, CampaignSortField sort) {
+        return switch (sort) {
+            case CREATE_DATE -> row.createDate() != null ? row.createDate() : CampaignRepoCustomImpl.UNKNOWN_CREATE_DATE;
+            case END_DATE -> row.endDate() != null ? row.endDate() : CampaignRepoCustomImpl.OPEN_END_DATE;
+            case RAISED_FUNDS -> row.raisedFunds() != null ? row.raisedFunds() : CampaignRepoCustomImpl.NO_FUNDS;
+            case FUNDING_PROGRESS -> row.fundingProgress() != null ? row.fundingProgress() : CampaignRepoCustomImpl.NO_FUNDS;
+        };
+    }
+
+    String encode() {
+        String raw = sort.name() + "|" + direction.name() + "|" + (value instanceof BigDecimal d ? d.toPlainString() : value) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns null for a missing cursor (first page).
+     */
+    static CampaignCursor decode(String token, CampaignSortField sort, Sort.Direction direction) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[0].equals(sort.name()) || !parts[1].equals(direction.name())) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        try {
+            Object value = switch (sort) {
+                case CREATE_DATE, END_DATE -> LocalDate.parse(parts[2]);
+                case RAISED_FUNDS, FUNDING_PROGRESS -> new BigDecimal(parts[2]);
+            };
+            return new CampaignCursor(sort, direction, value, Integer.valueOf(parts[3]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.dto.projection.CampaignListRow;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.entity.AppFile;
+import dev.tomas.dma.enums.CampaignSortField;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.FileType;
+import dev.tomas.dma.enums.Status;
+import dev.tomas.dma.mapper.AppFileMapper;
+import dev.tomas.dma.mapper.CampaignMapper;
+import dev.tomas.dma.repository.CampaignPageQuery;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.CampaignRepoCustomImpl;
+import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
+import dev.tomas.dma.service.CampaignSearchService;
+import dev.tomas.dma.service.DonorCountService;
+import dev.tomas.dma.service.FileService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Read model behind the public campaign feed. Approved campaigns are kept in an immutable snapshot,
+ * already mapped and with their images, so unfiltered reads never touch the database and never lock.
+ * Writers rebuild the affected entry and swap in a new snapshot (copy-on-write).
+ * Filtered pages seek on the campaign sort indexes instead, since walking the snapshot would step
+ * over every campaign the filter drops; the rows found are still served from the snapshot.
+ * Donor counts change with every donation, so they are read when a response is built rather than
+ * kept in the snapshot.
+ * The full-text index and the rankings are kept in step with the snapshot, so search and the top
+ * lists only ever hold public campaigns.
+ */
+@Service
+@RequiredArgsConstructor
+public class CampaignFeedServiceImpl implements CampaignFeedService, SmartInitializingSingleton {
+    private static final List<CampaignStatus> FEED_STATUSES = List.of(CampaignStatus.PENDING, CampaignStatus.APPROVED);
+    private static final List<Status> HIDDEN_TICKET_STATUSES = List.of(Status.REJECTED, Status.PENDING);
+    private static final int IMAGE_BATCH_SIZE = 1_000;
+
+    private final CampaignRepo campaignRepo;
+    private final TicketRepo ticketRepo;
+    private final FileService fileService;
+    private final CampaignMapper campaignMapper;
+    private final AppFileMapper fileMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final CampaignSearchService campaignSearchService;
+    private final DonorCountService donorCountService;
+    private final CampaignRankingService campaignRankingService;
+
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    // Built before the web server starts accepting requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Override
+    public CampaignGetAllRes findPage(CampaignPageReq page) {
+        CampaignSortField sort = page.getSort();
+        boolean ascending = page.getDirection() == Sort.Direction.ASC;
+        CampaignCursor cursor = CampaignCursor.decode(page.getCursor(), sort, page.getDirection());
+        Snapshot current = snapshot.get();
+        if (page.getCompanyTypeId() != null || page.getFrom() != null || page.getTo() != null) {
+            return findFiltered(page, cursor, current);
+        }
+        Entry[] order = current.sorted.get(sort);
+
+        int index;
+        if (cursor == null) {
+            index = ascending ? 0 : order.length - 1;
+        } else {
+            int found = search(order, sort, cursor.value(), cursor.id());
+            if (ascending) {
+                index = found >= 0 ? found + 1 : -found - 1;
+            } else {
+                index = found >= 0 ? found - 1 : -found - 2;
+            }
+        }
+
+        CampaignGetAllRes response = new CampaignGetAllRes();
+        Entry last = null;
+        for (int i = index; i >= 0 && i < order.length; i += ascending ? 1 : -1) {
+            Entry entry = order[i];
+            if (response.campaigns.size() == page.getSize()) {
+                response.setNextCursor(new CampaignCursor(sort, page.getDirection(), last.key(sort), last.id()).encode());
+                break;
+            }
+            response.campaigns.add(view(entry));
+            last = entry;
+        }
+        return response;
+    }
+
+    /**
+     * Runs the keyset query with the feed's own conditions, fetching one extra row to know whether
+     * another page exists. A campaign the snapshot doesn't hold yet is left out, as it would be
+     * from an unfiltered page.
+     */
+    private CampaignGetAllRes findFiltered(CampaignPageReq page, CampaignCursor cursor, Snapshot current) {
+        CampaignPageQuery query = new CampaignPageQuery(
+                FEED_STATUSES,
+                null,
+                HIDDEN_TICKET_STATUSES,
+                page.getCompanyTypeId(),
+                page.getFrom(),
+                page.getTo(),
+                page.getSort(),
+                page.getDirection(),
+                cursor != null ? cursor.value() : null,
+                cursor != null ? cursor.id() : null,
+                page.getSize() + 1
+        );
+
+        List<CampaignListRow> rows = campaignRepo.findPage(query);
+        boolean hasMore = rows.size() > page.getSize();
+        if (hasMore) {
+            rows = rows.subList(0, page.getSize());
+        }
+
+        CampaignGetAllRes response = new CampaignGetAllRes();
+        for (CampaignListRow row : rows) {
+            Entry entry = current.get(row.id());
+            if (entry != null) {
+                response.campaigns.add(view(entry));
+            }
+        }
+        if (hasMore) {
+            response.setNextCursor(CampaignCursor.of(rows.getLast(), page.getSort(), page.getDirection()).encode());
+        }
+        return response;
+    }
+
+    @Override
+    public Optional<CampaignDTO> findById(Integer id) {
+        return Optional.ofNullable(snapshot.get().get(id)).map(this::view);
+    }
+
+    @Override
+    public CampaignGetAllRes search(String query, int limit) {
+        Snapshot current = snapshot.get();
+        CampaignGetAllRes response = new CampaignGetAllRes();
+        for (Integer id : campaignSearchService.search(query, limit)) {
+            // The index can briefly be ahead of the snapshot while a refresh is being applied
+            Entry entry = current.get(id);
+            if (entry != null) {
+                response.campaigns.add(view(entry));
+            }
+        }
+        return response;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        List<CampaignListRow> rows = campaignRepo.findRowsByStatusInExcludingTickets(FEED_STATUSES, EntityType.CAMPAIGN, HIDDEN_TICKET_STATUSES);
+        List<Integer> ids = rows.stream().map(CampaignListRow::id).toList();
+
+        Map<Integer, List<AppFile>> images = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IMAGE_BATCH_SIZE) {
+            images.putAll(fileService.findAllByEntityIds(EntityType.CAMPAIGN, FileType.CAMPAIGN_IMAGE,
+                    ids.subList(from, Math.min(from + IMAGE_BATCH_SIZE, ids.size()))));
+        }
+
+        List<Entry> entries = new ArrayList<>(rows.size());
+        for (CampaignListRow row : rows) {
+            entries.add(toEntry(row, images.getOrDefault(row.id(), List.of())));
+        }
+        snapshot.set(Snapshot.of(entries));
+        campaignSearchService.rebuild(entries.stream().map(Entry::campaign).toList());
+        campaignRankingService.setVisible(ids);
+    }
+
+    /**
+     * Re-reads one campaign into the snapshot. Inside a transaction this waits for the commit,
+     * so the feed never shows data that could still be rolled back.
+     */
+    @Override
+    public void refresh(Integer campaignId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(campaignId);
+                }
+            });
+        } else {
+            apply(campaignId);
+        }
+    }
+
+    // Writers are serialized so two refreshes can't swap in snapshots built from each other's stale base
+    private synchronized void apply(Integer campaignId) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+
+        Entry entry = template.execute(status -> load(campaignId));
+        snapshot.set(snapshot.get().with(campaignId, entry));
+        if (entry != null) {
+            campaignSearchService.index(entry.campaign());
+        } else {
+            campaignSearchService.remove(campaignId);
+        }
+        campaignRankingService.setVisible(campaignId, entry != null);
+    }
+
+    private Entry load(Integer campaignId) {
+        CampaignListRow row = campaignRepo.findRowById(campaignId).orElse(null);
+        if (row == null
+                || !FEED_STATUSES.contains(row.status())
+                || ticketRepo.existsByEntityIdAndTypeAndStatusIn(campaignId, EntityType.CAMPAIGN, HIDDEN_TICKET_STATUSES)) {
+            return null;
+        }
+        List<AppFile> images = fileService.findAllByEntityIds(EntityType.CAMPAIGN, FileType.CAMPAIGN_IMAGE, List.of(campaignId))
+                .getOrDefault(campaignId, List.of());
+        return toEntry(row, images);
+    }
+
+    private Entry toEntry(CampaignListRow row, List<AppFile> images) {
+        CampaignDTO dto = campaignMapper.rowToDTO(row);
+        dto.setFiles(fileMapper.entitiesToDTO(images));
+
+        BigDecimal raised = row.raisedFunds() != null ? row.raisedFunds() : BigDecimal.ZERO;
+        BigDecimal progress = row.fundGoal() != null && row.fundGoal().signum() != 0
+                ? raised.divide(row.fundGoal(), 6, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+
+        return new Entry(
+                row.id(),
+                dto,
+                row.createDate() != null ? row.createDate() : LocalDate.EPOCH,
+                row.endDate() != null ? row.endDate() : CampaignRepoCustomImpl.OPEN_END_DATE,
+                raised,
+                progress
+        );
+    }
+
+    // The snapshot's DTO is shared, so each response gets a copy carrying the current donor count
+    private CampaignDTO view(Entry entry) {
+        CampaignDTO dto = campaignMapper.copy(entry.campaign());
+        dto.setDonorCount(donorCountService.campaignDonors(entry.id()));
+        return dto;
+    }
+
+    private static int search(Entry[] order, CampaignSortField sort, Object key, int id) {
+        int low = 0;
+        int high = order.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(order[mid], sort, key, id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Entry entry, CampaignSortField sort, Object key, int id) {
+        int cmp = ((Comparable) entry.key(sort)).compareTo(key);
+        return cmp != 0 ? cmp : Integer.compare(entry.id(), id);
+    }
+
+    /**
+     * One feed campaign. The DTO is never handed out itself, only the copies made by {@link #view}.
+     */
+    private record Entry(int id, CampaignDTO campaign, LocalDate createKey, LocalDate endKey, BigDecimal raisedKey,
+                         BigDecimal progressKey) {
+
+        Object key(CampaignSortField sort) {
+            return switch (sort) {
+                case CREATE_DATE -> createKey;
+                case END_DATE -> endKey;
+                case RAISED_FUNDS -> raisedKey;
+                case FUNDING_PROGRESS -> progressKey;
+            };
+        }
+    }
+
+    /**
+     * Entries sorted by id for lookups, plus one array per sort field ordered by (key, id).
+     * Never modified after construction.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = of(List.of());
+
+        private final Entry[] byId;
+        private final Map<CampaignSortField, Entry[]> sorted;
+
+        private Snapshot(Entry[] byId, Map<CampaignSortField, Entry[]> sorted) {
+            this.byId = byId;
+            this.sorted = sorted;
+        }
+
+        static Snapshot of(Collection<Entry> entries) {
+            Entry[] byId = entries.toArray(Entry[]::new);
+            Arrays.sort(byId, Comparator.comparingInt(Entry::id));
+
+            Map<CampaignSortField, Entry[]> sorted = new EnumMap<>(CampaignSortField.class);
+            for (CampaignSortField sort : CampaignSortField.values()) {
+                Entry[] order = byId.clone();
+                Arrays.sort(order, orderOf(sort));
+                sorted.put(sort, order);
+            }
+            return new Snapshot(byId, sorted);
+        }
+
+        Entry get(Integer id) {
+            if (id == null) {
+                return null;
+            }
+            int low = 0;
+            int high = byId.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = Integer.compare(byId[mid].id(), id);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return byId[mid];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns a copy with the campaign replaced, added, or removed when replacement is null.
+         */
+        Snapshot with(Integer id, Entry replacement) {
+            Entry previous = get(id);
+            if (previous == null && replacement == null) {
+                return this;
+            }
+            Entry[] nextById = replace(byId, previous, replacement, Comparator.comparingInt(Entry::id));
+            Map<CampaignSortField, Entry[]> nextSorted = new EnumMap<>(CampaignSortField.class);
+            for (CampaignSortField sort : CampaignSortField.values()) {
+                nextSorted.put(sort, replace(sorted.get(sort), previous, replacement, orderOf(sort)));
+            }
+            return new Snapshot(nextById, nextSorted);
+        }
+
+        private static Comparator<Entry> orderOf(CampaignSortField sort) {
+            return (a, b) -> compare(a, sort, b.key(sort), b.id());
+        }
+
+        private static Entry[] replace(Entry[] source, Entry previous, Entry replacement, Comparator<Entry> order) {
+            Entry[] result = source;
+            if (previous != null) {
+                int at = Arrays.binarySearch(source, previous, order);
+                result = new Entry[source.length - 1];
+                System.arraycopy(source, 0, result, 0, at);
+                System.arraycopy(source, at + 1, result, at, source.length - at - 1);
+            }
+            if (replacement != null) {
+                int at = -Arrays.binarySearch(result, replacement, order) - 1;
+                Entry[] grown = new Entry[result.length + 1];
+                System.arraycopy(result, 0, grown, 0, at);
+                grown[at] = replacement;
+                System.arraycopy(result, at, grown, at + 1, result.length - at);
+                result = grown;
+            }
+            return result;
+        }
+    }
+}
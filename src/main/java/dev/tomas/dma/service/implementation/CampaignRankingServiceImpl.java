@@ -0,0 +1,300 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.CampaignRankRow;
+import dev.tomas.dma.dto.projection.CampaignTotalRow;
+import dev.tomas.dma.dto.projection.DonationWindowRow;
+import dev.tomas.dma.enums.RankingWindow;
+import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.service.CampaignRankingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Trending and all-time campaign rankings, kept up to date from the donation stream instead of
+ * aggregating the donation table per request. Each campaign keeps hourly totals for the last
+ * seven days in a ring buffer, and every window keeps a bounded, sorted top list.
+ * Within an hour totals only grow, so a donation is a single re-insert into the top list;
+ * when the hour rolls over, the window sums and top lists are recomputed once.
+ * <p>
+ * Every campaign is counted, but only campaigns in the public feed enter the top lists, so hidden
+ * ones can't take up places a page could never show. The feed reports which campaigns it holds.
+ */
+@Service
+@RequiredArgsConstructor
+public class CampaignRankingServiceImpl implements CampaignRankingService, SmartInitializingSingleton {
+    private static final int WEEK_HOURS = 168;
+    private static final int DAY_HOURS = 24;
+    // Larger than the biggest page, so campaigns the feed hasn't caught up on yet can be skipped
+    static final int CAPACITY = 200;
+
+    private final DonationRepository donationRepo;
+    private final Clock clock;
+
+    private final Map<Integer, Counter> counters = new HashMap<>();
+    private final EnumMap<RankingWindow, TopList> tops = new EnumMap<>(RankingWindow.class);
+    // Campaigns in the public feed; kept across rebuilds, since only the feed knows them
+    private final Set<Integer> visible = new HashSet<>();
+    private long currentHour;
+    private volatile long publishedHour = Long.MIN_VALUE;
+    private volatile Map<RankingWindow, List<CampaignRankRow>> published = Map.of();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Override
+    public List<CampaignRankRow> top(RankingWindow window) {
+        if (publishedHour != hourOf(LocalDateTime.now(clock))) {
+            roll();
+        }
+        return published.getOrDefault(window, List.of());
+    }
+
+    /**
+     * Counts a donation. Inside a transaction this waits for the commit, like the campaign read model.
+     */
+    @Override
+    public void record(Integer campaignId, long amount, LocalDateTime date) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(campaignId, amount, date);
+                }
+            });
+        } else {
+            apply(campaignId, amount, date);
+        }
+    }
+
+    /**
+     * Sums all-time totals from the donations, in cents like they are stored, and replays only the
+     * donations inside the longest window. Campaign raised funds held truncated units before they
+     * kept cents, so they aren't trusted for ranking.
+     */
+    @Override
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        counters.clear();
+        currentHour = hourOf(now);
+
+        for (CampaignTotalRow row : donationRepo.findCampaignTotals()) {
+            counter(row.id()).total = row.amount();
+        }
+        for (DonationWindowRow row : donationRepo.findWindowRowsSince(now.minusHours(WEEK_HOURS))) {
+            if (row.amount() != null) {
+                counter(row.campaignId()).add(hourOf(row.date()), row.amount(), currentHour);
+            }
+        }
+        recompute();
+    }
+
+    @Override
+    public synchronized void setVisible(Collection<Integer> campaignIds) {
+        visible.clear();
+        visible.addAll(campaignIds);
+        recompute();
+    }
+
+    /**
+     * A campaign entering the feed takes its place straight away. One leaving it is dropped, and the
+     * lists are recomputed so the campaigns behind it move up; that only happens on a status change.
+     */
+    @Override
+    public synchronized void setVisible(Integer campaignId, boolean shown) {
+        if (shown ? !visible.add(campaignId) : !visible.remove(campaignId)) {
+            return;
+        }
+        if (!shown) {
+            recompute();
+            return;
+        }
+        Counter counter = counters.get(campaignId);
+        if (counter != null && !tops.isEmpty()) {
+            offer(campaignId, counter);
+            publish();
+        }
+    }
+
+    private synchronized void apply(Integer campaignId, long amount, LocalDateTime date) {
+        long hour = hourOf(LocalDateTime.now(clock));
+        if (hour != currentHour || tops.isEmpty()) {
+            currentHour = hour;
+            recompute();
+        }
+
+        Counter counter = counter(campaignId);
+        counter.total += amount;
+        counter.add(hourOf(date), amount, currentHour);
+
+        if (visible.contains(campaignId)) {
+            offer(campaignId, counter);
+            publish();
+        }
+    }
+
+    private void offer(Integer campaignId, Counter counter) {
+        tops.get(RankingWindow.ALL_TIME).offer(campaignId, counter.total);
+        tops.get(RankingWindow.LAST_7_DAYS).offer(campaignId, counter.week);
+        tops.get(RankingWindow.LAST_24_HOURS).offer(campaignId, counter.day);
+    }
+
+    private synchronized void roll() {
+        long hour = hourOf(LocalDateTime.now(clock));
+        if (hour != currentHour) {
+            currentHour = hour;
+            recompute();
+        } else if (publishedHour != currentHour) {
+            publish();
+        }
+    }
+
+    // Runs at most once an hour: re-sums every window and rebuilds the top lists from scratch
+    private void recompute() {
+        TopList all = new TopList();
+        TopList week = new TopList();
+        TopList day = new TopList();
+        for (Map.Entry<Integer, Counter> entry : counters.entrySet()) {
+            Counter counter = entry.getValue();
+            counter.resum(currentHour);
+            if (!visible.contains(entry.getKey())) {
+                continue;
+            }
+            all.offer(entry.getKey(), counter.total);
+            week.offer(entry.getKey(), counter.week);
+            day.offer(entry.getKey(), counter.day);
+        }
+        tops.put(RankingWindow.ALL_TIME, all);
+        tops.put(RankingWindow.LAST_7_DAYS, week);
+        tops.put(RankingWindow.LAST_24_HOURS, day);
+        publish();
+    }
+
+    private void publish() {
+        EnumMap<RankingWindow, List<CampaignRankRow>> snapshot = new EnumMap<>(RankingWindow.class);
+        tops.forEach((window, top) -> snapshot.put(window, top.toRows()));
+        published = snapshot;
+        publishedHour = currentHour;
+    }
+
+    private Counter counter(Integer campaignId) {
+        return counters.computeIfAbsent(campaignId, id -> new Counter());
+    }
+
+    private static long hourOf(LocalDateTime date) {
+        return date.toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    /**
+     * Hourly totals for the last seven days, indexed by hour modulo the ring size.
+     * Each slot remembers its hour so stale slots are recognised without a sweep.
+     */
+    private static final class Counter {
+        private long[] amounts;
+        private long[] hours;
+        private long total;
+        private long week;
+        private long day;
+
+        void add(long hour, long amount, long now) {
+            if (hour <= now - WEEK_HOURS || hour > now) {
+                return;
+            }
+            if (amounts == null) {
+                amounts = new long[WEEK_HOURS];
+                hours = new long[WEEK_HOURS];
+                Arrays.fill(hours, Long.MIN_VALUE);
+            }
+            int slot = (int) Math.floorMod(hour, WEEK_HOURS);
+            if (hours[slot] != hour) {
+                hours[slot] = hour;
+                amounts[slot] = 0;
+            }
+            amounts[slot] += amount;
+            week += amount;
+            if (hour > now - DAY_HOURS) {
+                day += amount;
+            }
+        }
+
+        void resum(long now) {
+            week = 0;
+            day = 0;
+            if (amounts == null) {
+                return;
+            }
+            for (int slot = 0; slot < WEEK_HOURS; slot++) {
+                long hour = hours[slot];
+                if (hour > now - WEEK_HOURS && hour <= now) {
+                    week += amounts[slot];
+                    if (hour > now - DAY_HOURS) {
+                        day += amounts[slot];
+                    }
+                }
+            }
+            // Nothing left in the window, so the buffer can go until the next donation
+            if (week == 0) {
+                amounts = null;
+                hours = null;
+            }
+        }
+    }
+
+    /**
+     * The highest {@link #CAPACITY} amounts, sorted descending with ties broken by campaign id.
+     */
+    private static final class TopList {
+        private final int[] ids = new int[CAPACITY];
+        private final long[] amounts = new long[CAPACITY];
+        private int size;
+
+        void offer(int campaignId, long amount) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == campaignId) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    System.arraycopy(amounts, i + 1, amounts, i, size - i - 1);
+                    size--;
+                    break;
+                }
+            }
+            if (amount <= 0) {
+                return;
+            }
+
+            int position = size;
+            while (position > 0 && ranksBefore(amount, campaignId, amounts[position - 1], ids[position - 1])) {
+                position--;
+            }
+            if (position == CAPACITY) {
+                return;
+            }
+            int moved = Math.min(size, CAPACITY - 1) - position;
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            System.arraycopy(amounts, position, amounts, position + 1, moved);
+            ids[position] = campaignId;
+            amounts[position] = amount;
+            size = Math.min(size + 1, CAPACITY);
+        }
+
+        List<CampaignRankRow> toRows() {
+            CampaignRankRow[] rows = new CampaignRankRow[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = new CampaignRankRow(ids[i], amounts[i]);
+            }
+            return List.of(rows);
+        }
+
+        private static boolean ranksBefore(long amount, int id, long otherAmount, int otherId) {
+            return amount > otherAmount || (amount == otherAmount && id < otherId);
+        }
+    }
+}
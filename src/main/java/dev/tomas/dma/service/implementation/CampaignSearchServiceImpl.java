@@ -0,0 +1,237 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.service.CampaignSearchService;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-process inverted index over campaign names and descriptions, ranked with BM25.
+ * Every query token is matched as a prefix, so "educ" finds "education". Documents are stored
+ * under dense slots so scoring can accumulate into a plain array instead of a map.
+ */
+@Service
+public class CampaignSearchServiceImpl implements CampaignSearchService {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    // A name hit counts as much as this many description hits
+    private static final int NAME_WEIGHT = 3;
+    // Upper bound on dictionary terms a single prefix expands to
+    private static final int MAX_EXPANSIONS = 64;
+    private static final double PREFIX_PENALTY = 0.8;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> dictionary = new TreeMap<>();
+    private final Map<Integer, Integer> slotByCampaign = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private int[] campaignBySlot = new int[1024];
+    private int[] lengthBySlot = new int[1024];
+    private String[][] termsBySlot = new String[1024][];
+    private int slotCount;
+    private long totalLength;
+
+    @Override
+    public List<Integer> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int documents = slotByCampaign.size();
+            if (documents == 0) {
+                return List.of();
+            }
+            double averageLength = (double) totalLength / documents;
+            double[] scores = new double[slotCount];
+            int[] touched = new int[slotCount];
+            int touchedCount = 0;
+
+            for (String token : new LinkedHashSet<>(tokens)) {
+                int expansions = 0;
+                for (Map.Entry<String, Postings> term : dictionary.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+                    if (expansions++ == MAX_EXPANSIONS) {
+                        break;
+                    }
+                    Postings postings = term.getValue();
+                    double idf = Math.log(1 + (documents - postings.size + 0.5) / (postings.size + 0.5));
+                    double weight = term.getKey().equals(token) ? idf : idf * PREFIX_PENALTY;
+
+                    for (int i = 0; i < postings.size; i++) {
+                        int slot = postings.slots[i];
+                        int frequency = postings.frequencies[i];
+                        double norm = K1 * (1 - B + B * lengthBySlot[slot] / averageLength);
+                        if (scores[slot] == 0) {
+                            touched[touchedCount++] = slot;
+                        }
+                        scores[slot] += weight * frequency * (K1 + 1) / (frequency + norm);
+                    }
+                }
+            }
+
+            PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, Comparator.comparingDouble((Integer slot) -> scores[slot])
+                    .thenComparing(slot -> -campaignBySlot[slot]));
+            for (int i = 0; i < touchedCount; i++) {
+                best.offer(touched[i]);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            Integer[] ranked = new Integer[best.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = campaignBySlot[best.poll()];
+            }
+            return Arrays.asList(ranked);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(CampaignDTO campaign) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(campaign.getId());
+            addLocked(campaign);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Integer campaignId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(campaignId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(Collection<CampaignDTO> campaigns) {
+        lock.writeLock().lock();
+        try {
+            dictionary.clear();
+            slotByCampaign.clear();
+            freeSlots.clear();
+            int capacity = Math.max(1024, campaigns.size());
+            campaignBySlot = new int[capacity];
+            lengthBySlot = new int[capacity];
+            termsBySlot = new String[capacity][];
+            slotCount = 0;
+            totalLength = 0;
+            for (CampaignDTO campaign : campaigns) {
+                addLocked(campaign);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATOR.split(folded)) {
+            if (token.length() >= MIN_TOKEN_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void addLocked(CampaignDTO campaign) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokenize(campaign.getName())) {
+            frequencies.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : tokenize(campaign.getDescription())) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+
+        int slot = allocateSlot();
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            dictionary.computeIfAbsent(entry.getKey(), term -> new Postings()).add(slot, entry.getValue());
+            length += entry.getValue();
+        }
+        campaignBySlot[slot] = campaign.getId();
+        lengthBySlot[slot] = length;
+        termsBySlot[slot] = frequencies.keySet().toArray(String[]::new);
+        slotByCampaign.put(campaign.getId(), slot);
+        totalLength += length;
+    }
+
+    private void removeLocked(Integer campaignId) {
+        Integer slot = slotByCampaign.remove(campaignId);
+        if (slot == null) {
+            return;
+        }
+        for (String term : termsBySlot[slot]) {
+            Postings postings = dictionary.get(term);
+            postings.remove(slot);
+            if (postings.size == 0) {
+                dictionary.remove(term);
+            }
+        }
+        totalLength -= lengthBySlot[slot];
+        termsBySlot[slot] = null;
+        lengthBySlot[slot] = 0;
+        freeSlots.push(slot);
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        if (slotCount == campaignBySlot.length) {
+            int capacity = slotCount * 2;
+            campaignBySlot = Arrays.copyOf(campaignBySlot, capacity);
+            lengthBySlot = Arrays.copyOf(lengthBySlot, capacity);
+            termsBySlot = Arrays.copyOf(termsBySlot, capacity);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Documents containing one term, unordered. Removal swaps the last posting into the gap.
+     */
+    private static final class Postings {
+        private int[] slots = new int[4];
+        private int[] frequencies = new int[4];
+        private int size;
+
+        void add(int slot, int frequency) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            slots[size] = slot;
+            frequencies[size] = frequency;
+            size++;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    frequencies[i] = frequencies[size];
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -1,23 +1,35 @@
 package dev.tomas.dma.service.implementation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import dev.tomas.dma.dto.request.CampaignCreateReq;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.request.CampaignRankingReq;
+import dev.tomas.dma.dto.request.CampaignSearchReq;
 import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.dto.response.CampaignRankingRes;
 import dev.tomas.dma.dto.request.CampaignUpdateReq;
 import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.dto.common.CampaignRankingDTO;
+import dev.tomas.dma.dto.projection.CampaignRankRow;
+import dev.tomas.dma.dto.projection.CampaignListRow;
 import dev.tomas.dma.entity.AppFile;
-import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.enums.CampaignStatus;
 import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.ExportFormat;
 import dev.tomas.dma.enums.FileType;
 import dev.tomas.dma.enums.Status;
 import dev.tomas.dma.mapper.AppFileMapper;
 import dev.tomas.dma.mapper.CampaignMapper;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.repository.AppFileRepo;
+import dev.tomas.dma.repository.CampaignPageQuery;
 import dev.tomas.dma.repository.CampaignRepo;
 import dev.tomas.dma.repository.CompanyRepo;
-import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
 import dev.tomas.dma.service.CampaignService;
+import dev.tomas.dma.service.DonorCountService;
 import dev.tomas.dma.service.ExternalStorageService;
 import dev.tomas.dma.service.FileService;
 import dev.tomas.dma.service.TicketService;
@@ -31,9 +43,14 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
@@ -42,92 +59,93 @@ public class CampaignServiceImpl implements CampaignService {
     private final CampaignRepo campaignRepo;
     private final CompanyRepo companyRepo;
     private final CampaignMapper campaignMapper;
-    private final TicketRepo ticketRepo;
     private final ExternalStorageService externalStorageService;
     private final FileService fileService;
     private final TicketService ticketService;
     private final AppFileRepo fileRepo;
     private final AppFileMapper fileMapper;
+    private final CampaignFeedService campaignFeedService;
+    private final CampaignRankingService campaignRankingService;
+    private final ObjectMapper objectMapper;
+    private final DonorCountService donorCountService;
 
     @Override
-    public CampaignGetAllRes findAll() {
-        CampaignGetAllRes response = new CampaignGetAllRes();
-
-        for (Campaign entity : campaignRepo.findAll()) {
-            CampaignDTO dto = campaignMapper.entityToDTO(entity);
-            List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(EntityType.CAMPAIGN, dto.getId(), FileType.CAMPAIGN_IMAGE);
-
-            dto.setFiles(fileMapper.entitiesToDTO(images));
-            response.campaigns.add(dto);
-        }
-        return response;
+    public CampaignGetAllRes findAll(CampaignPageReq page) {
+        return findPage(page, null, null, null);
     }
 
-    public CampaignGetAllRes findAllApproved() {
-        CampaignGetAllRes response = new CampaignGetAllRes();
-        List<CampaignStatus> campaignStatuses = List.of(CampaignStatus.PENDING, CampaignStatus.APPROVED);
-        List<Status> excludeTicketStatuses = List.of(Status.REJECTED, Status.PENDING);
-
-        for (Campaign entity : campaignRepo.findAllByStatusIn(campaignStatuses)) {
-            // Skip campaigns that have PENDING or REJECTED tickets
-            if (ticketRepo.existsByEntityIdAndTypeAndStatusIn(
-                    entity.getId(),
-                    EntityType.CAMPAIGN,
-                    excludeTicketStatuses)) {
-                continue;  // Skip this campaign
-            }
-
-            CampaignDTO dto = campaignMapper.entityToDTO(entity);
-            List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(
-                    EntityType.CAMPAIGN,
-                    dto.getId(),
-                    FileType.CAMPAIGN_IMAGE
-            );
-
-            dto.setFiles(fileMapper.entitiesToDTO(images));
-            response.campaigns.add(dto);
-        }
-
-        return response;
+    public CampaignGetAllRes findAllApproved(CampaignPageReq page) {
+        return campaignFeedService.findPage(page);
     }
 
     @Override
-    public CampaignGetAllRes findAllByStatus(CampaignStatus status) {
-        CampaignGetAllRes response = new CampaignGetAllRes();
-
-        for (Campaign entity : campaignRepo.findAllByStatus(status)) {
-            CampaignDTO dto = campaignMapper.entityToDTO(entity);
-            List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(EntityType.CAMPAIGN, dto.getId(), FileType.CAMPAIGN_IMAGE);
-
-            dto.setFiles(fileMapper.entitiesToDTO(images));
-            response.campaigns.add(dto);
-        }
-        return response;
+    public CampaignGetAllRes findAllByStatus(CampaignStatus status, CampaignPageReq page) {
+        return findPage(page, List.of(status), null, null);
     }
 
-    public CampaignGetAllRes findByCompanyId(Integer companyId) {
-        Company company = companyRepo.findById(companyId).orElseThrow(() -> new EntityNotFoundException("Company not found with id: " + companyId));
-        CampaignGetAllRes dto = new CampaignGetAllRes();
-        dto.setCampaigns(campaignMapper.entitiesToDTO(campaignRepo.findAllByCompanyId(companyId)));
-
-        for(CampaignDTO campaignDTO : dto.campaigns){
-            List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(EntityType.CAMPAIGN, campaignDTO.getId(), FileType.CAMPAIGN_IMAGE);
-            campaignDTO.setFiles(fileMapper.entitiesToDTO(images));
+    public CampaignGetAllRes findByCompanyId(Integer companyId, CampaignPageReq page) {
+        if (!companyRepo.existsById(companyId)) {
+            throw new EntityNotFoundException("Company not found with id: " + companyId);
         }
-
-        return dto;
+        return findPage(page, null, companyId, null);
     }
 
     @Override
     public CampaignDTO findById(Integer id) {
+        Optional<CampaignDTO> cached = campaignFeedService.findById(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         Campaign entity = campaignRepo.findById(id).orElseThrow(() -> new EntityNotFoundException("Campaign not found with id: " + id));
         List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(EntityType.CAMPAIGN, id, FileType.CAMPAIGN_IMAGE);
 
         CampaignDTO dto = campaignMapper.entityToDTO(entity);
         dto.setFiles(fileMapper.entitiesToDTO(images));
+        dto.setDonorCount(donorCountService.campaignDonors(id));
         return dto;
     }
 
+    @Override
+    public CampaignGetAllRes search(CampaignSearchReq request) {
+        if (Objects.isNull(request.getQ()) || request.getQ().isBlank()) {
+            throw new IllegalArgumentException("Search query can't be empty");
+        }
+        return campaignFeedService.search(request.getQ(), request.getLimit());
+    }
+
+    /**
+     * Walks the precomputed ranking and keeps the first campaigns that are public, so the cost is O(limit).
+     */
+    @Override
+    public CampaignRankingRes findRankings(CampaignRankingReq request) {
+        CampaignRankingRes response = new CampaignRankingRes();
+        response.setWindow(request.getWindow());
+        for (CampaignRankRow rank : campaignRankingService.top(request.getWindow())) {
+            if (response.campaigns.size() == request.getLimit()) {
+                break;
+            }
+            campaignFeedService.findById(rank.campaignId()).ifPresent(campaign ->
+                    response.campaigns.add(new CampaignRankingDTO(campaign, BigDecimal.valueOf(rank.amount(), 2))));
+        }
+        return response;
+    }
+
+    /**
+     * Streams every campaign straight from the result set. Rows are projections, so nothing is
+     * attached to the persistence context and memory stays flat however many campaigns there are.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream out, ExportFormat format) throws IOException {
+        try (Stream<CampaignListRow> rows = campaignRepo.streamAllRows();
+             SequenceWriter writer = ExportWriter.open(objectMapper, out, format)) {
+            for (Iterator<CampaignListRow> it = rows.iterator(); it.hasNext(); ) {
+                writer.write(campaignMapper.rowToDTO(it.next()));
+            }
+        }
+    }
+
     @Override
     @Transactional
     public CampaignDTO save(CampaignCreateReq request) {
@@ -185,6 +203,7 @@ public class CampaignServiceImpl implements CampaignService {
                 }
             }
         }
+        campaignFeedService.refresh(saved.getId());
         return campaignMapper.entityToDTO(saved);
     }
 
@@ -212,13 +231,17 @@ public class CampaignServiceImpl implements CampaignService {
             original.setStatus(request.getStatus());
         }
 
-        return campaignMapper.entityToDTO(campaignRepo.save(original));
+        Campaign saved = campaignRepo.save(original);
+        campaignFeedService.refresh(saved.getId());
+        return campaignMapper.entityToDTO(saved);
     }
 
     public CampaignDTO archive(Integer id) {
         Campaign campaign = campaignRepo.findById(id).orElseThrow(() -> new EntityNotFoundException("Campaign not found with id: " + id));
         campaign.setStatus(CampaignStatus.ARCHIVED);
-        return campaignMapper.entityToDTO(campaignRepo.save(campaign));
+        Campaign saved = campaignRepo.save(campaign);
+        campaignFeedService.refresh(id);
+        return campaignMapper.entityToDTO(saved);
     }
 
     @Override
@@ -227,6 +250,66 @@ public class CampaignServiceImpl implements CampaignService {
             throw new EntityNotFoundException("Campaign not found with id: " + id);
         }
         campaignRepo.deleteById(id);
+        campaignFeedService.refresh(id);
         return id;
     }
+
+    /**
+     * Fetches one extra row to know whether another page exists, and only then hands out a cursor.
+     */
+    private CampaignGetAllRes findPage(CampaignPageReq page, List<CampaignStatus> statuses, Integer companyId, List<Status> excludedTicketStatuses) {
+        CampaignCursor cursor = CampaignCursor.decode(page.getCursor(), page.getSort(), page.getDirection());
+        CampaignPageQuery query = new CampaignPageQuery(
+                statuses,
+                companyId,
+                excludedTicketStatuses,
+                page.getCompanyTypeId(),
+                page.getFrom(),
+                page.getTo(),
+                page.getSort(),
+                page.getDirection(),
+                cursor != null ? cursor.value() : null,
+                cursor != null ? cursor.id() : null,
+                page.getSize() + 1
+        );
+
+        List<CampaignListRow> rows = campaignRepo.findPage(query);
+        boolean hasMore = rows.size() > page.getSize();
+        if (hasMore) {
+            rows = rows.subList(0, page.getSize());
+        }
+
+        CampaignGetAllRes response = toGetAllRes(rows);
+        if (hasMore) {
+            response.setNextCursor(CampaignCursor.of(rows.getLast(), page.getSort(), page.getDirection()).encode());
+        }
+        return response;
+    }
+
+    /**
+     * Maps a list of campaigns to the listing response. Every campaign listing goes through here
+     * so the images of the whole list are resolved with one query instead of one per campaign.
+     */
+    private CampaignGetAllRes toGetAllRes(List<CampaignListRow> rows) {
+        CampaignGetAllRes response = new CampaignGetAllRes();
+        for (CampaignListRow row : rows) {
+            CampaignDTO dto = campaignMapper.rowToDTO(row);
+            dto.setDonorCount(donorCountService.campaignDonors(row.id()));
+            response.campaigns.add(dto);
+        }
+        attachImages(response.campaigns);
+        return response;
+    }
+
+    private void attachImages(List<CampaignDTO> campaigns) {
+        if (campaigns.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = campaigns.stream().map(CampaignDTO::getId).filter(Objects::nonNull).toList();
+        Map<Integer, List<AppFile>> images = fileService.findAllByEntityIds(EntityType.CAMPAIGN, FileType.CAMPAIGN_IMAGE, ids);
+
+        for (CampaignDTO dto : campaigns) {
+            dto.setFiles(fileMapper.entitiesToDTO(images.getOrDefault(dto.getId(), List.of())));
+        }
+    }
 }
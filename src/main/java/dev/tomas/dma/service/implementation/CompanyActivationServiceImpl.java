@@ -0,0 +1,72 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.Status;
+import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CompanyActivationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which companies are still waiting for approval, kept in memory so sign-in and /me never ask the
+ * database. A company is active once none of its company tickets is pending. Ticket changes made
+ * here are applied after they commit; changes made by other instances are picked up by the periodic sync.
+ */
+@Service
+@RequiredArgsConstructor
+public class CompanyActivationServiceImpl implements CompanyActivationService, SmartInitializingSingleton {
+    private final TicketRepo ticketRepo;
+
+    private volatile Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        sync();
+    }
+
+    @Override
+    public boolean isActive(Integer companyId) {
+        return !pending.contains(companyId);
+    }
+
+    /**
+     * Re-reads one company's tickets. Inside a transaction this waits for the commit, so a ticket
+     * that is rolled back never changes the company's state.
+     */
+    @Override
+    public void refresh(Integer companyId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(companyId);
+                }
+            });
+        } else {
+            apply(companyId);
+        }
+    }
+
+    // Serialized with the sync, so a full reload can't put back a state a refresh has just replaced
+    private synchronized void apply(Integer companyId) {
+        if (ticketRepo.existsByEntityIdAndTypeAndStatus(companyId, EntityType.COMPANY, Status.PENDING)) {
+            pending.add(companyId);
+        } else {
+            pending.remove(companyId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${companies.activation.sync-ms:60000}", initialDelayString = "${companies.activation.sync-ms:60000}")
+    public synchronized void sync() {
+        Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+        loaded.addAll(ticketRepo.findEntityIdsByTypeAndStatus(EntityType.COMPANY, Status.PENDING));
+        pending = loaded;
+    }
+}
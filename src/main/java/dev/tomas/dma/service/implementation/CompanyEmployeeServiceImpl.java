@@ -1,6 +1,7 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.projection.EmployeeListRow;
 import dev.tomas.dma.dto.request.AddUserToCompanyReq;
 import dev.tomas.dma.dto.request.RemoveUserFromCompanyReq;
 import dev.tomas.dma.entity.Company;
@@ -12,6 +13,7 @@ import dev.tomas.dma.repository.CompanyRepo;
 import dev.tomas.dma.repository.CompanyRoleRepo;
 import dev.tomas.dma.repository.UserRepo;
 import dev.tomas.dma.service.CompanyEmployeeService;
+import dev.tomas.dma.service.PrincipalCacheService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -20,6 +22,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,13 +34,12 @@ public class CompanyEmployeeServiceImpl implements CompanyEmployeeService {
     private final UserRepo userRepo;
     private final CompanyRepo companyRepo;
     private final CompanyEmployeeRepo companyEmployeeRepo;
+    private final PrincipalCacheService principalCacheService;
 
     public List<UserDTO> getEmployeesByCompany(Integer companyId) {
-        List<User> entityList = new ArrayList<>(companyEmployeeRepo.findAllUsersByCompanyId(companyId));
-
         List<UserDTO> dtoList = new ArrayList<>();
-        for (User user : entityList) {
-            dtoList.add(userMapper.toDTO(user));
+        for (EmployeeListRow row : companyEmployeeRepo.findAllRowsByCompanyId(companyId)) {
+            dtoList.add(userMapper.rowToDTO(row));
         }
         return dtoList;
     }
@@ -54,7 +56,9 @@ public class CompanyEmployeeServiceImpl implements CompanyEmployeeService {
 
         user.setCompany(company);
         user.setCompanyRole(role);
+        user.setAuthChangedAt(LocalDateTime.now());
         User saved = userRepo.save(user);
+        principalCacheService.evictUser(saved.getId());
         return userMapper.toDTO(saved);
     }
 
@@ -68,6 +72,9 @@ public class CompanyEmployeeServiceImpl implements CompanyEmployeeService {
         }
         user.setCompany(null);
         user.setCompanyRole(null);
-        return userMapper.toDTO(userRepo.save(user));
+        user.setAuthChangedAt(LocalDateTime.now());
+        User saved = userRepo.save(user);
+        principalCacheService.evictUser(saved.getId());
+        return userMapper.toDTO(saved);
     }
 }
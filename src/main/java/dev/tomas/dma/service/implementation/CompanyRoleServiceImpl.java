@@ -14,6 +14,7 @@ import dev.tomas.dma.repository.CompanyRepo;
 import dev.tomas.dma.repository.CompanyPermissionRepo;
 import dev.tomas.dma.repository.CompanyRoleRepo;
 import dev.tomas.dma.service.CompanyRoleService;
+import dev.tomas.dma.service.PrincipalCacheService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
@@ -34,6 +35,7 @@ public class CompanyRoleServiceImpl implements CompanyRoleService {
     private final CompanyRepo companyRepo;
     private final CompanyPermissionMapper permissionMapper;
     private final CompanyRoleMapper roleMapper;
+    private final PrincipalCacheService principalCacheService;
 
     public CompanyRoleGetAllRes getAllByCompanyId(Integer companyId) {
         CompanyRoleGetAllRes response = new CompanyRoleGetAllRes();
@@ -80,8 +82,10 @@ public class CompanyRoleServiceImpl implements CompanyRoleService {
         if (request.getPermissionIds() != null) {
             toSave.setPermissions(companyPermissionRepo.findAllById(request.getPermissionIds()));
         }
+        toSave.setPermissionVersion(toSave.getPermissionVersion() + 1);
 
         CompanyRole saved = companyRoleRepo.save(toSave);
+        principalCacheService.evictRole(saved.getId());
         return roleMapper.toDTO(saved);
     }
 
@@ -103,6 +107,7 @@ public class CompanyRoleServiceImpl implements CompanyRoleService {
         role.setPermissions(null);
         companyRoleRepo.save(role);
         companyRoleRepo.delete(role);
+        principalCacheService.evictRole(roleId);
         return roleId;
     }
 
@@ -141,6 +146,8 @@ public class CompanyRoleServiceImpl implements CompanyRoleService {
         toUpdate.setDescription(request.getDescription());
 
         CompanyPermission entity = companyPermissionRepo.save(toUpdate);
+        // Any role may hold it
+        principalCacheService.evictAll();
 
         CompanyPermissionDTO response = new CompanyPermissionDTO();
         response.setId(entity.getId());
@@ -151,6 +158,7 @@ public class CompanyRoleServiceImpl implements CompanyRoleService {
 
     public Integer deletePermission(Integer id) {
         companyPermissionRepo.deleteById(id);
+        principalCacheService.evictAll();
         return id;
     }
 
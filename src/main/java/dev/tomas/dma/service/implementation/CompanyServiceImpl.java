@@ -3,6 +3,7 @@ package dev.tomas.dma.service.implementation;
 import dev.tomas.dma.dto.common.CompanyDTO;
 import dev.tomas.dma.dto.common.CompanyTypeDTO;
 import dev.tomas.dma.dto.common.FundRequestDTO;
+import dev.tomas.dma.dto.projection.CompanyListRow;
 import dev.tomas.dma.dto.request.CompanyCreateReq;
 import dev.tomas.dma.dto.request.CompanyTypeCreateReq;
 import dev.tomas.dma.dto.request.FundRequestCreateReq;
@@ -24,6 +25,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -41,14 +43,14 @@ public class CompanyServiceImpl implements CompanyService {
     private final FundRequestRepo fundRequestRepo;
     private final FundRequestMapper fundRequestMapper;
     private final CampaignRepo campaignRepo;
+    private final PrincipalCacheService principalCacheService;
 
     public CompanyGetAllRes getAll() {
         CompanyGetAllRes response = new CompanyGetAllRes();
         List<CompanyDTO> dtos = new ArrayList<>();
 
-        for (Company entity : companyRepo.findAll()) {
-            CompanyType type = entity.getType();
-            dtos.add(new CompanyDTO(entity.getId(), entity.getName(), entity.getRegistrationNumber(), entity.getTaxId(), new CompanyTypeDTO(type.getId(), type.getName(), type.getDescription()), entity.getStatus().toString()));
+        for (CompanyListRow row : companyRepo.findAllRows()) {
+            dtos.add(new CompanyDTO(row.id(), row.name(), row.registrationNumber(), row.taxId(), new CompanyTypeDTO(row.typeId(), row.typeName(), row.typeDescription()), row.status().toString()));
         }
 
         response.setCompanies(dtos);
@@ -88,7 +90,9 @@ public class CompanyServiceImpl implements CompanyService {
 
         user.setCompanyRole(ownerRole);
         user.setCompany(savedCompany);
+        user.setAuthChangedAt(LocalDateTime.now());
         userRepo.save(user);
+        principalCacheService.evictUser(user.getId());
         return companyMapper.toDto(savedCompany);
     }
 
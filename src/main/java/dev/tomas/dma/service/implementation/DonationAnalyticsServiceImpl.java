@@ -0,0 +1,422 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationReportRowDTO;
+import dev.tomas.dma.dto.projection.CampaignDimensionRow;
+import dev.tomas.dma.dto.projection.DonationFactRow;
+import dev.tomas.dma.dto.request.DonationReportReq;
+import dev.tomas.dma.dto.response.DonationReportRes;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.ReportDimension;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.service.DonationAnalyticsService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+/**
+ * Every donation held as four primitive columns (cents, campaign id, user id, epoch seconds), about
+ * 24 bytes a donation instead of a Donation, Campaign and User object graph. New donations are
+ * appended after commit; reports filter and group the columns with a fork-join scan and join the
+ * campaign attributes (status, company type) from a small per-report lookup.
+ * <p>
+ * Donations without a date, and campaigns without a company type, are reported in buckets of their
+ * own rather than left out. A date range can't place undated donations, so it excludes them.
+ */
+@Service
+@RequiredArgsConstructor
+public class DonationAnalyticsServiceImpl implements DonationAnalyticsService, SmartInitializingSingleton {
+    // Smallest slice of rows a fork-join task scans on its own
+    static final int LEAF_ROWS = 1 << 15;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int NO_KEY = -1;
+    // Stands in for a missing date; below every real date, and never inside a requested range
+    private static final long UNDATED = Long.MIN_VALUE;
+    static final String UNDATED_LABEL = "Undated";
+    static final String NO_COMPANY_TYPE_LABEL = "No type";
+
+    private final DonationRepository donationRepo;
+    private final CampaignRepo campaignRepo;
+    private final PlatformTransactionManager transactionManager;
+
+    // Appends fill slots past the published size, so a report only ever sees complete rows
+    private volatile Columns columns = Columns.empty();
+    // Donations appended while a rebuild is loading, replayed onto the loaded columns; guarded by this
+    private List<Appended> appendedDuringLoad;
+    private final Object rebuildLock = new Object();
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Adds a donation. Inside a transaction this waits for the commit, like the campaign read model.
+     */
+    @Override
+    public void append(Integer donationId, Integer campaignId, Integer userId, long amount, LocalDateTime date) {
+        Appended appended = new Appended(donationId, campaignId, userId != null ? userId : NO_KEY, amount, epochSeconds(date));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(appended);
+                }
+            });
+        } else {
+            add(appended);
+        }
+    }
+
+    /**
+     * Reloads the columns by streaming the donation table, without holding up appends or reports.
+     * Donations appended meanwhile are replayed onto the loaded columns unless the load already read
+     * them: one that committed just before the stream started is in both. An append without a
+     * donation id can't be matched, so it is always replayed.
+     */
+    @Override
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            synchronized (this) {
+                appendedDuringLoad = new ArrayList<>();
+            }
+            Load load;
+            try {
+                load = new TransactionTemplate(transactionManager).execute(status -> {
+                    Load building = new Load();
+                    try (Stream<DonationFactRow> rows = donationRepo.streamFacts()) {
+                        for (Iterator<DonationFactRow> it = rows.iterator(); it.hasNext(); ) {
+                            building.add(it.next());
+                        }
+                    }
+                    return building;
+                });
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    appendedDuringLoad = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                Columns loaded = load.columns;
+                for (Appended appended : appendedDuringLoad) {
+                    if (appended.donationId() == null || !load.ids.get(appended.donationId())) {
+                        loaded = loaded.append(appended);
+                    }
+                }
+                appendedDuringLoad = null;
+                columns = loaded;
+            }
+        }
+    }
+
+    private synchronized void add(Appended appended) {
+        if (appendedDuringLoad != null) {
+            appendedDuringLoad.add(appended);
+        }
+        columns = columns.append(appended);
+    }
+
+    @Override
+    public DonationReportRes report(DonationReportReq request) {
+        Columns snapshot = columns;
+        Dimensions dimensions = Dimensions.load(campaignRepo.findDimensions());
+
+        long from = request.getFrom() != null ? epochSeconds(request.getFrom().atStartOfDay()) : Long.MIN_VALUE;
+        // Exclusive, so the whole last day is included
+        long to = request.getTo() != null ? epochSeconds(request.getTo().plusDays(1).atStartOfDay()) : Long.MAX_VALUE;
+        if (from >= to) {
+            throw new IllegalArgumentException("From must be before to");
+        }
+
+        Scan scan = new Scan(snapshot, dimensions, request.getGroupBy(), from, to,
+                request.getStatus() != null ? request.getStatus().ordinal() : NO_KEY,
+                request.getCompanyTypeId() != null ? request.getCompanyTypeId() : NO_KEY);
+        Totals totals = snapshot.size == 0
+                ? new Totals(scan.keys())
+                : ForkJoinPool.commonPool().invoke(new ScanTask(scan, 0, snapshot.size, leafRows(snapshot.size)));
+
+        DonationReportRes response = new DonationReportRes();
+        response.setGroupBy(request.getGroupBy());
+        for (int key = 0; key < totals.counts.length; key++) {
+            if (totals.counts[key] > 0) {
+                response.getRows().add(new DonationReportRowDTO(scan.label(key), totals.amounts[key], totals.counts[key]));
+                response.setTotalAmount(response.getTotalAmount() + totals.amounts[key]);
+                response.setDonationCount(response.getDonationCount() + totals.counts[key]);
+            }
+        }
+        if (request.getGroupBy() != ReportDimension.MONTH) {
+            response.getRows().sort(Comparator.comparingLong(DonationReportRowDTO::getAmount).reversed()
+                    .thenComparing(DonationReportRowDTO::getKey));
+        }
+        return response;
+    }
+
+    // Few enough leaves that each worker gets a handful, never smaller than LEAF_ROWS
+    private static int leafRows(int size) {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(LEAF_ROWS, size / (parallelism * 4) + 1);
+    }
+
+    private static long epochSeconds(LocalDateTime date) {
+        return date != null ? date.toEpochSecond(ZoneOffset.UTC) : UNDATED;
+    }
+
+    private record Appended(Integer donationId, int campaignId, int userId, long amount, long epochSecond) {
+    }
+
+    // Columns built from the donation table, with the ids it read so appends can be matched against them
+    private static final class Load {
+        private final BitSet ids = new BitSet();
+        private Columns columns = Columns.empty();
+
+        void add(DonationFactRow row) {
+            if (row.id() != null) {
+                ids.set(row.id());
+            }
+            if (row.campaignId() != null && row.amount() != null) {
+                columns = columns.append(new Appended(row.id(), row.campaignId(),
+                        row.userId() != null ? row.userId() : NO_KEY, row.amount(), epochSeconds(row.date())));
+            }
+        }
+    }
+
+    /**
+     * The columns up to {@code size}. Appending writes past the size and publishes a new view; the
+     * arrays are only replaced (copied) when they are full, so older views stay valid.
+     */
+    private record Columns(long[] amounts, int[] campaignIds, int[] userIds, long[] epochSeconds, int size,
+                           int maxCampaignId, long minEpochSecond, long maxEpochSecond) {
+
+        static Columns empty() {
+            return new Columns(new long[INITIAL_CAPACITY], new int[INITIAL_CAPACITY], new int[INITIAL_CAPACITY],
+                    new long[INITIAL_CAPACITY], 0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+        }
+
+        Columns append(Appended row) {
+            return append(row.campaignId(), row.userId(), row.amount(), row.epochSecond());
+        }
+
+        Columns append(int campaignId, int userId, long amount, long epochSecond) {
+            long[] newAmounts = amounts;
+            int[] newCampaignIds = campaignIds;
+            int[] newUserIds = userIds;
+            long[] newEpochSeconds = epochSeconds;
+            if (size == amounts.length) {
+                int capacity = size * 2;
+                newAmounts = Arrays.copyOf(amounts, capacity);
+                newCampaignIds = Arrays.copyOf(campaignIds, capacity);
+                newUserIds = Arrays.copyOf(userIds, capacity);
+                newEpochSeconds = Arrays.copyOf(epochSeconds, capacity);
+            }
+            newAmounts[size] = amount;
+            newCampaignIds[size] = campaignId;
+            newUserIds[size] = userId;
+            newEpochSeconds[size] = epochSecond;
+            boolean dated = epochSecond != UNDATED;
+            return new Columns(newAmounts, newCampaignIds, newUserIds, newEpochSeconds, size + 1,
+                    Math.max(maxCampaignId, campaignId),
+                    dated ? Math.min(minEpochSecond, epochSecond) : minEpochSecond,
+                    dated ? Math.max(maxEpochSecond, epochSecond) : maxEpochSecond);
+        }
+    }
+
+    /**
+     * Campaign attributes indexed by campaign id, read once per report. Campaigns that no longer
+     * exist have no status or company type.
+     */
+    private record Dimensions(String[] campaignNames, int[] statuses, int[] companyTypes, String[] companyTypeNames) {
+
+        static Dimensions load(List<CampaignDimensionRow> rows) {
+            int maxCampaignId = 0;
+            int maxCompanyTypeId = 0;
+            for (CampaignDimensionRow row : rows) {
+                maxCampaignId = Math.max(maxCampaignId, row.id());
+                if (row.companyTypeId() != null) {
+                    maxCompanyTypeId = Math.max(maxCompanyTypeId, row.companyTypeId());
+                }
+            }
+
+            String[] campaignNames = new String[maxCampaignId + 1];
+            int[] statuses = new int[maxCampaignId + 1];
+            int[] companyTypes = new int[maxCampaignId + 1];
+            String[] companyTypeNames = new String[maxCompanyTypeId + 1];
+            Arrays.fill(statuses, NO_KEY);
+            Arrays.fill(companyTypes, NO_KEY);
+            for (CampaignDimensionRow row : rows) {
+                campaignNames[row.id()] = row.name();
+                statuses[row.id()] = row.status() != null ? row.status().ordinal() : NO_KEY;
+                if (row.companyTypeId() != null) {
+                    companyTypes[row.id()] = row.companyTypeId();
+                    companyTypeNames[row.companyTypeId()] = row.companyTypeName();
+                }
+            }
+            return new Dimensions(campaignNames, statuses, companyTypes, companyTypeNames);
+        }
+
+        int status(int campaignId) {
+            return campaignId < statuses.length ? statuses[campaignId] : NO_KEY;
+        }
+
+        int companyType(int campaignId) {
+            return campaignId < companyTypes.length ? companyTypes[campaignId] : NO_KEY;
+        }
+    }
+
+    /**
+     * What a report filters on and groups by. Group keys are small dense ints so every task can
+     * aggregate into plain arrays; undated donations and campaigns without a company type take the
+     * key after the last real one.
+     */
+    private static final class Scan {
+        private final Columns columns;
+        private final Dimensions dimensions;
+        private final ReportDimension groupBy;
+        private final long from;
+        private final long to;
+        private final int status;
+        private final int companyType;
+        // Start of each month in the scanned range, for MONTH
+        private final long[] monthStarts;
+        private final YearMonth firstMonth;
+
+        Scan(Columns columns, Dimensions dimensions, ReportDimension groupBy, long from, long to, int status, int companyType) {
+            this.columns = columns;
+            this.dimensions = dimensions;
+            this.groupBy = groupBy;
+            this.from = from;
+            this.to = to;
+            this.status = status;
+            this.companyType = companyType;
+
+            if (groupBy == ReportDimension.MONTH && columns.minEpochSecond <= columns.maxEpochSecond) {
+                long first = Math.max(from, columns.minEpochSecond);
+                long last = Math.min(to - 1, columns.maxEpochSecond);
+                firstMonth = YearMonth.from(LocalDateTime.ofEpochSecond(first, 0, ZoneOffset.UTC));
+                YearMonth lastMonth = YearMonth.from(LocalDateTime.ofEpochSecond(Math.max(first, last), 0, ZoneOffset.UTC));
+                int months = (int) (lastMonth.getYear() * 12L + lastMonth.getMonthValue() - firstMonth.getYear() * 12L - firstMonth.getMonthValue()) + 1;
+                monthStarts = new long[months];
+                for (int i = 0; i < months; i++) {
+                    monthStarts[i] = epochSeconds(firstMonth.plusMonths(i).atDay(1).atStartOfDay());
+                }
+            } else {
+                firstMonth = null;
+                monthStarts = new long[0];
+            }
+        }
+
+        int keys() {
+            return switch (groupBy) {
+                case COMPANY_TYPE -> dimensions.companyTypeNames().length + 1;
+                case MONTH -> monthStarts.length + 1;
+                case CAMPAIGN_STATUS -> CampaignStatus.values().length;
+                case CAMPAIGN -> columns.maxCampaignId + 1;
+            };
+        }
+
+        // The group key of a row, or NO_KEY when the row is filtered out
+        int key(int row) {
+            long second = columns.epochSeconds[row];
+            if (second == UNDATED ? from != Long.MIN_VALUE || to != Long.MAX_VALUE : second < from || second >= to) {
+                return NO_KEY;
+            }
+            int campaignId = columns.campaignIds[row];
+            int rowStatus = dimensions.status(campaignId);
+            if (status != NO_KEY && rowStatus != status) {
+                return NO_KEY;
+            }
+            int rowCompanyType = dimensions.companyType(campaignId);
+            if (companyType != NO_KEY && rowCompanyType != companyType) {
+                return NO_KEY;
+            }
+            return switch (groupBy) {
+                case COMPANY_TYPE -> rowCompanyType != NO_KEY ? rowCompanyType : dimensions.companyTypeNames().length;
+                case MONTH -> second != UNDATED ? month(second) : monthStarts.length;
+                case CAMPAIGN_STATUS -> rowStatus;
+                case CAMPAIGN -> campaignId;
+            };
+        }
+
+        private int month(long second) {
+            int index = Arrays.binarySearch(monthStarts, second);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        String label(int key) {
+            return switch (groupBy) {
+                case COMPANY_TYPE -> key < dimensions.companyTypeNames().length ? dimensions.companyTypeNames()[key] : NO_COMPANY_TYPE_LABEL;
+                case MONTH -> key < monthStarts.length ? firstMonth.plusMonths(key).toString() : UNDATED_LABEL;
+                case CAMPAIGN_STATUS -> CampaignStatus.values()[key].name();
+                case CAMPAIGN -> key < dimensions.campaignNames().length && dimensions.campaignNames()[key] != null
+                        ? dimensions.campaignNames()[key]
+                        : "Campaign " + key;
+            };
+        }
+    }
+
+    private static final class Totals {
+        private final long[] amounts;
+        private final long[] counts;
+
+        Totals(int keys) {
+            amounts = new long[keys];
+            counts = new long[keys];
+        }
+
+        Totals merge(Totals other) {
+            for (int key = 0; key < amounts.length; key++) {
+                amounts[key] += other.amounts[key];
+                counts[key] += other.counts[key];
+            }
+            return this;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Totals> {
+        private final Scan scan;
+        private final int start;
+        private final int end;
+        private final int leafRows;
+
+        ScanTask(Scan scan, int start, int end, int leafRows) {
+            this.scan = scan;
+            this.start = start;
+            this.end = end;
+            this.leafRows = leafRows;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (end - start <= leafRows) {
+                Totals totals = new Totals(scan.keys());
+                long[] amounts = scan.columns.amounts;
+                for (int row = start; row < end; row++) {
+                    int key = scan.key(row);
+                    if (key >= 0) {
+                        totals.amounts[key] += amounts[row];
+                        totals.counts[key]++;
+                    }
+                }
+                return totals;
+            }
+            int middle = (start + end) >>> 1;
+            ScanTask left = new ScanTask(scan, start, middle, leafRows);
+            left.fork();
+            Totals right = new ScanTask(scan, middle, end, leafRows).compute();
+            return left.join().merge(right);
+        }
+    }
+}
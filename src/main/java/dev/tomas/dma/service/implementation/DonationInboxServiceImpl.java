@@ -0,0 +1,264 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.InboxKeyRow;
+import dev.tomas.dma.entity.DonationInboxEntry;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationInboxRepo;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.DonationInboxService;
+import dev.tomas.dma.service.DonationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Journals verified Stripe payments so the webhook can answer straight away, and turns them into
+ * donations in the background, one batch per transaction.
+ * Stripe redeliveries are caught by a set of recently seen ids and a Bloom filter before reaching the
+ * unique keys on the event and payment intent ids, so a retry normally costs no database round trip.
+ * Exposes received/processed/rejected counters, batch timings, backlog size and lag through Micrometer.
+ */
+@Service
+@RequiredArgsConstructor
+public class DonationInboxServiceImpl implements DonationInboxService, SmartInitializingSingleton {
+    // A batch that failed this often is left for someone to look at instead of being retried forever
+    static final int MAX_ATTEMPTS = 5;
+    // Stripe stops retrying a delivery after three days
+    private static final Duration RETRY_WINDOW = Duration.ofDays(3);
+    private static final int RECENT_CAPACITY = 10_000;
+    private static final int FILTER_CAPACITY = 1_000_000;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.001;
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String INTEGRITY_VIOLATION_STATE = "23000";
+
+    private final DonationInboxRepo inboxRepo;
+    private final DonationService donationService;
+    private final CampaignRepo campaignRepo;
+    private final UserRepo userRepo;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${donations.inbox.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${donations.inbox.consumer.enabled:true}")
+    private boolean consumerEnabled = true;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    private final RecentIds recentEvents = new RecentIds(RECENT_CAPACITY);
+    private final RecentIds recentPaymentIntents = new RecentIds(RECENT_CAPACITY);
+    private volatile BloomFilter seenEvents = new BloomFilter(FILTER_CAPACITY, FILTER_FALSE_POSITIVE_RATE);
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuildFilter();
+    }
+
+    /**
+     * Rebuilds the Bloom filter from the events still inside Stripe's retry window, so it never fills up.
+     */
+    @Scheduled(cron = "${donations.inbox.filter-rebuild-cron:0 30 3 * * *}")
+    public void rebuildFilter() {
+        BloomFilter filter = new BloomFilter(FILTER_CAPACITY, FILTER_FALSE_POSITIVE_RATE);
+        for (InboxKeyRow row : inboxRepo.findKeysReceivedSince(LocalDateTime.now().minus(RETRY_WINDOW))) {
+            if (row.eventId() != null) {
+                filter.add(row.eventId());
+            }
+        }
+        seenEvents = filter;
+    }
+
+    /**
+     * True when the event was journaled before. The database is only asked when the filter cannot
+     * rule the event out and it is not one of the recent ones, which for a new event is about one in a thousand.
+     */
+    @Override
+    public boolean isDuplicate(String eventId) {
+        if (eventId == null) {
+            return false;
+        }
+        if (recentEvents.contains(eventId)) {
+            meterRegistry.counter("donations.inbox.duplicates", "source", "memory").increment();
+            return true;
+        }
+        if (!seenEvents.mightContain(eventId)) {
+            return false;
+        }
+        if (inboxRepo.existsByEventId(eventId)) {
+            recentEvents.add(eventId);
+            meterRegistry.counter("donations.inbox.duplicates", "source", "lookup").increment();
+            return true;
+        }
+        return false;
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("donations.inbox.pending", pending);
+        meterRegistry.gauge("donations.inbox.lag.seconds", lagSeconds);
+    }
+
+    @Override
+    public void append(String eventId, String paymentIntentId, DonationDTO donation, String payload) {
+        if (paymentIntentId != null && recentPaymentIntents.contains(paymentIntentId)) {
+            // A different event for a payment that is already journaled
+            remember(eventId, null);
+            meterRegistry.counter("donations.inbox.duplicates", "source", "memory").increment();
+            return;
+        }
+
+        DonationInboxEntry entry = new DonationInboxEntry();
+        entry.setEventId(eventId);
+        entry.setPaymentIntentId(paymentIntentId);
+        entry.setCampaignId(donation.getCampaignId());
+        entry.setUserId(donation.getUserId());
+        entry.setAmount(donation.getAmount());
+        entry.setPayload(payload);
+
+        try {
+            inboxRepo.save(entry);
+            meterRegistry.counter("donations.inbox.received").increment();
+        } catch (DataIntegrityViolationException e) {
+            if (!isRedelivery(e)) {
+                throw e;
+            }
+            // Stripe redelivered an event or payment we already journaled
+            meterRegistry.counter("donations.inbox.duplicates", "source", "constraint").increment();
+        }
+        remember(eventId, paymentIntentId);
+    }
+
+    // Only a duplicate on the inbox's own keys is a redelivery; any other violation is a real failure
+    private static boolean isRedelivery(DataIntegrityViolationException e) {
+        if (!(e.getCause() instanceof ConstraintViolationException violation)
+                || violation.getErrorCode() != MYSQL_DUPLICATE_ENTRY
+                || !INTEGRITY_VIOLATION_STATE.equals(violation.getSQLState())
+                || violation.getConstraintName() == null) {
+            return false;
+        }
+        // MySQL reports the key as table.name
+        String constraint = violation.getConstraintName();
+        return switch (constraint.substring(constraint.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT)) {
+            case DonationInboxEntry.UK_EVENT, DonationInboxEntry.UK_PAYMENT_INTENT -> true;
+            default -> false;
+        };
+    }
+
+    private void remember(String eventId, String paymentIntentId) {
+        if (eventId != null) {
+            recentEvents.add(eventId);
+            seenEvents.add(eventId);
+        }
+        if (paymentIntentId != null) {
+            recentPaymentIntents.add(paymentIntentId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${donations.inbox.poll-delay-ms:500}")
+    public void poll() {
+        if (!consumerEnabled) {
+            return;
+        }
+        while (drain() == batchSize) {
+            // Keep going while the inbox has full batches waiting
+        }
+    }
+
+    /**
+     * Processes one batch and returns how many inbox entries it claimed. Entries pointing at a missing
+     * campaign or user are marked processed with the reason; if the batch fails, all its entries are
+     * released with an extra attempt counted.
+     */
+    @Override
+    public int drain() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        List<Long> claimed = new ArrayList<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        try {
+            Integer count = template.execute(status -> process(claimed));
+            sample.stop(meterRegistry.timer("donations.inbox.batch", "outcome", "success"));
+            return count;
+        } catch (RuntimeException e) {
+            sample.stop(meterRegistry.timer("donations.inbox.batch", "outcome", "failure"));
+            if (!claimed.isEmpty()) {
+                template.executeWithoutResult(status ->
+                        inboxRepo.recordFailure(claimed, StringUtils.abbreviate(String.valueOf(e.getMessage()), 1000)));
+            }
+            return 0;
+        } finally {
+            refreshBacklog();
+        }
+    }
+
+    private int process(List<Long> claimed) {
+        List<DonationInboxEntry> entries = inboxRepo.lockPending(MAX_ATTEMPTS, batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        entries.forEach(entry -> claimed.add(entry.getId()));
+
+        Set<Integer> campaigns = new HashSet<>(campaignRepo.findIdsByIdIn(
+                entries.stream().map(DonationInboxEntry::getCampaignId).distinct().toList()));
+        Set<Integer> users = new HashSet<>(userRepo.findIdsByIdIn(
+                entries.stream().map(DonationInboxEntry::getUserId).distinct().toList()));
+
+        LocalDateTime now = LocalDateTime.now();
+        List<DonationDTO> donations = new ArrayList<>(entries.size());
+        List<Long> accepted = new ArrayList<>(entries.size());
+        for (DonationInboxEntry entry : entries) {
+            if (!campaigns.contains(entry.getCampaignId())) {
+                reject(entry, "Campaign not found with id: " + entry.getCampaignId(), now);
+            } else if (!users.contains(entry.getUserId())) {
+                reject(entry, "User not found with id: " + entry.getUserId(), now);
+            } else {
+                DonationDTO dto = new DonationDTO();
+                dto.setCampaignId(entry.getCampaignId());
+                dto.setUserId(entry.getUserId());
+                dto.setAmount(entry.getAmount());
+                dto.setDate(entry.getReceivedAt());
+                dto.setPaymentIntentId(entry.getPaymentIntentId());
+                donations.add(dto);
+                accepted.add(entry.getId());
+            }
+        }
+
+        donationService.saveAll(donations);
+        if (!accepted.isEmpty()) {
+            inboxRepo.markProcessed(accepted, now);
+        }
+        meterRegistry.counter("donations.inbox.processed", "outcome", "saved").increment(accepted.size());
+        meterRegistry.counter("donations.inbox.processed", "outcome", "rejected").increment(entries.size() - accepted.size());
+        return entries.size();
+    }
+
+    // Managed entity, flushed with the batch
+    private void reject(DonationInboxEntry entry, String reason, LocalDateTime now) {
+        entry.setProcessedAt(now);
+        entry.setError(reason);
+    }
+
+    private void refreshBacklog() {
+        pending.set(inboxRepo.countPending(MAX_ATTEMPTS));
+        LocalDateTime oldest = inboxRepo.findOldestPending(MAX_ATTEMPTS);
+        lagSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, LocalDateTime.now()).toSeconds()));
+    }
+}
@@ -0,0 +1,205 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationBucketDTO;
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.DonationBucketRow;
+import dev.tomas.dma.dto.request.DonationTimeSeriesReq;
+import dev.tomas.dma.dto.response.DonationTimeSeriesRes;
+import dev.tomas.dma.enums.RollupGranularity;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRollupRepo;
+import dev.tomas.dma.service.DonationRollupService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Hourly and daily donation totals per campaign. Saving donations adds to the buckets in the same
+ * transaction, so a time series is one range read over the rollup key with the gaps filled in,
+ * however many donations the campaign has.
+ */
+@Service
+@RequiredArgsConstructor
+public class DonationRollupServiceImpl implements DonationRollupService, SmartInitializingSingleton {
+    static final int MAX_BUCKETS = 2_000;
+    private static final int BATCH_SIZE = 500;
+    // Campaign ids per backfill chunk; chunks never share a campaign so they can't touch the same buckets
+    static final int CHUNK_CAMPAIGNS = 500;
+
+    private static final String UPSERT = """
+            INSERT INTO donation_rollup (campaign_id, granularity, bucket_start, amount, donation_count)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                amount = amount + VALUES(amount),
+                donation_count = donation_count + VALUES(donation_count)
+            """;
+    // Donation writes take their campaign's row lock before touching the rollups, so holding these keeps them out
+    private static final String LOCK_CAMPAIGNS = "SELECT id FROM campaign WHERE id BETWEEN ? AND ? ORDER BY id FOR UPDATE";
+    private static final String REBUILD_HOURS = """
+            INSERT INTO donation_rollup (campaign_id, granularity, bucket_start, amount, donation_count)
+            SELECT campaign_id, 'HOUR', TIMESTAMP(DATE_FORMAT(date, '%Y-%m-%d %H:00:00')), COALESCE(SUM(amount), 0), COUNT(*)
+            FROM donation
+            WHERE campaign_id BETWEEN ? AND ? AND date IS NOT NULL
+            GROUP BY campaign_id, TIMESTAMP(DATE_FORMAT(date, '%Y-%m-%d %H:00:00'))
+            """;
+    private static final String REBUILD_DAYS = """
+            INSERT INTO donation_rollup (campaign_id, granularity, bucket_start, amount, donation_count)
+            SELECT campaign_id, 'DAY', TIMESTAMP(DATE(date)), COALESCE(SUM(amount), 0), COUNT(*)
+            FROM donation
+            WHERE campaign_id BETWEEN ? AND ? AND date IS NOT NULL
+            GROUP BY campaign_id, TIMESTAMP(DATE(date))
+            """;
+
+    private final DonationRollupRepo rollupRepo;
+    private final CampaignRepo campaignRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${donations.rollup.backfill-threads:4}")
+    private int backfillThreads = 4;
+
+    /**
+     * Builds the rollups from history once, when the table is new.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (rollupRepo.count() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Adds donations to their buckets. Joins the caller's transaction rather than starting its own, so
+     * the buckets only move when the donations commit, and a failed write here rolls the donations
+     * back with it; the totals never drift from the donation table. Buckets are written in key order
+     * so concurrent batches lock them in the same order.
+     */
+    @Override
+    public void add(List<DonationDTO> donations, LocalDateTime defaultDate) {
+        Map<BucketKey, long[]> buckets = new TreeMap<>();
+        for (DonationDTO dto : donations) {
+            LocalDateTime date = dto.getDate() != null ? dto.getDate() : defaultDate;
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                long[] totals = buckets.computeIfAbsent(
+                        new BucketKey(dto.getCampaignId(), granularity, date.truncatedTo(granularity.getUnit())), key -> new long[2]);
+                totals[0] += dto.getAmount();
+                totals[1]++;
+            }
+        }
+
+        jdbcTemplate.batchUpdate(UPSERT, buckets.entrySet(), BATCH_SIZE, (ps, entry) -> {
+            ps.setInt(1, entry.getKey().campaignId());
+            ps.setString(2, entry.getKey().granularity().name());
+            ps.setTimestamp(3, Timestamp.valueOf(entry.getKey().start()));
+            ps.setLong(4, entry.getValue()[0]);
+            ps.setLong(5, entry.getValue()[1]);
+        });
+    }
+
+    @Override
+    public DonationTimeSeriesRes getSeries(Integer campaignId, DonationTimeSeriesReq request) {
+        RollupGranularity granularity = request.getGranularity();
+        LocalDateTime to = request.getTo() != null ? request.getTo() : LocalDateTime.now();
+        LocalDateTime from = request.getFrom() != null ? request.getFrom() : to.minus(granularity.getDefaultRange());
+        LocalDateTime first = from.truncatedTo(granularity.getUnit());
+        LocalDateTime last = to.truncatedTo(granularity.getUnit());
+
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("From must be before to");
+        }
+        long count = granularity.getUnit().between(first, last) + 1;
+        if (count > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Time range too large, at most " + MAX_BUCKETS + " buckets");
+        }
+        if (!campaignRepo.existsById(campaignId)) {
+            throw new EntityNotFoundException("Campaign not found with id: " + campaignId);
+        }
+
+        Iterator<DonationBucketRow> rows = rollupRepo.findSeries(campaignId, granularity, first, last).iterator();
+        DonationBucketRow next = rows.hasNext() ? rows.next() : null;
+
+        DonationTimeSeriesRes response = new DonationTimeSeriesRes();
+        response.setCampaignId(campaignId);
+        response.setGranularity(granularity);
+        List<DonationBucketDTO> buckets = new ArrayList<>((int) count);
+        for (LocalDateTime start = first; !start.isAfter(last); start = start.plus(1, granularity.getUnit())) {
+            if (next != null && next.bucketStart().equals(start)) {
+                buckets.add(new DonationBucketDTO(start, next.amount(), next.donationCount()));
+                next = rows.hasNext() ? rows.next() : null;
+            } else {
+                buckets.add(new DonationBucketDTO(start, 0, 0));
+            }
+        }
+        response.setBuckets(buckets);
+        return response;
+    }
+
+    /**
+     * Recomputes every rollup from the donation table. Campaign ids are split into ranges that are
+     * rebuilt in parallel, each range replaced in its own transaction. Each range first locks its
+     * campaign rows, which every donation write locks before adding to the buckets: donations already
+     * in flight commit before the range is re-read, and new ones wait until it is replaced, so none is
+     * lost between the delete and the insert or counted twice. Returns the number of buckets written.
+     */
+    @Override
+    public int rebuild() {
+        Integer min = jdbcTemplate.queryForObject("SELECT MIN(campaign_id) FROM donation", Integer.class);
+        Integer max = jdbcTemplate.queryForObject("SELECT MAX(campaign_id) FROM donation", Integer.class);
+        if (min == null || max == null) {
+            return 0;
+        }
+
+        List<Future<Integer>> chunks = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(backfillThreads)) {
+            for (long start = min; start <= max; start += CHUNK_CAMPAIGNS) {
+                int from = (int) start;
+                int to = (int) Math.min(start + CHUNK_CAMPAIGNS - 1, max);
+                chunks.add(executor.submit(() -> rebuildChunk(from, to)));
+            }
+
+            int written = 0;
+            for (Future<Integer> chunk : chunks) {
+                written += chunk.get();
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rollup rebuild interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rollup rebuild failed", e.getCause());
+        }
+    }
+
+    private int rebuildChunk(int fromCampaign, int toCampaign) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            jdbcTemplate.queryForList(LOCK_CAMPAIGNS, Integer.class, fromCampaign, toCampaign);
+            jdbcTemplate.update("DELETE FROM donation_rollup WHERE campaign_id BETWEEN ? AND ?", fromCampaign, toCampaign);
+            return jdbcTemplate.update(REBUILD_HOURS, fromCampaign, toCampaign)
+                    + jdbcTemplate.update(REBUILD_DAYS, fromCampaign, toCampaign);
+        });
+    }
+
+    private record BucketKey(Integer campaignId, RollupGranularity granularity, LocalDateTime start) implements Comparable<BucketKey> {
+        private static final Comparator<BucketKey> ORDER = Comparator.comparing(BucketKey::campaignId)
+                .thenComparing(BucketKey::granularity)
+                .thenComparing(BucketKey::start);
+
+        @Override
+        public int compareTo(BucketKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -1,60 +1,344 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.DonationHistoryRow;
+import dev.tomas.dma.dto.request.DonationHistoryReq;
 import dev.tomas.dma.dto.response.DonationByUserGetAllRes;
-import dev.tomas.dma.entity.Campaign;
+import dev.tomas.dma.dto.response.DonationHistoryRes;
 import dev.tomas.dma.entity.Donation;
-import dev.tomas.dma.entity.User;
 import dev.tomas.dma.mapper.DonationMapper;
 import dev.tomas.dma.repository.CampaignRepo;
 import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.repository.DonorSummaryRepo;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
+import dev.tomas.dma.service.DonationAnalyticsService;
+import dev.tomas.dma.service.DonationRollupService;
 import dev.tomas.dma.service.DonationService;
+import dev.tomas.dma.service.DonorCountService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
-public class DonationServiceImpl implements DonationService {
+public class DonationServiceImpl implements DonationService, SmartInitializingSingleton {
+    private static final int BATCH_SIZE = 500;
+    private static final int HISTORY_BATCH_SIZE = 500;
+
     private final CampaignRepo campaignRepo;
     private final UserRepo userRepo;
     private final DonationMapper donationMapper;
     private final DonationRepository donationRepo;
+    private final CampaignFeedService campaignFeedService;
+    private final CampaignRankingService campaignRankingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final DonorSummaryRepo donorSummaryRepo;
+    private final DonationRollupService donationRollupService;
+    private final DonationAnalyticsService donationAnalyticsService;
+    private final DonorCountService donorCountService;
+
+    /**
+     * Builds the donor summaries once for donations saved before they existed.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (donorSummaryRepo.count() == 0 && donationRepo.count() > 0) {
+            donorSummaryRepo.backfillCampaigns();
+            donorSummaryRepo.backfillSummaries();
+        }
+    }
 
+    /**
+     * The campaign total is incremented before the donation row is inserted. The increment takes the
+     * campaign row lock first, so concurrent donations queue on it instead of deadlocking on the
+     * shared lock the donation's foreign key check would otherwise take.
+     */
     @Transactional
     public void save(DonationDTO dto) {
-        Campaign campaign = campaignRepo.findById(dto.getCampaignId()).orElseThrow(() -> new EntityNotFoundException("Campaign not found with id: " + dto.getCampaignId()));
-        User user = userRepo.findById(dto.getUserId()).orElseThrow(() -> new EntityNotFoundException("User not found with id: " + dto.getUserId()));
+        if (!userRepo.existsById(dto.getUserId())) {
+            throw new EntityNotFoundException("User not found with id: " + dto.getUserId());
+        }
+        // Amounts arrive in cents
+        if (campaignRepo.addRaisedFunds(dto.getCampaignId(), BigDecimal.valueOf(dto.getAmount(), 2)) == 0) {
+            throw new EntityNotFoundException("Campaign not found with id: " + dto.getCampaignId());
+        }
 
         Donation donation = donationMapper.toEntity(dto);
+        donation.setCampaign(campaignRepo.getReferenceById(dto.getCampaignId()));
+        donation.setUser(userRepo.getReferenceById(dto.getUserId()));
+        // The webhook doesn't send a date and the mapper would otherwise store null over the entity default
+        if (donation.getDate() == null) {
+            donation.setDate(LocalDateTime.now());
+        }
         donationRepo.save(donation);
+        updateDonorSummaries(List.of(dto), donation.getDate());
+        donationRollupService.add(List.of(dto), donation.getDate());
+        // Before the feed refresh, so the refreshed campaign already has the new donor count
+        donorCountService.add(List.of(dto));
+
+        campaignFeedService.refresh(dto.getCampaignId());
+        campaignRankingService.record(dto.getCampaignId(), dto.getAmount(), donation.getDate());
+        donationAnalyticsService.append(donation.getId(), dto.getCampaignId(), dto.getUserId(), dto.getAmount(), donation.getDate());
+    }
+
+    /**
+     * Saves a batch of donations whose users are known to exist. The campaign rows are locked first,
+     * in id order so concurrent batches queue on them, and a missing campaign fails the batch. The
+     * donation rows then go in as one JDBC batch (identity ids rule out Hibernate batching), and only
+     * the rows the insert reports as written reach the totals, summaries and read models.
+     * <p>
+     * A payment intent already stored, or repeated within the batch, is skipped on its own instead of
+     * failing the whole batch on the unique key. IGNORE covers one stored by another transaction
+     * between that check and the insert; its row then reports no update and isn't counted.
+     */
+    @Transactional
+    public void saveAll(List<DonationDTO> batch) {
+        List<DonationDTO> candidates = withoutStoredIntents(batch);
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> campaignIds = new TreeSet<>();
+        candidates.forEach(dto -> campaignIds.add(dto.getCampaignId()));
+        Set<Integer> locked = new HashSet<>(campaignRepo.lockIdsIn(campaignIds));
+        for (Integer campaignId : campaignIds) {
+            if (!locked.contains(campaignId)) {
+                throw new EntityNotFoundException("Campaign not found with id: " + campaignId);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int[][] counts = jdbcTemplate.batchUpdate("INSERT IGNORE INTO donation (campaign_id, user_id, amount, date, payment_intent_id) VALUES (?, ?, ?, ?, ?)",
+                candidates, BATCH_SIZE, (ps, dto) -> {
+                    ps.setInt(1, dto.getCampaignId());
+                    ps.setInt(2, dto.getUserId());
+                    ps.setLong(3, dto.getAmount());
+                    ps.setTimestamp(4, Timestamp.valueOf(dto.getDate() != null ? dto.getDate() : now));
+                    ps.setString(5, dto.getPaymentIntentId());
+                });
+        List<DonationDTO> dtos = inserted(candidates, counts);
+        if (dtos.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, Long> totals = new TreeMap<>();
+        for (DonationDTO dto : dtos) {
+            totals.merge(dto.getCampaignId(), dto.getAmount(), Long::sum);
+        }
+        totals.forEach((campaignId, cents) -> {
+            if (campaignRepo.addRaisedFunds(campaignId, BigDecimal.valueOf(cents, 2)) == 0) {
+                throw new EntityNotFoundException("Campaign not found with id: " + campaignId);
+            }
+        });
+        updateDonorSummaries(dtos, now);
+        donationRollupService.add(dtos, now);
+        donorCountService.add(dtos);
+
+        totals.keySet().forEach(campaignFeedService::refresh);
+        Map<String, Integer> ids = donationIds(dtos);
+        for (DonationDTO dto : dtos) {
+            LocalDateTime date = dto.getDate() != null ? dto.getDate() : now;
+            campaignRankingService.record(dto.getCampaignId(), dto.getAmount(), date);
+            donationAnalyticsService.append(ids.get(dto.getPaymentIntentId()), dto.getCampaignId(), dto.getUserId(), dto.getAmount(), date);
+        }
+    }
+
+    // The batch's update counts come in chunks of BATCH_SIZE, in the order the rows were given
+    private static List<DonationDTO> inserted(List<DonationDTO> dtos, int[][] counts) {
+        List<DonationDTO> inserted = new ArrayList<>(dtos.size());
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count < 0) {
+                    // Rewritten batches report no per-row counts, so a skipped row couldn't be told apart
+                    throw new IllegalStateException("Donation batch insert returned no update counts");
+                }
+                if (count > 0) {
+                    inserted.add(dtos.get(index));
+                }
+                index++;
+            }
+        }
+        return inserted;
+    }
+
+    private List<DonationDTO> withoutStoredIntents(List<DonationDTO> dtos) {
+        Set<String> intents = paymentIntentIds(dtos);
+        if (intents.isEmpty()) {
+            return dtos;
+        }
+
+        Set<String> seen = new HashSet<>(donationRepo.findPaymentIntentIdsIn(intents));
+        List<DonationDTO> fresh = new ArrayList<>(dtos.size());
+        for (DonationDTO dto : dtos) {
+            if (dto.getPaymentIntentId() == null || seen.add(dto.getPaymentIntentId())) {
+                fresh.add(dto);
+            }
+        }
+        return fresh;
+    }
+
+    // The JDBC batch doesn't return identity ids, so they are read back through the payment intents
+    private Map<String, Integer> donationIds(List<DonationDTO> dtos) {
+        Set<String> intents = paymentIntentIds(dtos);
+        Map<String, Integer> ids = new HashMap<>();
+        if (!intents.isEmpty()) {
+            donationRepo.findIdsByPaymentIntentIdIn(intents).forEach(row -> ids.put(row.paymentIntentId(), row.id()));
+        }
+        return ids;
+    }
+
+    private static Set<String> paymentIntentIds(List<DonationDTO> dtos) {
+        Set<String> intents = new HashSet<>();
+        for (DonationDTO dto : dtos) {
+            if (dto.getPaymentIntentId() != null) {
+                intents.add(dto.getPaymentIntentId());
+            }
+        }
+        return intents;
+    }
+
+    /**
+     * Every donation of the user, newest first, for clients of the original unpaged endpoint. Read
+     * through the same keyset pages as the history, so no one query loads the whole list.
+     */
+    public List<DonationByUserGetAllRes> getAllByUserId(Integer userId) {
+        List<DonationByUserGetAllRes> donations = new ArrayList<>();
+        DonationCursor cursor = null;
+        while (true) {
+            List<DonationHistoryRow> rows = findHistory(userId, cursor, PageRequest.of(0, HISTORY_BATCH_SIZE));
+            rows.forEach(row -> donations.add(toHistoryRes(row)));
+            if (rows.size() < HISTORY_BATCH_SIZE) {
+                return donations;
+            }
+            cursor = new DonationCursor(rows.getLast().date(), rows.getLast().id());
+        }
+    }
+
+    /**
+     * One join query per page, newest first, continuing after the cursor's date and id. The lifetime
+     * figures come from the donor summary row rather than from summing the user's donations.
+     */
+    public DonationHistoryRes getHistory(Integer userId, DonationHistoryReq page) {
+        DonationCursor cursor = DonationCursor.decode(page.getCursor());
+        // One extra row tells whether another page exists
+        List<DonationHistoryRow> rows = findHistory(userId, cursor, PageRequest.of(0, page.getSize() + 1));
+
+        boolean hasMore = rows.size() > page.getSize();
+        if (hasMore) {
+            rows = rows.subList(0, page.getSize());
+        }
+
+        DonationHistoryRes response = new DonationHistoryRes();
+        rows.forEach(row -> response.getDonations().add(toHistoryRes(row)));
+        if (hasMore) {
+            response.setNextCursor(new DonationCursor(rows.getLast().date(), rows.getLast().id()).encode());
+        }
+
+        donorSummaryRepo.findById(userId).ifPresent(summary -> {
+            response.setTotalAmount(summary.getTotalAmount());
+            response.setDonationCount(summary.getDonationCount());
+            response.setCampaignCount(summary.getCampaignCount());
+        });
+        return response;
+    }
+
+    // Undated legacy donations come after all dated ones, so a cursor on one only moves through those
+    private List<DonationHistoryRow> findHistory(Integer userId, DonationCursor cursor, Pageable limit) {
+        if (cursor == null) {
+            return donationRepo.findHistory(userId, limit);
+        }
+        return cursor.date() == null
+                ? donationRepo.findUndatedHistoryBefore(userId, cursor.id(), limit)
+                : donationRepo.findHistoryBefore(userId, cursor.date(), cursor.id(), limit);
+    }
+
+    private static DonationByUserGetAllRes toHistoryRes(DonationHistoryRow row) {
+        DonationByUserGetAllRes dto = new DonationByUserGetAllRes();
+        dto.setDate(row.date());
+        dto.setAmount(row.amount());
+        dto.setUserId(row.userId());
+        dto.setCampaignId(row.campaignId());
+        dto.setCompanyId(row.companyId());
+        dto.setCampaignName(row.campaignName());
+        dto.setCompanyName(row.companyName());
+        return dto;
+    }
+
+    /**
+     * Adds a batch of donations to the donor summaries. New (user, campaign) pairs are recorded first
+     * so the campaign count can be recounted from them; rows are touched in user id order so
+     * concurrent batches lock them in the same order.
+     */
+    private void updateDonorSummaries(List<DonationDTO> dtos, LocalDateTime defaultDate) {
+        Map<Integer, DonorTotals> totals = new TreeMap<>();
+        SortedSet<Long> pairs = new TreeSet<>();
+        for (DonationDTO dto : dtos) {
+            LocalDateTime date = dto.getDate() != null ? dto.getDate() : defaultDate;
+            totals.computeIfAbsent(dto.getUserId(), id -> new DonorTotals()).add(dto.getAmount(), date);
+            pairs.add(((long) dto.getUserId() << 32) | (dto.getCampaignId() & 0xffffffffL));
+        }
 
-        campaign.setRaisedFunds(campaign.getRaisedFunds().add(new BigDecimal(dto.getAmount() / 100)));
-        campaignRepo.save(campaign);
+        jdbcTemplate.batchUpdate("INSERT IGNORE INTO donor_campaign (user_id, campaign_id) VALUES (?, ?)",
+                pairs, BATCH_SIZE, (ps, pair) -> {
+                    ps.setInt(1, (int) (pair >>> 32));
+                    ps.setInt(2, (int) (long) pair);
+                });
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO donor_summary (user_id, total_amount, donation_count, campaign_count, last_donation_date)
+                VALUES (?, ?, ?, 0, ?)
+                ON DUPLICATE KEY UPDATE
+                    total_amount = total_amount + VALUES(total_amount),
+                    donation_count = donation_count + VALUES(donation_count),
+                    last_donation_date = GREATEST(COALESCE(last_donation_date, VALUES(last_donation_date)), VALUES(last_donation_date))
+                """, totals.entrySet(), BATCH_SIZE, (ps, entry) -> {
+                    ps.setInt(1, entry.getKey());
+                    ps.setLong(2, entry.getValue().amount);
+                    ps.setLong(3, entry.getValue().count);
+                    ps.setTimestamp(4, Timestamp.valueOf(entry.getValue().lastDate));
+                });
+        jdbcTemplate.batchUpdate("""
+                UPDATE donor_summary
+                SET campaign_count = (SELECT COUNT(*) FROM donor_campaign WHERE user_id = ?)
+                WHERE user_id = ?
+                """, totals.keySet(), BATCH_SIZE, (ps, userId) -> {
+                    ps.setInt(1, userId);
+                    ps.setInt(2, userId);
+                });
     }
 
-    public List<DonationByUserGetAllRes> getAllByUserId(Integer userId){
-        List<DonationByUserGetAllRes> dtoList = new ArrayList<>();
+    private static final class DonorTotals {
+        private long amount;
+        private long count;
+        private LocalDateTime lastDate;
 
-        List<Donation> donations = new ArrayList<>(donationRepo.findAllByUserId(userId));
-        for(Donation entity : donations){
-            DonationByUserGetAllRes dto = new DonationByUserGetAllRes();
-            dto.setDate(entity.getDate());
-            dto.setAmount(entity.getAmount());
-            dto.setUserId(entity.getUser().getId());
-            dto.setCampaignId(entity.getCampaign().getId());
-            dto.setCompanyId(entity.getCampaign().getCompany().getId());
-            dto.setCampaignName(entity.getCampaign().getName());
-            dto.setCompanyName(entity.getCampaign().getCompany().getName());
-            dtoList.add(dto);
+        void add(long amount, LocalDateTime date) {
+            this.amount += amount;
+            this.count++;
+            if (lastDate == null || date.isAfter(lastDate)) {
+                lastDate = date;
+            }
         }
-        return dtoList;
     }
 }
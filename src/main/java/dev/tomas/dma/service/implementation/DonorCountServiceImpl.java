@@ -0,0 +1,328 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.CampaignCompanyRow;
+import dev.tomas.dma.entity.DonorSketch;
+import dev.tomas.dma.enums.SketchScope;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.repository.DonorSketchRepo;
+import dev.tomas.dma.service.DonorCountService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Approximate distinct donor counts per campaign, per company and for the platform, each a
+ * HyperLogLog sketch of user ids. Counts are read from memory, so a listing costs the same however
+ * many donations there are.
+ * <p>
+ * Only campaign sketches are written by donations, under their row lock and only when a register
+ * changes; the donation already holds its campaign's row lock, so this adds no waiting. Company and
+ * platform sketches are unions of their campaigns' sketches: they grow in memory after commit and are
+ * stored by the periodic flush, so donations to different campaigns never wait on a shared row. A
+ * union lost before its flush is derived again from the campaign sketches on the next start.
+ * <p>
+ * Sketches written by other instances reach this one through the periodic refresh, which reads only
+ * the rows written since the last one. Donations are never removed, so everything is merged rather
+ * than swapped, and reading a row twice changes nothing.
+ */
+@Service
+@RequiredArgsConstructor
+public class DonorCountServiceImpl implements DonorCountService, SmartInitializingSingleton, DisposableBean {
+    private static final int BATCH_SIZE = 500;
+    private static final int PLATFORM_ID = 0;
+    private static final SketchKey PLATFORM = new SketchKey(SketchScope.PLATFORM, PLATFORM_ID);
+    // A sketch becomes visible when its transaction commits, which can be a while after its updated_at
+    private static final long REFRESH_OVERLAP_MS = 300_000;
+
+    private static final String LOCK = "SELECT registers FROM donor_sketch WHERE scope = ? AND scope_id = ? FOR UPDATE";
+    private static final String UPSERT = """
+            INSERT INTO donor_sketch (scope, scope_id, registers)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE registers = VALUES(registers)
+            """;
+    private static final String NOW = "SELECT CURRENT_TIMESTAMP(6)";
+    private static final String CHANGED = "SELECT scope, scope_id, registers FROM donor_sketch WHERE updated_at >= ?";
+    private static final String BACKFILL = """
+            SELECT d.user_id, d.campaign_id, c.company_id
+            FROM donation d
+            LEFT JOIN campaign c ON c.id = d.campaign_id
+            WHERE d.user_id IS NOT NULL AND d.campaign_id IS NOT NULL
+            """;
+
+    private final DonorSketchRepo sketchRepo;
+    private final DonationRepository donationRepo;
+    private final CampaignRepo campaignRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<SketchKey, HyperLogLog> sketches = new ConcurrentHashMap<>();
+    // Company and platform sketches grown in memory since they were last stored
+    private final Set<SketchKey> unflushed = ConcurrentHashMap.newKeySet();
+    // A campaign never moves to another company, so lookups are kept for good
+    private final Map<Integer, Integer> companyIds = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Database time the next refresh reads from
+    private volatile Timestamp refreshFrom;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureLoaded();
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    /**
+     * Adds the donors to their campaigns' sketches. Runs inside the caller's transaction; sketches that
+     * change are rewritten under their row lock, in campaign order so concurrent batches lock them in
+     * the same order, and the in-memory copies and their unions catch up after commit.
+     */
+    @Override
+    public void add(List<DonationDTO> donations) {
+        ensureLoaded();
+        Map<Integer, List<Long>> hashes = new TreeMap<>();
+        for (DonationDTO dto : donations) {
+            hashes.computeIfAbsent(dto.getCampaignId(), id -> new ArrayList<>()).add(HyperLogLog.hash(dto.getUserId()));
+        }
+
+        Map<SketchKey, HyperLogLog> written = new HashMap<>();
+        hashes.forEach((campaignId, campaignHashes) -> {
+            SketchKey key = new SketchKey(SketchScope.CAMPAIGN, campaignId);
+            HyperLogLog known = sketches.get(key);
+            if (known != null && campaignHashes.stream().noneMatch(known::wouldChange)) {
+                return;
+            }
+            // Another instance may have written the row since it was loaded, so add to the stored copy
+            List<byte[]> rows = jdbcTemplate.queryForList(LOCK, byte[].class, key.scope().name(), key.id());
+            HyperLogLog stored = rows.isEmpty() ? new HyperLogLog() : HyperLogLog.fromBytes(rows.getFirst());
+            campaignHashes.forEach(stored::offer);
+            jdbcTemplate.update(UPSERT, key.scope().name(), key.id(), stored.toBytes());
+            written.put(key, stored);
+        });
+        if (written.isEmpty()) {
+            return;
+        }
+        companyIds(written.keySet().stream().map(SketchKey::id).toList());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(written);
+                }
+            });
+        } else {
+            publish(written);
+        }
+    }
+
+    /**
+     * Stores the company and platform sketches grown since the last flush, each merged with the stored
+     * copy under its row lock so donors flushed by other instances are kept. One short transaction
+     * per flush, rather than one lock per donation.
+     */
+    @Scheduled(fixedDelayString = "${donations.donor-count.flush-ms:10000}", initialDelayString = "${donations.donor-count.flush-ms:10000}")
+    public synchronized void flush() {
+        if (unflushed.isEmpty()) {
+            return;
+        }
+        Set<SketchKey> keys = new TreeSet<>(unflushed);
+        unflushed.removeAll(keys);
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> keys.forEach(key -> {
+                HyperLogLog sketch = sketches.get(key);
+                List<byte[]> rows = jdbcTemplate.queryForList(LOCK, byte[].class, key.scope().name(), key.id());
+                if (!rows.isEmpty()) {
+                    sketch.merge(HyperLogLog.fromBytes(rows.getFirst()));
+                }
+                jdbcTemplate.update(UPSERT, key.scope().name(), key.id(), sketch.toBytes());
+            }));
+        } catch (RuntimeException e) {
+            unflushed.addAll(keys);
+            throw e;
+        }
+    }
+
+    /**
+     * Merges in the sketches written since the last refresh, so donors counted on other instances
+     * show up here. Campaign sketches are merged into their company and platform unions as well.
+     */
+    @Scheduled(fixedDelayString = "${donations.donor-count.refresh-ms:60000}", initialDelayString = "${donations.donor-count.refresh-ms:60000}")
+    public synchronized void refresh() {
+        ensureLoaded();
+        Timestamp next = readFrom();
+        Map<SketchKey, HyperLogLog> changed = new HashMap<>();
+        jdbcTemplate.query(CHANGED, rs -> {
+            changed.put(new SketchKey(SketchScope.valueOf(rs.getString(1)), rs.getInt(2)), HyperLogLog.fromBytes(rs.getBytes(3)));
+        }, refreshFrom);
+        absorb(changed);
+        refreshFrom = next;
+    }
+
+    @Override
+    public long campaignDonors(Integer campaignId) {
+        return estimate(new SketchKey(SketchScope.CAMPAIGN, campaignId));
+    }
+
+    @Override
+    public long companyDonors(Integer companyId) {
+        return estimate(new SketchKey(SketchScope.COMPANY, companyId));
+    }
+
+    @Override
+    public long platformDonors() {
+        return estimate(PLATFORM);
+    }
+
+    private long estimate(SketchKey key) {
+        ensureLoaded();
+        HyperLogLog sketch = sketches.get(key);
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    /**
+     * Merges stored sketches into memory. Campaign sketches also go into their unions, which are
+     * flushed if that grew them.
+     */
+    private void absorb(Map<SketchKey, HyperLogLog> stored) {
+        List<Integer> campaigns = stored.keySet().stream()
+                .filter(key -> key.scope() == SketchScope.CAMPAIGN)
+                .map(SketchKey::id)
+                .toList();
+        companyIds(campaigns);
+        // Unions first, so a campaign merged into them isn't flushed again for donors they already had
+        stored.forEach((key, sketch) -> {
+            if (key.scope() != SketchScope.CAMPAIGN) {
+                merge(key, sketch);
+            }
+        });
+        publish(stored);
+    }
+
+    private void publish(Map<SketchKey, HyperLogLog> written) {
+        written.forEach((key, sketch) -> {
+            merge(key, sketch);
+            if (key.scope() != SketchScope.CAMPAIGN) {
+                return;
+            }
+            Integer companyId = companyIds.get(key.id());
+            if (companyId != null) {
+                mergeUnion(new SketchKey(SketchScope.COMPANY, companyId), sketch);
+            }
+            mergeUnion(PLATFORM, sketch);
+        });
+    }
+
+    private boolean merge(SketchKey key, HyperLogLog sketch) {
+        return sketches.computeIfAbsent(key, k -> new HyperLogLog()).merge(sketch);
+    }
+
+    private void mergeUnion(SketchKey key, HyperLogLog campaign) {
+        if (merge(key, campaign)) {
+            unflushed.add(key);
+        }
+    }
+
+    private void companyIds(Collection<Integer> campaignIds) {
+        Set<Integer> missing = new HashSet<>();
+        for (Integer campaignId : campaignIds) {
+            if (!companyIds.containsKey(campaignId)) {
+                missing.add(campaignId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (CampaignCompanyRow row : campaignRepo.findCompanyIdsByIdIn(missing)) {
+                companyIds.put(row.campaignId(), row.companyId());
+            }
+        }
+    }
+
+    // Database time less the overlap, so rows committed late are still read by the next refresh
+    private Timestamp readFrom() {
+        Timestamp now = jdbcTemplate.queryForObject(NOW, Timestamp.class);
+        return now != null ? new Timestamp(now.getTime() - REFRESH_OVERLAP_MS) : null;
+    }
+
+    /**
+     * Loads the sketches on first use. The campaign feed reads counts while it is being built, which
+     * can be before this bean's own startup callback.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            refreshFrom = readFrom();
+            if (sketchRepo.count() == 0 && donationRepo.count() > 0) {
+                backfill();
+            } else {
+                Map<SketchKey, HyperLogLog> stored = new HashMap<>();
+                for (DonorSketch row : sketchRepo.findAll()) {
+                    stored.put(new SketchKey(row.getScope(), row.getScopeId()), HyperLogLog.fromBytes(row.getRegisters()));
+                }
+                absorb(stored);
+            }
+            loaded = true;
+        }
+    }
+
+    /**
+     * Builds every sketch from the donation table once, when the table is new.
+     */
+    private void backfill() {
+        count(sketches);
+        jdbcTemplate.batchUpdate(UPSERT, new TreeMap<>(sketches).entrySet(), BATCH_SIZE, (ps, entry) -> {
+            ps.setString(1, entry.getKey().scope().name());
+            ps.setInt(2, entry.getKey().id());
+            ps.setBytes(3, entry.getValue().toBytes());
+        });
+    }
+
+    // Adding a donor twice leaves a sketch as it was, so duplicates need no DISTINCT
+    private void count(Map<SketchKey, HyperLogLog> into) {
+        JdbcTemplate streaming = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        // MySQL only streams rows one by one with this fetch size; any other value buffers the whole result
+        streaming.setFetchSize(Integer.MIN_VALUE);
+        streaming.query(BACKFILL, rs -> {
+            long hash = HyperLogLog.hash(rs.getInt(1));
+            offer(into, new SketchKey(SketchScope.CAMPAIGN, rs.getInt(2)), hash);
+            int companyId = rs.getInt(3);
+            if (!rs.wasNull()) {
+                offer(into, new SketchKey(SketchScope.COMPANY, companyId), hash);
+            }
+            offer(into, PLATFORM, hash);
+        });
+    }
+
+    private static void offer(Map<SketchKey, HyperLogLog> into, SketchKey key, long hash) {
+        into.computeIfAbsent(key, k -> new HyperLogLog()).offer(hash);
+    }
+
+    private record SketchKey(SketchScope scope, int id) implements Comparable<SketchKey> {
+        private static final Comparator<SketchKey> ORDER = Comparator.comparing(SketchKey::scope)
+                .thenComparingInt(SketchKey::id);
+
+        @Override
+        public int compareTo(SketchKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package dev.tomas.dma.service.implementation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import dev.tomas.dma.enums.ExportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes exported rows one at a time, so nothing but the current row is held in memory.
+ */
+final class ExportWriter {
+    private ExportWriter() {
+    }
+
+    // The response stream belongs to the servlet container, closing the writer must not close it
+    static SequenceWriter open(ObjectMapper objectMapper, OutputStream out, ExportFormat format) throws IOException {
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return switch (format) {
+            case JSON -> writer.writeValuesAsArray(out);
+            case NDJSON -> writer.withRootValueSeparator("\n").writeValues(out);
+        };
+    }
+}
@@ -8,6 +8,8 @@ import dev.tomas.dma.service.FileService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.*;
+
 @Service
 @RequiredArgsConstructor
 public class FileServiceImpl implements FileService {
@@ -21,4 +23,21 @@ public class FileServiceImpl implements FileService {
         file.setUrl(imgUrl);
         return fileRepo.save(file);
     }
+
+    /**
+     * Loads the files of every given entity with a single IN query and groups them by entity id.
+     * Entities without files are simply absent from the returned map.
+     */
+    @Override
+    public Map<Integer, List<AppFile>> findAllByEntityIds(EntityType entityType, FileType fileType, Collection<Integer> entityIds) {
+        if (entityIds == null || entityIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Integer, List<AppFile>> grouped = new HashMap<>();
+        for (AppFile file : fileRepo.findByEntityTypeAndFileTypeAndEntityIdIn(entityType, fileType, new HashSet<>(entityIds))) {
+            grouped.computeIfAbsent(file.getEntityId(), id -> new ArrayList<>()).add(file);
+        }
+        return grouped;
+    }
 }
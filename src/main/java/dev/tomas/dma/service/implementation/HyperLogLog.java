@@ -0,0 +1,149 @@
+package dev.tomas.dma.service.implementation;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A HyperLogLog sketch with 2^12 registers, counting distinct 64-bit hashes within about 1.6%.
+ * Two sketches merge by taking the larger register, so the sketch of a union is the merge of the
+ * sketches. Methods are synchronized; a register only changes the first few times a value is seen.
+ */
+final class HyperLogLog {
+    static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+
+    private final byte[] registers;
+    // Recomputed only when a register changes
+    private long estimate;
+
+    HyperLogLog() {
+        this.registers = new byte[REGISTERS];
+    }
+
+    /**
+     * Reads a sketch written by {@link #toBytes}.
+     */
+    static HyperLogLog fromBytes(byte[] bytes) {
+        HyperLogLog sketch = new HyperLogLog();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.get() == DENSE) {
+            buffer.get(sketch.registers);
+        } else {
+            while (buffer.remaining() >= 3) {
+                sketch.registers[buffer.getShort() & 0xffff] = buffer.get();
+            }
+        }
+        sketch.estimate = sketch.compute();
+        return sketch;
+    }
+
+    // Murmur3 finaliser, so consecutive ids land in unrelated registers
+    static long hash(long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Records a hash. Returns whether the sketch changed.
+     */
+    synchronized boolean offer(long hash) {
+        int index = (int) (hash >>> (64 - PRECISION));
+        byte rank = rank(hash);
+        if (rank <= registers[index]) {
+            return false;
+        }
+        registers[index] = rank;
+        estimate = compute();
+        return true;
+    }
+
+    /**
+     * Whether offering the hash would change the sketch.
+     */
+    synchronized boolean wouldChange(long hash) {
+        return rank(hash) > registers[(int) (hash >>> (64 - PRECISION))];
+    }
+
+    /**
+     * Adds everything in the other sketch. Returns whether this sketch changed.
+     */
+    boolean merge(HyperLogLog other) {
+        // Copied before locking this sketch, so two sketches merging into each other can't deadlock
+        return merge(other.snapshot());
+    }
+
+    private synchronized boolean merge(byte[] theirs) {
+        boolean changed = false;
+        for (int i = 0; i < REGISTERS; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+                changed = true;
+            }
+        }
+        if (changed) {
+            estimate = compute();
+        }
+        return changed;
+    }
+
+    synchronized long estimate() {
+        return estimate;
+    }
+
+    /**
+     * Index and rank pairs while fewer than a third of the registers are set, the raw registers after
+     * that, so a campaign with a handful of donors takes a few bytes rather than 4 KB.
+     */
+    synchronized byte[] toBytes() {
+        int set = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                set++;
+            }
+        }
+        if (set * 3 >= REGISTERS) {
+            return ByteBuffer.allocate(1 + REGISTERS).put(DENSE).put(registers).array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + set * 3).put(SPARSE);
+        for (int i = 0; i < REGISTERS; i++) {
+            if (registers[i] != 0) {
+                buffer.putShort((short) i).put(registers[i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    private synchronized byte[] snapshot() {
+        return registers.clone();
+    }
+
+    // Position of the first set bit after the index bits, 1-based
+    private static byte rank(long hash) {
+        long remaining = hash << PRECISION;
+        return (byte) (remaining == 0 ? 64 - PRECISION + 1 : Long.numberOfLeadingZeros(remaining) + 1);
+    }
+
+    private long compute() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        return Math.round(raw);
+    }
+}
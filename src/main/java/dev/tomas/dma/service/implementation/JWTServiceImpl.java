@@ -1,19 +1,27 @@
 package dev.tomas.dma.service.implementation;
 
+import dev.tomas.dma.dto.common.AuthPrincipal;
+import dev.tomas.dma.dto.common.VerifiedToken;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.service.JWTService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.Function;
 
 @RequiredArgsConstructor
@@ -23,13 +31,35 @@ public class JWTServiceImpl implements JWTService {
     private String secret;
     @Value("${jwt.expiration}")
     private Long expiration;
+    @Value("${jwt.verified-cache.capacity:10000}")
+    private int verifiedCacheCapacity = 10_000;
+
+    // Built on first use, once the secret has been injected
+    private volatile Verifier verifier;
 
     /**
-     * Creates a cryptographic signing key from the secret string
-     * Used to sign and verify JWT tokens
+     * The signing key, parser and recently verified tokens, all derived from the secret
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    private Verifier verifier() {
+        Verifier current = verifier;
+        if (current == null) {
+            synchronized (this) {
+                current = verifier;
+                if (current == null) {
+                    current = new Verifier(Keys.hmacShaKeyFor(secret.getBytes()), verifiedCacheCapacity);
+                    verifier = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Parse the JWT token and check its signature and expiry, once
+     * A token verified recently is answered from memory until it expires
+     */
+    public VerifiedToken verify(String token) {
+        return verifier().verify(token);
     }
 
     /**
@@ -37,14 +67,14 @@ public class JWTServiceImpl implements JWTService {
      * The username is stored in the "subject" claim
      */
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).subject();
     }
 
     /**
      * Extract expiration date from JWT token
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verify(token).expiration();
     }
 
     /**
@@ -52,45 +82,37 @@ public class JWTServiceImpl implements JWTService {
      * Uses a function to specify which claim to extract
      */
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
-    }
-
-    /**
-     * Parse the JWT token and extract all claims
-     * This verifies the token signature using our secret key
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token) // Parse the token
-                .getPayload(); // Get the claims (payload)
-    }
-
-    /**
-     * Check if the token has expired
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return claimsResolver.apply(verify(token).claims());
     }
 
     /**
-     * Generate JWT token with no extra claims
-     * Just username and standard claims (issued at, expiration)
+     * Generate JWT token for a user
+     * Besides the username it carries the user's id, system role and company role, with the role's
+     * version and its permission ids, so requests can be authorised from the token alone
      */
     public String generateToken(User user) {
         if (user == null) {
             throw new IllegalArgumentException("User can't be null");
         }
-        Map<String, Object> claims = new HashMap<>();
+        return refreshToken(AuthPrincipal.of(user));
+    }
 
-        if (user.getCompanyRole() != null && user.getCompany() != null) {
-            claims.put("Company", user.getCompany().getId());
-            claims.put("Role", user.getCompanyRole().getName());
+    /**
+     * Generate a new JWT token for a principal whose old token is stale
+     */
+    public String refreshToken(AuthPrincipal principal) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(VerifiedToken.USER_ID, principal.id());
+        claims.put(VerifiedToken.SYSTEM_ROLE, principal.role().name());
+        claims.put(VerifiedToken.PERMISSIONS, PermissionBits.encode(principal.permissionIds()));
 
+        if (principal.companyRoleId() != null && principal.companyId() != null) {
+            claims.put(VerifiedToken.COMPANY, principal.companyId());
+            claims.put(VerifiedToken.ROLE, principal.companyRoleName());
+            claims.put(VerifiedToken.ROLE_ID, principal.companyRoleId());
+            claims.put(VerifiedToken.ROLE_VERSION, principal.companyRoleVersion());
         }
-        return createToken(claims, user.getUsername());
+        return createToken(claims, principal.getUsername());
     }
 
     /**
@@ -106,7 +128,7 @@ public class JWTServiceImpl implements JWTService {
                 .subject(subject) // Set username as subject
                 .issuedAt(new Date(System.currentTimeMillis())) // Token creation time
                 .expiration(new Date(System.currentTimeMillis() + expiration)) // Token expiration
-                .signWith(getSigningKey()) // Sign with our secret key
+                .signWith(verifier().key) // Sign with our secret key
                 .compact(); // Build the token string
     }
 
@@ -116,8 +138,56 @@ public class JWTServiceImpl implements JWTService {
      * 1. Username in token matches the user
      * 2. Token hasn't expired
      */
-    public Boolean validateToken(String token, User user) {
-        final String username = extractUsername(token);
-        return (username.equals(user.getUsername()) && !isTokenExpired(token));
+    public Boolean validateToken(String token, UserDetails user) {
+        final VerifiedToken verified = verify(token);
+        return (verified.subject().equals(user.getUsername()) && !verified.isExpired());
+    }
+
+    private static final class Verifier {
+        private final SecretKey key;
+        // Thread-safe and immutable once built, so one serves every request
+        private final JwtParser parser;
+        private final Map<ByteBuffer, VerifiedToken> recent;
+
+        Verifier(SecretKey key, int capacity) {
+            this.key = key;
+            this.parser = Jwts.parser().verifyWith(key).build();
+            this.recent = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        VerifiedToken verify(String token) {
+            // Keyed by hash, so the cache doesn't keep bearer tokens in memory
+            ByteBuffer hash = hash(token);
+            synchronized (recent) {
+                VerifiedToken cached = recent.get(hash);
+                if (cached != null) {
+                    if (!cached.isExpired()) {
+                        return cached;
+                    }
+                    recent.remove(hash);
+                }
+            }
+
+            // Throws for a bad signature or an expired token, as before
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.getExpiration(), claims);
+            synchronized (recent) {
+                recent.put(hash, verified);
+            }
+            return verified;
+        }
+
+        private static ByteBuffer hash(String token) {
+            try {
+                return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,142 @@
+package dev.tomas.dma.service.implementation;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import at.favre.lib.crypto.bcrypt.LongPasswordStrategies;
+import at.favre.lib.crypto.bcrypt.LongPasswordStrategy;
+import dev.tomas.dma.service.PasswordHashingService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.SecureRandom;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Hashes and checks passwords on a pool with one thread per core, so bcrypt can't take more CPU than
+ * the machine has however many sign-ins arrive at once. The calling request thread still waits for
+ * its result, up to the timeout; what it no longer does is queue without bound. The pool's queue is
+ * bounded: once it is full a sign-in fails straight away with 503 rather than waiting its turn.
+ * <p>
+ * Hashes are made at the configured cost. A password that checks out against a hash made at any
+ * other cost is hashed again and handed back to be stored, so changing the cost migrates users as
+ * they sign in.
+ * <p>
+ * A stored hash that isn't bcrypt, or is damaged, fails the check like a wrong password and is logged,
+ * so one bad row can't turn a sign-in into a server error.
+ */
+@Slf4j
+@Service
+public class PasswordHashingServiceImpl implements PasswordHashingService, DisposableBean {
+    private static final BCrypt.Version VERSION = BCrypt.Version.VERSION_2A;
+    // Bcrypt only reads the first 72 bytes; the hashes Spring's encoder made were truncated the same way
+    private static final LongPasswordStrategy LONG_PASSWORDS = LongPasswordStrategies.truncate(VERSION);
+
+    private final int cost;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor executor;
+    private final BCrypt.Hasher hasher = BCrypt.with(VERSION, new SecureRandom(), LONG_PASSWORDS);
+    private final BCrypt.Verifyer verifyer = BCrypt.verifyer(VERSION, LONG_PASSWORDS);
+    // Checked when there's no such user, so an unknown login takes as long as a wrong password
+    private final String unknownUserHash;
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Counter rehashed;
+
+    public PasswordHashingServiceImpl(MeterRegistry meterRegistry,
+                                      @Value("${auth.bcrypt.cost:10}") int cost,
+                                      @Value("${auth.hashing.threads:0}") int threads,
+                                      @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                      @Value("${auth.hashing.timeout-ms:5000}") long timeoutMs) {
+        this.cost = cost;
+        this.timeoutMs = timeoutMs;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("password-hash-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.unknownUserHash = hasher.hashToString(cost, "unknown-user".toCharArray());
+        this.rejected = meterRegistry.counter("auth.hashing.rejected");
+        this.timedOut = meterRegistry.counter("auth.hashing.timeouts");
+        this.rehashed = meterRegistry.counter("auth.hashing.rehashed");
+        Gauge.builder("auth.hashing.queued", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String hash(String rawPassword) {
+        return run(() -> hasher.hashToString(cost, rawPassword.toCharArray()));
+    }
+
+    /**
+     * Whether the password matches the hash, which may be null when there's no such user. On a match
+     * against a hash made at another cost, the new hash is passed to {@code rehash} before returning.
+     */
+    @Override
+    public boolean verify(String rawPassword, String hash, Consumer<String> rehash) {
+        String current = run(() -> {
+            BCrypt.Result result;
+            try {
+                result = verifyer.verify(rawPassword.toCharArray(), hash != null ? hash : unknownUserHash);
+            } catch (IllegalArgumentException e) {
+                log.warn("Stored password hash can't be checked: {}", e.getMessage());
+                return null;
+            }
+            if (!result.validFormat) {
+                log.warn("Stored password hash is not a bcrypt hash: {}", result.formatErrorMessage);
+                return null;
+            }
+            if (hash == null || !result.verified) {
+                return null;
+            }
+            return result.details.cost != cost ? hasher.hashToString(cost, rawPassword.toCharArray()) : hash;
+        });
+        if (current == null) {
+            return false;
+        }
+        if (!current.equals(hash)) {
+            rehashed.increment();
+            rehash.accept(current);
+        }
+        return true;
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-ins at once, try again shortly");
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Still queued, it is dropped; already hashing, it finishes and the result is ignored
+            future.cancel(false);
+            timedOut.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Sign-in timed out, try again shortly");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Sign-in was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
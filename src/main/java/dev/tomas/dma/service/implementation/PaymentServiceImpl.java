@@ -4,13 +4,77 @@ import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.service.PaymentGateway;
 import dev.tomas.dma.service.PaymentService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Clock;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Creates payment intents off the request thread. Stripe calls run on virtual threads behind a
+ * bulkhead: with every permit taken a new call fails straight away with 503, and a call slower than
+ * the timeout fails its request while the Stripe client's read timeout ends the call itself. A slow
+ * Stripe therefore holds permits and virtual threads, never Tomcat workers.
+ * <p>
+ * Repeat clicks on Donate for the same campaign and amount get the intent already created for that
+ * donor straight from memory, without calling Stripe. The entry is dropped when the succeeded or
+ * canceled webhook for the intent reaches this instance; one delivered to another instance is only
+ * caught by the cache window, so the window is kept short. Each attempt creates its intent under an
+ * idempotency key of its own: the Stripe client's retries of one call can't make two intents, and a
+ * later attempt never gets back the paid intent or the saved error Stripe would replay for an earlier key.
+ */
 @Service
-public class PaymentServiceImpl implements PaymentService {
+public class PaymentServiceImpl implements PaymentService, DisposableBean {
+    private final PaymentGateway paymentGateway;
+    private final Semaphore bulkhead;
+    private final long timeoutMs;
+    private final long intentTtlMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter rejected;
+    private final Counter timedOut;
+    private final Counter reused;
+
+    private final Map<IntentKey, CachedIntent> intents = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    public PaymentServiceImpl(PaymentGateway paymentGateway,
+                              MeterRegistry meterRegistry,
+                              Clock clock,
+                              @Value("${payments.bulkhead.max-concurrent:50}") int maxConcurrent,
+                              @Value("${payments.timeout-ms:10000}") long timeoutMs,
+                              @Value("${payments.intent-cache.ttl-ms:300000}") long intentTtlMs) {
+        this.paymentGateway = paymentGateway;
+        this.clock = clock;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.timeoutMs = timeoutMs;
+        this.intentTtlMs = intentTtlMs;
+        this.rejected = meterRegistry.counter("payments.bulkhead.rejected");
+        this.timedOut = meterRegistry.counter("payments.timeouts");
+        this.reused = meterRegistry.counter("payments.intents.reused");
+        Gauge.builder("payments.bulkhead.in_flight", bulkhead, permits -> maxConcurrent - permits.availablePermits())
+                .register(meterRegistry);
+    }
 
-    public PaymentIntent createPaymentIntent(DonationDTO req) throws StripeException {
+    @Override
+    public CompletableFuture<PaymentIntent> createPaymentIntent(DonationDTO req) {
         PaymentIntentCreateParams params =
                 PaymentIntentCreateParams.builder()
                         .setAmount(req.getAmount())
@@ -23,6 +87,107 @@ public class PaymentServiceImpl implements PaymentService {
                         .putMetadata("campaignId", req.getCampaignId().toString())
                         .putMetadata("userId", req.getUserId().toString())
                         .build();
-        return PaymentIntent.create(params);
+
+        IntentKey key = IntentKey.of(req);
+        long now = clock.millis();
+        CachedIntent fresh = new CachedIntent(new CompletableFuture<>(), UUID.randomUUID().toString(), now + intentTtlMs);
+        CachedIntent cached = intents.compute(key, (k, existing) ->
+                existing != null && existing.isLive(now) ? existing : fresh);
+        if (cached != fresh) {
+            reused.increment();
+            // A copy, so a caller completing or cancelling it can't touch the cached one
+            return cached.intent().copy();
+        }
+
+        String idempotencyKey = key.idempotencyKey(fresh.attempt());
+        call(() -> paymentGateway.createPaymentIntent(params, idempotencyKey)).whenComplete((intent, e) -> {
+            if (e != null) {
+                // Stripe replays a failure under its key, so the next click starts a new attempt with a new one
+                intents.remove(key, fresh);
+                fresh.intent().completeExceptionally(e);
+            } else {
+                fresh.intent().complete(intent);
+            }
+        });
+        return fresh.intent().copy();
+    }
+
+    @Override
+    public void forgetPaymentIntent(DonationDTO donation) {
+        intents.remove(IntentKey.of(donation));
+    }
+
+    @Scheduled(fixedDelayString = "${payments.intent-cache.sweep-ms:60000}")
+    public void evictExpired() {
+        long now = clock.millis();
+        intents.values().removeIf(cached -> !cached.isLive(now));
+    }
+
+    private CompletableFuture<PaymentIntent> call(StripeCall stripeCall) {
+        if (!bulkhead.tryAcquire()) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(
+                    new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Payment provider is busy, try again shortly"));
+        }
+
+        CompletableFuture<PaymentIntent> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                PaymentIntent intent = null;
+                Throwable failure = null;
+                try {
+                    intent = stripeCall.call();
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    // Held until Stripe answers, not until the request gives up, so the cap is on real calls.
+                    // Released before completing, so whoever sees the result can call again straight away
+                    bulkhead.release();
+                }
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(intent);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return result.orTimeout(timeoutMs, TimeUnit.MILLISECONDS).exceptionallyCompose(e -> {
+            if (e instanceof TimeoutException) {
+                timedOut.increment();
+                return CompletableFuture.failedFuture(
+                        new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Payment provider timed out"));
+            }
+            return CompletableFuture.failedFuture(e);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record IntentKey(Integer userId, Integer campaignId, Long amount) {
+        static IntentKey of(DonationDTO donation) {
+            return new IntentKey(donation.getUserId(), donation.getCampaignId(), donation.getAmount());
+        }
+
+        String idempotencyKey(String attempt) {
+            return "donate-" + userId + "-" + campaignId + "-" + amount + "-" + attempt;
+        }
+    }
+
+    @FunctionalInterface
+    private interface StripeCall {
+        PaymentIntent call() throws StripeException;
+    }
+
+    private record CachedIntent(CompletableFuture<PaymentIntent> intent, String attempt, long expiresAt) {
+        boolean isLive(long now) {
+            return now < expiresAt && !intent.isCompletedExceptionally();
+        }
     }
 }
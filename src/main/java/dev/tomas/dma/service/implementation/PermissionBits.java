@@ -0,0 +1,26 @@
+package dev.tomas.dma.service.implementation;
+
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A set of permission ids written as a bitset in URL-safe base64. Permission ids are small, so a
+ * role with every permission still costs only a few dozen characters in a token.
+ */
+final class PermissionBits {
+
+    private PermissionBits() {
+    }
+
+    static String encode(Collection<Integer> permissionIds) {
+        BitSet bits = new BitSet();
+        permissionIds.forEach(bits::set);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bits.toByteArray());
+    }
+
+    static List<Integer> decode(String encoded) {
+        return BitSet.valueOf(Base64.getUrlDecoder().decode(encoded)).stream().boxed().toList();
+    }
+}
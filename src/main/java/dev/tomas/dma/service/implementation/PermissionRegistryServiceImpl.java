@@ -0,0 +1,182 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.RoleGrantRow;
+import dev.tomas.dma.dto.projection.UserAuthChangeRow;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.CompanyRoleRepo;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.PermissionRegistryService;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The authorities each company role grants, and which users had their company or role changed
+ * within a token's lifetime. Every permission has one authority object, and every role one
+ * immutable set per system role, built when the role is first seen or its version changes; a
+ * principal holds the shared set, so a {@code hasAuthority} check costs a hash lookup and nothing
+ * is allocated per request.
+ * <p>
+ * Changes made here are seen at once; changes made by other instances are picked up by the periodic
+ * sync, or sooner when a request shows a role at a newer version than the one kept.
+ */
+@Service
+public class PermissionRegistryServiceImpl implements PermissionRegistryService, SmartInitializingSingleton {
+    private static final String PERMISSION_PREFIX = "PERMISSION_";
+    private static final RoleGrants DELETED = new RoleGrants(-1, Map.of());
+    private static final Map<UserRole, Set<GrantedAuthority>> NO_COMPANY_ROLE = RoleGrants.bySystemRole(List.of());
+
+    private final CompanyRoleRepo companyRoleRepo;
+    private final UserRepo userRepo;
+    private final long tokenLifetimeMs;
+
+    private final Map<Integer, GrantedAuthority> permissionAuthorities = new ConcurrentHashMap<>();
+    private final Map<Integer, RoleGrants> roles = new ConcurrentHashMap<>();
+    // Bumped by every role change, so grants read from the database before it aren't kept
+    private volatile long roleGeneration;
+    private final Map<Integer, Long> userChanges = new ConcurrentHashMap<>();
+    private Clock clock = Clock.systemDefaultZone();
+
+    public PermissionRegistryServiceImpl(CompanyRoleRepo companyRoleRepo,
+                                         UserRepo userRepo,
+                                         @Value("${jwt.expiration}") long tokenLifetimeMs) {
+        this.companyRoleRepo = companyRoleRepo;
+        this.userRepo = userRepo;
+        this.tokenLifetimeMs = tokenLifetimeMs;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        sync();
+    }
+
+    /**
+     * The authorities of a user with the given system role and company role, or null when the company
+     * role is no longer at the given version or has been deleted.
+     */
+    @Override
+    public Set<GrantedAuthority> authorities(UserRole role, Integer companyRoleId, Integer version) {
+        if (companyRoleId == null) {
+            return NO_COMPANY_ROLE.get(role);
+        }
+        if (version == null) {
+            return null;
+        }
+        RoleGrants grants = roles.get(companyRoleId);
+        if (grants == null || (grants != DELETED && grants.version() < version)) {
+            // Not seen yet, or changed by another instance since the last sync
+            grants = load(companyRoleId);
+        }
+        return grants != DELETED && grants.version() == version ? grants.authorities().get(role) : null;
+    }
+
+    /**
+     * Whether the user's company or role changed at or after the given time. Token times are in whole
+     * seconds, so a token issued in the same second as a change counts as older.
+     */
+    @Override
+    public boolean changedSince(Integer userId, Date issuedAt) {
+        Long changedAt = userChanges.get(userId);
+        return changedAt != null && issuedAt.getTime() <= changedAt;
+    }
+
+    // Called after the change commits, so the grants read back are the new ones
+    @Override
+    public synchronized void roleChanged(Integer roleId) {
+        roleGeneration++;
+        roles.remove(roleId);
+    }
+
+    @Override
+    public void userChanged(Integer userId) {
+        userChanges.merge(userId, clock.millis(), Math::max);
+    }
+
+    // A renamed permission changes the authority of every role holding it
+    @Override
+    public void permissionsChanged() {
+        synchronized (this) {
+            roleGeneration++;
+            roles.clear();
+        }
+        loadRoles();
+    }
+
+    @Scheduled(fixedDelayString = "${auth.registry.sync-ms:30000}", initialDelayString = "${auth.registry.sync-ms:30000}")
+    public void sync() {
+        loadRoles();
+
+        // Older changes can't matter: every token issued before them has expired
+        long oldest = clock.millis() - tokenLifetimeMs;
+        LocalDateTime since = LocalDateTime.ofInstant(clock.instant().minusMillis(tokenLifetimeMs), clock.getZone());
+        for (UserAuthChangeRow row : userRepo.findAuthChangesSince(since)) {
+            userChanges.merge(row.userId(), row.changedAt().atZone(clock.getZone()).toInstant().toEpochMilli(), Math::max);
+        }
+        userChanges.values().removeIf(changedAt -> changedAt < oldest);
+    }
+
+    private void loadRoles() {
+        long seen = roleGeneration;
+        keep(seen, build(companyRoleRepo.findAllGrants()), true);
+    }
+
+    private RoleGrants load(Integer roleId) {
+        long seen = roleGeneration;
+        RoleGrants grants = build(companyRoleRepo.findGrantsById(roleId)).getOrDefault(roleId, DELETED);
+        keep(seen, Map.of(roleId, grants), false);
+        return grants;
+    }
+
+    private synchronized void keep(long seen, Map<Integer, RoleGrants> grants, boolean complete) {
+        if (roleGeneration != seen) {
+            return;
+        }
+        if (complete) {
+            roles.keySet().retainAll(grants.keySet());
+        }
+        roles.putAll(grants);
+    }
+
+    private Map<Integer, RoleGrants> build(List<RoleGrantRow> rows) {
+        Map<Integer, Integer> versions = new HashMap<>();
+        Map<Integer, List<GrantedAuthority>> granted = new HashMap<>();
+        for (RoleGrantRow row : rows) {
+            versions.put(row.roleId(), row.version());
+            List<GrantedAuthority> authorities = granted.computeIfAbsent(row.roleId(), id -> new ArrayList<>());
+            if (row.permissionId() != null) {
+                authorities.add(intern(row.permissionId(), row.permission()));
+            }
+        }
+
+        Map<Integer, RoleGrants> grants = new HashMap<>();
+        versions.forEach((roleId, version) ->
+                grants.put(roleId, new RoleGrants(version, RoleGrants.bySystemRole(granted.get(roleId)))));
+        return grants;
+    }
+
+    private GrantedAuthority intern(Integer permissionId, String name) {
+        String authority = PERMISSION_PREFIX + name;
+        return permissionAuthorities.compute(permissionId, (id, existing) ->
+                existing != null && existing.getAuthority().equals(authority) ? existing : new SimpleGrantedAuthority(authority));
+    }
+
+    private record RoleGrants(int version, Map<UserRole, Set<GrantedAuthority>> authorities) {
+        static Map<UserRole, Set<GrantedAuthority>> bySystemRole(List<GrantedAuthority> permissions) {
+            Map<UserRole, Set<GrantedAuthority>> bySystemRole = new EnumMap<>(UserRole.class);
+            for (UserRole role : UserRole.values()) {
+                Set<GrantedAuthority> authorities = new HashSet<>(permissions);
+                authorities.add(role.authority());
+                bySystemRole.put(role, Set.copyOf(authorities));
+            }
+            return bySystemRole;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.AuthPrincipal;
+import dev.tomas.dma.dto.common.VerifiedToken;
+import dev.tomas.dma.dto.projection.PrincipalRow;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.PermissionRegistryService;
+import dev.tomas.dma.service.PrincipalCacheService;
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Principals for authenticated requests, kept by login for a short while so a request with a known
+ * token doesn't touch the database. Evictions run after the change commits; a load that was reading
+ * the user while an eviction ran is returned but not kept, so a stale principal can't be put back.
+ * The TTL bounds how long a change made outside these evictions, straight in the database, goes unseen.
+ * <p>
+ * Most requests don't get this far: a token issued since the user's last company or role change
+ * carries everything the principal needs, and is turned into one without the database.
+ */
+@Service
+public class PrincipalCacheServiceImpl implements PrincipalCacheService {
+    private final UserRepo userRepo;
+    private final PermissionRegistryService permissionRegistry;
+    private final long ttlMs;
+    private final Map<String, CachedPrincipal> principals;
+    private long generation;
+    private Clock clock = Clock.systemUTC();
+
+    public PrincipalCacheServiceImpl(UserRepo userRepo,
+                                     PermissionRegistryService permissionRegistry,
+                                     @Value("${auth.principal-cache.capacity:10000}") int capacity,
+                                     @Value("${auth.principal-cache.ttl-ms:300000}") long ttlMs) {
+        this.userRepo = userRepo;
+        this.permissionRegistry = permissionRegistry;
+        this.ttlMs = ttlMs;
+        this.principals = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedPrincipal> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public AuthPrincipal load(String login) {
+        long seen;
+        synchronized (this) {
+            CachedPrincipal cached = principals.get(login);
+            if (cached != null && clock.millis() < cached.expiresAt()) {
+                return cached.principal();
+            }
+            seen = generation;
+        }
+
+        AuthPrincipal principal = fetch(login);
+
+        synchronized (this) {
+            if (generation == seen) {
+                principals.put(login, new CachedPrincipal(principal, clock.millis() + ttlMs));
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * The principal a token describes, or null when the token predates the claims or the user's
+     * last company or role change, and the principal has to be loaded instead.
+     */
+    @Override
+    public AuthPrincipal fromToken(VerifiedToken token) {
+        Claims claims = token.claims();
+        Integer userId = claims.get(VerifiedToken.USER_ID, Integer.class);
+        String systemRole = claims.get(VerifiedToken.SYSTEM_ROLE, String.class);
+        String permissions = claims.get(VerifiedToken.PERMISSIONS, String.class);
+        if (userId == null || systemRole == null || permissions == null || claims.getIssuedAt() == null
+                || permissionRegistry.changedSince(userId, claims.getIssuedAt())) {
+            return null;
+        }
+
+        UserRole role = UserRole.valueOf(systemRole);
+        Integer roleId = claims.get(VerifiedToken.ROLE_ID, Integer.class);
+        Integer roleVersion = claims.get(VerifiedToken.ROLE_VERSION, Integer.class);
+        // Shared with every other holder of the role, so nothing is built per request
+        Set<GrantedAuthority> authorities = permissionRegistry.authorities(role, roleId, roleVersion);
+        if (authorities == null) {
+            // The role has changed or gone since the token was issued
+            return null;
+        }
+
+        return new AuthPrincipal(userId, token.subject(), null, null, null, role, true,
+                claims.get(VerifiedToken.COMPANY, Integer.class), roleId, claims.get(VerifiedToken.ROLE, String.class),
+                roleVersion, PermissionBits.decode(permissions), authorities);
+    }
+
+    @Override
+    public void evictUser(Integer userId) {
+        afterCommit(() -> {
+            permissionRegistry.userChanged(userId);
+            evict(principal -> Objects.equals(principal.id(), userId));
+        });
+    }
+
+    @Override
+    public void evictRole(Integer roleId) {
+        afterCommit(() -> {
+            permissionRegistry.roleChanged(roleId);
+            evict(principal -> Objects.equals(principal.companyRoleId(), roleId));
+        });
+    }
+
+    @Override
+    public void evictAll() {
+        afterCommit(() -> {
+            permissionRegistry.permissionsChanged();
+            evict(principal -> true);
+        });
+    }
+
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    change.run();
+                }
+            });
+        } else {
+            change.run();
+        }
+    }
+
+    private synchronized void evict(Predicate<AuthPrincipal> stale) {
+        generation++;
+        principals.values().removeIf(cached -> stale.test(cached.principal()));
+    }
+
+    private AuthPrincipal fetch(String login) {
+        List<PrincipalRow> rows = userRepo.findPrincipalRows(login);
+        if (rows.isEmpty()) {
+            throw new UsernameNotFoundException("User not found with username or email: " + login);
+        }
+        // A login can be one user's email and another's username; tokens carry the email, so it wins
+        PrincipalRow user = rows.stream()
+                .filter(row -> login.equals(row.email()))
+                .findFirst()
+                .orElse(rows.getFirst());
+
+        List<PrincipalRow> granted = rows.stream()
+                .filter(row -> row.id().equals(user.id()) && row.permissionId() != null)
+                .toList();
+        List<Integer> permissionIds = granted.stream().map(PrincipalRow::permissionId).toList();
+        Set<GrantedAuthority> authorities =
+                permissionRegistry.authorities(user.role(), user.companyRoleId(), user.companyRoleVersion());
+        if (authorities == null) {
+            // The role changed again after these rows were read; they are still what the user holds for now
+            Set<GrantedAuthority> fromRows = new HashSet<>();
+            fromRows.add(user.role().authority());
+            granted.forEach(row -> fromRows.add(new SimpleGrantedAuthority("PERMISSION_" + row.permission())));
+            authorities = Set.copyOf(fromRows);
+        }
+
+        return new AuthPrincipal(user.id(), user.email(), user.username(), user.firstName(), user.lastName(),
+                user.role(), user.enabled(), user.companyId(), user.companyRoleId(), user.companyRoleName(),
+                user.companyRoleVersion(), permissionIds, authorities);
+    }
+
+    private record CachedPrincipal(AuthPrincipal principal, long expiresAt) {
+    }
+}
@@ -0,0 +1,28 @@
+package dev.tomas.dma.service.implementation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The most recently seen ids, evicting the oldest once the capacity is reached.
+ */
+final class RecentIds {
+    private final Map<String, Boolean> ids;
+
+    RecentIds(int capacity) {
+        this.ids = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    synchronized boolean contains(String id) {
+        return ids.get(id) != null;
+    }
+
+    synchronized void add(String id) {
+        ids.put(id, Boolean.TRUE);
+    }
+}
@@ -0,0 +1,34 @@
+package dev.tomas.dma.service.implementation;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import dev.tomas.dma.service.PaymentGateway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The blocking Stripe client, with timeouts so a hung connection can't hold a bulkhead permit forever.
+ */
+@Service
+public class StripeGatewayImpl implements PaymentGateway {
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public StripeGatewayImpl(@Value("${payments.stripe.connect-timeout-ms:2000}") int connectTimeoutMs,
+                             @Value("${payments.stripe.read-timeout-ms:8000}") int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    @Override
+    public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, String idempotencyKey) throws StripeException {
+        RequestOptions requestOptions = RequestOptions.builder()
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setIdempotencyKey(idempotencyKey)
+                .build();
+        return PaymentIntent.create(params, requestOptions);
+    }
+}
@@ -0,0 +1,23 @@
+package dev.tomas.dma.service.implementation;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folds text for comparison the way MySQL's accent- and case-insensitive collation does, so keys
+ * built in memory agree with what the unique indexes and {@code users.search_key} consider equal.
+ */
+final class TextKeys {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private TextKeys() {
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return DIACRITICS.matcher(Normalizer.normalize(text.strip(), Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,7 +1,10 @@
 package dev.tomas.dma.service.implementation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import dev.tomas.dma.dto.common.AppFileDTO;
 import dev.tomas.dma.dto.common.TicketDTO;
+import dev.tomas.dma.dto.projection.TicketListRow;
 import dev.tomas.dma.dto.request.TicketCloseReq;
 import dev.tomas.dma.dto.request.TicketSaveReq;
 import dev.tomas.dma.dto.response.TicketDetailsGetRes;
@@ -11,18 +14,26 @@ import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.FundRequest;
 import dev.tomas.dma.entity.Ticket;
 import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.ExportFormat;
 import dev.tomas.dma.enums.Status;
 import dev.tomas.dma.mapper.AppFileMapper;
 import dev.tomas.dma.mapper.TicketMapper;
 import dev.tomas.dma.repository.AppFileRepo;
 import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CompanyActivationService;
 import dev.tomas.dma.service.TicketService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -31,6 +42,9 @@ public class TicketServiceImpl implements TicketService {
     private final TicketMapper ticketMapper;
     private final AppFileRepo fileRepo;
     private final AppFileMapper fileMapper;
+    private final CampaignFeedService campaignFeedService;
+    private final CompanyActivationService companyActivationService;
+    private final ObjectMapper objectMapper;
 
     public TicketDetailsGetRes getByTicketId(Long id) {
         TicketDetailsGetRes dto = new TicketDetailsGetRes();
@@ -44,16 +58,28 @@ public class TicketServiceImpl implements TicketService {
 
     public TicketGetAllRes getAllOpen() {
         TicketGetAllRes dto = new TicketGetAllRes();
-        dto.setTickets(ticketMapper.toDTOs(ticketRepo.findAllByStatus(Status.PENDING)));
+        dto.setTickets(ticketMapper.rowsToDTOs(ticketRepo.findAllRowsByStatus(Status.PENDING)));
         return dto;
     }
 
     public TicketGetAllRes getAll(){
         TicketGetAllRes dto = new TicketGetAllRes();
-        dto.setTickets(ticketMapper.toDTOs(ticketRepo.findAll()));
+        dto.setTickets(ticketMapper.rowsToDTOs(ticketRepo.findAllRows()));
         return dto;
     }
 
+    // Rows are streamed as projections, so the persistence context never grows with the table
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream out, ExportFormat format) throws IOException {
+        try (Stream<TicketListRow> rows = ticketRepo.streamAllRows();
+             SequenceWriter writer = ExportWriter.open(objectMapper, out, format)) {
+            for (Iterator<TicketListRow> it = rows.iterator(); it.hasNext(); ) {
+                writer.write(ticketMapper.rowToDTO(it.next()));
+            }
+        }
+    }
+
     public TicketDTO save(TicketSaveReq req) {
         Ticket ticket = new Ticket();
         ticket.setName(req.getName());
@@ -67,7 +93,11 @@ public class TicketServiceImpl implements TicketService {
         if (ticket.getCloseDate() != null) {
             ticket.setCloseDate(ticket.getCloseDate());
         }
-        return ticketMapper.toDTO(ticketRepo.save(ticket));
+        TicketDTO saved = ticketMapper.toDTO(ticketRepo.save(ticket));
+        if (ticket.getType() == EntityType.COMPANY) {
+            companyActivationService.refresh(ticket.getEntityId());
+        }
+        return saved;
     }
 
     public TicketDTO save(Company company) {
@@ -78,7 +108,9 @@ public class TicketServiceImpl implements TicketService {
         ticket.setEntityId(company.getId());
         ticket.setCreateDate(LocalDateTime.now());
 
-        return ticketMapper.toDTO(ticketRepo.save(ticket));
+        TicketDTO saved = ticketMapper.toDTO(ticketRepo.save(ticket));
+        companyActivationService.refresh(company.getId());
+        return saved;
     }
 
     public TicketDTO save(Campaign campaign) {
@@ -110,5 +142,14 @@ public class TicketServiceImpl implements TicketService {
         ticket.setMessage(req.getMessage());
         ticket.setCloseDate(LocalDateTime.now());
         ticketRepo.save(ticket);
+
+        // Closing a campaign ticket decides whether the campaign shows up in the public feed
+        if (ticket.getType() == EntityType.CAMPAIGN) {
+            campaignFeedService.refresh(ticket.getEntityId());
+        }
+        // And closing a company ticket whether the company is active
+        if (ticket.getType() == EntityType.COMPANY) {
+            companyActivationService.refresh(ticket.getEntityId());
+        }
     }
 }
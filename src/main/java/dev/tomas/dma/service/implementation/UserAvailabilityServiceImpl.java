@@ -0,0 +1,163 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.UserAvailabilityService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Whether an email or username is still free, for the sign-up form and for registration to fail
+ * before hashing a password. Every taken email and username is in a Bloom filter, so a free one is
+ * usually answered from memory; only when the filter can't rule it out, which for a free name is
+ * about one in a thousand, is the unique index asked.
+ * <p>
+ * Names registered on other instances are added by the periodic rebuild, so until then a probe can
+ * call one of them free. Registration still goes through the unique constraints and fails then.
+ * Keys are folded like MySQL's accent- and case-insensitive collation, so "José@x" counts as taken
+ * when "jose@x" is.
+ * <p>
+ * The public probe is limited per client to a number of checks a minute, so it can't be used to
+ * walk through a list of addresses and find out which are registered.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserAvailabilityServiceImpl implements UserAvailabilityService, SmartInitializingSingleton {
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.001;
+    private static final String TAKEN = "SELECT email, username FROM users";
+    private static final long PROBE_WINDOW_MS = 60_000;
+
+    private final UserRepo userRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    // Size of the filters; rebuilt with room to spare, so past it only the false positive rate grows
+    @Value("${users.availability.filter-capacity:1000000}")
+    private int filterCapacity = 1_000_000;
+
+    @Value("${users.availability.probes-per-minute:30}")
+    private int probesPerMinute = 30;
+
+    // Clients tracked at once; the least recently seen is forgotten past this
+    @Value("${users.availability.probe-clients:10000}")
+    private int probeClients = 10_000;
+
+    private final Map<String, ProbeWindow> probes = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ProbeWindow> eldest) {
+            return size() > probeClients;
+        }
+    };
+
+    private volatile Filters filters;
+    // The filters being built, so names registered meanwhile aren't missed when they're swapped in
+    private volatile Filters rebuilding;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${users.availability.rebuild-ms:600000}", initialDelayString = "${users.availability.rebuild-ms:600000}")
+    public synchronized void rebuild() {
+        Filters next = new Filters(new BloomFilter(filterCapacity, FILTER_FALSE_POSITIVE_RATE),
+                new BloomFilter(filterCapacity, FILTER_FALSE_POSITIVE_RATE));
+        rebuilding = next;
+        RowCallbackHandler add = rs -> next.add(rs.getString("email"), rs.getString("username"));
+        jdbcTemplate.query(TAKEN, add);
+        filters = next;
+        rebuilding = null;
+    }
+
+    @Override
+    public boolean isEmailAvailable(String email) {
+        if (email == null || email.isBlank()) {
+            return true;
+        }
+        Filters current = filters;
+        if (current != null && !current.emails().mightContain(key(email))) {
+            meterRegistry.counter("users.availability.checks", "source", "memory").increment();
+            return true;
+        }
+        meterRegistry.counter("users.availability.checks", "source", "lookup").increment();
+        return !userRepo.existsByEmail(email);
+    }
+
+    @Override
+    public boolean isUsernameAvailable(String username) {
+        if (username == null || username.isBlank()) {
+            return true;
+        }
+        Filters current = filters;
+        if (current != null && !current.usernames().mightContain(key(username))) {
+            meterRegistry.counter("users.availability.checks", "source", "memory").increment();
+            return true;
+        }
+        meterRegistry.counter("users.availability.checks", "source", "lookup").increment();
+        return !userRepo.existsByUsername(username);
+    }
+
+    @Override
+    public void registered(String email, String username) {
+        Filters current = filters;
+        if (current != null) {
+            current.add(email, username);
+        }
+        Filters next = rebuilding;
+        if (next != null) {
+            next.add(email, username);
+        }
+    }
+
+    @Override
+    public boolean tryProbe(String client) {
+        long now = clock.millis();
+        synchronized (probes) {
+            ProbeWindow window = probes.get(client);
+            if (window == null || now - window.start >= PROBE_WINDOW_MS) {
+                window = new ProbeWindow(now);
+                probes.put(client, window);
+            }
+            if (window.count >= probesPerMinute) {
+                meterRegistry.counter("users.availability.throttled").increment();
+                return false;
+            }
+            window.count++;
+            return true;
+        }
+    }
+
+    private static String key(String value) {
+        return TextKeys.normalize(value);
+    }
+
+    private static final class ProbeWindow {
+        private final long start;
+        private int count;
+
+        private ProbeWindow(long start) {
+            this.start = start;
+        }
+    }
+
+    private record Filters(BloomFilter emails, BloomFilter usernames) {
+        void add(String email, String username) {
+            if (email != null) {
+                emails.add(key(email));
+            }
+            if (username != null) {
+                usernames.add(key(username));
+            }
+        }
+    }
+}
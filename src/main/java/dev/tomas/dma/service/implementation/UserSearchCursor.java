@@ -0,0 +1,46 @@
+package dev.tomas.dma.service.implementation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last user of a search page, handed to clients as an opaque string. Prefix matches
+ * are paged by (search key, id) and word matches after them by id. A hash of the query is part of the
+ * token so it can't be replayed against a different search.
+ */
+record UserSearchCursor(Phase phase, String query, String key, int id) {
+
+    enum Phase {PREFIX, GRAM}
+
+    String encode() {
+        String raw = phase.name() + "|" + id + "|" + Integer.toHexString(query.hashCode()) + "|" + (key != null ? key : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns null for a missing cursor (first page). The query must already be normalised.
+     */
+    static UserSearchCursor decode(String token, String query) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String[] parts;
+        try {
+            // The key comes last and may itself contain the separator
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[2].equals(Integer.toHexString(query.hashCode()))) {
+            throw new IllegalArgumentException("Cursor does not match the search");
+        }
+        try {
+            return new UserSearchCursor(Phase.valueOf(parts[0]), query, parts[3], Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
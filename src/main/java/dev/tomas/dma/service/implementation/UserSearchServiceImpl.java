@@ -0,0 +1,277 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.EmployeeListRow;
+import dev.tomas.dma.dto.response.UserSearchRes;
+import dev.tomas.dma.mapper.UserMapper;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.UserSearchService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Typeahead over users, read through two indexes so a keystroke costs the same however many users
+ * there are. First come users whose folded email starts with the query, a range read over
+ * {@code users.search_key}; then users with every word of the query somewhere in their name,
+ * username or email local part, found through the three-letter pieces in {@code user_search_gram}.
+ * <p>
+ * Each page reads at most a fixed number of gram entries, so a query whose matches are rare may
+ * return a short page with a cursor to carry on from. Pages are kept for a few seconds, so repeated
+ * keystrokes and back-spacing don't query again. New users are indexed by a periodic sweep.
+ */
+@Service
+public class UserSearchServiceImpl implements UserSearchService {
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    static final int GRAM_LENGTH = 3;
+    static final int MIN_QUERY_LENGTH = 2;
+    // Gram entries read per page at most
+    static final int SCAN_BUDGET = 2_000;
+    private static final int SCAN_BATCH = 500;
+    static final int INDEX_BATCH = 500;
+    // Bounds one sweep so a large backfill doesn't hold the scheduler thread
+    private static final int INDEX_BATCHES_PER_SWEEP = 20;
+
+    private static final String CANDIDATES = """
+            SELECT user_id FROM user_search_gram
+            WHERE gram = ? AND user_id > ?
+            ORDER BY user_id
+            LIMIT ?
+            """;
+    private static final String PENDING = """
+            SELECT id, email, username, first_name, last_name FROM users
+            WHERE search_key IS NULL
+            ORDER BY id
+            LIMIT ?
+            """;
+    private static final String DELETE_GRAMS = "DELETE FROM user_search_gram WHERE user_id = ?";
+    private static final String INSERT_GRAM = "INSERT IGNORE INTO user_search_gram (gram, user_id) VALUES (?, ?)";
+    private static final String SET_KEY = "UPDATE users SET search_key = ? WHERE id = ?";
+
+    private final UserRepo userRepo;
+    private final UserMapper userMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final long ttlMs;
+    private final Map<ResultKey, CachedResult> results;
+    private Clock clock = Clock.systemDefaultZone();
+
+    public UserSearchServiceImpl(UserRepo userRepo,
+                                 UserMapper userMapper,
+                                 JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${users.search.cache-capacity:1000}") int capacity,
+                                 @Value("${users.search.cache-ttl-ms:10000}") long ttlMs) {
+        this.userRepo = userRepo;
+        this.userMapper = userMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionManager = transactionManager;
+        this.ttlMs = ttlMs;
+        this.results = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ResultKey, CachedResult> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * One page of users matching the query. The result may be shared with other callers and must not
+     * be modified.
+     */
+    @Override
+    public UserSearchRes search(String query, String cursor, int limit) {
+        String key = TextKeys.normalize(query);
+        if (key.length() < MIN_QUERY_LENGTH || limit <= 0) {
+            return new UserSearchRes();
+        }
+        ResultKey resultKey = new ResultKey(key, cursor == null || cursor.isBlank() ? null : cursor, limit);
+        synchronized (results) {
+            CachedResult cached = results.get(resultKey);
+            if (cached != null && clock.millis() < cached.expiresAt()) {
+                return cached.result();
+            }
+        }
+
+        UserSearchRes result = find(key, UserSearchCursor.decode(resultKey.cursor(), key), limit);
+        synchronized (results) {
+            results.put(resultKey, new CachedResult(result, clock.millis() + ttlMs));
+        }
+        return result;
+    }
+
+    /**
+     * Indexes users that have no search key yet: new users, and every user once when the index is new.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${users.search.index-sweep-ms:5000}")
+    public void indexPending() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (int batch = 0; batch < INDEX_BATCHES_PER_SWEEP; batch++) {
+            Integer indexed = template.execute(status -> indexBatch());
+            if (indexed == null || indexed < INDEX_BATCH) {
+                return;
+            }
+        }
+    }
+
+    private UserSearchRes find(String key, UserSearchCursor cursor, int limit) {
+        UserSearchRes response = new UserSearchRes();
+        if (cursor == null || cursor.phase() == UserSearchCursor.Phase.PREFIX) {
+            List<EmployeeListRow> rows = userRepo.findSearchPage(escape(key) + "%",
+                    cursor != null ? cursor.key() : "", cursor != null ? cursor.id() : 0, PageRequest.of(0, limit + 1));
+            for (EmployeeListRow row : rows) {
+                if (response.users.size() == limit) {
+                    EmployeeListRow last = rows.get(limit - 1);
+                    response.setNextCursor(new UserSearchCursor(UserSearchCursor.Phase.PREFIX, key, TextKeys.normalize(last.email()), last.id()).encode());
+                    return response;
+                }
+                response.users.add(userMapper.rowToDTO(row));
+            }
+        }
+        findByGrams(key, cursor != null && cursor.phase() == UserSearchCursor.Phase.GRAM ? cursor.id() : 0, limit, response);
+        return response;
+    }
+
+    // Scans the entries of one of the query's grams in user id order, keeping users that hold all of them
+    private void findByGrams(String key, int afterId, int limit, UserSearchRes response) {
+        List<String> words = words(key);
+        List<String> grams = new ArrayList<>(grams(words));
+        if (grams.isEmpty()) {
+            return;
+        }
+        String driver = grams.getFirst();
+        List<String> others = grams.subList(1, grams.size());
+
+        Integer lastAdded = null;
+        int scanned = 0;
+        while (scanned < SCAN_BUDGET) {
+            int batch = Math.min(SCAN_BATCH, SCAN_BUDGET - scanned);
+            List<Integer> candidates = jdbcTemplate.queryForList(CANDIDATES, Integer.class, driver, afterId, batch);
+            scanned += candidates.size();
+
+            List<Integer> holding = others.isEmpty() || candidates.isEmpty() ? candidates : holdingAll(candidates, others);
+            Map<Integer, EmployeeListRow> rows = new HashMap<>();
+            if (!holding.isEmpty()) {
+                for (EmployeeListRow row : userRepo.findSearchRowsByIdIn(holding)) {
+                    rows.put(row.id(), row);
+                }
+            }
+            for (Integer id : candidates) {
+                EmployeeListRow row = rows.get(id);
+                if (row == null || !matches(row, key, words)) {
+                    continue;
+                }
+                if (response.users.size() == limit) {
+                    response.setNextCursor(new UserSearchCursor(UserSearchCursor.Phase.GRAM, key, null, lastAdded).encode());
+                    return;
+                }
+                response.users.add(userMapper.rowToDTO(row));
+                lastAdded = id;
+            }
+            if (candidates.size() < batch) {
+                return;
+            }
+            afterId = candidates.getLast();
+        }
+        // Out of budget: the next page carries on after the last entry read, even if this one isn't full
+        response.setNextCursor(new UserSearchCursor(UserSearchCursor.Phase.GRAM, key, null, afterId).encode());
+    }
+
+    private List<Integer> holdingAll(List<Integer> candidates, List<String> grams) {
+        String sql = "SELECT user_id FROM user_search_gram WHERE user_id IN (" + placeholders(candidates.size())
+                + ") AND gram IN (" + placeholders(grams.size()) + ") GROUP BY user_id HAVING COUNT(*) = ?";
+        List<Object> args = new ArrayList<>(candidates);
+        args.addAll(grams);
+        args.add(grams.size());
+        return jdbcTemplate.queryForList(sql, Integer.class, args.toArray());
+    }
+
+    // The grams only show the words are there; this also rules out users the prefix pass already listed
+    private static boolean matches(EmployeeListRow row, String key, List<String> words) {
+        if (TextKeys.normalize(row.email()).startsWith(key)) {
+            return false;
+        }
+        String text = indexedText(row.email(), row.username(), row.firstName(), row.lastName());
+        for (String word : words) {
+            if (!text.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexBatch() {
+        List<PendingUser> users = jdbcTemplate.query(PENDING, (rs, rowNum) -> new PendingUser(rs.getInt("id"),
+                rs.getString("email"), rs.getString("username"), rs.getString("first_name"), rs.getString("last_name")), INDEX_BATCH);
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> grams = new ArrayList<>();
+        for (PendingUser user : users) {
+            for (String gram : grams(words(indexedText(user.email(), user.username(), user.firstName(), user.lastName())))) {
+                grams.add(new Object[]{gram, user.id()});
+            }
+        }
+        jdbcTemplate.batchUpdate(DELETE_GRAMS, users, users.size(), (ps, user) -> ps.setInt(1, user.id()));
+        jdbcTemplate.batchUpdate(INSERT_GRAM, grams);
+        jdbcTemplate.batchUpdate(SET_KEY, users, users.size(), (ps, user) -> {
+            ps.setString(1, TextKeys.normalize(user.email()));
+            ps.setInt(2, user.id());
+        });
+        return users.size();
+    }
+
+    // The domain is left out: most users share a handful, so its grams would match nearly everyone
+    static String indexedText(String email, String username, String firstName, String lastName) {
+        String local = email != null && email.lastIndexOf('@') >= 0 ? email.substring(0, email.lastIndexOf('@')) : email;
+        return TextKeys.normalize(String.join(" ", Objects.toString(local, ""), Objects.toString(username, ""),
+                Objects.toString(firstName, ""), Objects.toString(lastName, "")));
+    }
+
+    // Words long enough to have a gram; shorter ones are only matched by the prefix pass
+    static List<String> words(String normalized) {
+        List<String> words = new ArrayList<>();
+        for (String word : SEPARATOR.split(normalized)) {
+            if (word.length() >= GRAM_LENGTH) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    static Set<String> grams(List<String> words) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String word : words) {
+            for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+                grams.add(word.substring(i, i + GRAM_LENGTH));
+            }
+        }
+        return grams;
+    }
+
+    private static String escape(String key) {
+        return key.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private record ResultKey(String query, String cursor, int limit) {
+    }
+
+    private record CachedResult(UserSearchRes result, long expiresAt) {
+    }
+
+    private record PendingUser(int id, String email, String username, String firstName, String lastName) {
+    }
+}
@@ -1,23 +1,28 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.request.UserSearchReq;
+import dev.tomas.dma.dto.response.UserSearchRes;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.mapper.UserMapper;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.UserSearchService;
 import dev.tomas.dma.service.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 @AllArgsConstructor
 
 public class UserServiceImpl implements UserService {
+    private static final int SEARCH_BY_EMAIL_LIMIT = 20;
+
     private final UserRepo userRepo;
     private final UserMapper userMapper;
+    private final UserSearchService userSearchService;
 
     public UserDTO getById(Integer id) {
         User user = userRepo.findById(id).orElseThrow(() -> new EntityNotFoundException("User not found with id: " + id));
@@ -29,14 +34,12 @@ public class UserServiceImpl implements UserService {
         return userMapper.toDTO(user);
     }
 
+    public UserSearchRes search(UserSearchReq request) {
+        return userSearchService.search(request.getQ(), request.getCursor(), request.getLimit());
+    }
+
+    // The older path: the first page of the same search
     public List<UserDTO> searchByEmail(String email) {
-        List<User> users = userRepo.findByEmailContainingIgnoreCase(email);
-        List<UserDTO> dtos = new ArrayList<>();
-
-        for (User user : users) {
-            userMapper.toDTO(user);
-            dtos.add(userMapper.toDTO(user));
-        }
-        return dtos;
+        return userSearchService.search(email, null, SEARCH_BY_EMAIL_LIMIT).getUsers();
     }
 }
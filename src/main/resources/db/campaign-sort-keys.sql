@@ -0,0 +1,24 @@
+-- Brings an existing campaign table in line with the listing's sort keys. ddl-auto=update adds the
+-- sort_* columns and their indexes, but it doesn't change an existing column or drop an index:
+--
+-- - funding_progress is redefined with NULLIF, so a zero goal gives NULL instead of a division
+--   error on insert and update.
+-- - The (key, id) indexes on the nullable columns are dropped; listings seek on the sort_* ones.
+--
+-- Run once against an existing schema after the application has started on the new version. It is
+-- safe to run again.
+
+ALTER TABLE campaign
+    MODIFY funding_progress DECIMAL(19,6) GENERATED ALWAYS AS (COALESCE(raised_funds, 0) / NULLIF(fund_goal, 0)) STORED;
+
+SELECT GROUP_CONCAT(DISTINCT CONCAT('DROP INDEX `', index_name, '`') SEPARATOR ', ')
+INTO @drop_unsorted_keys
+FROM information_schema.statistics
+WHERE table_schema = DATABASE()
+  AND table_name = 'campaign'
+  AND index_name IN ('idx_campaign_create_date', 'idx_campaign_end_date', 'idx_campaign_raised_funds', 'idx_campaign_funding_progress');
+
+SET @drop_unsorted_keys = IF(@drop_unsorted_keys IS NULL, 'DO 0', CONCAT('ALTER TABLE campaign ', @drop_unsorted_keys));
+PREPARE drop_unsorted_keys FROM @drop_unsorted_keys;
+EXECUTE drop_unsorted_keys;
+DEALLOCATE PREPARE drop_unsorted_keys;
@@ -0,0 +1,26 @@
+-- Drops the unique keys Hibernate generated for users.email, users.username and users.phone_number
+-- before they were named (UK... with a hash suffix). ddl-auto=update adds uk_users_email,
+-- uk_users_username and uk_users_phone_number next to them, so without this an existing schema
+-- checks each column twice, and a duplicate can be reported against the old name, which
+-- registration can't map back to the field.
+--
+-- Run once against an existing schema after the application has started on the new version, so
+-- the named keys are in place first. It is safe to run again: once the old keys are gone it does
+-- nothing.
+
+SELECT GROUP_CONCAT(CONCAT('DROP INDEX `', index_name, '`') SEPARATOR ', ')
+INTO @drop_legacy_keys
+FROM (SELECT index_name
+      FROM information_schema.statistics
+      WHERE table_schema = DATABASE()
+        AND table_name = 'users'
+        AND non_unique = 0
+        AND index_name NOT IN ('PRIMARY', 'uk_users_email', 'uk_users_username', 'uk_users_phone_number')
+      GROUP BY index_name
+      HAVING COUNT(*) = 1
+         AND MAX(column_name) IN ('email', 'username', 'phone_number')) legacy_keys;
+
+SET @drop_legacy_keys = IF(@drop_legacy_keys IS NULL, 'DO 0', CONCAT('ALTER TABLE users ', @drop_legacy_keys));
+PREPARE drop_legacy_keys FROM @drop_legacy_keys;
+EXECUTE drop_legacy_keys;
+DEALLOCATE PREPARE drop_legacy_keys;
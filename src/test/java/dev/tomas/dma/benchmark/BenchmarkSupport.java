@@ -0,0 +1,108 @@
+package dev.tomas.dma.benchmark;
+
+import com.sun.management.ThreadMXBean;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Small timing helpers shared by the benchmark suites.
+ * Benchmarks are excluded from {@code ./gradlew test} and run with {@code ./gradlew benchmark}.
+ */
+final class BenchmarkSupport {
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private BenchmarkSupport() {
+    }
+
+    record Measurement(String name, long medianMillis, long bestMillis, long statements, long allocatedBytes, Object result) {
+        @Override
+        public String toString() {
+            return String.format("%-28s median %6d ms | best %6d ms | %8d statements | %8d KB allocated | result %s",
+                    name, medianMillis, bestMillis, statements, allocatedBytes / 1024, result);
+        }
+    }
+
+    /**
+     * Runs the task once to warm up, then {@code runs} more times, reporting the median and best wall time
+     * and the number of JDBC statements prepared by Hibernate and the bytes allocated by the calling thread
+     * during a single run.
+     */
+    static Measurement measure(String name, EntityManagerFactory emf, int runs, Callable<?> task) throws Exception {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        task.call();
+
+        long[] timings = new long[runs];
+        long statements = 0;
+        long allocated = 0;
+        Object result = null;
+        for (int i = 0; i < runs; i++) {
+            statistics.clear();
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            result = task.call();
+            timings[i] = (System.nanoTime() - start) / 1_000_000;
+            allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            statements = statistics.getPrepareStatementCount();
+        }
+
+        Arrays.sort(timings);
+        Measurement measurement = new Measurement(name, timings[runs / 2], timings[0], statements, allocated, result);
+        System.out.println("[benchmark] " + measurement);
+        return measurement;
+    }
+
+    /**
+     * Times a cheap operation with no database behind it: warms it up for as many calls as are
+     * measured, then reports the mean cost per call and the bytes the calling thread allocated per call.
+     */
+    static double nanosPerOp(String name, int ops, Runnable task) {
+        for (int i = 0; i < ops; i++) {
+            task.run();
+        }
+
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ops; i++) {
+            task.run();
+        }
+        double nanos = (double) (System.nanoTime() - start) / ops;
+        long allocated = (THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore) / ops;
+
+        System.out.printf("[benchmark] %-28s %10.0f ns/op | %8d B/op allocated%n", name, nanos, allocated);
+        return nanos;
+    }
+
+    /**
+     * Sends the request {@code requests} times, a few at a time, and returns each one's latency in milliseconds.
+     */
+    static long[] latencies(HttpClient client, HttpRequest request, int requests) {
+        List<CompletableFuture<Long>> timings = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            timings.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> (System.nanoTime() - start) / 1_000_000));
+            if (i % 8 == 7) {
+                timings.getLast().join();
+            }
+        }
+        return timings.stream().mapToLong(CompletableFuture::join).toArray();
+    }
+
+    static long p99(long[] latencies) {
+        Arrays.sort(latencies);
+        return latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+    }
+}
@@ -0,0 +1,251 @@
+package dev.tomas.dma.benchmark;
+
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.entity.AppFile;
+import dev.tomas.dma.entity.Campaign;
+import dev.tomas.dma.entity.Company;
+import dev.tomas.dma.entity.CompanyType;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.CompanyStatus;
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.FileType;
+import dev.tomas.dma.enums.Status;
+import dev.tomas.dma.repository.AppFileRepo;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.CompanyRepo;
+import dev.tomas.dma.repository.CompanyTypeRepo;
+import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignSearchService;
+import dev.tomas.dma.service.CampaignService;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the old per-row public feed (one ticket check and one image lookup per campaign)
+ * with the feed served from the read model by {@link CampaignService#findAllApproved(CampaignPageReq)}, and the cost
+ * of a deep keyset page with the OFFSET page it replaces. Full-text search is compared with a LIKE scan.
+ * Seed size can be changed with {@code -Dbenchmark.campaigns=N}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class CampaignFeedBenchmark {
+    private static final int CAMPAIGNS = Integer.getInteger("benchmark.campaigns", 100_000);
+    private static final int RUNS = 5;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int SEARCHES = 1_000;
+
+    @Autowired
+    private CampaignService campaignService;
+
+    @Autowired
+    private CampaignFeedService campaignFeedService;
+
+    @Autowired
+    private CampaignSearchService campaignSearchService;
+
+    @Autowired
+    private CampaignRepo campaignRepo;
+
+    @Autowired
+    private TicketRepo ticketRepo;
+
+    @Autowired
+    private AppFileRepo fileRepo;
+
+    @Autowired
+    private CompanyRepo companyRepo;
+
+    @Autowired
+    private CompanyTypeRepo companyTypeRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void seed() throws Exception {
+        cleanUp();
+
+        CompanyType type = new CompanyType();
+        type.setName("Benchmark Type");
+        type.setDescription("Company type used by the feed benchmark");
+        type = companyTypeRepo.save(type);
+
+        Company company = new Company();
+        company.setName("Benchmark Company");
+        company.setRegistrationNumber("BENCHREG");
+        company.setTaxId("BENCHTAX");
+        company.setStatus(CompanyStatus.APPROVED);
+        company.setType(type);
+        Integer companyId = companyRepo.save(company).getId();
+
+        List<Integer> rows = IntStream.range(0, CAMPAIGNS).boxed().toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO campaign (name, description, status, company_id, create_date, start_date, end_date,
+                                      fund_goal, raised_funds, available_funds, remaining_funds)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, "Campaign " + i);
+            ps.setString(2, "Benchmark campaign number " + i);
+            ps.setString(3, (i % 2 == 0 ? CampaignStatus.APPROVED : CampaignStatus.PENDING).name());
+            ps.setInt(4, companyId);
+            ps.setDate(5, Date.valueOf(LocalDate.now().minusDays(i % 365)));
+            ps.setDate(6, Date.valueOf(LocalDate.now()));
+            ps.setDate(7, Date.valueOf(LocalDate.now().plusMonths(3)));
+            ps.setBigDecimal(8, new BigDecimal("10000"));
+            ps.setBigDecimal(9, BigDecimal.valueOf(i % 10_000));
+            ps.setBigDecimal(10, BigDecimal.ZERO);
+            ps.setBigDecimal(11, BigDecimal.ZERO);
+        });
+
+        List<Integer> campaignIds = jdbcTemplate.queryForList("SELECT id FROM campaign ORDER BY id", Integer.class);
+        Status[] ticketStatuses = Status.values();
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ticket (name, entity_id, type, status, create_date)
+                VALUES (?, ?, ?, ?, ?)
+                """, campaignIds, BATCH_SIZE, (ps, id) -> {
+            ps.setString(1, "Ticket " + id);
+            ps.setInt(2, id);
+            ps.setString(3, EntityType.CAMPAIGN.name());
+            ps.setString(4, ticketStatuses[id % ticketStatuses.length].name());
+            ps.setTimestamp(5, Timestamp.valueOf(LocalDateTime.now()));
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO app_file (url, entity_id, entity_type, file_type)
+                VALUES (?, ?, ?, ?)
+                """, campaignIds, BATCH_SIZE, (ps, id) -> {
+            ps.setString(1, "https://res.cloudinary.com/demo/image/upload/" + id + ".jpg");
+            ps.setInt(2, id);
+            ps.setString(3, EntityType.CAMPAIGN.name());
+            ps.setString(4, FileType.CAMPAIGN_IMAGE.name());
+        });
+
+        BenchmarkSupport.measure("read model rebuild", entityManagerFactory, 1, () -> {
+            campaignFeedService.rebuild();
+            return null;
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM app_file");
+        jdbcTemplate.update("DELETE FROM ticket");
+        jdbcTemplate.update("DELETE FROM campaign");
+        companyRepo.deleteAll();
+        companyTypeRepo.deleteAll();
+        campaignFeedService.rebuild();
+    }
+
+    @Test
+    void publicFeed() throws Exception {
+        BenchmarkSupport.Measurement perRow = BenchmarkSupport.measure(
+                "per-row feed", entityManagerFactory, RUNS, this::perRowFeed);
+        BenchmarkSupport.Measurement readModel = BenchmarkSupport.measure(
+                "read model feed", entityManagerFactory, RUNS, this::pagedFeed);
+
+        Assertions.assertEquals(perRow.result(), readModel.result());
+        Assertions.assertTrue(readModel.statements() < perRow.statements());
+    }
+
+    @Test
+    void deepPage() throws Exception {
+        CampaignPageReq page = new CampaignPageReq();
+        page.setSize(PAGE_SIZE);
+        int depth = CAMPAIGNS / PAGE_SIZE * 9 / 10;
+        for (int i = 0; i < depth; i++) {
+            page.setCursor(campaignService.findAll(page).getNextCursor());
+        }
+        String deepCursor = page.getCursor();
+
+        CampaignPageReq firstPage = new CampaignPageReq();
+        firstPage.setSize(PAGE_SIZE);
+        BenchmarkSupport.Measurement first = BenchmarkSupport.measure(
+                "keyset first page", entityManagerFactory, RUNS, () -> campaignService.findAll(firstPage).getCampaigns().size());
+        BenchmarkSupport.Measurement keyset = BenchmarkSupport.measure(
+                "keyset page " + depth, entityManagerFactory, RUNS, () -> campaignService.findAll(page).getCampaigns().size());
+        BenchmarkSupport.measure(
+                "offset page " + depth, entityManagerFactory, RUNS, () -> campaignRepo.findAll(
+                        PageRequest.of(depth, PAGE_SIZE, Sort.by(Sort.Order.desc("createDate"), Sort.Order.desc("id")))).getNumberOfElements());
+
+        Assertions.assertNotNull(deepCursor);
+        Assertions.assertEquals(first.result(), keyset.result());
+        Assertions.assertEquals(keyset.statements(), first.statements());
+    }
+
+    @Test
+    void search() throws Exception {
+        String[] queries = {"benchmark", "campaign 4242", "numb", "campaign 9"};
+
+        // Timings are for the whole batch, so the per-query cost is the reported value divided by SEARCHES
+        BenchmarkSupport.Measurement index = BenchmarkSupport.measure(
+                SEARCHES + " index searches", entityManagerFactory, RUNS, () -> {
+                    int hits = 0;
+                    for (int i = 0; i < SEARCHES; i++) {
+                        hits += campaignSearchService.search(queries[i % queries.length], PAGE_SIZE).size();
+                    }
+                    return hits;
+                });
+        BenchmarkSupport.measure(
+                "LIKE search", entityManagerFactory, RUNS, () -> jdbcTemplate.queryForList(
+                        "SELECT id FROM campaign WHERE name LIKE ? OR description LIKE ? LIMIT " + PAGE_SIZE,
+                        Integer.class, "%4242%", "%4242%").size());
+
+        Assertions.assertTrue((Integer) index.result() > 0);
+        Assertions.assertEquals(0, index.statements());
+    }
+
+    /**
+     * Reads the whole public feed by following the cursor, as a client scrolling to the end would.
+     */
+    private int pagedFeed() {
+        CampaignPageReq page = new CampaignPageReq();
+        page.setSize(PAGE_SIZE);
+        int count = 0;
+        do {
+            CampaignGetAllRes response = campaignService.findAllApproved(page);
+            count += response.getCampaigns().size();
+            page.setCursor(response.getNextCursor());
+        } while (page.getCursor() != null);
+        return count;
+    }
+
+    /**
+     * The feed as it was implemented before: filter tickets and resolve images one campaign at a time.
+     */
+    private int perRowFeed() {
+        List<Status> excludeTicketStatuses = List.of(Status.REJECTED, Status.PENDING);
+        int count = 0;
+        for (Campaign campaign : campaignRepo.findAllByStatusIn(List.of(CampaignStatus.PENDING, CampaignStatus.APPROVED))) {
+            if (ticketRepo.existsByEntityIdAndTypeAndStatusIn(campaign.getId(), EntityType.CAMPAIGN, excludeTicketStatuses)) {
+                continue;
+            }
+            List<AppFile> images = fileRepo.findByEntityTypeAndEntityIdAndFileType(EntityType.CAMPAIGN, campaign.getId(), FileType.CAMPAIGN_IMAGE);
+            if (images != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
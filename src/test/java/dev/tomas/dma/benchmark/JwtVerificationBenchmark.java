@@ -0,0 +1,76 @@
+package dev.tomas.dma.benchmark;
+
+import dev.tomas.dma.entity.User;
+import dev.tomas.dma.service.implementation.JWTServiceImpl;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+/**
+ * Per-request cost of checking a bearer token. The old filter path built a key and a parser and
+ * parsed the token three times (username, then username and expiry again to validate); it is
+ * reproduced here as it was. The new path verifies once with a shared parser, and a token seen
+ * recently is not parsed at all. Needs no database. Operation count can be changed with
+ * {@code -Dbenchmark.jwtOps=N}.
+ */
+@Tag("benchmark")
+class JwtVerificationBenchmark {
+    private static final int OPS = Integer.getInteger("benchmark.jwtOps", 200_000);
+    private static final String SECRET = "benchmarkSecretKeyThatIsLongEnoughForHmacSha256";
+
+    private String token;
+    private String email;
+
+    private JWTServiceImpl service(int cacheCapacity) {
+        JWTServiceImpl service = new JWTServiceImpl();
+        ReflectionTestUtils.setField(service, "secret", SECRET);
+        ReflectionTestUtils.setField(service, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheCapacity", cacheCapacity);
+        return service;
+    }
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("benchmark@example.com");
+        user.setUsername("benchmark");
+        email = user.getUsername();
+        token = service(1).generateToken(user);
+    }
+
+    @Test
+    void perRequestAuthCost() {
+        double before = BenchmarkSupport.nanosPerOp("three parses, new parser", OPS, () -> {
+            String username = oldClaims().getSubject();
+            boolean valid = oldClaims().getSubject().equals(email) && !oldClaims().getExpiration().before(new Date());
+            Assertions.assertTrue(valid && username != null);
+        });
+
+        // A cache of one entry that is hit every time would hide the parse, so this one never keeps any
+        JWTServiceImpl uncached = service(0);
+        double parseOnce = BenchmarkSupport.nanosPerOp("one parse, shared parser", OPS, () ->
+                Assertions.assertEquals(email, uncached.verify(token).subject()));
+
+        JWTServiceImpl cached = service(10_000);
+        double recent = BenchmarkSupport.nanosPerOp("recently verified token", OPS, () ->
+                Assertions.assertEquals(email, cached.verify(token).subject()));
+
+        Assertions.assertTrue(parseOnce < before);
+        Assertions.assertTrue(recent < parseOnce);
+    }
+
+    private Claims oldClaims() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes()))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
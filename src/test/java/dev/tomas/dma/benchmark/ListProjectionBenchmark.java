@@ -0,0 +1,273 @@
+package dev.tomas.dma.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tomas.dma.dto.common.CompanyDTO;
+import dev.tomas.dma.dto.common.CompanyTypeDTO;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.entity.Company;
+import dev.tomas.dma.entity.CompanyRole;
+import dev.tomas.dma.entity.CompanyType;
+import dev.tomas.dma.entity.User;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.CompanyStatus;
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.ExportFormat;
+import dev.tomas.dma.enums.Status;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.mapper.CampaignMapper;
+import dev.tomas.dma.mapper.TicketMapper;
+import dev.tomas.dma.mapper.UserMapper;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.CompanyRepo;
+import dev.tomas.dma.repository.CompanyRoleRepo;
+import dev.tomas.dma.repository.CompanyTypeRepo;
+import dev.tomas.dma.repository.TicketRepo;
+import dev.tomas.dma.service.CampaignService;
+import dev.tomas.dma.service.CompanyEmployeeService;
+import dev.tomas.dma.service.CompanyService;
+import dev.tomas.dma.service.TicketService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the list endpoints reading managed entity graphs (the way they were written before)
+ * with the constructor projections they use now, reporting latency, statements and allocation.
+ * The export tests compare a materialised list response with the streamed admin export.
+ * Seed size can be changed with {@code -Dbenchmark.rows=N}.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class ListProjectionBenchmark {
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 20_000);
+    private static final int RUNS = 5;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Autowired
+    private CampaignService campaignService;
+
+    @Autowired
+    private CompanyService companyService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private CompanyEmployeeService companyEmployeeService;
+
+    @Autowired
+    private CampaignRepo campaignRepo;
+
+    @Autowired
+    private CompanyRepo companyRepo;
+
+    @Autowired
+    private CompanyTypeRepo companyTypeRepo;
+
+    @Autowired
+    private CompanyRoleRepo companyRoleRepo;
+
+    @Autowired
+    private TicketRepo ticketRepo;
+
+    @Autowired
+    private CampaignMapper campaignMapper;
+
+    @Autowired
+    private TicketMapper ticketMapper;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Integer companyId;
+
+    @BeforeEach
+    void seed() {
+        cleanUp();
+
+        CompanyType type = new CompanyType();
+        type.setName("Benchmark Type");
+        type.setDescription("Company type used by the projection benchmark");
+        Integer typeId = companyTypeRepo.save(type).getId();
+
+        List<Integer> rows = IntStream.range(0, ROWS).boxed().toList();
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO company (name, registration_number, tax_id, company_type_id, status, create_date)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, "Company " + i);
+            ps.setString(2, "REG" + i);
+            ps.setString(3, "TAX" + i);
+            ps.setInt(4, typeId);
+            ps.setString(5, CompanyStatus.APPROVED.name());
+            ps.setDate(6, Date.valueOf(LocalDate.now()));
+        });
+        List<Integer> companyIds = jdbcTemplate.queryForList("SELECT id FROM company ORDER BY id", Integer.class);
+        companyId = companyIds.getFirst();
+
+        CompanyRole role = new CompanyRole();
+        role.setName("Employee");
+        role.setCompany(companyRepo.getReferenceById(companyId));
+        Integer roleId = companyRoleRepo.save(role).getId();
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO users (email, password, phone_number, address, first_name, last_name, username,
+                                   company_role_id, company_id, enabled, role)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, "employee" + i + "@benchmark.dev");
+            ps.setString(2, "not-a-real-hash");
+            ps.setString(3, "+31" + (600000000 + i));
+            ps.setString(4, "Street " + i);
+            ps.setString(5, "First" + i);
+            ps.setString(6, "Last" + i);
+            ps.setString(7, "employee" + i);
+            ps.setInt(8, roleId);
+            ps.setInt(9, companyId);
+            ps.setBoolean(10, true);
+            ps.setString(11, UserRole.DONOR.name());
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO ticket (name, entity_id, type, status, message, create_date)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, "Ticket " + i);
+            ps.setInt(2, i);
+            ps.setString(3, EntityType.COMPANY.name());
+            ps.setString(4, (i % 2 == 0 ? Status.PENDING : Status.APPROVED).name());
+            ps.setString(5, "Benchmark ticket " + i);
+            ps.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+        });
+
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO campaign (name, description, status, company_id, create_date, start_date, end_date,
+                                      fund_goal, raised_funds, available_funds, remaining_funds)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, rows, BATCH_SIZE, (ps, i) -> {
+            ps.setString(1, "Campaign " + i);
+            ps.setString(2, "Benchmark campaign number " + i);
+            ps.setString(3, CampaignStatus.APPROVED.name());
+            ps.setInt(4, companyIds.get(i % companyIds.size()));
+            ps.setDate(5, Date.valueOf(LocalDate.now().minusDays(i % 365)));
+            ps.setDate(6, Date.valueOf(LocalDate.now()));
+            ps.setDate(7, Date.valueOf(LocalDate.now().plusMonths(3)));
+            ps.setBigDecimal(8, new BigDecimal("10000"));
+            ps.setBigDecimal(9, BigDecimal.valueOf(i % 10_000));
+            ps.setBigDecimal(10, BigDecimal.ZERO);
+            ps.setBigDecimal(11, BigDecimal.ZERO);
+        });
+    }
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("DELETE FROM ticket");
+        jdbcTemplate.update("DELETE FROM campaign");
+        jdbcTemplate.update("DELETE FROM users WHERE email LIKE '%@benchmark.dev'");
+        jdbcTemplate.update("DELETE FROM company_role");
+        jdbcTemplate.update("DELETE FROM company");
+        companyTypeRepo.deleteAll();
+    }
+
+    @Test
+    void companies() throws Exception {
+        BenchmarkSupport.Measurement entities = BenchmarkSupport.measure("companies (entities)", entityManagerFactory, RUNS, () -> {
+            List<CompanyDTO> dtos = new ArrayList<>();
+            for (Company entity : companyRepo.findAll()) {
+                CompanyType type = entity.getType();
+                dtos.add(new CompanyDTO(entity.getId(), entity.getName(), entity.getRegistrationNumber(), entity.getTaxId(),
+                        new CompanyTypeDTO(type.getId(), type.getName(), type.getDescription()), entity.getStatus().toString()));
+            }
+            return dtos.size();
+        });
+        BenchmarkSupport.Measurement rows = BenchmarkSupport.measure("companies (projection)", entityManagerFactory, RUNS,
+                () -> companyService.getAll().getCompanies().size());
+
+        Assertions.assertEquals(entities.result(), rows.result());
+    }
+
+    @Test
+    void tickets() throws Exception {
+        BenchmarkSupport.Measurement entities = BenchmarkSupport.measure("tickets (entities)", entityManagerFactory, RUNS,
+                () -> ticketMapper.toDTOs(ticketRepo.findAll()).size());
+        BenchmarkSupport.Measurement rows = BenchmarkSupport.measure("tickets (projection)", entityManagerFactory, RUNS,
+                () -> ticketService.getAll().getTickets().size());
+
+        Assertions.assertEquals(entities.result(), rows.result());
+    }
+
+    @Test
+    void employees() throws Exception {
+        BenchmarkSupport.Measurement entities = BenchmarkSupport.measure("employees (entities)", entityManagerFactory, RUNS, () -> {
+            List<User> users = entityManager.createQuery("SELECT u FROM User u WHERE u.company.id = :companyId", User.class)
+                    .setParameter("companyId", companyId)
+                    .getResultList();
+            return users.stream().map(userMapper::toDTO).toList().size();
+        });
+        BenchmarkSupport.Measurement rows = BenchmarkSupport.measure("employees (projection)", entityManagerFactory, RUNS,
+                () -> companyEmployeeService.getEmployeesByCompany(companyId).size());
+
+        Assertions.assertEquals(entities.result(), rows.result());
+    }
+
+    @Test
+    void campaigns() throws Exception {
+        CampaignPageReq page = new CampaignPageReq();
+        page.setSize(100);
+
+        BenchmarkSupport.Measurement entities = BenchmarkSupport.measure("campaign page (entities)", entityManagerFactory, RUNS,
+                () -> campaignRepo.findAll(PageRequest.of(0, 100, Sort.by(Sort.Order.desc("createDate"), Sort.Order.desc("id"))))
+                        .map(campaignMapper::entityToDTO)
+                        .getNumberOfElements());
+        BenchmarkSupport.Measurement rows = BenchmarkSupport.measure("campaign page (projection)", entityManagerFactory, RUNS,
+                () -> campaignService.findAll(page).getCampaigns().size());
+
+        Assertions.assertEquals(entities.result(), rows.result());
+    }
+
+    @Test
+    void exports() throws Exception {
+        BenchmarkSupport.measure("tickets (materialised)", entityManagerFactory, RUNS,
+                () -> objectMapper.writeValueAsBytes(ticketService.getAll()).length);
+        BenchmarkSupport.Measurement tickets = BenchmarkSupport.measure("tickets (streamed)", entityManagerFactory, RUNS, () -> {
+            ticketService.exportAll(OutputStream.nullOutputStream(), ExportFormat.NDJSON);
+            return null;
+        });
+        BenchmarkSupport.Measurement campaigns = BenchmarkSupport.measure("campaigns (streamed)", entityManagerFactory, RUNS, () -> {
+            campaignService.exportAll(OutputStream.nullOutputStream(), ExportFormat.NDJSON);
+            return null;
+        });
+
+        Assertions.assertEquals(1, tickets.statements());
+        Assertions.assertEquals(1, campaigns.statements());
+    }
+}
@@ -0,0 +1,138 @@
+package dev.tomas.dma.benchmark;
+
+import dev.tomas.dma.entity.User;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.PasswordHashingService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A login storm: a crowd of clients keeps calling {@code POST /api/auth/login} at a production bcrypt
+ * cost while the public campaign feed is measured, and reports logins per second and the feed's p99
+ * against the same run with no logins. Hashing runs on its own core-sized pool, so however many
+ * logins are queued the feed keeps its Tomcat workers and competes with at most one hash per core.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=32",
+        "auth.bcrypt.cost=12"
+})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class LoginThroughputBenchmark {
+    private static final int ACCOUNTS = 8;
+    private static final int CLIENTS = 64;
+    private static final int FEED_REQUESTS = 500;
+    private static final String PASSWORD = "password123";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final List<User> accounts = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String hash = passwordHashingService.hash(PASSWORD);
+        long seed = System.currentTimeMillis();
+        for (int i = 0; i < ACCOUNTS; i++) {
+            User user = new User();
+            user.setEmail("login" + seed + "-" + i + "@example.com");
+            user.setUsername("login" + seed + "-" + i);
+            user.setPassword(hash);
+            user.setPhoneNumber("+2" + (seed + i) % 10000000000L);
+            user.setAddress("1 Login Street");
+            user.setFirstName("Login");
+            user.setLastName("Storm");
+            user.setRole(UserRole.DONOR);
+            user.setEnabled(true);
+            accounts.add(userRepo.save(user));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        userRepo.deleteAll(accounts);
+        accounts.clear();
+    }
+
+    @Test
+    void feedStaysFastDuringLoginStorm() throws Exception {
+        feedLatencies(FEED_REQUESTS / 5);
+        long baseline = BenchmarkSupport.p99(feedLatencies(FEED_REQUESTS));
+        System.out.printf("[benchmark] %-28s p99 %6d ms%n", "feed, no logins", baseline);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Integer> statuses = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < CLIENTS; i++) {
+                User account = accounts.get(i % ACCOUNTS);
+                results.add(clients.submit(() -> {
+                    List<Integer> seen = new ArrayList<>();
+                    while (running.get()) {
+                        seen.add(client.send(login(account), HttpResponse.BodyHandlers.discarding()).statusCode());
+                    }
+                    return seen;
+                }));
+            }
+            // Let the hashing queue fill before measuring
+            Thread.sleep(500);
+            long start = System.nanoTime();
+            long loaded = BenchmarkSupport.p99(feedLatencies(FEED_REQUESTS));
+            running.set(false);
+            for (Future<List<Integer>> result : results) {
+                statuses.addAll(result.get());
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start).plusMillis(500);
+            System.out.printf("[benchmark] %-28s p99 %6d ms%n", "feed, " + CLIENTS + " clients logging in", loaded);
+
+            long accepted = statuses.stream().filter(status -> status == 200).count();
+            long rejected = statuses.stream().filter(status -> status == 503).count();
+            System.out.printf("[benchmark] %-28s %6.1f logins/s | %6d ok | %6d rejected with 503 | %6d other%n",
+                    "logins", accepted * 1000.0 / elapsed.toMillis(), accepted, rejected, statuses.size() - accepted - rejected);
+
+            Assertions.assertTrue(accepted > 0, "No login succeeded");
+            Assertions.assertEquals(statuses.size(), accepted + rejected);
+            Assertions.assertTrue(loaded < Math.max(baseline * 3, baseline + 100),
+                    "Feed p99 went from " + baseline + " ms to " + loaded + " ms");
+        }
+    }
+
+    private HttpRequest login(User account) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + account.getEmail() + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .build();
+    }
+
+    private long[] feedLatencies(int requests) {
+        HttpRequest feed = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/campaigns")).GET().build();
+        return BenchmarkSupport.latencies(client, feed, requests);
+    }
+}
@@ -0,0 +1,154 @@
+package dev.tomas.dma.benchmark;
+
+import dev.tomas.dma.entity.User;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.JWTService;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds Stripe at a two second answer, through the local {@link SlowPaymentGateway}, while a crowd of
+ * donors keeps calling {@code POST /api/donations}, and measures the p99 of the public campaign feed
+ * against the same run with Stripe idle. Tomcat gets fewer workers than there are donors, so if a
+ * donation held its worker while waiting for Stripe the feed would queue behind them.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "server.tomcat.threads.max=16",
+        "payments.bulkhead.max-concurrent=32",
+        "payments.timeout-ms=5000"
+})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class PaymentBulkheadBenchmark {
+    private static final Duration STRIPE_LATENCY = Duration.ofSeconds(2);
+    private static final int DONORS = 64;
+    private static final int FEED_REQUESTS = 500;
+
+    @TestConfiguration
+    static class StandIn {
+        @Bean
+        @Primary
+        SlowPaymentGateway slowPaymentGateway() {
+            return new SlowPaymentGateway();
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private SlowPaymentGateway paymentGateway;
+
+    @Autowired
+    private UserRepo userRepo;
+
+    @Autowired
+    private JWTService jwtService;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    // Every donation a new amount, so none are served from the intent cache
+    private final AtomicLong amounts = new AtomicLong(5_000);
+
+    private User donor;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        donor = new User();
+        donor.setEmail("bulkhead" + System.currentTimeMillis() + "@example.com");
+        donor.setUsername("bulkhead" + System.currentTimeMillis());
+        donor.setPassword("password123");
+        donor.setPhoneNumber("+1" + System.currentTimeMillis() % 10000000000L);
+        donor.setAddress("1 Bulkhead Street");
+        donor.setFirstName("Bulkhead");
+        donor.setLastName("Donor");
+        donor.setRole(UserRole.DONOR);
+        donor.setEnabled(true);
+        donor = userRepo.save(donor);
+        token = jwtService.generateToken(donor);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        paymentGateway.setLatency(Duration.ZERO);
+        userRepo.delete(donor);
+    }
+
+    @Test
+    void feedStaysFastWhileStripeIsSlow() throws Exception {
+        feedLatencies(FEED_REQUESTS / 5);
+        long baseline = BenchmarkSupport.p99(feedLatencies(FEED_REQUESTS));
+        System.out.printf("[benchmark] %-28s p99 %6d ms%n", "feed, stripe idle", baseline);
+
+        paymentGateway.setLatency(STRIPE_LATENCY);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Integer> statuses = new ArrayList<>();
+        try (ExecutorService donors = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < DONORS; i++) {
+                results.add(donors.submit(() -> {
+                    List<Integer> seen = new ArrayList<>();
+                    while (running.get()) {
+                        seen.add(client.send(donation(), HttpResponse.BodyHandlers.discarding()).statusCode());
+                    }
+                    return seen;
+                }));
+            }
+            // Let the bulkhead fill before measuring
+            Thread.sleep(STRIPE_LATENCY.toMillis() / 2);
+            long loaded = BenchmarkSupport.p99(feedLatencies(FEED_REQUESTS));
+            running.set(false);
+            for (Future<List<Integer>> result : results) {
+                statuses.addAll(result.get());
+            }
+            System.out.printf("[benchmark] %-28s p99 %6d ms%n", "feed, stripe at " + STRIPE_LATENCY.toMillis() + " ms", loaded);
+
+            long accepted = statuses.stream().filter(status -> status == 200).count();
+            long rejected = statuses.stream().filter(status -> status == 503).count();
+            System.out.printf("[benchmark] %-28s %6d ok | %6d rejected with 503 | %6d other%n",
+                    "donations", accepted, rejected, statuses.size() - accepted - rejected);
+
+            Assertions.assertTrue(rejected > 0, "Bulkhead never filled up");
+            Assertions.assertEquals(statuses.size(), accepted + rejected);
+            Assertions.assertTrue(loaded < Math.max(baseline * 3, baseline + 100),
+                    "Feed p99 went from " + baseline + " ms to " + loaded + " ms");
+        }
+    }
+
+    private HttpRequest donation() {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/donations"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"campaignId\":1,\"userId\":" + donor.getId() + ",\"amount\":" + amounts.incrementAndGet() + "}"))
+                .build();
+    }
+
+    private long[] feedLatencies(int requests) {
+        HttpRequest feed = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/campaigns")).GET().build();
+        return BenchmarkSupport.latencies(client, feed, requests);
+    }
+}
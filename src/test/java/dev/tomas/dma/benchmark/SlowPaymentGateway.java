@@ -0,0 +1,34 @@
+package dev.tomas.dma.benchmark;
+
+import com.stripe.model.PaymentIntent;
+import com.stripe.param.PaymentIntentCreateParams;
+import dev.tomas.dma.service.PaymentGateway;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Local stand-in for Stripe that answers every call after a configurable delay, so load tests can
+ * make the payment provider as slow as they like without leaving the machine.
+ */
+final class SlowPaymentGateway implements PaymentGateway {
+    private volatile Duration latency = Duration.ZERO;
+
+    void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    @Override
+    public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, String idempotencyKey) {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        PaymentIntent intent = new PaymentIntent();
+        intent.setId("pi_" + UUID.randomUUID());
+        intent.setAmount(params.getAmount());
+        intent.setClientSecret(intent.getId() + "_secret");
+        return intent;
+    }
+}
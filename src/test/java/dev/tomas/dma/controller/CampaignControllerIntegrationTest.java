@@ -1,6 +1,7 @@
 package dev.tomas.dma.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import dev.tomas.dma.dto.request.CampaignUpdateReq;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.entity.Company;
@@ -17,6 +18,8 @@ import dev.tomas.dma.repository.CompanyRepo;
 import dev.tomas.dma.repository.CompanyTypeRepo;
 import dev.tomas.dma.repository.TicketRepo;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
 import dev.tomas.dma.service.ExternalStorageService;
 import dev.tomas.dma.service.TicketService;
 import org.junit.jupiter.api.*;
@@ -29,11 +32,17 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.*;
@@ -72,6 +81,15 @@ class CampaignControllerIntegrationTest {
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CampaignFeedService campaignFeedService;
+
+    @Autowired
+    private CampaignRankingService campaignRankingService;
+
     @MockitoBean
     private ExternalStorageService storageService;
 
@@ -117,6 +135,8 @@ class CampaignControllerIntegrationTest {
         company.setType(testType);
         testCompany = companyRepo.save(company);
 
+        campaignFeedService.rebuild();
+
         // Mock storage service success
         try {
             when(storageService.uploadFile(any(), any(), any())).thenReturn("https://res.cloudinary.com/demo/image/upload/sample.jpg");
@@ -233,6 +253,9 @@ class CampaignControllerIntegrationTest {
         // Campaign with non-approved status (ARCHIVED) - should be excluded regardless of tickets
         createCampaignInDb("Archived Campaign", testCompany, CampaignStatus.ARCHIVED);
 
+        // Seeded straight through the repositories, so the read model has to be rebuilt
+        campaignFeedService.rebuild();
+
         mockMvc.perform(get("/api/campaigns"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.campaigns", hasSize(2)))
@@ -262,6 +285,290 @@ class CampaignControllerIntegrationTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Query count should not grow with the number of campaigns")
+    void getAll_QueryCount_ShouldBeConstant() throws Exception {
+        createCampaignInDb("Campaign 1", testCompany, CampaignStatus.APPROVED);
+        createCampaignInDb("Campaign 2", testCompany, CampaignStatus.APPROVED);
+        long smallListQueries = countQueries(() -> mockMvc.perform(get("/api/campaigns"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(2))));
+
+        for (int i = 3; i <= 30; i++) {
+            createCampaignInDb("Campaign " + i, testCompany, CampaignStatus.APPROVED);
+        }
+        long largeListQueries = countQueries(() -> mockMvc.perform(get("/api/campaigns").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(30))));
+
+        Assertions.assertEquals(smallListQueries, largeListQueries);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should walk every page through the cursor")
+    void getAll_Pagination_ShouldFollowCursor() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            createCampaignInDb("Paged Campaign " + i, testCompany, CampaignStatus.APPROVED);
+        }
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            var request = get("/api/campaigns").param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String response = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            names.addAll(JsonPath.read(response, "$.campaigns[*].name"));
+            cursor = JsonPath.read(response, "$.nextCursor");
+            pages++;
+        } while (cursor != null);
+
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(5, names.size());
+        Assertions.assertEquals(5, names.stream().distinct().count());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should page across campaigns with no raised funds or create date")
+    void getAll_Pagination_ShouldPageAcrossNullSortKeys() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            Campaign campaign = createCampaignInDb("Null Key Campaign " + i, testCompany, CampaignStatus.APPROVED);
+            if (i % 2 == 0) {
+                campaign.setRaisedFunds(null);
+                campaign.setCreateDate(null);
+                campaignRepo.save(campaign);
+            }
+        }
+
+        for (String sort : List.of("RAISED_FUNDS", "CREATE_DATE", "END_DATE", "FUNDING_PROGRESS")) {
+            List<String> names = new ArrayList<>();
+            String cursor = null;
+            do {
+                var request = get("/api/campaigns").param("size", "1").param("sort", sort).param("direction", "DESC");
+                if (cursor != null) {
+                    request.param("cursor", cursor);
+                }
+                String response = mockMvc.perform(request)
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                names.addAll(JsonPath.read(response, "$.campaigns[*].name"));
+                cursor = JsonPath.read(response, "$.nextCursor");
+            } while (cursor != null);
+
+            Assertions.assertEquals(4, names.stream().distinct().count(), sort);
+        }
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should sort by funding progress")
+    void getAll_SortByFundingProgress_ShouldOrderCampaigns() throws Exception {
+        Campaign low = createCampaignInDb("Low Progress", testCompany, CampaignStatus.APPROVED);
+        low.setRaisedFunds(new BigDecimal("100"));
+        campaignRepo.save(low);
+        Campaign high = createCampaignInDb("High Progress", testCompany, CampaignStatus.APPROVED);
+        high.setRaisedFunds(new BigDecimal("9000"));
+        campaignRepo.save(high);
+
+        mockMvc.perform(get("/api/campaigns")
+                        .param("sort", "FUNDING_PROGRESS")
+                        .param("direction", "DESC"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns[0].name", is("High Progress")))
+                .andExpect(jsonPath("$.campaigns[1].name", is("Low Progress")));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should filter by company type")
+    void getAll_FilterByCompanyType_ShouldReturnMatching() throws Exception {
+        createCampaignInDb("Typed Campaign", testCompany, CampaignStatus.APPROVED);
+
+        mockMvc.perform(get("/api/campaigns").param("companyTypeId", testType.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(1)));
+
+        mockMvc.perform(get("/api/campaigns").param("companyTypeId", "99999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(0)));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/campaigns - Should page a filtered public feed through the cursor")
+    void getAll_AsRegularUser_FilteredPagination_ShouldFollowCursor() throws Exception {
+        for (int i = 1; i <= 3; i++) {
+            createCampaignInDb("Running Campaign " + i, testCompany, CampaignStatus.APPROVED);
+        }
+        Campaign ended = createCampaignInDb("Ended Campaign", testCompany, CampaignStatus.APPROVED);
+        ended.setEndDate(LocalDate.now().minusDays(1));
+        campaignRepo.save(ended);
+        campaignFeedService.rebuild();
+
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/campaigns").param("size", "2").param("from", LocalDate.now().toString());
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            String response = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            names.addAll(JsonPath.read(response, "$.campaigns[*].name"));
+            cursor = JsonPath.read(response, "$.nextCursor");
+        } while (cursor != null);
+
+        Assertions.assertEquals(List.of("Running Campaign 3", "Running Campaign 2", "Running Campaign 1"), names);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should return 400 for a malformed cursor")
+    void getAll_InvalidCursor_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/campaigns").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns - Should return 400 for an oversized page")
+    void getAll_PageTooLarge_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/campaigns").param("size", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //  Search Tests 
+
+    @Test
+    @DisplayName("GET /api/campaigns/search - Should rank name matches first and match prefixes")
+    void search_ShouldRankAndMatchPrefixes() throws Exception {
+        Campaign water = createCampaignInDb("Clean Water Wells", testCompany, CampaignStatus.APPROVED);
+        Campaign school = createCampaignInDb("School Supplies", testCompany, CampaignStatus.APPROVED);
+        school.setDescription("Books and clean water bottles for pupils");
+        campaignRepo.save(school);
+        createCampaignInDb("Animal Shelter", testCompany, CampaignStatus.APPROVED);
+        campaignFeedService.rebuild();
+
+        mockMvc.perform(get("/api/campaigns/search").param("q", "wat"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(2)))
+                .andExpect(jsonPath("$.campaigns[0].id", is(water.getId())))
+                .andExpect(jsonPath("$.campaigns[1].id", is(school.getId())));
+    }
+
+    @Test
+    @DisplayName("GET /api/campaigns/search - Should return 400 for a blank query")
+    void search_BlankQuery_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/campaigns/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(authorities = "PERMISSION_Archive campaign")
+    @DisplayName("GET /api/campaigns/search - Should drop archived campaigns from the index")
+    void search_AfterArchive_ShouldNotReturnCampaign() throws Exception {
+        Campaign saved = createCampaignInDb("Searchable Campaign", testCompany, CampaignStatus.APPROVED);
+        campaignFeedService.rebuild();
+
+        mockMvc.perform(get("/api/campaigns/search").param("q", "searchable"))
+                .andExpect(jsonPath("$.campaigns", hasSize(1)));
+
+        mockMvc.perform(post("/api/campaigns/archive/{id}", saved.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/campaigns/search").param("q", "searchable"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(0)));
+    }
+
+    //  Rankings Tests 
+
+    @Test
+    @DisplayName("GET /api/campaigns/rankings - Should rank public campaigns by recent donations")
+    void rankings_ShouldOrderByWindowTotal() throws Exception {
+        Campaign first = createCampaignInDb("Trending First", testCompany, CampaignStatus.APPROVED);
+        Campaign second = createCampaignInDb("Trending Second", testCompany, CampaignStatus.APPROVED);
+        Campaign archived = createCampaignInDb("Trending Archived", testCompany, CampaignStatus.ARCHIVED);
+        campaignFeedService.rebuild();
+        campaignRankingService.rebuild();
+
+        campaignRankingService.record(second.getId(), 2_500L, LocalDateTime.now());
+        campaignRankingService.record(first.getId(), 4_000L, LocalDateTime.now());
+        campaignRankingService.record(archived.getId(), 9_000L, LocalDateTime.now());
+
+        mockMvc.perform(get("/api/campaigns/rankings").param("window", "LAST_24_HOURS"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.window", is("LAST_24_HOURS")))
+                .andExpect(jsonPath("$.campaigns", hasSize(2)))
+                .andExpect(jsonPath("$.campaigns[0].campaign.id", is(first.getId())))
+                .andExpect(jsonPath("$.campaigns[0].amount", is(40.0)))
+                .andExpect(jsonPath("$.campaigns[1].campaign.id", is(second.getId())));
+
+        mockMvc.perform(get("/api/campaigns/rankings").param("window", "LAST_24_HOURS").param("limit", "1"))
+                .andExpect(jsonPath("$.campaigns", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("GET /api/campaigns/rankings - Should return 400 for an oversized limit")
+    void rankings_LimitTooLarge_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/campaigns/rankings").param("limit", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //  Export Tests 
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns/export - Should stream every campaign as a JSON array")
+    void export_AsAdmin_ShouldStreamAllCampaigns() throws Exception {
+        createCampaignInDb("Export One", testCompany, CampaignStatus.APPROVED);
+        createCampaignInDb("Export Two", testCompany, CampaignStatus.ARCHIVED);
+
+        MvcResult result = mockMvc.perform(get("/api/campaigns/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder("Export One", "Export Two")));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/campaigns/export - Should stream one campaign per line as NDJSON")
+    void export_Ndjson_ShouldWriteOneLinePerCampaign() throws Exception {
+        createCampaignInDb("Export One", testCompany, CampaignStatus.APPROVED);
+        createCampaignInDb("Export Two", testCompany, CampaignStatus.APPROVED);
+
+        MvcResult result = mockMvc.perform(get("/api/campaigns/export").param("format", "NDJSON"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        Assertions.assertEquals(2, body.lines().count());
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/campaigns/export - Should return 403 for non-admins")
+    void export_AsRegularUser_ShouldReturn403() throws Exception {
+        mockMvc.perform(get("/api/campaigns/export"))
+                .andExpect(status().isForbidden());
+    }
+
     //  Get Campaign By ID Tests 
 
     @Test
@@ -361,6 +668,27 @@ class CampaignControllerIntegrationTest {
         Assertions.assertEquals("Updated description", dbCampaign.getDescription());
     }
 
+    @Test
+    @WithMockUser(authorities = "PERMISSION_Update campaign")
+    @DisplayName("PUT /api/campaigns - Should refresh the public feed")
+    void update_ShouldRefreshPublicFeed() throws Exception {
+        Campaign saved = createCampaignInDb("Before Update", testCompany, CampaignStatus.APPROVED);
+        campaignFeedService.rebuild();
+
+        CampaignUpdateReq updateReq = new CampaignUpdateReq();
+        updateReq.setId(saved.getId());
+        updateReq.setName("After Update");
+
+        mockMvc.perform(put("/api/campaigns")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updateReq)))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/campaigns"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns[*].name", contains("After Update")));
+    }
+
     @Test
     @WithMockUser
     @DisplayName("PUT /api/campaigns - Should return 403 without proper authority")
@@ -396,6 +724,24 @@ class CampaignControllerIntegrationTest {
         Assertions.assertEquals(CampaignStatus.ARCHIVED, dbCampaign.getStatus());
     }
 
+    @Test
+    @WithMockUser(authorities = "PERMISSION_Archive campaign")
+    @DisplayName("POST /api/campaigns/archive/{id} - Should drop the campaign from the public feed")
+    void archive_ShouldRemoveFromPublicFeed() throws Exception {
+        Campaign saved = createCampaignInDb("Feed Campaign", testCompany, CampaignStatus.APPROVED);
+        campaignFeedService.rebuild();
+
+        mockMvc.perform(get("/api/campaigns"))
+                .andExpect(jsonPath("$.campaigns", hasSize(1)));
+
+        mockMvc.perform(post("/api/campaigns/archive/{id}", saved.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/campaigns"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.campaigns", hasSize(0)));
+    }
+
     @Test
     @WithMockUser
     @DisplayName("POST /api/campaigns/archive/{id} - Should return 403 without proper authority")
@@ -434,6 +780,18 @@ class CampaignControllerIntegrationTest {
 
     //  Helper Methods 
 
+    private long countQueries(ThrowingRunnable request) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        request.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
     private Campaign createCampaignInDb(String name, Company company, CampaignStatus status) {
         Campaign c = new Campaign();
         c.setName(name);
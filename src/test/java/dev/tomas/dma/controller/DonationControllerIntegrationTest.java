@@ -11,6 +11,9 @@ import dev.tomas.dma.enums.CampaignStatus;
 import dev.tomas.dma.enums.CompanyStatus;
 import dev.tomas.dma.enums.UserRole;
 import dev.tomas.dma.repository.*;
+import dev.tomas.dma.service.DonationAnalyticsService;
+import dev.tomas.dma.service.DonationInboxService;
+import dev.tomas.dma.service.DonationService;
 import dev.tomas.dma.service.ExternalStorageService;
 import dev.tomas.dma.service.PaymentService;
 import dev.tomas.dma.service.TicketService;
@@ -19,18 +22,28 @@ import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -71,6 +84,18 @@ class DonationControllerIntegrationTest {
     @Autowired
     private EntityManager entityManager;
 
+    @Autowired
+    private DonationService donationService;
+
+    @Autowired
+    private DonationInboxService donationInboxService;
+
+    @Autowired
+    private DonationInboxRepo donationInboxRepo;
+
+    @Autowired
+    private DonationAnalyticsService donationAnalyticsService;
+
     @MockitoBean
     private PaymentService paymentService;
 
@@ -88,6 +113,7 @@ class DonationControllerIntegrationTest {
     @BeforeEach
     void setUp() throws Exception {
         // Clean up in reverse order of dependencies
+        donationInboxRepo.deleteAll();
         donationRepository.deleteAll();
         campaignRepo.deleteAll();
 
@@ -158,11 +184,12 @@ class DonationControllerIntegrationTest {
         // Mock PaymentService
         PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
         when(mockPaymentIntent.getClientSecret()).thenReturn("test_client_secret_12345");
-        when(paymentService.createPaymentIntent(any())).thenReturn(mockPaymentIntent);
+        when(paymentService.createPaymentIntent(any())).thenReturn(CompletableFuture.completedFuture(mockPaymentIntent));
     }
 
     @AfterEach
     void tearDown() {
+        donationInboxRepo.deleteAll();
         donationRepository.deleteAll();
         campaignRepo.deleteAll();
 
@@ -194,13 +221,39 @@ class DonationControllerIntegrationTest {
         request.setUserId(testUser.getId());
         request.setAmount(5000L); // $50.00 in cents
 
-        mockMvc.perform(post("/api/donations")
+        MvcResult result = mockMvc.perform(post("/api/donations")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.clientSecret", is("test_client_secret_12345")));
     }
 
+    @Test
+    @WithMockUser
+    @DisplayName("POST /api/donations - Should return 503 when the payment provider is saturated")
+    void donate_ProviderBusy_ShouldReturn503() throws Exception {
+        when(paymentService.createPaymentIntent(any())).thenReturn(CompletableFuture.failedFuture(
+                new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Payment provider is busy, try again shortly")));
+        DonationDTO request = new DonationDTO();
+        request.setCampaignId(testCampaign.getId());
+        request.setUserId(testUser.getId());
+        request.setAmount(5000L);
+
+        MvcResult result = mockMvc.perform(post("/api/donations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message", is("Payment provider is busy, try again shortly")));
+    }
+
     @Test
     @DisplayName("POST /api/donations - Should return 401 without authentication")
     void donate_WithoutAuth_ShouldReturn401() throws Exception {
@@ -263,6 +316,229 @@ class DonationControllerIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/user/{userId}/history - Should page through donations newest first with a cursor")
+    void getHistory_ShouldPageWithCursor() throws Exception {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 5; i++) {
+            Donation donation = createDonationInDb(testUser, testCampaign, 100L + i);
+            donation.setDate(now.minusHours(i));
+            donationRepository.save(donation);
+        }
+
+        String first = mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations[*].amount", contains(100, 101)))
+                .andExpect(jsonPath("$.nextCursor", notNullValue()))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(first).get("nextCursor").asText();
+
+        String second = mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations[*].amount", contains(102, 103)))
+                .andReturn().getResponse().getContentAsString();
+        cursor = objectMapper.readTree(second).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations[*].amount", contains(104)))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/user/{userId}/history - Should return lifetime totals kept up to date by saved donations")
+    void getHistory_ShouldIncludeDonorSummary() throws Exception {
+        Campaign secondCampaign = new Campaign();
+        secondCampaign.setName("Second Donation Test Campaign " + System.currentTimeMillis());
+        secondCampaign.setCompany(testCompany);
+        secondCampaign.setStatus(CampaignStatus.ACTIVE);
+        secondCampaign.setCreateDate(LocalDate.now());
+        secondCampaign.setDescription("Second test campaign for donation tests");
+        secondCampaign.setRemainingFunds(BigDecimal.ZERO);
+        secondCampaign.setAvailableFunds(BigDecimal.ZERO);
+        secondCampaign.setRaisedFunds(BigDecimal.ZERO);
+        secondCampaign.setFundGoal(new BigDecimal("10000"));
+        secondCampaign = campaignRepo.save(secondCampaign);
+
+        for (Integer campaignId : List.of(testCampaign.getId(), testCampaign.getId(), secondCampaign.getId())) {
+            DonationDTO dto = new DonationDTO();
+            dto.setCampaignId(campaignId);
+            dto.setUserId(testUser.getId());
+            dto.setAmount(2_500L);
+            donationService.save(dto);
+        }
+
+        mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations", hasSize(3)))
+                .andExpect(jsonPath("$.totalAmount", is(7_500)))
+                .andExpect(jsonPath("$.donationCount", is(3)))
+                .andExpect(jsonPath("$.campaignCount", is(2)));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/user/{userId}/history - Should page on through undated legacy donations")
+    void getHistory_ShouldPageThroughUndatedDonations() throws Exception {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Donation dated = createDonationInDb(testUser, testCampaign, 100L);
+        dated.setDate(now);
+        donationRepository.save(dated);
+        for (int i = 1; i <= 3; i++) {
+            Donation undated = createDonationInDb(testUser, testCampaign, 100L + i);
+            undated.setDate(null);
+            donationRepository.save(undated);
+        }
+
+        String first = mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations[*].amount", contains(100, 103)))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(first).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donations[*].amount", contains(102, 101)))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/user/{userId}/history - Should return 400 for a cursor it didn't issue")
+    void getHistory_InvalidCursor_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/donations/user/{userId}/history", testUser.getId()).param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //  Time Series Tests
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/campaign/{campaignId}/timeseries - Should return hourly buckets kept up by saved donations")
+    void getTimeSeries_ShouldReturnHourlyBuckets() throws Exception {
+        LocalDateTime hour = LocalDateTime.now().minusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        saveDonation(1_000L, hour.plusMinutes(15));
+        saveDonation(2_500L, hour.plusMinutes(45));
+        saveDonation(400L, hour.plusHours(2));
+
+        mockMvc.perform(get("/api/donations/campaign/{campaignId}/timeseries", testCampaign.getId())
+                        .param("granularity", "HOUR")
+                        .param("from", hour.minusHours(1).toString())
+                        .param("to", hour.plusHours(2).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity", is("HOUR")))
+                .andExpect(jsonPath("$.buckets", hasSize(4)))
+                .andExpect(jsonPath("$.buckets[*].amount", contains(0, 3_500, 0, 400)))
+                .andExpect(jsonPath("$.buckets[1].donationCount", is(2)));
+
+        mockMvc.perform(get("/api/donations/campaign/{campaignId}/timeseries", testCampaign.getId())
+                        .param("granularity", "DAY")
+                        .param("from", hour.toString())
+                        .param("to", hour.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets", hasSize(1)))
+                .andExpect(jsonPath("$.buckets[0].amount", is(3_900)))
+                .andExpect(jsonPath("$.buckets[0].donationCount", is(3)));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/campaign/{campaignId}/timeseries - Should return 400 for too many buckets")
+    void getTimeSeries_RangeTooLarge_ShouldReturn400() throws Exception {
+        mockMvc.perform(get("/api/donations/campaign/{campaignId}/timeseries", testCampaign.getId())
+                        .param("granularity", "HOUR")
+                        .param("from", LocalDateTime.now().minusYears(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    @DisplayName("POST /api/donations/rollups/rebuild - Should rebuild the same buckets from history")
+    void rebuildRollups_ShouldMatchIncrementalBuckets() throws Exception {
+        LocalDateTime hour = LocalDateTime.now().minusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+        saveDonation(1_000L, hour.plusMinutes(15));
+        saveDonation(2_500L, hour.plusHours(3));
+        // Written around the rollups, only a rebuild picks it up
+        Donation direct = createDonationInDb(testUser, testCampaign, 700L);
+        direct.setDate(hour.plusMinutes(30));
+        donationRepository.save(direct);
+
+        mockMvc.perform(post("/api/donations/rollups/rebuild"))
+                .andExpect(status().isOk())
+                // Two hours and one day
+                .andExpect(content().string("3"));
+
+        mockMvc.perform(get("/api/donations/campaign/{campaignId}/timeseries", testCampaign.getId())
+                        .param("granularity", "HOUR")
+                        .param("from", hour.toString())
+                        .param("to", hour.plusHours(3).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.buckets[*].amount", contains(1_700, 0, 0, 2_500)));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("POST /api/donations/rollups/rebuild - Should return 403 for non-admin users")
+    void rebuildRollups_NonAdmin_ShouldReturn403() throws Exception {
+        mockMvc.perform(post("/api/donations/rollups/rebuild"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    @WithMockUser(authorities = "ROLE_ADMIN")
+    @DisplayName("GET /api/donations/reports - Should group saved donations by company type")
+    void getReport_ByCompanyType_ShouldReturnTotals() throws Exception {
+        // Drop donations from earlier tests, which the store keeps for the life of the context
+        donationAnalyticsService.rebuild();
+        saveDonation(1_000L, LocalDateTime.now().minusDays(2));
+        saveDonation(2_500L, LocalDateTime.now().minusDays(1));
+
+        mockMvc.perform(get("/api/donations/reports")
+                        .param("groupBy", "COMPANY_TYPE")
+                        .param("companyTypeId", testType.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", hasSize(1)))
+                .andExpect(jsonPath("$.rows[0].key").value(testType.getName()))
+                .andExpect(jsonPath("$.rows[0].amount").value(3_500))
+                .andExpect(jsonPath("$.totalAmount").value(3_500))
+                .andExpect(jsonPath("$.donationCount").value(2));
+
+        mockMvc.perform(get("/api/donations/reports")
+                        .param("groupBy", "CAMPAIGN")
+                        .param("from", LocalDate.now().minusDays(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows[0].key").value(testCampaign.getName()))
+                .andExpect(jsonPath("$.totalAmount").value(2_500));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/campaigns/{id} - Should count each donor once")
+    void save_ShouldCountDistinctDonors() throws Exception {
+        saveDonation(1_000L, LocalDateTime.now());
+        saveDonation(2_000L, LocalDateTime.now());
+
+        mockMvc.perform(get("/api/campaigns/{id}", testCampaign.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.donorCount").value(1));
+        mockMvc.perform(get("/api/companies/{id}/donor-count", testCompany.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().string("1"));
+        mockMvc.perform(get("/api/donations/donor-count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", greaterThanOrEqualTo(1)));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/donations/reports - Should return 403 for non-admin users")
+    void getReport_NonAdmin_ShouldReturn403() throws Exception {
+        mockMvc.perform(get("/api/donations/reports"))
+                .andExpect(status().isForbidden());
+    }
+
     //  Multiple Users Donations Tests 
 
     @Test
@@ -317,25 +593,125 @@ class DonationControllerIntegrationTest {
     }
 
     @Test
-    @DisplayName("POST /api/donations/webhook - Should create donation on successful payment")
+    @DisplayName("POST /api/donations/webhook - Should journal the payment and create the donation when the inbox drains")
     void handleWebhook_SuccessfulPayment_ShouldCreateDonation() throws Exception {
-        String payload = "{\"type\": \"payment_intent.succeeded\"}";
         Long donationAmount = 5000L;
 
-        // Mock PaymentIntent with metadata
+        postSucceededPayment("evt_success", testCampaign.getId(), donationAmount)
+                .andExpect(status().isOk())
+                .andExpect(content().string("Success"));
+
+        // The webhook only journals the payment
+        Assertions.assertEquals(1, donationInboxRepo.count());
+        Assertions.assertEquals(0, donationRepository.count());
+        verify(paymentService).forgetPaymentIntent(argThat(dto ->
+                dto.getCampaignId().equals(testCampaign.getId()) && dto.getAmount().equals(donationAmount)));
+
+        Assertions.assertEquals(1, donationInboxService.drain());
+
+        entityManager.clear();
+        List<Donation> donations = entityManager
+                .createQuery("SELECT d FROM Donation d WHERE d.user.id = :userId", Donation.class)
+                .setParameter("userId", testUser.getId())
+                .getResultList();
+
+        Assertions.assertEquals(1, donations.size());
+        Donation dbDonation = donations.get(0);
+        Assertions.assertEquals(donationAmount, dbDonation.getAmount());
+        Assertions.assertEquals(testUser.getId(), dbDonation.getUser().getId());
+        Assertions.assertEquals(testCampaign.getId(), dbDonation.getCampaign().getId());
+        Assertions.assertEquals(0, new BigDecimal("50.00").compareTo(
+                campaignRepo.findById(testCampaign.getId()).orElseThrow().getRaisedFunds()));
+
+        DonationInboxEntry entry = donationInboxRepo.findAll().getFirst();
+        Assertions.assertNotNull(entry.getProcessedAt());
+        Assertions.assertNull(entry.getError());
+    }
+
+    @Test
+    @DisplayName("POST /api/donations/webhook - Should count a redelivered event only once")
+    void handleWebhook_DuplicateEvent_ShouldCreateOneDonation() throws Exception {
+        postSucceededPayment("evt_duplicate", testCampaign.getId(), 1000L)
+                .andExpect(status().isOk())
+                .andExpect(content().string("Success"));
+        postSucceededPayment("evt_duplicate", testCampaign.getId(), 1000L)
+                .andExpect(status().isOk())
+                .andExpect(content().string("Duplicate"));
+
+        Assertions.assertEquals(1, donationInboxRepo.count());
+        donationInboxService.drain();
+        Assertions.assertEquals(1, donationRepository.count());
+    }
+
+    @Test
+    @DisplayName("POST /api/donations/webhook - Should reject a payment for an unknown campaign when draining")
+    void handleWebhook_UnknownCampaign_ShouldBeRejected() throws Exception {
+        postSucceededPayment("evt_unknown", 999999, 1000L).andExpect(status().isOk());
+
+        Assertions.assertEquals(1, donationInboxService.drain());
+
+        Assertions.assertEquals(0, donationRepository.count());
+        DonationInboxEntry entry = donationInboxRepo.findAll().getFirst();
+        Assertions.assertNotNull(entry.getProcessedAt());
+        Assertions.assertEquals("Campaign not found with id: 999999", entry.getError());
+        // Nothing left for the next batch
+        Assertions.assertEquals(0, donationInboxService.drain());
+    }
+
+    //  Concurrency Tests 
+
+    @Test
+    @DisplayName("Concurrent donations to one campaign should add up to the exact cent")
+    void save_ConcurrentDonations_ShouldNotLoseUpdates() throws Exception {
+        int donations = 2_000;
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        long expectedCents = 0;
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < donations; i++) {
+                // Odd amounts so any lost or truncated cent shows up in the total
+                long amount = 1 + (i % 997);
+                expectedCents += amount;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    DonationDTO dto = new DonationDTO();
+                    dto.setCampaignId(testCampaign.getId());
+                    dto.setUserId(testUser.getId());
+                    dto.setAmount(amount);
+                    donationService.save(dto);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        entityManager.clear();
+        Campaign dbCampaign = campaignRepo.findById(testCampaign.getId()).orElseThrow();
+        Assertions.assertEquals(0, BigDecimal.valueOf(expectedCents, 2).compareTo(dbCampaign.getRaisedFunds()));
+        Assertions.assertEquals(donations, donationRepository.count());
+    }
+
+    //  Helper Methods
+
+    private ResultActions postSucceededPayment(String eventId, Integer campaignId, Long amount) throws Exception {
         PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
+        when(mockPaymentIntent.getId()).thenReturn("pi_" + eventId);
         when(mockPaymentIntent.getMetadata()).thenReturn(Map.of(
-                "campaignId", testCampaign.getId().toString(),
+                "campaignId", campaignId.toString(),
                 "userId", testUser.getId().toString()
         ));
-        when(mockPaymentIntent.getAmount()).thenReturn(donationAmount);
+        when(mockPaymentIntent.getAmount()).thenReturn(amount);
 
-        // Mock EventDataObjectDeserializer
         EventDataObjectDeserializer mockDeserializer = mock(EventDataObjectDeserializer.class);
         when(mockDeserializer.getObject()).thenReturn(Optional.of(mockPaymentIntent));
 
-        // Mock Event
         Event mockEvent = mock(Event.class);
+        when(mockEvent.getId()).thenReturn(eventId);
         when(mockEvent.getType()).thenReturn("payment_intent.succeeded");
         when(mockEvent.getDataObjectDeserializer()).thenReturn(mockDeserializer);
 
@@ -343,28 +719,21 @@ class DonationControllerIntegrationTest {
             webhookMock.when(() -> Webhook.constructEvent(anyString(), anyString(), anyString()))
                     .thenReturn(mockEvent);
 
-            mockMvc.perform(post("/api/donations/webhook")
-                            .contentType(MediaType.APPLICATION_JSON)
-                            .content(payload)
-                            .header("Stripe-Signature", "valid_signature"))
-                    .andExpect(status().isOk())
-                    .andExpect(content().string("Success"));
+            return mockMvc.perform(post("/api/donations/webhook")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"type\": \"payment_intent.succeeded\"}")
+                    .header("Stripe-Signature", "valid_signature"));
         }
-
-        entityManager.clear();
-        List<Donation> donations = entityManager
-                .createQuery("SELECT d FROM Donation d WHERE d.user.id = :userId", Donation.class)
-                .setParameter("userId", testUser.getId())
-                .getResultList();
-
-        Assertions.assertEquals(1, donations.size());
-        Donation dbDonation = donations.get(0);
-        Assertions.assertEquals(donationAmount, dbDonation.getAmount());
-        Assertions.assertEquals(testUser.getId(), dbDonation.getUser().getId());
-        Assertions.assertEquals(testCampaign.getId(), dbDonation.getCampaign().getId());
     }
 
-    //  Helper Methods
+    private void saveDonation(Long amount, LocalDateTime date) {
+        DonationDTO dto = new DonationDTO();
+        dto.setCampaignId(testCampaign.getId());
+        dto.setUserId(testUser.getId());
+        dto.setAmount(amount);
+        dto.setDate(date);
+        donationService.save(dto);
+    }
 
     private Donation createDonationInDb(User user, Campaign campaign, Long amount) {
         Donation donation = new Donation();
@@ -17,6 +17,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 
@@ -134,6 +135,30 @@ class TicketControllerIntegrationTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    //  Export Tests 
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @DisplayName("GET /api/tickets/export - Should stream every ticket as a JSON array")
+    void export_AsAdmin_ShouldStreamAllTickets() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/tickets/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[*].name", containsInAnyOrder("Open Ticket", "Closed Ticket")));
+    }
+
+    @Test
+    @WithMockUser
+    @DisplayName("GET /api/tickets/export - Should return 403 for non-admins")
+    void export_AsRegularUser_ShouldReturn403() throws Exception {
+        mockMvc.perform(get("/api/tickets/export"))
+                .andExpect(status().isForbidden());
+    }
+
     //  Get Ticket By ID Tests 
 
     @Test
@@ -1,17 +1,24 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.request.AuthReq;
+import dev.tomas.dma.dto.request.UserAvailabilityReq;
 import dev.tomas.dma.dto.request.UserRegisterReq;
 import dev.tomas.dma.dto.response.AuthRes;
+import dev.tomas.dma.dto.common.AuthPrincipal;
 import dev.tomas.dma.dto.response.AuthUserRes;
+import dev.tomas.dma.dto.response.UserAvailabilityRes;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.CompanyRole;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.enums.UserRole;
-import dev.tomas.dma.repository.TicketRepo;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.CompanyActivationService;
 import dev.tomas.dma.service.JWTService;
+import dev.tomas.dma.service.PasswordHashingService;
+import dev.tomas.dma.service.PrincipalCacheService;
 import dev.tomas.dma.service.TicketService;
+import dev.tomas.dma.service.UserAvailabilityService;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -20,20 +27,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.DisabledException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.sql.SQLException;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,16 +59,19 @@ class AuthServiceImplTest {
     private JWTService jwtService;
 
     @Mock
-    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Mock
-    private AuthenticationManager authManager;
+    private TicketService ticketService;
 
     @Mock
-    private TicketService ticketService;
+    private CompanyActivationService companyActivationService;
 
     @Mock
-    private TicketRepo ticketRepo;
+    private PrincipalCacheService principalCacheService;
+
+    @Mock
+    private UserAvailabilityService userAvailabilityService;
 
     @InjectMocks
     private AuthServiceImpl authService;
@@ -97,12 +113,16 @@ class AuthServiceImplTest {
     @DisplayName("Register Tests")
     class RegisterTests {
 
+        private void available() {
+            when(userAvailabilityService.isEmailAvailable("new@example.com")).thenReturn(true);
+            when(userAvailabilityService.isUsernameAvailable("newuser")).thenReturn(true);
+            when(passwordHashingService.hash(anyString())).thenReturn("encodedPassword");
+        }
+
         @Test
         @DisplayName("Should register new user successfully as DONOR")
         void register_Success_AsDonor() {
-            when(userRepo.findByEmail(anyString())).thenReturn(Optional.empty());
-            when(userRepo.findByUsername(anyString())).thenReturn(Optional.empty());
-            when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+            available();
             when(userRepo.save(any(User.class))).thenAnswer(invocation -> {
                 User user = invocation.getArgument(0);
                 user.setId(1);
@@ -118,7 +138,10 @@ class AuthServiceImplTest {
             assertThat(result.getUser().getEmail()).isEqualTo("new@example.com");
 
             verify(userRepo).save(any(User.class));
-            verify(passwordEncoder).encode("password123");
+            verify(passwordHashingService).hash("password123");
+            verify(userAvailabilityService).registered("new@example.com", "newuser");
+            verify(userRepo, never()).findByEmail(anyString());
+            verify(userRepo, never()).findByUsername(anyString());
         }
 
         @Test
@@ -126,9 +149,7 @@ class AuthServiceImplTest {
         void register_Success_AsCompanyAccount() {
             registerRequest.setCompanyAccount(true);
 
-            when(userRepo.findByEmail(anyString())).thenReturn(Optional.empty());
-            when(userRepo.findByUsername(anyString())).thenReturn(Optional.empty());
-            when(passwordEncoder.encode(anyString())).thenReturn("encodedPassword");
+            available();
             when(userRepo.save(any(User.class))).thenAnswer(invocation -> {
                 User user = invocation.getArgument(0);
                 user.setId(1);
@@ -143,29 +164,111 @@ class AuthServiceImplTest {
         }
 
         @Test
-        @DisplayName("Should throw DuplicateKeyException when email already exists")
+        @DisplayName("Should throw DuplicateKeyException when email already exists, before hashing")
         void register_ThrowsException_WhenEmailExists() {
-            when(userRepo.findByEmail("new@example.com")).thenReturn(Optional.of(testUser));
+            when(userAvailabilityService.isEmailAvailable("new@example.com")).thenReturn(false);
 
             assertThatThrownBy(() -> authService.register(registerRequest))
                     .isInstanceOf(DuplicateKeyException.class)
                     .hasMessage("Email already exists");
 
+            verify(passwordHashingService, never()).hash(anyString());
             verify(userRepo, never()).save(any(User.class));
         }
 
         @Test
-        @DisplayName("Should throw DuplicateKeyException when username already exists")
+        @DisplayName("Should throw DuplicateKeyException when username already exists, before hashing")
         void register_ThrowsException_WhenUsernameExists() {
-            when(userRepo.findByEmail(anyString())).thenReturn(Optional.empty());
-            when(userRepo.findByUsername("newuser")).thenReturn(Optional.of(testUser));
+            when(userAvailabilityService.isEmailAvailable("new@example.com")).thenReturn(true);
+            when(userAvailabilityService.isUsernameAvailable("newuser")).thenReturn(false);
 
             assertThatThrownBy(() -> authService.register(registerRequest))
                     .isInstanceOf(DuplicateKeyException.class)
                     .hasMessage("Username already exists");
 
+            verify(passwordHashingService, never()).hash(anyString());
             verify(userRepo, never()).save(any(User.class));
         }
+
+        @Test
+        @DisplayName("Should name the taken field from the violated constraint without another query")
+        void register_TranslatesConstraint() {
+            available();
+            when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                    new ConstraintViolationException("Duplicate entry", new SQLException(), "users.uk_users_username")));
+
+            assertThatThrownBy(() -> authService.register(registerRequest))
+                    .isInstanceOf(DuplicateKeyException.class)
+                    .hasMessage("Username already exists");
+
+            verify(userRepo, never()).existsByEmail(anyString());
+            verify(userAvailabilityService, never()).registered(anyString(), anyString());
+        }
+
+        @Test
+        @DisplayName("Should report a taken phone number as a conflict")
+        void register_TranslatesPhoneNumber() {
+            available();
+            when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                    new ConstraintViolationException("Duplicate entry", new SQLException(), User.UK_PHONE_NUMBER)));
+
+            assertThatThrownBy(() -> authService.register(registerRequest))
+                    .isInstanceOf(DuplicateKeyException.class)
+                    .hasMessage("Phone number already exists");
+        }
+
+        @Test
+        @DisplayName("Should look up the taken field when the constraint has another name")
+        void register_UnknownConstraint() {
+            available();
+            when(userRepo.save(any(User.class))).thenThrow(new DataIntegrityViolationException("duplicate",
+                    new ConstraintViolationException("Duplicate entry", new SQLException(), "users.UK6dotkott2kjsp8vw4d0m25fb7")));
+            when(userRepo.existsByEmail("new@example.com")).thenReturn(true);
+
+            assertThatThrownBy(() -> authService.register(registerRequest))
+                    .isInstanceOf(DuplicateKeyException.class)
+                    .hasMessage("Email already exists");
+        }
+    }
+
+    @Nested
+    @DisplayName("Availability Tests")
+    class AvailabilityTests {
+
+        @Test
+        @DisplayName("Should answer only the fields asked about")
+        void availability_UsernameOnly() {
+            UserAvailabilityReq request = new UserAvailabilityReq();
+            request.setUsername("newuser");
+            when(userAvailabilityService.tryProbe("10.0.0.1")).thenReturn(true);
+            when(userAvailabilityService.isUsernameAvailable("newuser")).thenReturn(false);
+
+            UserAvailabilityRes result = authService.availability(request, "10.0.0.1");
+
+            assertThat(result.getUsernameAvailable()).isFalse();
+            assertThat(result.getEmailAvailable()).isNull();
+            verify(userAvailabilityService, never()).isEmailAvailable(any());
+        }
+
+        @Test
+        @DisplayName("Should reject a probe without an email or username")
+        void availability_Empty() {
+            assertThatThrownBy(() -> authService.availability(new UserAvailabilityReq(), "10.0.0.1"))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
+        @Test
+        @DisplayName("Should refuse a client that has used up its probes")
+        void availability_Throttled() {
+            UserAvailabilityReq request = new UserAvailabilityReq();
+            request.setEmail("someone@example.com");
+            when(userAvailabilityService.tryProbe("10.0.0.1")).thenReturn(false);
+
+            assertThatThrownBy(() -> authService.availability(request, "10.0.0.1"))
+                    .isInstanceOf(ResponseStatusException.class)
+                    .hasMessageContaining("Too many availability checks");
+            verify(userAvailabilityService, never()).isEmailAvailable(any());
+        }
     }
 
     @Nested
@@ -175,10 +278,8 @@ class AuthServiceImplTest {
         @Test
         @DisplayName("Should login successfully with email")
         void login_Success_WithEmail() {
-            Authentication authentication = mock(Authentication.class);
-            when(authentication.getPrincipal()).thenReturn(testUser);
-            when(authManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenReturn(true);
             when(jwtService.generateToken(testUser)).thenReturn("jwt-token");
 
             AuthRes result = authService.login(authReq);
@@ -194,10 +295,8 @@ class AuthServiceImplTest {
             authReq.setEmail(null);
             authReq.setUsername("testuser");
 
-            Authentication authentication = mock(Authentication.class);
-            when(authentication.getPrincipal()).thenReturn(testUser);
-            when(authManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
+            when(userRepo.findAllByLogin("testuser")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenReturn(true);
             when(jwtService.generateToken(testUser)).thenReturn("jwt-token");
 
             AuthRes result = authService.login(authReq);
@@ -221,29 +320,68 @@ class AuthServiceImplTest {
             testUser.setCompanyRole(companyRole);
             testUser.setCompany(company);
 
-            Authentication authentication = mock(Authentication.class);
-            when(authentication.getPrincipal()).thenReturn(testUser);
-            when(authManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenReturn(authentication);
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenReturn(true);
             when(jwtService.generateToken(testUser)).thenReturn("jwt-token");
+            when(companyActivationService.isActive(1)).thenReturn(true);
 
             AuthRes result = authService.login(authReq);
 
             assertThat(result).isNotNull();
             assertThat(result.getUser().getCompanyId()).isEqualTo(1);
             assertThat(result.getUser().getCompanyRole()).isEqualTo("Manager");
+            assertThat(result.getUser().getCompanyActive()).isTrue();
         }
 
         @Test
         @DisplayName("Should throw BadCredentialsException for invalid credentials")
         void login_ThrowsException_InvalidCredentials() {
-            when(authManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-                    .thenThrow(new BadCredentialsException("Bad credentials"));
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenReturn(false);
+
+            assertThatThrownBy(() -> authService.login(authReq))
+                    .isInstanceOf(BadCredentialsException.class)
+                    .hasMessage("Invalid username/email or password");
+            verify(jwtService, never()).generateToken(any(User.class));
+        }
+
+        @Test
+        @DisplayName("Should still check a password for an unknown login, then fail the same way")
+        void login_ThrowsException_UnknownUser() {
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of());
+            when(passwordHashingService.verify(eq("password123"), isNull(), any())).thenReturn(false);
 
             assertThatThrownBy(() -> authService.login(authReq))
                     .isInstanceOf(BadCredentialsException.class)
                     .hasMessage("Invalid username/email or password");
         }
+
+        @Test
+        @DisplayName("Should store the new hash when the password was hashed at another cost")
+        void login_RehashesOutdatedHash() {
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenAnswer(invocation -> {
+                Consumer<String> rehash = invocation.getArgument(2);
+                rehash.accept("rehashedPassword");
+                return true;
+            });
+            when(jwtService.generateToken(testUser)).thenReturn("jwt-token");
+
+            authService.login(authReq);
+
+            verify(userRepo).updatePasswordHash(1, "encodedPassword", "rehashedPassword");
+        }
+
+        @Test
+        @DisplayName("Should reject a disabled account after checking its password")
+        void login_ThrowsException_Disabled() {
+            testUser.setEnabled(false);
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
+            when(passwordHashingService.verify(eq("password123"), eq("encodedPassword"), any())).thenReturn(true);
+
+            assertThatThrownBy(() -> authService.login(authReq))
+                    .isInstanceOf(DisabledException.class);
+        }
     }
 
     @Nested
@@ -255,7 +393,7 @@ class AuthServiceImplTest {
         void authMe_Success() {
             Authentication authentication = mock(Authentication.class);
             when(authentication.isAuthenticated()).thenReturn(true);
-            when(authentication.getPrincipal()).thenReturn(testUser);
+            when(authentication.getPrincipal()).thenReturn(AuthPrincipal.of(testUser));
 
             AuthUserRes result = authService.authMe(authentication);
 
@@ -283,12 +421,30 @@ class AuthServiceImplTest {
 
             Authentication authentication = mock(Authentication.class);
             when(authentication.isAuthenticated()).thenReturn(true);
-            when(authentication.getPrincipal()).thenReturn(testUser);
+            when(authentication.getPrincipal()).thenReturn(AuthPrincipal.of(testUser));
+            when(companyActivationService.isActive(1)).thenReturn(false);
 
             AuthUserRes result = authService.authMe(authentication);
 
             assertThat(result.getCompanyId()).isEqualTo(1);
             assertThat(result.getCompanyRole()).isEqualTo("Admin");
+            assertThat(result.getCompanyActive()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should load profile fields for a principal read from the token")
+        void authMe_TokenPrincipal() {
+            AuthPrincipal fromToken = new AuthPrincipal(1, "test@example.com", null, null, null, UserRole.DONOR, true,
+                    null, null, null, null, List.of(), Set.of());
+            Authentication authentication = mock(Authentication.class);
+            when(authentication.isAuthenticated()).thenReturn(true);
+            when(authentication.getPrincipal()).thenReturn(fromToken);
+            when(principalCacheService.load("test@example.com")).thenReturn(AuthPrincipal.of(testUser));
+
+            AuthUserRes result = authService.authMe(authentication);
+
+            assertThat(result.getUsername()).isEqualTo("testuser");
+            assertThat(result.getFirstName()).isEqualTo("John");
         }
     }
 
@@ -299,7 +455,7 @@ class AuthServiceImplTest {
         @Test
         @DisplayName("Should load user by username")
         void loadUserByUsername_Success_ByUsername() {
-            when(userRepo.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+            when(userRepo.findAllByLogin("testuser")).thenReturn(List.of(testUser));
 
             var result = authService.loadUserByUsername("testuser");
 
@@ -310,19 +466,31 @@ class AuthServiceImplTest {
         @Test
         @DisplayName("Should load user by email when username not found")
         void loadUserByUsername_Success_ByEmail() {
-            when(userRepo.findByUsername("test@example.com")).thenReturn(Optional.empty());
-            when(userRepo.findByEmail("test@example.com")).thenReturn(Optional.of(testUser));
+            when(userRepo.findAllByLogin("test@example.com")).thenReturn(List.of(testUser));
 
             var result = authService.loadUserByUsername("test@example.com");
 
             assertThat(result).isNotNull();
         }
 
+        @Test
+        @DisplayName("Should prefer the user whose username matches over one whose email does")
+        void loadUserByUsername_PrefersUsername() {
+            User other = new User();
+            other.setId(2);
+            other.setEmail("testuser");
+            other.setUsername("someoneelse");
+            when(userRepo.findAllByLogin("testuser")).thenReturn(List.of(other, testUser));
+
+            var result = authService.loadUserByUsername("testuser");
+
+            assertThat(result).isSameAs(testUser);
+        }
+
         @Test
         @DisplayName("Should throw UsernameNotFoundException when user not found")
         void loadUserByUsername_ThrowsException_WhenNotFound() {
-            when(userRepo.findByUsername("unknown")).thenReturn(Optional.empty());
-            when(userRepo.findByEmail("unknown")).thenReturn(Optional.empty());
+            when(userRepo.findAllByLogin("unknown")).thenReturn(List.of());
 
             assertThatThrownBy(() -> authService.loadUserByUsername("unknown"))
                     .isInstanceOf(UsernameNotFoundException.class)
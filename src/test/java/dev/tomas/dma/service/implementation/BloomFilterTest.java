@@ -0,0 +1,31 @@
+package dev.tomas.dma.service.implementation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("Should never miss a key that was added")
+    void mightContain_NoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("evt_" + i));
+
+        assertThat(IntStream.range(0, 10_000).allMatch(i -> filter.mightContain("evt_" + i))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should keep false positives close to the configured rate")
+    void mightContain_FalsePositiveRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        IntStream.range(0, 10_000).forEach(i -> filter.add("evt_" + i));
+
+        long falsePositives = IntStream.range(0, 100_000).filter(i -> filter.mightContain("pi_" + i)).count();
+
+        assertThat(falsePositives).isLessThan(2_000);
+    }
+}
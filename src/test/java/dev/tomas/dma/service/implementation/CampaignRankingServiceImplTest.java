@@ -0,0 +1,193 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.CampaignRankRow;
+import dev.tomas.dma.dto.projection.CampaignTotalRow;
+import dev.tomas.dma.dto.projection.DonationWindowRow;
+import dev.tomas.dma.enums.RankingWindow;
+import dev.tomas.dma.repository.DonationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CampaignRankingServiceImplTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 30);
+
+    @Mock
+    private DonationRepository donationRepo;
+
+    private final MutableClock clock = new MutableClock();
+
+    private CampaignRankingServiceImpl rankingService;
+
+    @BeforeEach
+    void setUp() {
+        rankingService = new CampaignRankingServiceImpl(donationRepo, clock);
+        setTime(NOW);
+        rankingService.setVisible(IntStream.rangeClosed(1, CampaignRankingServiceImpl.CAPACITY + 50).boxed().toList());
+    }
+
+    private void setTime(LocalDateTime time) {
+        clock.set(time);
+    }
+
+    private void rebuildWith(List<CampaignTotalRow> totals, List<DonationWindowRow> donations) {
+        when(donationRepo.findCampaignTotals()).thenReturn(totals);
+        when(donationRepo.findWindowRowsSince(NOW.minusHours(168))).thenReturn(donations);
+        rankingService.rebuild();
+    }
+
+    @Nested
+    @DisplayName("Rebuild Tests")
+    class RebuildTests {
+
+        @Test
+        @DisplayName("Should rank all-time totals summed from donations and windows from replayed donations")
+        void rebuild_ReplaysWindow() {
+            rebuildWith(
+                    List.of(new CampaignTotalRow(1, 50_000L), new CampaignTotalRow(2, 90_000L)),
+                    List.of(
+                            new DonationWindowRow(1, 3_000L, NOW.minusHours(2)),
+                            new DonationWindowRow(2, 1_000L, NOW.minusHours(3)),
+                            new DonationWindowRow(2, 5_000L, NOW.minusDays(3))
+                    ));
+
+            assertThat(rankingService.top(RankingWindow.ALL_TIME))
+                    .containsExactly(new CampaignRankRow(2, 90_000L), new CampaignRankRow(1, 50_000L));
+            assertThat(rankingService.top(RankingWindow.LAST_7_DAYS))
+                    .containsExactly(new CampaignRankRow(2, 6_000L), new CampaignRankRow(1, 3_000L));
+            assertThat(rankingService.top(RankingWindow.LAST_24_HOURS))
+                    .containsExactly(new CampaignRankRow(1, 3_000L), new CampaignRankRow(2, 1_000L));
+        }
+
+        @Test
+        @DisplayName("Should only read donations inside the longest window")
+        void rebuild_QueriesOnlyWindow() {
+            rebuildWith(List.of(), List.of());
+
+            verify(donationRepo).findCampaignTotals();
+            verify(donationRepo).findWindowRowsSince(NOW.minusHours(168));
+            verifyNoMoreInteractions(donationRepo);
+        }
+    }
+
+    @Nested
+    @DisplayName("Record Tests")
+    class RecordTests {
+
+        @Test
+        @DisplayName("Should move a campaign up as donations arrive")
+        void record_UpdatesRankings() {
+            rebuildWith(List.of(), List.of(new DonationWindowRow(1, 2_000L, NOW.minusHours(1))));
+
+            rankingService.record(2, 1_500L, NOW);
+            rankingService.record(2, 1_500L, NOW);
+
+            assertThat(rankingService.top(RankingWindow.LAST_24_HOURS))
+                    .containsExactly(new CampaignRankRow(2, 3_000L), new CampaignRankRow(1, 2_000L));
+            assertThat(rankingService.top(RankingWindow.ALL_TIME))
+                    .containsExactly(new CampaignRankRow(2, 3_000L));
+        }
+
+        @Test
+        @DisplayName("Should keep only the bounded number of campaigns")
+        void record_BoundedTopList() {
+            rebuildWith(List.of(), List.of());
+
+            for (int id = 1; id <= CampaignRankingServiceImpl.CAPACITY + 50; id++) {
+                rankingService.record(id, id, NOW);
+            }
+
+            List<CampaignRankRow> top = rankingService.top(RankingWindow.LAST_24_HOURS);
+            assertThat(top).hasSize(CampaignRankingServiceImpl.CAPACITY);
+            assertThat(top.getFirst()).isEqualTo(new CampaignRankRow(CampaignRankingServiceImpl.CAPACITY + 50, CampaignRankingServiceImpl.CAPACITY + 50));
+            assertThat(top.getLast()).isEqualTo(new CampaignRankRow(51, 51L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Window Expiry Tests")
+    class WindowExpiryTests {
+
+        @Test
+        @DisplayName("Should drop donations from the trending windows as hours pass")
+        void top_ExpiresOldHours() {
+            rebuildWith(List.of(), List.of());
+            rankingService.record(1, 1_000L, NOW);
+
+            setTime(NOW.plusHours(25));
+            assertThat(rankingService.top(RankingWindow.LAST_24_HOURS)).isEmpty();
+            assertThat(rankingService.top(RankingWindow.LAST_7_DAYS)).containsExactly(new CampaignRankRow(1, 1_000L));
+
+            setTime(NOW.plusDays(8));
+            assertThat(rankingService.top(RankingWindow.LAST_7_DAYS)).isEmpty();
+            assertThat(rankingService.top(RankingWindow.ALL_TIME)).containsExactly(new CampaignRankRow(1, 1_000L));
+        }
+
+        @Test
+        @DisplayName("Should not count a reused ring slot twice after a week")
+        void record_ReusesRingSlot() {
+            rebuildWith(List.of(), List.of());
+            rankingService.record(1, 1_000L, NOW);
+
+            setTime(NOW.plusHours(168));
+            rankingService.record(1, 200L, NOW.plusHours(168));
+
+            assertThat(rankingService.top(RankingWindow.LAST_7_DAYS)).containsExactly(new CampaignRankRow(1, 200L));
+        }
+    }
+
+    @Nested
+    @DisplayName("Visibility Tests")
+    class VisibilityTests {
+
+        @Test
+        @DisplayName("Should rank a visible campaign even when more than the list holds outrank it hidden")
+        void setVisible_HiddenDontTakePlaces() {
+            int visibleId = CampaignRankingServiceImpl.CAPACITY + 100;
+            List<CampaignTotalRow> totals = new ArrayList<>(IntStream.rangeClosed(1, CampaignRankingServiceImpl.CAPACITY + 50)
+                    .mapToObj(id -> new CampaignTotalRow(id, 1_000_000L + id)).toList());
+            totals.add(new CampaignTotalRow(visibleId, 10L));
+            rankingService.setVisible(List.of(visibleId));
+            rebuildWith(totals, List.of());
+
+            assertThat(rankingService.top(RankingWindow.ALL_TIME)).containsExactly(new CampaignRankRow(visibleId, 10L));
+        }
+
+        @Test
+        @DisplayName("Should drop a campaign leaving the feed and let the next one move up")
+        void setVisible_LeavingFeed() {
+            rebuildWith(List.of(new CampaignTotalRow(1, 5_000L), new CampaignTotalRow(2, 3_000L)), List.of());
+
+            rankingService.setVisible(1, false);
+
+            assertThat(rankingService.top(RankingWindow.ALL_TIME)).containsExactly(new CampaignRankRow(2, 3_000L));
+        }
+
+        @Test
+        @DisplayName("Should rank a campaign once it enters the feed, with the donations it already had")
+        void setVisible_EnteringFeed() {
+            rankingService.setVisible(List.of());
+            rebuildWith(List.of(new CampaignTotalRow(7, 4_000L)), List.of());
+            rankingService.record(7, 1_000L, NOW);
+            assertThat(rankingService.top(RankingWindow.ALL_TIME)).isEmpty();
+
+            rankingService.setVisible(7, true);
+
+            assertThat(rankingService.top(RankingWindow.ALL_TIME)).containsExactly(new CampaignRankRow(7, 5_000L));
+            assertThat(rankingService.top(RankingWindow.LAST_24_HOURS)).containsExactly(new CampaignRankRow(7, 1_000L));
+        }
+    }
+}
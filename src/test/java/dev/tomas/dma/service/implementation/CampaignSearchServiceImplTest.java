@@ -0,0 +1,120 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.CampaignDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CampaignSearchServiceImplTest {
+
+    private CampaignSearchServiceImpl searchService;
+
+    @BeforeEach
+    void setUp() {
+        searchService = new CampaignSearchServiceImpl();
+        searchService.rebuild(List.of(
+                campaign(1, "Clean Water Wells", "Drilling wells in rural villages"),
+                campaign(2, "School Supplies", "Books and clean water bottles for pupils"),
+                campaign(3, "Animal Shelter", "Food and care for rescued animals")
+        ));
+    }
+
+    private static CampaignDTO campaign(Integer id, String name, String description) {
+        CampaignDTO dto = new CampaignDTO();
+        dto.setId(id);
+        dto.setName(name);
+        dto.setDescription(description);
+        return dto;
+    }
+
+    @Nested
+    @DisplayName("Tokenize Tests")
+    class TokenizeTests {
+
+        @Test
+        @DisplayName("Should lowercase, strip accents and drop single characters")
+        void tokenize_NormalizesText() {
+            assertThat(CampaignSearchServiceImpl.tokenize("Café-Crème à São Paulo, 2025!"))
+                    .containsExactly("cafe", "creme", "sao", "paulo", "2025");
+        }
+
+        @Test
+        @DisplayName("Should return no tokens for null or blank text")
+        void tokenize_Blank() {
+            assertThat(CampaignSearchServiceImpl.tokenize(null)).isEmpty();
+            assertThat(CampaignSearchServiceImpl.tokenize("  ")).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Tests")
+    class SearchTests {
+
+        @Test
+        @DisplayName("Should rank name matches above description matches")
+        void search_NameBoost() {
+            assertThat(searchService.search("water", 10)).containsExactly(1, 2);
+        }
+
+        @Test
+        @DisplayName("Should match terms by prefix")
+        void search_Prefix() {
+            assertThat(searchService.search("anim", 10)).containsExactly(3);
+        }
+
+        @Test
+        @DisplayName("Should rank documents matching more terms first")
+        void search_MultipleTerms() {
+            assertThat(searchService.search("clean books", 10).getFirst()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should cap results at the limit")
+        void search_Limit() {
+            assertThat(searchService.search("clean", 1)).containsExactly(1);
+        }
+
+        @Test
+        @DisplayName("Should return nothing for unknown terms or an empty query")
+        void search_NoMatches() {
+            assertThat(searchService.search("volcano", 10)).isEmpty();
+            assertThat(searchService.search("", 10)).isEmpty();
+        }
+    }
+
+    @Nested
+    @DisplayName("Incremental Update Tests")
+    class IncrementalUpdateTests {
+
+        @Test
+        @DisplayName("Should replace the terms of a re-indexed campaign")
+        void index_ReplacesPreviousTerms() {
+            searchService.index(campaign(3, "Forest Restoration", "Planting native trees"));
+
+            assertThat(searchService.search("animal", 10)).isEmpty();
+            assertThat(searchService.search("forest", 10)).containsExactly(3);
+        }
+
+        @Test
+        @DisplayName("Should stop returning a removed campaign")
+        void remove_DropsCampaign() {
+            searchService.remove(1);
+
+            assertThat(searchService.search("water", 10)).containsExactly(2);
+        }
+
+        @Test
+        @DisplayName("Should reuse freed slots for new campaigns")
+        void index_AfterRemove() {
+            searchService.remove(1);
+            searchService.index(campaign(4, "Water Filters", "Filters for families"));
+
+            assertThat(searchService.search("water", 10)).containsExactly(4, 2);
+        }
+    }
+}
@@ -1,20 +1,35 @@
 package dev.tomas.dma.service.implementation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
 import dev.tomas.dma.dto.common.CampaignDTO;
+import dev.tomas.dma.dto.projection.CampaignListRow;
+import dev.tomas.dma.dto.projection.CampaignRankRow;
 import dev.tomas.dma.dto.request.CampaignCreateReq;
+import dev.tomas.dma.dto.request.CampaignPageReq;
+import dev.tomas.dma.dto.request.CampaignRankingReq;
+import dev.tomas.dma.dto.request.CampaignSearchReq;
 import dev.tomas.dma.dto.request.CampaignUpdateReq;
 import dev.tomas.dma.dto.response.CampaignGetAllRes;
+import dev.tomas.dma.dto.response.CampaignRankingRes;
 import dev.tomas.dma.entity.AppFile;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.entity.Company;
+import dev.tomas.dma.enums.CampaignSortField;
 import dev.tomas.dma.enums.CampaignStatus;
 import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.ExportFormat;
 import dev.tomas.dma.enums.FileType;
+import dev.tomas.dma.enums.RankingWindow;
+import dev.tomas.dma.enums.Status;
 import dev.tomas.dma.mapper.AppFileMapper;
 import dev.tomas.dma.mapper.CampaignMapper;
 import dev.tomas.dma.repository.AppFileRepo;
 import dev.tomas.dma.repository.CampaignRepo;
 import dev.tomas.dma.repository.CompanyRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
+import dev.tomas.dma.service.DonorCountService;
 import dev.tomas.dma.service.ExternalStorageService;
 import dev.tomas.dma.service.FileService;
 import dev.tomas.dma.service.TicketService;
@@ -26,15 +41,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 import dev.tomas.dma.dto.common.AppFileDTO;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -68,11 +88,24 @@ class CampaignServiceImplTest {
     @Mock
     AppFileMapper fileMapper;
 
+    @Mock
+    private CampaignFeedService campaignFeedService;
+
+    @Mock
+    private CampaignRankingService campaignRankingService;
+
+    @Mock
+    private DonorCountService donorCountService;
+
+    @Spy
+    private ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
     @InjectMocks
     private CampaignServiceImpl campaignService;
 
 
     private Campaign testCampaign;
+    private CampaignListRow testRow;
     private Company testCompany;
     private CampaignDTO testCampaignDTO;
     private CampaignCreateReq createRequest;
@@ -95,6 +128,8 @@ class CampaignServiceImplTest {
         testCampaign.setStartDate(LocalDate.now());
         testCampaign.setEndDate(LocalDate.now().plusMonths(3));
 
+        testRow = row(1);
+
         testCampaignDTO = new CampaignDTO();
         testCampaignDTO.setId(1);
         testCampaignDTO.setName("Test Campaign");
@@ -128,18 +163,17 @@ class CampaignServiceImplTest {
         @Test
         @DisplayName("Should return all campaigns")
         void findAll_Success() {
-            List<Campaign> campaigns = Collections.singletonList(testCampaign);
-            when(campaignRepo.findAll()).thenReturn(campaigns);
-            when(campaignMapper.entityToDTO(any(Campaign.class))).thenReturn(testCampaignDTO);
-            when(fileRepo.findByEntityTypeAndEntityIdAndFileType(
-                    eq(EntityType.CAMPAIGN), anyInt(), eq(FileType.CAMPAIGN_IMAGE)))
-                    .thenReturn(new ArrayList<>());
+            List<CampaignListRow> rows = Collections.singletonList(testRow);
+            when(campaignRepo.findPage(any())).thenReturn(rows);
+            when(campaignMapper.rowToDTO(any(CampaignListRow.class))).thenReturn(testCampaignDTO);
+            when(fileService.findAllByEntityIds(eq(EntityType.CAMPAIGN), eq(FileType.CAMPAIGN_IMAGE), anyCollection()))
+                    .thenReturn(new HashMap<>());
 
-            CampaignGetAllRes result = campaignService.findAll();
+            CampaignGetAllRes result = campaignService.findAll(new CampaignPageReq());
 
             assertThat(result).isNotNull();
             assertThat(result.getCampaigns()).hasSize(1);
-            verify(campaignRepo).findAll();
+            verify(campaignRepo).findPage(argThat(query -> query.statuses() == null && query.limit() == 21));
         }
 
         @Test
@@ -154,17 +188,16 @@ class CampaignServiceImplTest {
             imageFileDTO.setUrl("http://example.com/image.jpg");
 
             // 3. Stub the Repo
-            when(campaignRepo.findAll()).thenReturn(Collections.singletonList(testCampaign));
-            when(campaignMapper.entityToDTO(any(Campaign.class))).thenReturn(testCampaignDTO);
-            when(fileRepo.findByEntityTypeAndEntityIdAndFileType(
-                    eq(EntityType.CAMPAIGN), anyInt(), eq(FileType.CAMPAIGN_IMAGE)))
-                    .thenReturn(List.of(imageFile));
+            when(campaignRepo.findPage(any())).thenReturn(Collections.singletonList(testRow));
+            when(campaignMapper.rowToDTO(any(CampaignListRow.class))).thenReturn(testCampaignDTO);
+            when(fileService.findAllByEntityIds(eq(EntityType.CAMPAIGN), eq(FileType.CAMPAIGN_IMAGE), anyCollection()))
+                    .thenReturn(Map.of(1, List.of(imageFile)));
 
             // The service uses this to convert the Entity list to DTO list
             when(fileMapper.entitiesToDTO(anyList())).thenReturn(List.of(imageFileDTO));
 
             // 5. Execute
-            CampaignGetAllRes result = campaignService.findAll();
+            CampaignGetAllRes result = campaignService.findAll(new CampaignPageReq());
 
             // 6. Assert
             assertThat(result.getCampaigns().getFirst().getFiles()).isNotEmpty(); // Check list isn't empty first
@@ -175,11 +208,244 @@ class CampaignServiceImplTest {
         @Test
         @DisplayName("Should return empty list when no campaigns exist")
         void findAll_EmptyList() {
-            when(campaignRepo.findAll()).thenReturn(new ArrayList<>());
+            when(campaignRepo.findPage(any())).thenReturn(new ArrayList<>());
 
-            CampaignGetAllRes result = campaignService.findAll();
+            CampaignGetAllRes result = campaignService.findAll(new CampaignPageReq());
 
             assertThat(result.getCampaigns()).isEmpty();
+            verifyNoInteractions(fileService);
+        }
+
+        @Test
+        @DisplayName("Should resolve images of every campaign with a single lookup")
+        void findAll_ResolvesImagesInOneLookup() {
+            List<CampaignListRow> rows = new ArrayList<>();
+            for (int i = 1; i <= 100; i++) {
+                rows.add(row(i));
+            }
+            when(campaignRepo.findPage(any())).thenReturn(rows);
+            when(campaignMapper.rowToDTO(any(CampaignListRow.class))).thenAnswer(invocation -> {
+                CampaignDTO dto = new CampaignDTO();
+                dto.setId(((CampaignListRow) invocation.getArgument(0)).id());
+                return dto;
+            });
+
+            CampaignPageReq page = new CampaignPageReq();
+            page.setSize(100);
+
+            CampaignGetAllRes result = campaignService.findAll(page);
+
+            assertThat(result.getCampaigns()).hasSize(100);
+            verify(fileService, times(1)).findAllByEntityIds(eq(EntityType.CAMPAIGN), eq(FileType.CAMPAIGN_IMAGE), argThat(ids -> ids.size() == 100));
+            verify(fileRepo, never()).findByEntityTypeAndEntityIdAndFileType(any(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("Should hand out a cursor only when another page exists")
+        void findAll_MorePages_ReturnsCursor() {
+            when(campaignRepo.findPage(any())).thenReturn(List.of(testRow, row(2)));
+            when(campaignMapper.rowToDTO(testRow)).thenReturn(testCampaignDTO);
+
+            CampaignPageReq page = new CampaignPageReq();
+            page.setSize(1);
+            CampaignGetAllRes result = campaignService.findAll(page);
+
+            assertThat(result.getCampaigns()).containsExactly(testCampaignDTO);
+            assertThat(result.getNextCursor()).isNotNull();
+
+            page.setCursor(result.getNextCursor());
+            campaignService.findAll(page);
+
+            verify(campaignRepo).findPage(argThat(query -> Integer.valueOf(1).equals(query.afterId())
+                    && testRow.createDate().equals(query.afterValue())));
+        }
+
+        @Test
+        @DisplayName("Should not hand out a cursor on the last page")
+        void findAll_LastPage_NoCursor() {
+            when(campaignRepo.findPage(any())).thenReturn(List.of(testRow));
+            when(campaignMapper.rowToDTO(testRow)).thenReturn(testCampaignDTO);
+
+            CampaignGetAllRes result = campaignService.findAll(new CampaignPageReq());
+
+            assertThat(result.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject a cursor issued for a different sort")
+        void findAll_CursorForOtherSort_ThrowsException() {
+            String cursor = new CampaignCursor(CampaignSortField.RAISED_FUNDS, Sort.Direction.DESC, BigDecimal.TEN, 1).encode();
+            CampaignPageReq page = new CampaignPageReq();
+            page.setCursor(cursor);
+
+            assertThatThrownBy(() -> campaignService.findAll(page))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Cursor does not match");
+            verifyNoInteractions(campaignRepo);
+        }
+
+        @Test
+        @DisplayName("Should reject a malformed cursor")
+        void findAll_MalformedCursor_ThrowsException() {
+            CampaignPageReq page = new CampaignPageReq();
+            page.setCursor("%%%");
+
+            assertThatThrownBy(() -> campaignService.findAll(page))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    @Nested
+    @DisplayName("FindAllApproved Tests")
+    class FindAllApprovedTests {
+
+        @Test
+        @DisplayName("Should serve the public feed from the read model")
+        void findAllApproved_ServedFromReadModel() {
+            CampaignPageReq page = new CampaignPageReq();
+            CampaignGetAllRes feed = new CampaignGetAllRes();
+            feed.getCampaigns().add(testCampaignDTO);
+            when(campaignFeedService.findPage(page)).thenReturn(feed);
+
+            CampaignGetAllRes result = campaignService.findAllApproved(page);
+
+            assertThat(result.getCampaigns()).containsExactly(testCampaignDTO);
+            verifyNoInteractions(campaignRepo, fileService);
+        }
+    }
+
+    @Nested
+    @DisplayName("Search Tests")
+    class SearchTests {
+
+        @Test
+        @DisplayName("Should search the read model")
+        void search_ServedFromReadModel() {
+            CampaignSearchReq request = new CampaignSearchReq();
+            request.setQ("water");
+            CampaignGetAllRes found = new CampaignGetAllRes();
+            found.getCampaigns().add(testCampaignDTO);
+            when(campaignFeedService.search("water", 20)).thenReturn(found);
+
+            CampaignGetAllRes result = campaignService.search(request);
+
+            assertThat(result.getCampaigns()).containsExactly(testCampaignDTO);
+            verifyNoInteractions(campaignRepo, fileService);
+        }
+
+        @Test
+        @DisplayName("Should throw when the query is blank")
+        void search_BlankQuery() {
+            CampaignSearchReq request = new CampaignSearchReq();
+            request.setQ("  ");
+
+            assertThatThrownBy(() -> campaignService.search(request))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Search query can't be empty");
+            verifyNoInteractions(campaignFeedService);
+        }
+    }
+
+    @Nested
+    @DisplayName("FindRankings Tests")
+    class FindRankingsTests {
+
+        @Test
+        @DisplayName("Should resolve ranked campaigns through the read model and stop at the limit")
+        void findRankings_StopsAtLimit() {
+            CampaignRankingReq request = new CampaignRankingReq();
+            request.setWindow(RankingWindow.LAST_7_DAYS);
+            request.setLimit(1);
+            when(campaignRankingService.top(RankingWindow.LAST_7_DAYS))
+                    .thenReturn(List.of(new CampaignRankRow(1, 12_345L), new CampaignRankRow(2, 100L)));
+            when(campaignFeedService.findById(1)).thenReturn(Optional.of(testCampaignDTO));
+
+            CampaignRankingRes result = campaignService.findRankings(request);
+
+            assertThat(result.getWindow()).isEqualTo(RankingWindow.LAST_7_DAYS);
+            assertThat(result.getCampaigns()).hasSize(1);
+            assertThat(result.getCampaigns().getFirst().getCampaign()).isEqualTo(testCampaignDTO);
+            assertThat(result.getCampaigns().getFirst().getAmount()).isEqualByComparingTo("123.45");
+            verify(campaignFeedService, never()).findById(2);
+        }
+
+        @Test
+        @DisplayName("Should skip campaigns that are not public")
+        void findRankings_SkipsHiddenCampaigns() {
+            CampaignRankingReq request = new CampaignRankingReq();
+            when(campaignRankingService.top(RankingWindow.LAST_24_HOURS))
+                    .thenReturn(List.of(new CampaignRankRow(2, 500L), new CampaignRankRow(1, 100L)));
+            when(campaignFeedService.findById(2)).thenReturn(Optional.empty());
+            when(campaignFeedService.findById(1)).thenReturn(Optional.of(testCampaignDTO));
+
+            CampaignRankingRes result = campaignService.findRankings(request);
+
+            assertThat(result.getCampaigns()).extracting(ranking -> ranking.getCampaign().getId()).containsExactly(1);
+            verifyNoInteractions(campaignRepo);
+        }
+    }
+
+    @Nested
+    @DisplayName("ExportAll Tests")
+    class ExportAllTests {
+
+        @Test
+        @DisplayName("Should write every streamed row as a JSON array")
+        void exportAll_Json() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            when(campaignRepo.streamAllRows()).thenReturn(Stream.of(row(1), row(2)));
+            when(campaignMapper.rowToDTO(any(CampaignListRow.class))).thenAnswer(invocation -> {
+                CampaignDTO dto = new CampaignDTO();
+                dto.setId(invocation.<CampaignListRow>getArgument(0).id());
+                return dto;
+            });
+
+            campaignService.exportAll(out, ExportFormat.JSON);
+
+            String json = out.toString(StandardCharsets.UTF_8);
+            assertThat(json).startsWith("[").endsWith("]");
+            assertThat(objectMapper.readTree(json).findValuesAsText("id")).containsExactly("1", "2");
+        }
+
+        @Test
+        @DisplayName("Should write one object per line as NDJSON")
+        void exportAll_Ndjson() throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            when(campaignRepo.streamAllRows()).thenReturn(Stream.of(row(1), row(2), row(3)));
+            when(campaignMapper.rowToDTO(any(CampaignListRow.class))).thenReturn(testCampaignDTO);
+
+            campaignService.exportAll(out, ExportFormat.NDJSON);
+
+            assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(3)
+                    .allSatisfy(line -> assertThat(line).startsWith("{").endsWith("}"));
+        }
+    }
+
+    @Nested
+    @DisplayName("FindByCompanyId Tests")
+    class FindByCompanyIdTests {
+
+        @Test
+        @DisplayName("Should page the campaigns of an existing company")
+        void findByCompanyId_Success() {
+            when(companyRepo.existsById(1)).thenReturn(true);
+            when(campaignRepo.findPage(argThat(query -> Integer.valueOf(1).equals(query.companyId())))).thenReturn(List.of(testRow));
+            when(campaignMapper.rowToDTO(testRow)).thenReturn(testCampaignDTO);
+
+            CampaignGetAllRes result = campaignService.findByCompanyId(1, new CampaignPageReq());
+
+            assertThat(result.getCampaigns()).containsExactly(testCampaignDTO);
+        }
+
+        @Test
+        @DisplayName("Should throw when the company does not exist")
+        void findByCompanyId_NotFound() {
+            when(companyRepo.existsById(99)).thenReturn(false);
+
+            assertThatThrownBy(() -> campaignService.findByCompanyId(99, new CampaignPageReq()))
+                    .isInstanceOf(EntityNotFoundException.class);
+            verifyNoInteractions(campaignRepo);
         }
     }
 
@@ -203,6 +469,17 @@ class CampaignServiceImplTest {
             assertThat(result.getName()).isEqualTo("Test Campaign");
         }
 
+        @Test
+        @DisplayName("Should serve a feed campaign without touching the database")
+        void findById_ServedFromReadModel() {
+            when(campaignFeedService.findById(1)).thenReturn(Optional.of(testCampaignDTO));
+
+            CampaignDTO result = campaignService.findById(1);
+
+            assertThat(result).isSameAs(testCampaignDTO);
+            verifyNoInteractions(campaignRepo, fileRepo);
+        }
+
         @Test
         @DisplayName("Should throw EntityNotFoundException when campaign not found")
         void findById_ThrowsException_WhenNotFound() {
@@ -341,6 +618,7 @@ class CampaignServiceImplTest {
                 campaign.getName().equals("Updated Campaign") &&
                 campaign.getDescription().equals("Updated description here")
             ));
+            verify(campaignFeedService).refresh(1);
         }
 
         @Test
@@ -372,6 +650,7 @@ class CampaignServiceImplTest {
             verify(campaignRepo).save(argThat(campaign -> 
                 campaign.getStatus() == CampaignStatus.ARCHIVED
             ));
+            verify(campaignFeedService).refresh(1);
         }
 
         @Test
@@ -401,4 +680,10 @@ class CampaignServiceImplTest {
             verify(campaignRepo).deleteById(1);
         }
     }
+
+    private static CampaignListRow row(Integer id) {
+        return new CampaignListRow(id, "Campaign " + id, "Test Description for the campaign", new BigDecimal("10000"),
+                new BigDecimal("5000"), BigDecimal.ZERO, BigDecimal.ZERO, LocalDate.now(), LocalDate.now().plusMonths(3),
+                CampaignStatus.ACTIVE, 1, 1, LocalDate.now(), new BigDecimal("0.5"));
+    }
 }
@@ -0,0 +1,85 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.enums.EntityType;
+import dev.tomas.dma.enums.Status;
+import dev.tomas.dma.repository.TicketRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CompanyActivationServiceImplTest {
+
+    @Mock
+    private TicketRepo ticketRepo;
+
+    @InjectMocks
+    private CompanyActivationServiceImpl companyActivationService;
+
+    @Nested
+    @DisplayName("IsActive Tests")
+    class IsActiveTests {
+
+        @Test
+        @DisplayName("Should treat companies with a pending ticket as inactive, from memory")
+        void isActive_FromLoadedState() {
+            when(ticketRepo.findEntityIdsByTypeAndStatus(EntityType.COMPANY, Status.PENDING)).thenReturn(List.of(1, 2));
+            companyActivationService.afterSingletonsInstantiated();
+
+            assertThat(companyActivationService.isActive(1)).isFalse();
+            assertThat(companyActivationService.isActive(2)).isFalse();
+            assertThat(companyActivationService.isActive(3)).isTrue();
+
+            verify(ticketRepo, times(1)).findEntityIdsByTypeAndStatus(EntityType.COMPANY, Status.PENDING);
+            verifyNoMoreInteractions(ticketRepo);
+        }
+
+        @Test
+        @DisplayName("Should pick up companies approved elsewhere on the next sync")
+        void sync_ReplacesState() {
+            when(ticketRepo.findEntityIdsByTypeAndStatus(EntityType.COMPANY, Status.PENDING))
+                    .thenReturn(List.of(1), List.of());
+            companyActivationService.sync();
+
+            companyActivationService.sync();
+
+            assertThat(companyActivationService.isActive(1)).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Refresh Tests")
+    class RefreshTests {
+
+        @Test
+        @DisplayName("Should mark a company inactive when it gets a pending ticket")
+        void refresh_NewPendingTicket() {
+            when(ticketRepo.existsByEntityIdAndTypeAndStatus(5, EntityType.COMPANY, Status.PENDING)).thenReturn(true);
+
+            companyActivationService.refresh(5);
+
+            assertThat(companyActivationService.isActive(5)).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should mark a company active once its last pending ticket is closed")
+        void refresh_TicketClosed() {
+            when(ticketRepo.findEntityIdsByTypeAndStatus(EntityType.COMPANY, Status.PENDING)).thenReturn(List.of(5));
+            companyActivationService.sync();
+            when(ticketRepo.existsByEntityIdAndTypeAndStatus(5, EntityType.COMPANY, Status.PENDING)).thenReturn(false);
+
+            companyActivationService.refresh(5);
+
+            assertThat(companyActivationService.isActive(5)).isTrue();
+        }
+    }
+}
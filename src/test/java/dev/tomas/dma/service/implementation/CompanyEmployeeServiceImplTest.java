@@ -1,6 +1,7 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.projection.EmployeeListRow;
 import dev.tomas.dma.dto.request.AddUserToCompanyReq;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.CompanyRole;
@@ -10,6 +11,7 @@ import dev.tomas.dma.repository.CompanyEmployeeRepo;
 import dev.tomas.dma.repository.CompanyRepo;
 import dev.tomas.dma.repository.CompanyRoleRepo;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.PrincipalCacheService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -48,6 +50,9 @@ class CompanyEmployeeServiceImplTest {
     @Mock
     private CompanyEmployeeRepo companyEmployeeRepo;
 
+    @Mock
+    private PrincipalCacheService principalCacheService;
+
     @InjectMocks
     private CompanyEmployeeServiceImpl companyEmployeeService;
 
@@ -98,11 +103,10 @@ class CompanyEmployeeServiceImplTest {
         @Test
         @DisplayName("Should return all employees for company")
         void getEmployeesByCompany_Success() {
-            testUser.setCompany(testCompany);
-            testUser.setCompanyRole(testRole);
+            EmployeeListRow row = employeeRow(1, "employee@example.com");
 
-            when(companyEmployeeRepo.findAllUsersByCompanyId(1)).thenReturn(Arrays.asList(testUser));
-            when(userMapper.toDTO(any(User.class))).thenReturn(testUserDTO);
+            when(companyEmployeeRepo.findAllRowsByCompanyId(1)).thenReturn(Arrays.asList(row));
+            when(userMapper.rowToDTO(row)).thenReturn(testUserDTO);
 
             List<UserDTO> result = companyEmployeeService.getEmployeesByCompany(1);
 
@@ -115,7 +119,7 @@ class CompanyEmployeeServiceImplTest {
         @Test
         @DisplayName("Should return empty list when no employees exist")
         void getEmployeesByCompany_EmptyList() {
-            when(companyEmployeeRepo.findAllUsersByCompanyId(1)).thenReturn(new ArrayList<>());
+            when(companyEmployeeRepo.findAllRowsByCompanyId(1)).thenReturn(new ArrayList<>());
 
             List<UserDTO> result = companyEmployeeService.getEmployeesByCompany(1);
 
@@ -125,20 +129,18 @@ class CompanyEmployeeServiceImplTest {
         @Test
         @DisplayName("Should return multiple employees")
         void getEmployeesByCompany_MultipleEmployees() {
-            User secondUser = new User();
-            secondUser.setId(2);
-            secondUser.setEmail("employee2@example.com");
-            secondUser.setCompany(testCompany);
+            EmployeeListRow firstRow = employeeRow(1, "employee@example.com");
+            EmployeeListRow secondRow = employeeRow(2, "employee2@example.com");
 
             UserDTO secondUserDTO = new UserDTO();
             secondUserDTO.setId(2);
             secondUserDTO.setEmail("employee2@example.com");
             secondUserDTO.setCompanyId(1);
 
-            when(companyEmployeeRepo.findAllUsersByCompanyId(1))
-                    .thenReturn(Arrays.asList(testUser, secondUser));
-            when(userMapper.toDTO(testUser)).thenReturn(testUserDTO);
-            when(userMapper.toDTO(secondUser)).thenReturn(secondUserDTO);
+            when(companyEmployeeRepo.findAllRowsByCompanyId(1))
+                    .thenReturn(Arrays.asList(firstRow, secondRow));
+            when(userMapper.rowToDTO(firstRow)).thenReturn(testUserDTO);
+            when(userMapper.rowToDTO(secondRow)).thenReturn(secondUserDTO);
 
             List<UserDTO> result = companyEmployeeService.getEmployeesByCompany(1);
 
@@ -170,6 +172,7 @@ class CompanyEmployeeServiceImplTest {
                     user.getCompany() != null &&
                     user.getCompanyRole() != null
             ));
+            verify(principalCacheService).evictUser(testUser.getId());
         }
 
         @Test
@@ -239,4 +242,8 @@ class CompanyEmployeeServiceImplTest {
             verify(userRepo).save(any(User.class));
         }
     }
+
+    private static EmployeeListRow employeeRow(Integer id, String email) {
+        return new EmployeeListRow(id, email, "+3100000000" + id, "Street " + id, "First", "Last", null, "employee" + id, 1, 1, "Employee");
+    }
 }
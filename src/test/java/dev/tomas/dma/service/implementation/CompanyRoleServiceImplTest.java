@@ -18,6 +18,7 @@ import dev.tomas.dma.mapper.CompanyRoleMapper;
 import dev.tomas.dma.repository.CompanyPermissionRepo;
 import dev.tomas.dma.repository.CompanyRepo;
 import dev.tomas.dma.repository.CompanyRoleRepo;
+import dev.tomas.dma.service.PrincipalCacheService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -54,6 +55,9 @@ class CompanyRoleServiceImplTest {
     @Mock
     private CompanyRoleMapper roleMapper;
 
+    @Mock
+    private PrincipalCacheService principalCacheService;
+
     @InjectMocks
     private CompanyRoleServiceImpl companyRoleService;
 
@@ -217,7 +221,9 @@ class CompanyRoleServiceImplTest {
             CompanyRoleDTO result = companyRoleService.update(updateRequest);
 
             assertThat(result).isNotNull();
-            verify(companyRoleRepo).save(argThat(role -> role.getName().equals("Updated Role")));
+            verify(companyRoleRepo).save(argThat(role -> role.getName().equals("Updated Role")
+                    && role.getPermissionVersion() == 1));
+            verify(principalCacheService).evictRole(testRole.getId());
         }
 
         @Test
@@ -263,6 +269,7 @@ class CompanyRoleServiceImplTest {
             assertThat(result).isEqualTo(1);
             verify(companyRoleRepo).save(argThat(role -> role.getPermissions() == null));
             verify(companyRoleRepo).delete(testRole);
+            verify(principalCacheService).evictRole(1);
         }
 
         @Test
@@ -348,6 +355,7 @@ class CompanyRoleServiceImplTest {
             CompanyPermissionDTO result = companyRoleService.updatePermission(request);
 
             assertThat(result).isNotNull();
+            verify(principalCacheService).evictAll();
         }
 
         @Test
@@ -2,6 +2,7 @@ package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.CompanyDTO;
 import dev.tomas.dma.dto.common.CompanyTypeDTO;
+import dev.tomas.dma.dto.projection.CompanyListRow;
 import dev.tomas.dma.dto.request.CompanyCreateReq;
 import dev.tomas.dma.dto.request.CompanyTypeCreateReq;
 import dev.tomas.dma.dto.response.CompanyGetAllRes;
@@ -16,6 +17,7 @@ import dev.tomas.dma.repository.CompanyTypeRepo;
 import dev.tomas.dma.repository.UserRepo;
 import dev.tomas.dma.service.CompanyRoleService;
 import dev.tomas.dma.service.ExternalStorageService;
+import dev.tomas.dma.service.PrincipalCacheService;
 import dev.tomas.dma.service.TicketService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -64,6 +66,9 @@ class CompanyServiceImplTest {
     @Mock
     private CompanyMapper companyMapper;
 
+    @Mock
+    private PrincipalCacheService principalCacheService;
+
     @InjectMocks
     private CompanyServiceImpl companyService;
 
@@ -115,19 +120,23 @@ class CompanyServiceImplTest {
         @Test
         @DisplayName("Should return all companies")
         void getAll_Success() {
-            when(companyRepo.findAll()).thenReturn(Collections.singletonList(testCompany));
+            when(companyRepo.findAllRows()).thenReturn(Collections.singletonList(new CompanyListRow(
+                    1, "Test Company", "REG123", "TAX456", 1, "Charity", "Charitable organization", CompanyStatus.APPROVED)));
 
             CompanyGetAllRes result = companyService.getAll();
 
             assertThat(result).isNotNull();
             assertThat(result.getCompanies()).hasSize(1);
             assertThat(result.getCompanies().getFirst().getName()).isEqualTo("Test Company");
+            assertThat(result.getCompanies().getFirst().getType().getName()).isEqualTo("Charity");
+            assertThat(result.getCompanies().getFirst().getStatus()).isEqualTo("APPROVED");
+            verify(companyRepo, never()).findAll();
         }
 
         @Test
         @DisplayName("Should return empty list when no companies exist")
         void getAll_EmptyList() {
-            when(companyRepo.findAll()).thenReturn(new ArrayList<>());
+            when(companyRepo.findAllRows()).thenReturn(new ArrayList<>());
 
             CompanyGetAllRes result = companyService.getAll();
 
@@ -205,6 +214,7 @@ class CompanyServiceImplTest {
             verify(externalStorageService).createFolder(anyString());
             verify(companyRoleRepo, times(2)).save(any(CompanyRole.class));
             verify(userRepo).save(any(User.class));
+            verify(principalCacheService).evictUser(testUser.getId());
         }
 
         @Test
@@ -0,0 +1,224 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationReportRowDTO;
+import dev.tomas.dma.dto.projection.CampaignDimensionRow;
+import dev.tomas.dma.dto.projection.DonationFactRow;
+import dev.tomas.dma.dto.request.DonationReportReq;
+import dev.tomas.dma.dto.response.DonationReportRes;
+import dev.tomas.dma.enums.CampaignStatus;
+import dev.tomas.dma.enums.ReportDimension;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DonationAnalyticsServiceImplTest {
+    private static final LocalDateTime MAY = LocalDateTime.of(2025, 5, 10, 12, 0);
+    private static final LocalDateTime JUNE = LocalDateTime.of(2025, 6, 3, 9, 0);
+
+    @Mock
+    private DonationRepository donationRepo;
+
+    @Mock
+    private CampaignRepo campaignRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DonationAnalyticsServiceImpl analyticsService;
+
+    @BeforeEach
+    void setUp() {
+        when(campaignRepo.findDimensions()).thenReturn(List.of(
+                new CampaignDimensionRow(1, "Clean Water", CampaignStatus.ACTIVE, 10, "Charity"),
+                new CampaignDimensionRow(2, "School Books", CampaignStatus.COMPLETED, 10, "Charity"),
+                new CampaignDimensionRow(3, "Animal Shelter", CampaignStatus.ACTIVE, 20, "Foundation")
+        ));
+    }
+
+    private void load(DonationFactRow... rows) {
+        when(donationRepo.streamFacts()).thenReturn(Stream.of(rows));
+        analyticsService.rebuild();
+    }
+
+    private DonationReportReq request(ReportDimension groupBy) {
+        DonationReportReq request = new DonationReportReq();
+        request.setGroupBy(groupBy);
+        return request;
+    }
+
+    @Nested
+    @DisplayName("Report Tests")
+    class ReportTests {
+
+        @Test
+        @DisplayName("Should group by company type, highest amount first")
+        void report_ByCompanyType() {
+            load(
+                    new DonationFactRow(1, 1, 1, 1_000L, MAY),
+                    new DonationFactRow(2, 2, 2, 500L, JUNE),
+                    new DonationFactRow(3, 3, 1, 2_000L, JUNE)
+            );
+
+            DonationReportRes result = analyticsService.report(request(ReportDimension.COMPANY_TYPE));
+
+            assertThat(result.getRows()).containsExactly(
+                    new DonationReportRowDTO("Foundation", 2_000L, 1L),
+                    new DonationReportRowDTO("Charity", 1_500L, 2L)
+            );
+            assertThat(result.getTotalAmount()).isEqualTo(3_500L);
+            assertThat(result.getDonationCount()).isEqualTo(3L);
+        }
+
+        @Test
+        @DisplayName("Should group by month in calendar order")
+        void report_ByMonth() {
+            load(
+                    new DonationFactRow(1, 1, 1, 300L, JUNE),
+                    new DonationFactRow(2, 1, 1, 100L, MAY),
+                    new DonationFactRow(3, 2, 2, 200L, MAY.plusDays(5))
+            );
+
+            DonationReportRes result = analyticsService.report(request(ReportDimension.MONTH));
+
+            assertThat(result.getRows()).containsExactly(
+                    new DonationReportRowDTO("2025-05", 300L, 2L),
+                    new DonationReportRowDTO("2025-06", 300L, 1L)
+            );
+        }
+
+        @Test
+        @DisplayName("Should apply the date, status and company type filters")
+        void report_Filters() {
+            load(
+                    new DonationFactRow(1, 1, 1, 100L, MAY),
+                    new DonationFactRow(2, 1, 1, 200L, JUNE),
+                    new DonationFactRow(3, 2, 2, 400L, JUNE),
+                    new DonationFactRow(4, 3, 3, 800L, JUNE)
+            );
+            DonationReportReq request = request(ReportDimension.CAMPAIGN);
+            request.setFrom(LocalDate.of(2025, 6, 1));
+            request.setTo(LocalDate.of(2025, 6, 3));
+            request.setStatus(CampaignStatus.ACTIVE);
+            request.setCompanyTypeId(10);
+
+            DonationReportRes result = analyticsService.report(request);
+
+            assertThat(result.getRows()).containsExactly(new DonationReportRowDTO("Clean Water", 200L, 1L));
+        }
+
+        @Test
+        @DisplayName("Should keep donations to deleted campaigns when grouping by campaign")
+        void report_DeletedCampaign() {
+            load(new DonationFactRow(1, 7, 1, 900L, MAY));
+
+            assertThat(analyticsService.report(request(ReportDimension.CAMPAIGN)).getRows())
+                    .containsExactly(new DonationReportRowDTO("Campaign 7", 900L, 1L));
+            assertThat(analyticsService.report(request(ReportDimension.CAMPAIGN_STATUS)).getRows()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should report undated donations and campaigns without a company type in buckets of their own")
+        void report_UndatedAndUntyped() {
+            load(
+                    new DonationFactRow(1, 1, 1, 100L, MAY),
+                    new DonationFactRow(2, 7, 1, 900L, null)
+            );
+
+            assertThat(analyticsService.report(request(ReportDimension.MONTH)).getRows()).containsExactly(
+                    new DonationReportRowDTO("2025-05", 100L, 1L),
+                    new DonationReportRowDTO(DonationAnalyticsServiceImpl.UNDATED_LABEL, 900L, 1L)
+            );
+            assertThat(analyticsService.report(request(ReportDimension.COMPANY_TYPE)).getRows()).containsExactly(
+                    new DonationReportRowDTO(DonationAnalyticsServiceImpl.NO_COMPANY_TYPE_LABEL, 900L, 1L),
+                    new DonationReportRowDTO("Charity", 100L, 1L)
+            );
+
+            DonationReportReq ranged = request(ReportDimension.MONTH);
+            ranged.setFrom(LocalDate.of(2025, 1, 1));
+            assertThat(analyticsService.report(ranged).getRows()).containsExactly(new DonationReportRowDTO("2025-05", 100L, 1L));
+        }
+
+        @Test
+        @DisplayName("Should reject a range that ends before it starts")
+        void report_InvertedRange() {
+            DonationReportReq request = request(ReportDimension.MONTH);
+            request.setFrom(LocalDate.of(2025, 6, 2));
+            request.setTo(LocalDate.of(2025, 6, 1));
+
+            assertThatThrownBy(() -> analyticsService.report(request))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("From must be before to");
+        }
+    }
+
+    @Nested
+    @DisplayName("Append Tests")
+    class AppendTests {
+
+        @Test
+        @DisplayName("Should include appended donations in the next report")
+        void append_VisibleInReports() {
+            load(new DonationFactRow(1, 1, 1, 100L, MAY));
+
+            analyticsService.append(100, 1, 2, 50L, JUNE);
+
+            DonationReportRes result = analyticsService.report(request(ReportDimension.CAMPAIGN_STATUS));
+            assertThat(result.getRows()).containsExactly(new DonationReportRowDTO("ACTIVE", 150L, 2L));
+        }
+
+        @Test
+        @DisplayName("Should count a donation appended during a rebuild once, whether or not the load read it")
+        void append_DuringRebuild() {
+            when(donationRepo.streamFacts()).thenReturn(Stream.of(new DonationFactRow(1, 1, 1, 100L, MAY))
+                    .peek(row -> {
+                        // Committed before the stream started, but its append only runs now
+                        analyticsService.append(1, 1, 1, 100L, MAY);
+                        // Committed after the stream started
+                        analyticsService.append(2, 1, 2, 50L, JUNE);
+                    }));
+
+            analyticsService.rebuild();
+
+            DonationReportRes result = analyticsService.report(request(ReportDimension.CAMPAIGN_STATUS));
+            assertThat(result.getRows()).containsExactly(new DonationReportRowDTO("ACTIVE", 150L, 2L));
+        }
+
+        @Test
+        @DisplayName("Should add up large scans split across fork-join tasks")
+        void append_ParallelScan() {
+            load();
+            int rows = DonationAnalyticsServiceImpl.LEAF_ROWS * 5 + 17;
+            for (int i = 0; i < rows; i++) {
+                analyticsService.append(i + 1, 1 + i % 3, i, 1 + i % 7, MAY.plusMinutes(i));
+            }
+
+            long expected = 0;
+            for (int i = 0; i < rows; i++) {
+                expected += 1 + i % 7;
+            }
+            DonationReportRes result = analyticsService.report(request(ReportDimension.CAMPAIGN));
+            assertThat(result.getDonationCount()).isEqualTo(rows);
+            assertThat(result.getTotalAmount()).isEqualTo(expected);
+            assertThat(result.getRows()).hasSize(3);
+        }
+    }
+}
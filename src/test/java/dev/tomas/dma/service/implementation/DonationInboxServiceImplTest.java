@@ -0,0 +1,258 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.InboxKeyRow;
+import dev.tomas.dma.entity.DonationInboxEntry;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationInboxRepo;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.DonationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DonationInboxServiceImplTest {
+
+    @Mock
+    private DonationInboxRepo inboxRepo;
+
+    @Mock
+    private DonationService donationService;
+
+    @Mock
+    private CampaignRepo campaignRepo;
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private DonationInboxServiceImpl inboxService;
+
+    private DonationInboxEntry entry(long id, Integer campaignId, Integer userId, long amount) {
+        DonationInboxEntry entry = new DonationInboxEntry();
+        entry.setId(id);
+        entry.setEventId("evt_" + id);
+        entry.setCampaignId(campaignId);
+        entry.setUserId(userId);
+        entry.setAmount(amount);
+        return entry;
+    }
+
+    @Nested
+    @DisplayName("Append Tests")
+    class AppendTests {
+
+        @Test
+        @DisplayName("Should journal the payment with its event and payment intent ids")
+        void append_SavesEntry() {
+            DonationDTO donation = new DonationDTO();
+            donation.setCampaignId(1);
+            donation.setUserId(2);
+            donation.setAmount(5_000L);
+
+            inboxService.append("evt_1", "pi_1", donation, "{}");
+
+            ArgumentCaptor<DonationInboxEntry> captor = ArgumentCaptor.forClass(DonationInboxEntry.class);
+            verify(inboxRepo).save(captor.capture());
+            DonationInboxEntry saved = captor.getValue();
+            assertThat(saved.getEventId()).isEqualTo("evt_1");
+            assertThat(saved.getPaymentIntentId()).isEqualTo("pi_1");
+            assertThat(saved.getCampaignId()).isEqualTo(1);
+            assertThat(saved.getUserId()).isEqualTo(2);
+            assertThat(saved.getAmount()).isEqualTo(5_000L);
+            assertThat(saved.getProcessedAt()).isNull();
+            assertThat(meterRegistry.counter("donations.inbox.received").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should swallow a redelivered event")
+        void append_Duplicate() {
+            when(inboxRepo.save(any(DonationInboxEntry.class))).thenThrow(violation(
+                    new SQLException("Duplicate entry 'evt_1'", "23000", 1062), "donation_inbox." + DonationInboxEntry.UK_EVENT));
+
+            inboxService.append("evt_1", "pi_1", new DonationDTO(), "{}");
+
+            assertThat(meterRegistry.counter("donations.inbox.duplicates", "source", "constraint").count()).isEqualTo(1);
+            assertThat(meterRegistry.counter("donations.inbox.received").count()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should rethrow a violation that is not a duplicate event or payment")
+        void append_OtherViolation() {
+            DataIntegrityViolationException violation = violation(
+                    new SQLException("Column 'amount' cannot be null", "23000", 1048), null);
+            when(inboxRepo.save(any(DonationInboxEntry.class))).thenThrow(violation);
+
+            assertThatThrownBy(() -> inboxService.append("evt_1", "pi_1", new DonationDTO(), "{}")).isSameAs(violation);
+
+            assertThat(meterRegistry.counter("donations.inbox.duplicates", "source", "constraint").count()).isZero();
+            assertThat(inboxService.isDuplicate("evt_1")).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should rethrow a duplicate on a key other than the inbox's own")
+        void append_OtherDuplicateKey() {
+            DataIntegrityViolationException violation = violation(
+                    new SQLException("Duplicate entry '1'", "23000", 1062), "donation_inbox.PRIMARY");
+            when(inboxRepo.save(any(DonationInboxEntry.class))).thenThrow(violation);
+
+            assertThatThrownBy(() -> inboxService.append("evt_1", "pi_1", new DonationDTO(), "{}")).isSameAs(violation);
+        }
+
+        private DataIntegrityViolationException violation(SQLException cause, String constraint) {
+            return new DataIntegrityViolationException(cause.getMessage(),
+                    new ConstraintViolationException(cause.getMessage(), cause, constraint));
+        }
+    }
+
+    @Nested
+    @DisplayName("IsDuplicate Tests")
+    class IsDuplicateTests {
+
+        @Test
+        @DisplayName("Should let a new event through without asking the database")
+        void isDuplicate_NewEvent() {
+            assertThat(inboxService.isDuplicate("evt_new")).isFalse();
+
+            verifyNoInteractions(inboxRepo);
+        }
+
+        @Test
+        @DisplayName("Should answer a redelivery of a journaled event from memory")
+        void isDuplicate_RecentEvent() {
+            inboxService.append("evt_1", "pi_1", new DonationDTO(), "{}");
+
+            assertThat(inboxService.isDuplicate("evt_1")).isTrue();
+
+            verify(inboxRepo, never()).existsByEventId(any());
+            assertThat(meterRegistry.counter("donations.inbox.duplicates", "source", "memory").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should confirm a filter hit against the database once")
+        void isDuplicate_FilterHitLooksUp() {
+            when(inboxRepo.findKeysReceivedSince(any(LocalDateTime.class)))
+                    .thenReturn(List.of(new InboxKeyRow("evt_old", "pi_old")));
+            when(inboxRepo.existsByEventId("evt_old")).thenReturn(true);
+            inboxService.rebuildFilter();
+
+            assertThat(inboxService.isDuplicate("evt_old")).isTrue();
+            assertThat(inboxService.isDuplicate("evt_old")).isTrue();
+
+            verify(inboxRepo, times(1)).existsByEventId("evt_old");
+        }
+
+        @Test
+        @DisplayName("Should not journal a second event for a payment that was just journaled")
+        void append_SamePaymentIntent() {
+            inboxService.append("evt_1", "pi_1", new DonationDTO(), "{}");
+            inboxService.append("evt_2", "pi_1", new DonationDTO(), "{}");
+
+            verify(inboxRepo, times(1)).save(any(DonationInboxEntry.class));
+            assertThat(inboxService.isDuplicate("evt_2")).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Drain Tests")
+    class DrainTests {
+
+        @Test
+        @DisplayName("Should save valid entries in one batch and reject the ones pointing at missing data")
+        @SuppressWarnings("unchecked")
+        void drain_SavesAndRejects() {
+            DonationInboxEntry valid = entry(1L, 10, 20, 1_000L);
+            DonationInboxEntry unknownCampaign = entry(2L, 11, 20, 2_000L);
+            DonationInboxEntry unknownUser = entry(3L, 10, 21, 3_000L);
+            when(inboxRepo.lockPending(eq(DonationInboxServiceImpl.MAX_ATTEMPTS), anyInt()))
+                    .thenReturn(List.of(valid, unknownCampaign, unknownUser));
+            when(campaignRepo.findIdsByIdIn(anyCollection())).thenReturn(List.of(10));
+            when(userRepo.findIdsByIdIn(anyCollection())).thenReturn(List.of(20));
+
+            int drained = inboxService.drain();
+
+            assertThat(drained).isEqualTo(3);
+            ArgumentCaptor<List<DonationDTO>> saved = ArgumentCaptor.forClass(List.class);
+            verify(donationService).saveAll(saved.capture());
+            assertThat(saved.getValue()).singleElement()
+                    .satisfies(dto -> {
+                        assertThat(dto.getCampaignId()).isEqualTo(10);
+                        assertThat(dto.getAmount()).isEqualTo(1_000L);
+                    });
+            verify(inboxRepo).markProcessed(eq(List.of(1L)), any(LocalDateTime.class));
+
+            assertThat(unknownCampaign.getError()).isEqualTo("Campaign not found with id: 11");
+            assertThat(unknownCampaign.getProcessedAt()).isNotNull();
+            assertThat(unknownUser.getError()).isEqualTo("User not found with id: 21");
+            assertThat(meterRegistry.counter("donations.inbox.processed", "outcome", "saved").count()).isEqualTo(1);
+            assertThat(meterRegistry.counter("donations.inbox.processed", "outcome", "rejected").count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should do nothing when the inbox is empty")
+        void drain_Empty() {
+            when(inboxRepo.lockPending(anyInt(), anyInt())).thenReturn(List.of());
+
+            assertThat(inboxService.drain()).isZero();
+
+            verifyNoInteractions(donationService, campaignRepo, userRepo);
+            verify(inboxRepo, never()).markProcessed(anyCollection(), any());
+        }
+
+        @Test
+        @DisplayName("Should release the batch with an extra attempt when saving fails")
+        void drain_FailureRecordsAttempt() {
+            when(inboxRepo.lockPending(anyInt(), anyInt())).thenReturn(List.of(entry(1L, 10, 20, 1_000L), entry(2L, 10, 20, 500L)));
+            when(campaignRepo.findIdsByIdIn(anyCollection())).thenReturn(List.of(10));
+            when(userRepo.findIdsByIdIn(anyCollection())).thenReturn(List.of(20));
+            doThrow(new IllegalStateException("Deadlock found")).when(donationService).saveAll(anyList());
+
+            assertThat(inboxService.drain()).isZero();
+
+            verify(inboxRepo).recordFailure(List.of(1L, 2L), "Deadlock found");
+            verify(inboxRepo, never()).markProcessed(anyCollection(), any());
+            verify(transactionManager).rollback(any());
+            assertThat(meterRegistry.timer("donations.inbox.batch", "outcome", "failure").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should report the backlog after every batch")
+        void drain_RefreshesBacklog() {
+            inboxService.registerMetrics();
+            when(inboxRepo.lockPending(anyInt(), anyInt())).thenReturn(List.of());
+            when(inboxRepo.countPending(DonationInboxServiceImpl.MAX_ATTEMPTS)).thenReturn(7L);
+            when(inboxRepo.findOldestPending(DonationInboxServiceImpl.MAX_ATTEMPTS)).thenReturn(LocalDateTime.now().minusMinutes(2));
+
+            inboxService.drain();
+
+            assertThat(meterRegistry.get("donations.inbox.pending").gauge().value()).isEqualTo(7);
+            assertThat(meterRegistry.get("donations.inbox.lag.seconds").gauge().value()).isGreaterThanOrEqualTo(119);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationBucketDTO;
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.DonationBucketRow;
+import dev.tomas.dma.dto.request.DonationTimeSeriesReq;
+import dev.tomas.dma.dto.response.DonationTimeSeriesRes;
+import dev.tomas.dma.enums.RollupGranularity;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRollupRepo;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DonationRollupServiceImplTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 12, 30);
+
+    @Mock
+    private DonationRollupRepo rollupRepo;
+
+    @Mock
+    private CampaignRepo campaignRepo;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DonationRollupServiceImpl rollupService;
+
+    private DonationDTO donation(Integer campaignId, long amount, LocalDateTime date) {
+        DonationDTO dto = new DonationDTO();
+        dto.setCampaignId(campaignId);
+        dto.setUserId(1);
+        dto.setAmount(amount);
+        dto.setDate(date);
+        return dto;
+    }
+
+    private DonationTimeSeriesReq request(RollupGranularity granularity, LocalDateTime from, LocalDateTime to) {
+        DonationTimeSeriesReq request = new DonationTimeSeriesReq();
+        request.setGranularity(granularity);
+        request.setFrom(from);
+        request.setTo(to);
+        return request;
+    }
+
+    @Nested
+    @DisplayName("Add Tests")
+    class AddTests {
+
+        @Test
+        @DisplayName("Should merge donations into one upsert per campaign, granularity and bucket")
+        @SuppressWarnings("unchecked")
+        void add_MergesBuckets() {
+            rollupService.add(List.of(
+                    donation(1, 100L, NOW),
+                    donation(1, 250L, NOW.plusMinutes(10)),
+                    donation(1, 50L, NOW.plusHours(2)),
+                    donation(2, 75L, null)
+            ), NOW);
+
+            ArgumentCaptor<Collection<?>> buckets = ArgumentCaptor.forClass(Collection.class);
+            verify(jdbcTemplate).batchUpdate(contains("ON DUPLICATE KEY UPDATE"), buckets.capture(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            // Campaign 1: two hours and one day, campaign 2: one hour and one day
+            assertThat(buckets.getValue()).hasSize(5);
+        }
+    }
+
+    @Nested
+    @DisplayName("GetSeries Tests")
+    class GetSeriesTests {
+
+        @Test
+        @DisplayName("Should return one bucket per hour with the empty ones filled in")
+        void getSeries_FillsGaps() {
+            LocalDateTime from = NOW.minusHours(3);
+            when(campaignRepo.existsById(1)).thenReturn(true);
+            when(rollupRepo.findSeries(1, RollupGranularity.HOUR, from.withMinute(0), NOW.withMinute(0))).thenReturn(List.of(
+                    new DonationBucketRow(NOW.minusHours(2).withMinute(0), 500L, 2L),
+                    new DonationBucketRow(NOW.withMinute(0), 100L, 1L)
+            ));
+
+            DonationTimeSeriesRes result = rollupService.getSeries(1, request(RollupGranularity.HOUR, from, NOW));
+
+            assertThat(result.getGranularity()).isEqualTo(RollupGranularity.HOUR);
+            assertThat(result.getBuckets()).containsExactly(
+                    new DonationBucketDTO(NOW.minusHours(3).withMinute(0), 0, 0),
+                    new DonationBucketDTO(NOW.minusHours(2).withMinute(0), 500, 2),
+                    new DonationBucketDTO(NOW.minusHours(1).withMinute(0), 0, 0),
+                    new DonationBucketDTO(NOW.withMinute(0), 100, 1)
+            );
+        }
+
+        @Test
+        @DisplayName("Should default to the granularity's range when no start is given")
+        void getSeries_DefaultRange() {
+            when(campaignRepo.existsById(1)).thenReturn(true);
+            when(rollupRepo.findSeries(eq(1), eq(RollupGranularity.DAY), any(), any())).thenReturn(List.of());
+
+            DonationTimeSeriesRes result = rollupService.getSeries(1, request(RollupGranularity.DAY, null, NOW));
+
+            assertThat(result.getBuckets()).hasSize(31);
+            assertThat(result.getBuckets().getFirst().getStart()).isEqualTo(NOW.minusDays(30).toLocalDate().atStartOfDay());
+        }
+
+        @Test
+        @DisplayName("Should reject ranges with too many buckets before querying")
+        void getSeries_RangeTooLarge() {
+            assertThatThrownBy(() -> rollupService.getSeries(1, request(RollupGranularity.HOUR, NOW.minusYears(1), NOW)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("Time range too large");
+
+            verifyNoInteractions(rollupRepo, campaignRepo);
+        }
+
+        @Test
+        @DisplayName("Should reject a range that ends before it starts")
+        void getSeries_InvertedRange() {
+            assertThatThrownBy(() -> rollupService.getSeries(1, request(RollupGranularity.DAY, NOW, NOW.minusDays(2))))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("From must be before to");
+        }
+
+        @Test
+        @DisplayName("Should throw when the campaign doesn't exist")
+        void getSeries_UnknownCampaign() {
+            when(campaignRepo.existsById(99)).thenReturn(false);
+
+            assertThatThrownBy(() -> rollupService.getSeries(99, request(RollupGranularity.DAY, null, NOW)))
+                    .isInstanceOf(EntityNotFoundException.class)
+                    .hasMessage("Campaign not found with id: 99");
+        }
+    }
+
+    @Nested
+    @DisplayName("Rebuild Tests")
+    class RebuildTests {
+
+        @Test
+        @DisplayName("Should rebuild campaign id ranges in separate chunks")
+        void rebuild_SplitsIntoChunks() {
+            when(jdbcTemplate.queryForObject(contains("MIN(campaign_id)"), eq(Integer.class))).thenReturn(1);
+            when(jdbcTemplate.queryForObject(contains("MAX(campaign_id)"), eq(Integer.class))).thenReturn(DonationRollupServiceImpl.CHUNK_CAMPAIGNS * 2 + 1);
+            when(jdbcTemplate.update(anyString(), anyInt(), anyInt()))
+                    .thenAnswer(invocation -> invocation.<String>getArgument(0).contains("INSERT") ? 3 : 0);
+
+            int written = rollupService.rebuild();
+
+            // Three chunks, hourly and daily inserts each
+            assertThat(written).isEqualTo(18);
+            verify(jdbcTemplate).update(contains("DELETE FROM donation_rollup"), eq(1), eq(DonationRollupServiceImpl.CHUNK_CAMPAIGNS));
+            verify(jdbcTemplate).update(contains("DELETE FROM donation_rollup"), eq(DonationRollupServiceImpl.CHUNK_CAMPAIGNS * 2 + 1), eq(DonationRollupServiceImpl.CHUNK_CAMPAIGNS * 2 + 1));
+            verify(transactionManager, times(3)).commit(any());
+        }
+
+        @Test
+        @DisplayName("Should lock the range's campaigns before replacing its rollups")
+        void rebuild_LocksCampaignsFirst() {
+            when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(1);
+
+            rollupService.rebuild();
+
+            InOrder order = inOrder(jdbcTemplate);
+            order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(Integer.class), eq(1), eq(1));
+            order.verify(jdbcTemplate).update(contains("DELETE FROM donation_rollup"), eq(1), eq(1));
+            order.verify(jdbcTemplate, times(2)).update(contains("INSERT INTO donation_rollup"), eq(1), eq(1));
+        }
+
+        @Test
+        @DisplayName("Should do nothing without donations")
+        void rebuild_NoDonations() {
+            when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(null);
+
+            assertThat(rollupService.rebuild()).isZero();
+
+            verifyNoInteractions(transactionManager);
+        }
+    }
+}
@@ -1,31 +1,50 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.DonationHistoryRow;
+import dev.tomas.dma.dto.request.DonationHistoryReq;
+import dev.tomas.dma.dto.response.DonationByUserGetAllRes;
+import dev.tomas.dma.dto.response.DonationHistoryRes;
 import dev.tomas.dma.entity.Campaign;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.Donation;
+import dev.tomas.dma.entity.DonorSummary;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.enums.CampaignStatus;
 import dev.tomas.dma.mapper.DonationMapper;
 import dev.tomas.dma.repository.CampaignRepo;
 import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.repository.DonorSummaryRepo;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.CampaignFeedService;
+import dev.tomas.dma.service.CampaignRankingService;
+import dev.tomas.dma.service.DonationAnalyticsService;
+import dev.tomas.dma.service.DonationRollupService;
+import dev.tomas.dma.service.DonorCountService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +62,27 @@ class DonationServiceImplTest {
     @Mock
     private DonationRepository donationRepo;
 
+    @Mock
+    private CampaignFeedService campaignFeedService;
+
+    @Mock
+    private CampaignRankingService campaignRankingService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DonorSummaryRepo donorSummaryRepo;
+
+    @Mock
+    private DonationRollupService donationRollupService;
+
+    @Mock
+    private DonationAnalyticsService donationAnalyticsService;
+
+    @Mock
+    private DonorCountService donorCountService;
+
     @InjectMocks
     private DonationServiceImpl donationService;
 
@@ -85,66 +125,106 @@ class DonationServiceImplTest {
     @DisplayName("Save Donation Tests")
     class SaveDonationTests {
 
-        @Test
-        @DisplayName("Should save donation and update campaign raised funds")
-        void save_Success() {
-            when(campaignRepo.findById(1)).thenReturn(Optional.of(testCampaign));
-            when(userRepo.findById(1)).thenReturn(Optional.of(testUser));
+        private void stubSave() {
+            when(userRepo.existsById(1)).thenReturn(true);
+            when(campaignRepo.addRaisedFunds(eq(1), any(BigDecimal.class))).thenReturn(1);
             when(donationMapper.toEntity(donationDTO)).thenReturn(testDonation);
+            when(campaignRepo.getReferenceById(1)).thenReturn(testCampaign);
+            when(userRepo.getReferenceById(1)).thenReturn(testUser);
             when(donationRepo.save(any(Donation.class))).thenReturn(testDonation);
-            when(campaignRepo.save(any(Campaign.class))).thenReturn(testCampaign);
+        }
+
+        @Test
+        @DisplayName("Should save donation and increment campaign raised funds atomically")
+        void save_Success() {
+            stubSave();
 
             donationService.save(donationDTO);
 
             verify(donationRepo).save(testDonation);
-            verify(campaignRepo).save(argThat(campaign -> {
-                // 5000 cents = 50.00, original raised = 5000, new total = 5050
-                BigDecimal expectedRaised = new BigDecimal("5000").add(new BigDecimal("50"));
-                return campaign.getRaisedFunds().compareTo(expectedRaised) == 0;
-            }));
+            // 5000 cents = 50.00
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("50.00"));
+            verify(campaignRepo, never()).save(any(Campaign.class));
+            verify(campaignFeedService).refresh(1);
+            verify(campaignRankingService).record(1, 5000L, testDonation.getDate());
+            verify(donationAnalyticsService).append(1, 1, 1, 5000L, testDonation.getDate());
+            InOrder inOrder = inOrder(donorCountService, campaignFeedService);
+            inOrder.verify(donorCountService).add(List.of(donationDTO));
+            inOrder.verify(campaignFeedService).refresh(1);
         }
 
         @Test
-        @DisplayName("Should correctly convert cents to currency when updating raised funds")
-        void save_ConvertsAmountCorrectly() {
-            donationDTO.setAmount(10000L); // 100.00 in cents
-            testCampaign.setRaisedFunds(new BigDecimal("0"));
+        @DisplayName("Should add the donation to the donor summary and the rollups")
+        void save_UpdatesDonorSummary() {
+            stubSave();
 
-            when(campaignRepo.findById(1)).thenReturn(Optional.of(testCampaign));
-            when(userRepo.findById(1)).thenReturn(Optional.of(testUser));
-            when(donationMapper.toEntity(donationDTO)).thenReturn(testDonation);
-            when(donationRepo.save(any(Donation.class))).thenReturn(testDonation);
-            when(campaignRepo.save(any(Campaign.class))).thenReturn(testCampaign);
+            donationService.save(donationDTO);
+
+            verify(jdbcTemplate).batchUpdate(contains("INSERT IGNORE INTO donor_campaign"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            verify(jdbcTemplate).batchUpdate(contains("INSERT INTO donor_summary"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            verify(jdbcTemplate).batchUpdate(contains("SET campaign_count"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            verify(donationRollupService).add(List.of(donationDTO), testDonation.getDate());
+        }
+
+        @Test
+        @DisplayName("Should increment raised funds before inserting the donation")
+        void save_IncrementsBeforeInsert() {
+            stubSave();
+
+            donationService.save(donationDTO);
+
+            InOrder inOrder = inOrder(campaignRepo, donationRepo);
+            inOrder.verify(campaignRepo).addRaisedFunds(eq(1), any(BigDecimal.class));
+            inOrder.verify(donationRepo).save(testDonation);
+        }
+
+        @Test
+        @DisplayName("Should keep the cents when converting the amount")
+        void save_KeepsCents() {
+            donationDTO.setAmount(1999L); // 19.99 in cents
+            stubSave();
+
+            donationService.save(donationDTO);
+
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("19.99"));
+        }
+
+        @Test
+        @DisplayName("Should date the donation when the request has no date")
+        void save_SetsDateWhenMissing() {
+            testDonation.setDate(null);
+            stubSave();
 
             donationService.save(donationDTO);
 
-            verify(campaignRepo).save(argThat(campaign ->
-                    campaign.getRaisedFunds().compareTo(new BigDecimal("100")) == 0
-            ));
+            verify(donationRepo).save(argThat(donation -> donation.getDate() != null));
+            verify(campaignRankingService).record(eq(1), eq(5000L), any(LocalDateTime.class));
         }
 
         @Test
         @DisplayName("Should throw EntityNotFoundException when campaign not found")
         void save_ThrowsException_WhenCampaignNotFound() {
-            when(campaignRepo.findById(1)).thenReturn(Optional.empty());
+            when(userRepo.existsById(1)).thenReturn(true);
+            when(campaignRepo.addRaisedFunds(eq(1), any(BigDecimal.class))).thenReturn(0);
 
             assertThatThrownBy(() -> donationService.save(donationDTO))
                     .isInstanceOf(EntityNotFoundException.class)
                     .hasMessageContaining("Campaign not found with id: 1");
 
             verify(donationRepo, never()).save(any(Donation.class));
+            verifyNoInteractions(campaignFeedService, campaignRankingService);
         }
 
         @Test
         @DisplayName("Should throw EntityNotFoundException when user not found")
         void save_ThrowsException_WhenUserNotFound() {
-            when(campaignRepo.findById(1)).thenReturn(Optional.of(testCampaign));
-            when(userRepo.findById(1)).thenReturn(Optional.empty());
+            when(userRepo.existsById(1)).thenReturn(false);
 
             assertThatThrownBy(() -> donationService.save(donationDTO))
                     .isInstanceOf(EntityNotFoundException.class)
                     .hasMessageContaining("User not found with id: 1");
 
+            verify(campaignRepo, never()).addRaisedFunds(any(), any());
             verify(donationRepo, never()).save(any(Donation.class));
         }
 
@@ -153,19 +233,11 @@ class DonationServiceImplTest {
         void save_Success_WithZeroAmount() {
             donationDTO.setAmount(0L);
             testDonation.setAmount(0L);
-            testCampaign.setRaisedFunds(new BigDecimal("5000"));
-
-            when(campaignRepo.findById(1)).thenReturn(Optional.of(testCampaign));
-            when(userRepo.findById(1)).thenReturn(Optional.of(testUser));
-            when(donationMapper.toEntity(donationDTO)).thenReturn(testDonation);
-            when(donationRepo.save(any(Donation.class))).thenReturn(testDonation);
-            when(campaignRepo.save(any(Campaign.class))).thenReturn(testCampaign);
+            stubSave();
 
             donationService.save(donationDTO);
 
-            verify(campaignRepo).save(argThat(campaign ->
-                    campaign.getRaisedFunds().compareTo(new BigDecimal("5000")) == 0
-            ));
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("0.00"));
         }
 
         @Test
@@ -173,18 +245,244 @@ class DonationServiceImplTest {
         void save_Success_WithLargeAmount() {
             donationDTO.setAmount(999999900L); // 9,999,999.00 in cents
             testDonation.setAmount(999999900L);
-            testCampaign.setRaisedFunds(new BigDecimal("0"));
-
-            when(campaignRepo.findById(1)).thenReturn(Optional.of(testCampaign));
-            when(userRepo.findById(1)).thenReturn(Optional.of(testUser));
-            when(donationMapper.toEntity(donationDTO)).thenReturn(testDonation);
-            when(donationRepo.save(any(Donation.class))).thenReturn(testDonation);
-            when(campaignRepo.save(any(Campaign.class))).thenReturn(testCampaign);
+            stubSave();
 
             donationService.save(donationDTO);
 
             verify(donationRepo).save(testDonation);
-            verify(campaignRepo).save(any(Campaign.class));
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("9999999.00"));
+        }
+    }
+
+    @Nested
+    @DisplayName("SaveAll Tests")
+    class SaveAllTests {
+
+        private DonationDTO donation(Integer campaignId, long amount) {
+            DonationDTO dto = new DonationDTO();
+            dto.setCampaignId(campaignId);
+            dto.setUserId(1);
+            dto.setAmount(amount);
+            return dto;
+        }
+
+        // The insert's update counts, one per row: 1 written, 0 skipped by IGNORE
+        private void inserted(int... counts) {
+            when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                    .thenReturn(new int[][]{counts});
+        }
+
+        @Test
+        @DisplayName("Should lock the campaigns, batch insert the rows and increment each campaign once with its total")
+        void saveAll_GroupsByCampaign() {
+            List<DonationDTO> batch = List.of(donation(2, 150L), donation(1, 1_000L), donation(2, 251L));
+            when(campaignRepo.lockIdsIn(Set.of(1, 2))).thenReturn(List.of(1, 2));
+            inserted(1, 1, 1);
+            when(campaignRepo.addRaisedFunds(anyInt(), any(BigDecimal.class))).thenReturn(1);
+
+            donationService.saveAll(batch);
+
+            InOrder inOrder = inOrder(campaignRepo, jdbcTemplate);
+            inOrder.verify(campaignRepo).lockIdsIn(Set.of(1, 2));
+            inOrder.verify(jdbcTemplate).batchUpdate(anyString(), eq(batch), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            inOrder.verify(campaignRepo).addRaisedFunds(1, new BigDecimal("10.00"));
+            inOrder.verify(campaignRepo).addRaisedFunds(2, new BigDecimal("4.01"));
+            verify(campaignFeedService).refresh(1);
+            verify(campaignFeedService).refresh(2);
+            verify(campaignRankingService, times(3)).record(anyInt(), anyLong(), any(LocalDateTime.class));
+            verify(donationRollupService).add(eq(batch), any(LocalDateTime.class));
+            verify(donorCountService).add(batch);
+            verify(donationAnalyticsService, times(3)).append(isNull(), anyInt(), anyInt(), anyLong(), any(LocalDateTime.class));
+            verifyNoInteractions(donationRepo);
+        }
+
+        @Test
+        @DisplayName("Should skip a payment intent already stored or repeated in the batch, and save the rest")
+        void saveAll_SkipsDuplicateIntents() {
+            DonationDTO stored = donation(1, 500L);
+            stored.setPaymentIntentId("pi_stored");
+            DonationDTO first = donation(2, 150L);
+            first.setPaymentIntentId("pi_new");
+            DonationDTO repeat = donation(2, 150L);
+            repeat.setPaymentIntentId("pi_new");
+            DonationDTO other = donation(1, 1_000L);
+            other.setPaymentIntentId("pi_other");
+            when(donationRepo.findPaymentIntentIdsIn(Set.of("pi_stored", "pi_new", "pi_other"))).thenReturn(List.of("pi_stored"));
+            when(campaignRepo.lockIdsIn(Set.of(1, 2))).thenReturn(List.of(1, 2));
+            inserted(1, 1);
+            when(campaignRepo.addRaisedFunds(anyInt(), any(BigDecimal.class))).thenReturn(1);
+
+            donationService.saveAll(List.of(stored, first, repeat, other));
+
+            List<DonationDTO> saved = List.of(first, other);
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("10.00"));
+            verify(campaignRepo).addRaisedFunds(2, new BigDecimal("1.50"));
+            verify(jdbcTemplate).batchUpdate(startsWith("INSERT IGNORE INTO donation"), eq(saved), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+            verify(donationRollupService).add(eq(saved), any(LocalDateTime.class));
+            verify(donorCountService).add(saved);
+            verify(campaignRankingService, times(2)).record(anyInt(), anyLong(), any(LocalDateTime.class));
+        }
+
+        @Test
+        @DisplayName("Should count only the rows the insert wrote, leaving out an intent stored concurrently")
+        void saveAll_CountsOnlyInsertedRows() {
+            DonationDTO raced = donation(1, 500L);
+            raced.setPaymentIntentId("pi_raced");
+            DonationDTO fresh = donation(1, 1_000L);
+            fresh.setPaymentIntentId("pi_fresh");
+            when(donationRepo.findPaymentIntentIdsIn(Set.of("pi_raced", "pi_fresh"))).thenReturn(List.of());
+            when(campaignRepo.lockIdsIn(Set.of(1))).thenReturn(List.of(1));
+            inserted(0, 1);
+            when(campaignRepo.addRaisedFunds(anyInt(), any(BigDecimal.class))).thenReturn(1);
+
+            donationService.saveAll(List.of(raced, fresh));
+
+            verify(campaignRepo).addRaisedFunds(1, new BigDecimal("10.00"));
+            verify(donationRollupService).add(eq(List.of(fresh)), any(LocalDateTime.class));
+            verify(donorCountService).add(List.of(fresh));
+            verify(campaignRankingService).record(eq(1), eq(1_000L), any(LocalDateTime.class));
+            verify(donationAnalyticsService).append(any(), eq(1), eq(1), eq(1_000L), any(LocalDateTime.class));
+        }
+
+        @Test
+        @DisplayName("Should fail the batch on a missing campaign before inserting anything")
+        void saveAll_MissingCampaign() {
+            when(campaignRepo.lockIdsIn(Set.of(1, 2))).thenReturn(List.of(1));
+
+            assertThatThrownBy(() -> donationService.saveAll(List.of(donation(1, 100L), donation(2, 100L))))
+                    .isInstanceOf(EntityNotFoundException.class)
+                    .hasMessageContaining("Campaign not found with id: 2");
+
+            verifyNoInteractions(jdbcTemplate, donationRollupService, donorCountService);
+            verify(campaignRepo, never()).addRaisedFunds(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should do nothing when every donation in the batch is already stored")
+        void saveAll_AllStored() {
+            DonationDTO stored = donation(1, 500L);
+            stored.setPaymentIntentId("pi_stored");
+            when(donationRepo.findPaymentIntentIdsIn(Set.of("pi_stored"))).thenReturn(List.of("pi_stored"));
+
+            donationService.saveAll(List.of(stored));
+
+            verifyNoInteractions(campaignRepo, jdbcTemplate, donationRollupService);
+        }
+
+        @Test
+        @DisplayName("Should do nothing for an empty batch")
+        void saveAll_Empty() {
+            donationService.saveAll(List.of());
+
+            verifyNoInteractions(campaignRepo, jdbcTemplate, campaignFeedService, campaignRankingService, donationRollupService);
+        }
+    }
+
+    @Nested
+    @DisplayName("GetHistory Tests")
+    class GetHistoryTests {
+
+        private DonationHistoryRow row(int id, LocalDateTime date) {
+            return new DonationHistoryRow(id, date, 1_000L, 1, 2, "Campaign", 3, "Company");
+        }
+
+        private DonationHistoryReq page(String cursor, int size) {
+            DonationHistoryReq page = new DonationHistoryReq();
+            page.setCursor(cursor);
+            page.setSize(size);
+            return page;
+        }
+
+        @Test
+        @DisplayName("Should return a page with a cursor and the lifetime figures from the summary")
+        void getHistory_FirstPage() {
+            LocalDateTime now = LocalDateTime.of(2025, 6, 1, 12, 0);
+            when(donationRepo.findHistory(1, PageRequest.of(0, 3)))
+                    .thenReturn(List.of(row(9, now), row(8, now), row(5, now.minusDays(1))));
+            DonorSummary summary = new DonorSummary();
+            summary.setUserId(1);
+            summary.setTotalAmount(42_000L);
+            summary.setDonationCount(12);
+            summary.setCampaignCount(4);
+            when(donorSummaryRepo.findById(1)).thenReturn(Optional.of(summary));
+
+            DonationHistoryRes result = donationService.getHistory(1, page(null, 2));
+
+            assertThat(result.getDonations()).hasSize(2);
+            assertThat(result.getDonations().getFirst().getCampaignName()).isEqualTo("Campaign");
+            assertThat(result.getDonations().getFirst().getCompanyName()).isEqualTo("Company");
+            assertThat(result.getNextCursor()).isEqualTo(new DonationCursor(now, 8).encode());
+            assertThat(result.getTotalAmount()).isEqualTo(42_000L);
+            assertThat(result.getDonationCount()).isEqualTo(12);
+            assertThat(result.getCampaignCount()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("Should continue after the cursor and stop handing out cursors on the last page")
+        void getHistory_NextPage() {
+            LocalDateTime date = LocalDateTime.of(2025, 6, 1, 12, 0);
+            when(donationRepo.findHistoryBefore(1, date, 8, PageRequest.of(0, 3))).thenReturn(List.of(row(5, date.minusDays(1))));
+            when(donorSummaryRepo.findById(1)).thenReturn(Optional.empty());
+
+            DonationHistoryRes result = donationService.getHistory(1, page(new DonationCursor(date, 8).encode(), 2));
+
+            assertThat(result.getDonations()).hasSize(1);
+            assertThat(result.getNextCursor()).isNull();
+            assertThat(result.getTotalAmount()).isZero();
+            verify(donationRepo, never()).findHistory(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should reject a cursor it didn't issue")
+        void getHistory_InvalidCursor() {
+            assertThatThrownBy(() -> donationService.getHistory(1, page("not-a-cursor", 20)))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+
+            verifyNoInteractions(donationRepo, donorSummaryRepo);
+        }
+
+        @Test
+        @DisplayName("Should page on into undated donations, and through them by id")
+        void getHistory_UndatedDonations() {
+            LocalDateTime date = LocalDateTime.of(2025, 6, 1, 12, 0);
+            when(donationRepo.findHistoryBefore(1, date, 8, PageRequest.of(0, 3))).thenReturn(List.of(row(5, null), row(4, null), row(2, null)));
+            when(donationRepo.findUndatedHistoryBefore(1, 4, PageRequest.of(0, 3))).thenReturn(List.of(row(2, null)));
+            when(donorSummaryRepo.findById(1)).thenReturn(Optional.empty());
+
+            DonationHistoryRes first = donationService.getHistory(1, page(new DonationCursor(date, 8).encode(), 2));
+            DonationHistoryRes second = donationService.getHistory(1, page(first.getNextCursor(), 2));
+
+            assertThat(first.getDonations()).hasSize(2);
+            assertThat(first.getNextCursor()).isEqualTo(new DonationCursor(null, 4).encode());
+            assertThat(second.getDonations()).hasSize(1);
+            assertThat(second.getNextCursor()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("GetAllByUserId Tests")
+    class GetAllByUserIdTests {
+
+        private DonationHistoryRow row(int id) {
+            return new DonationHistoryRow(id, null, 1_000L, 1, 2, "Campaign", 3, "Company");
+        }
+
+        @Test
+        @DisplayName("Should return every donation as one list, read page by page")
+        void getAllByUserId_ReadsEveryPage() {
+            List<DonationHistoryRow> full = new ArrayList<>();
+            for (int id = 1_000; id > 500; id--) {
+                full.add(row(id));
+            }
+            when(donationRepo.findHistory(1, PageRequest.of(0, 500))).thenReturn(full);
+            when(donationRepo.findUndatedHistoryBefore(1, 501, PageRequest.of(0, 500))).thenReturn(List.of(row(7)));
+
+            List<DonationByUserGetAllRes> result = donationService.getAllByUserId(1);
+
+            assertThat(result).hasSize(501);
+            assertThat(result.getFirst().getCampaignName()).isEqualTo("Campaign");
+            verifyNoInteractions(donorSummaryRepo);
         }
     }
 }
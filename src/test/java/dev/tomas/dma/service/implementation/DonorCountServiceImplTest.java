@@ -0,0 +1,259 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.dto.projection.CampaignCompanyRow;
+import dev.tomas.dma.entity.DonorSketch;
+import dev.tomas.dma.enums.SketchScope;
+import dev.tomas.dma.repository.CampaignRepo;
+import dev.tomas.dma.repository.DonationRepository;
+import dev.tomas.dma.repository.DonorSketchRepo;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DonorCountServiceImplTest {
+
+    @Mock
+    private DonorSketchRepo sketchRepo;
+
+    @Mock
+    private DonationRepository donationRepo;
+
+    @Mock
+    private CampaignRepo campaignRepo;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private DonorCountServiceImpl donorCountService;
+
+    private DonationDTO donation(Integer campaignId, Integer userId) {
+        DonationDTO dto = new DonationDTO();
+        dto.setCampaignId(campaignId);
+        dto.setUserId(userId);
+        dto.setAmount(1_000L);
+        return dto;
+    }
+
+    @Nested
+    @DisplayName("Add Tests")
+    class AddTests {
+
+        @Test
+        @DisplayName("Should count each donor once per campaign, company and platform")
+        void add_CountsDistinctDonors() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection()))
+                    .thenReturn(List.of(new CampaignCompanyRow(1, 10), new CampaignCompanyRow(2, 10)));
+
+            donorCountService.add(List.of(donation(1, 100), donation(1, 100), donation(1, 101), donation(2, 100)));
+
+            assertThat(donorCountService.campaignDonors(1)).isEqualTo(2);
+            assertThat(donorCountService.campaignDonors(2)).isEqualTo(1);
+            assertThat(donorCountService.companyDonors(10)).isEqualTo(2);
+            assertThat(donorCountService.platformDonors()).isEqualTo(2);
+            assertThat(donorCountService.campaignDonors(3)).isZero();
+        }
+
+        @Test
+        @DisplayName("Should rewrite changed campaign sketches under their row lock, in campaign order")
+        void add_WritesChangedCampaignSketches() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection()))
+                    .thenReturn(List.of(new CampaignCompanyRow(1, 10), new CampaignCompanyRow(2, 10)));
+
+            donorCountService.add(List.of(donation(2, 101), donation(1, 100)));
+
+            InOrder order = inOrder(jdbcTemplate);
+            for (int campaignId : new int[]{1, 2}) {
+                order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(byte[].class), eq(SketchScope.CAMPAIGN.name()), eq(campaignId));
+                order.verify(jdbcTemplate).update(contains("ON DUPLICATE KEY UPDATE"), eq(SketchScope.CAMPAIGN.name()), eq(campaignId), any(byte[].class));
+            }
+        }
+
+        @Test
+        @DisplayName("Should not lock company or platform sketches in the donation transaction")
+        void add_LeavesUnionsToFlush() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of(new CampaignCompanyRow(1, 10)));
+
+            donorCountService.add(List.of(donation(1, 100)));
+
+            verify(jdbcTemplate, never()).queryForList(anyString(), eq(byte[].class), eq(SketchScope.COMPANY.name()), anyInt());
+            verify(jdbcTemplate, never()).queryForList(anyString(), eq(byte[].class), eq(SketchScope.PLATFORM.name()), anyInt());
+            assertThat(donorCountService.companyDonors(10)).isEqualTo(1);
+            assertThat(donorCountService.platformDonors()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should not touch the database for donors already in every sketch")
+        void add_RepeatDonorSkipsWrites() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of(new CampaignCompanyRow(1, 10)));
+            donorCountService.add(List.of(donation(1, 100)));
+            clearInvocations(jdbcTemplate, campaignRepo);
+
+            donorCountService.add(List.of(donation(1, 100)));
+
+            verifyNoInteractions(jdbcTemplate, campaignRepo);
+        }
+
+        @Test
+        @DisplayName("Should add to the stored sketch rather than overwrite it")
+        void add_MergesStoredSketch() {
+            HyperLogLog stored = sketch(0, 50);
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of());
+            when(jdbcTemplate.queryForList(anyString(), eq(byte[].class), anyString(), anyInt()))
+                    .thenAnswer(invocation -> SketchScope.CAMPAIGN.name().equals(invocation.getArgument(2))
+                            ? List.of(stored.toBytes())
+                            : List.of());
+
+            donorCountService.add(List.of(donation(1, 100)));
+
+            assertThat(donorCountService.campaignDonors(1)).isEqualTo(51);
+        }
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("Should read the stored sketches on first use")
+        void campaignDonors_LoadsSketches() {
+            when(sketchRepo.count()).thenReturn(1L);
+            when(sketchRepo.findAll()).thenReturn(List.of(row(SketchScope.CAMPAIGN, 5, sketch(0, 7))));
+
+            assertThat(donorCountService.campaignDonors(5)).isEqualTo(7);
+            assertThat(donorCountService.campaignDonors(5)).isEqualTo(7);
+
+            verify(sketchRepo, times(1)).findAll();
+        }
+
+        @Test
+        @DisplayName("Should derive company and platform sketches from the stored campaign sketches")
+        void companyDonors_DerivedFromCampaigns() {
+            DonorSketch first = row(SketchScope.CAMPAIGN, 5, sketch(0, 7));
+            DonorSketch second = row(SketchScope.CAMPAIGN, 6, sketch(5, 7));
+            when(sketchRepo.count()).thenReturn(2L);
+            when(sketchRepo.findAll()).thenReturn(List.of(first, second));
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection()))
+                    .thenReturn(List.of(new CampaignCompanyRow(5, 10), new CampaignCompanyRow(6, 10)));
+
+            assertThat(donorCountService.companyDonors(10)).isEqualTo(12);
+            assertThat(donorCountService.platformDonors()).isEqualTo(12);
+        }
+    }
+
+    @Nested
+    @DisplayName("Flush Tests")
+    class FlushTests {
+
+        @Test
+        @DisplayName("Should store grown company and platform sketches under their row lock, once")
+        void flush_StoresGrownUnions() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of(new CampaignCompanyRow(1, 10)));
+            donorCountService.add(List.of(donation(1, 100)));
+            clearInvocations(jdbcTemplate);
+
+            donorCountService.flush();
+
+            InOrder order = inOrder(jdbcTemplate);
+            order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(byte[].class), eq(SketchScope.COMPANY.name()), eq(10));
+            order.verify(jdbcTemplate).update(contains("ON DUPLICATE KEY UPDATE"), eq(SketchScope.COMPANY.name()), eq(10), any(byte[].class));
+            order.verify(jdbcTemplate).queryForList(contains("FOR UPDATE"), eq(byte[].class), eq(SketchScope.PLATFORM.name()), eq(0));
+            order.verify(jdbcTemplate).update(contains("ON DUPLICATE KEY UPDATE"), eq(SketchScope.PLATFORM.name()), eq(0), any(byte[].class));
+            clearInvocations(jdbcTemplate);
+
+            donorCountService.flush();
+
+            verifyNoInteractions(jdbcTemplate);
+        }
+
+        @Test
+        @DisplayName("Should keep donors flushed by other instances")
+        void flush_MergesStoredSketch() {
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of());
+            when(jdbcTemplate.queryForList(anyString(), eq(byte[].class), anyString(), anyInt()))
+                    .thenAnswer(invocation -> SketchScope.PLATFORM.name().equals(invocation.getArgument(2))
+                            ? List.of(sketch(1_000, 50).toBytes())
+                            : List.of());
+            donorCountService.add(List.of(donation(1, 100)));
+
+            donorCountService.flush();
+
+            assertThat(donorCountService.platformDonors()).isEqualTo(51);
+        }
+    }
+
+    @Nested
+    @DisplayName("Refresh Tests")
+    class RefreshTests {
+
+        // The rows the refresh reads back, as written since its watermark
+        private void changed(DonorSketch... rows) {
+            doAnswer(invocation -> {
+                RowCallbackHandler handler = invocation.getArgument(1);
+                for (DonorSketch row : rows) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString(1)).thenReturn(row.getScope().name());
+                    when(rs.getInt(2)).thenReturn(row.getScopeId());
+                    when(rs.getBytes(3)).thenReturn(row.getRegisters());
+                    handler.processRow(rs);
+                }
+                return null;
+            }).when(jdbcTemplate).query(contains("updated_at"), any(RowCallbackHandler.class), any(Timestamp.class));
+        }
+
+        @Test
+        @DisplayName("Should read only sketches written since the last refresh, and merge them into their unions")
+        void refresh_MergesChangedSketches() {
+            Timestamp loadedAt = Timestamp.valueOf("2026-01-01 12:00:00");
+            when(jdbcTemplate.queryForObject(anyString(), eq(Timestamp.class)))
+                    .thenReturn(loadedAt, Timestamp.valueOf("2026-01-01 12:01:00"));
+            when(campaignRepo.findCompanyIdsByIdIn(anyCollection())).thenReturn(List.of(new CampaignCompanyRow(2, 20)));
+            changed(row(SketchScope.CAMPAIGN, 2, sketch(0, 7)), row(SketchScope.PLATFORM, 0, sketch(100, 7)));
+
+            donorCountService.refresh();
+
+            assertThat(donorCountService.campaignDonors(2)).isEqualTo(7);
+            assertThat(donorCountService.companyDonors(20)).isEqualTo(7);
+            assertThat(donorCountService.platformDonors()).isEqualTo(14);
+            verify(jdbcTemplate).query(contains("updated_at"), any(RowCallbackHandler.class),
+                    eq(new Timestamp(loadedAt.getTime() - 300_000)));
+            verify(jdbcTemplate, never()).getDataSource();
+        }
+    }
+
+    private static HyperLogLog sketch(int firstDonor, int donors) {
+        HyperLogLog sketch = new HyperLogLog();
+        IntStream.range(firstDonor, firstDonor + donors).forEach(i -> sketch.offer(HyperLogLog.hash(i)));
+        return sketch;
+    }
+
+    private static DonorSketch row(SketchScope scope, int id, HyperLogLog sketch) {
+        DonorSketch row = new DonorSketch();
+        row.setScope(scope);
+        row.setScopeId(id);
+        row.setRegisters(sketch.toBytes());
+        return row;
+    }
+}
@@ -13,8 +13,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -162,4 +165,39 @@ class FileServiceImplTest {
             verify(fileRepo, times(3)).save(any(AppFile.class));
         }
     }
+
+    @Nested
+    @DisplayName("FindAllByEntityIds Tests")
+    class FindAllByEntityIdsTests {
+
+        @Test
+        @DisplayName("Should group files by entity id from a single query")
+        void findAllByEntityIds_GroupsByEntity() {
+            AppFile secondFile = new AppFile();
+            secondFile.setId(2L);
+            secondFile.setEntityId(1);
+            AppFile otherCampaignFile = new AppFile();
+            otherCampaignFile.setId(3L);
+            otherCampaignFile.setEntityId(2);
+
+            when(fileRepo.findByEntityTypeAndFileTypeAndEntityIdIn(eq(EntityType.CAMPAIGN), eq(FileType.CAMPAIGN_IMAGE), anyCollection()))
+                    .thenReturn(List.of(testFile, secondFile, otherCampaignFile));
+
+            Map<Integer, List<AppFile>> result = fileService.findAllByEntityIds(EntityType.CAMPAIGN, FileType.CAMPAIGN_IMAGE, List.of(1, 2, 3));
+
+            assertThat(result.get(1)).containsExactly(testFile, secondFile);
+            assertThat(result.get(2)).containsExactly(otherCampaignFile);
+            assertThat(result).doesNotContainKey(3);
+            verify(fileRepo, times(1)).findByEntityTypeAndFileTypeAndEntityIdIn(any(), any(), anyCollection());
+        }
+
+        @Test
+        @DisplayName("Should not query when no entity ids are given")
+        void findAllByEntityIds_EmptyIds() {
+            Map<Integer, List<AppFile>> result = fileService.findAllByEntityIds(EntityType.CAMPAIGN, FileType.CAMPAIGN_IMAGE, List.of());
+
+            assertThat(result).isEmpty();
+            verifyNoInteractions(fileRepo);
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package dev.tomas.dma.service.implementation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        IntStream.range(from, to).forEach(i -> sketch.offer(HyperLogLog.hash(i)));
+        return sketch;
+    }
+
+    @Test
+    @DisplayName("Should count small sets exactly enough and large ones within a few percent")
+    void estimate_Accuracy() {
+        assertThat(sketchOf(0, 10).estimate()).isEqualTo(10);
+        assertThat((double) sketchOf(0, 100_000).estimate()).isCloseTo(100_000, within(3_000.0));
+    }
+
+    @Test
+    @DisplayName("Should ignore values it has already seen")
+    void offer_Duplicates() {
+        HyperLogLog sketch = sketchOf(0, 1_000);
+
+        assertThat(IntStream.range(0, 1_000).noneMatch(i -> sketch.offer(HyperLogLog.hash(i)))).isTrue();
+        assertThat(IntStream.range(0, 1_000).noneMatch(i -> sketch.wouldChange(HyperLogLog.hash(i)))).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should estimate the union when two sketches are merged")
+    void merge_Union() {
+        HyperLogLog merged = sketchOf(0, 30_000);
+        merged.merge(sketchOf(20_000, 50_000));
+
+        assertThat(merged.estimate()).isEqualTo(sketchOf(0, 50_000).estimate());
+    }
+
+    @Test
+    @DisplayName("Should write few donors sparsely and read both encodings back unchanged")
+    void toBytes_RoundTrip() {
+        HyperLogLog small = sketchOf(0, 5);
+        HyperLogLog large = sketchOf(0, 50_000);
+
+        assertThat(small.toBytes()).hasSize(1 + 5 * 3);
+        assertThat(large.toBytes()).hasSize(1 + (1 << HyperLogLog.PRECISION));
+        assertThat(HyperLogLog.fromBytes(small.toBytes()).estimate()).isEqualTo(small.estimate());
+        assertThat(HyperLogLog.fromBytes(large.toBytes()).toBytes()).isEqualTo(large.toBytes());
+    }
+}
@@ -1,6 +1,8 @@
 package dev.tomas.dma.service.implementation;
 
+import dev.tomas.dma.dto.common.VerifiedToken;
 import dev.tomas.dma.entity.Company;
+import dev.tomas.dma.entity.CompanyPermission;
 import dev.tomas.dma.entity.CompanyRole;
 import dev.tomas.dma.entity.User;
 import io.jsonwebtoken.Claims;
@@ -16,6 +18,7 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -261,6 +264,97 @@ class JWTServiceImplTest {
 
             assertThat(claims.get("Company")).isNull();
             assertThat(claims.get("Role")).isNull();
+            assertThat(claims.get(VerifiedToken.ROLE_VERSION)).isNull();
+            assertThat(PermissionBits.decode(claims.get(VerifiedToken.PERMISSIONS, String.class))).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should include user id, role version and permission ids for authorising without the database")
+        void tokenClaims_IncludesPermissions() {
+            CompanyPermission manageCampaigns = new CompanyPermission();
+            manageCampaigns.setId(2);
+            CompanyPermission manageEmployees = new CompanyPermission();
+            manageEmployees.setId(9);
+            testRole.setPermissions(List.of(manageCampaigns, manageEmployees));
+            testRole.setPermissionVersion(4);
+            testUser.setCompany(testCompany);
+            testUser.setCompanyRole(testRole);
+
+            VerifiedToken token = jwtService.verify(jwtService.generateToken(testUser));
+
+            assertThat(token.claims().get(VerifiedToken.USER_ID)).isEqualTo(1);
+            assertThat(token.claims().get(VerifiedToken.SYSTEM_ROLE)).isEqualTo("DONOR");
+            assertThat(token.claims().get(VerifiedToken.ROLE_ID)).isEqualTo(1);
+            assertThat(token.claims().get(VerifiedToken.ROLE_VERSION)).isEqualTo(4);
+            assertThat(PermissionBits.decode(token.claims().get(VerifiedToken.PERMISSIONS, String.class)))
+                    .containsExactly(2, 9);
+        }
+    }
+
+    @Nested
+    @DisplayName("Verify Tests")
+    class VerifyTests {
+
+        @Test
+        @DisplayName("Should read subject and expiry from a single verification")
+        void verify_Success() {
+            String token = jwtService.generateToken(testUser);
+
+            VerifiedToken verified = jwtService.verify(token);
+
+            assertThat(verified.subject()).isEqualTo("test@example.com");
+            assertThat(verified.expiration()).isAfter(new Date());
+            assertThat(verified.isExpired()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should answer a recently verified token from memory")
+        void verify_Cached() {
+            String token = jwtService.generateToken(testUser);
+
+            VerifiedToken first = jwtService.verify(token);
+
+            assertThat(jwtService.verify(token)).isSameAs(first);
+        }
+
+        @Test
+        @DisplayName("Should verify again once a token drops out of the cache")
+        void verify_BoundedCache() {
+            ReflectionTestUtils.setField(jwtService, "verifiedCacheCapacity", 1);
+            String token = jwtService.generateToken(testUser);
+            testUser.setEmail("other@example.com");
+            String other = jwtService.generateToken(testUser);
+
+            VerifiedToken first = jwtService.verify(token);
+            jwtService.verify(other);
+
+            assertThat(jwtService.verify(token)).isNotSameAs(first).isEqualTo(first);
+        }
+
+        @Test
+        @DisplayName("Should reject a token signed with another key")
+        void verify_Failure_ForeignToken() {
+            JWTServiceImpl otherService = new JWTServiceImpl();
+            ReflectionTestUtils.setField(otherService, "secret", SECRET + "-other");
+            ReflectionTestUtils.setField(otherService, "expiration", EXPIRATION);
+            String foreign = otherService.generateToken(testUser);
+
+            assertThatThrownBy(() -> jwtService.verify(foreign))
+                    .isInstanceOf(io.jsonwebtoken.security.SignatureException.class);
+        }
+
+        @Test
+        @DisplayName("Should reject a cached token once it expires")
+        void verify_Failure_CachedTokenExpired() throws InterruptedException {
+            // Expiry is stored in whole seconds
+            ReflectionTestUtils.setField(jwtService, "expiration", 2_000L);
+            String token = jwtService.generateToken(testUser);
+            jwtService.verify(token);
+
+            Thread.sleep(2_100);
+
+            assertThatThrownBy(() -> jwtService.verify(token))
+                    .isInstanceOf(io.jsonwebtoken.ExpiredJwtException.class);
         }
     }
 }
@@ -0,0 +1,37 @@
+package dev.tomas.dma.service.implementation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A UTC clock tests can move, for services that take their clock in the constructor.
+ */
+final class MutableClock extends Clock {
+    private volatile Instant instant = Instant.EPOCH;
+
+    void set(long millis) {
+        instant = Instant.ofEpochMilli(millis);
+    }
+
+    void set(LocalDateTime time) {
+        instant = time.toInstant(ZoneOffset.UTC);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
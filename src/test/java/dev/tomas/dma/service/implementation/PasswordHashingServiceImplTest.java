@@ -0,0 +1,166 @@
+package dev.tomas.dma.service.implementation;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceImplTest {
+    private static final int COST = 5;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingServiceImpl hashingService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        hashingService = new PasswordHashingServiceImpl(meterRegistry, COST, 1, 1, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingService.destroy();
+    }
+
+    @Nested
+    @DisplayName("Verify Tests")
+    class VerifyTests {
+
+        @Test
+        @DisplayName("Should accept the right password and leave a current hash alone")
+        void verify_Success() {
+            String hash = hashingService.hash("password123");
+            List<String> rehashed = new ArrayList<>();
+
+            assertThat(hashingService.verify("password123", hash, rehashed::add)).isTrue();
+            assertThat(rehashed).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should reject a wrong password")
+        void verify_WrongPassword() {
+            String hash = hashingService.hash("password123");
+
+            assertThat(hashingService.verify("password124", hash, rehash -> {
+                throw new AssertionError("Rehashed a wrong password");
+            })).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject any password when there is no user")
+        void verify_UnknownUser() {
+            assertThat(hashingService.verify("unknown-user", null, rehash -> {
+                throw new AssertionError("Rehashed for an unknown user");
+            })).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should reject any password against a corrupt or non-bcrypt hash")
+        void verify_CorruptHash() {
+            String hash = hashingService.hash("password123");
+
+            for (String corrupt : List.of("not-a-bcrypt-hash", "", hash.substring(0, 20), hash.replace("$05$", "$03$"))) {
+                assertThat(hashingService.verify("password123", corrupt, rehash -> {
+                    throw new AssertionError("Rehashed against a corrupt hash");
+                })).isFalse();
+            }
+        }
+
+        @Test
+        @DisplayName("Should accept hashes made by Spring's encoder and move them to the configured cost")
+        void verify_RehashesOtherCost() {
+            String legacy = new BCryptPasswordEncoder(4).encode("password123");
+            List<String> rehashed = new ArrayList<>();
+
+            assertThat(hashingService.verify("password123", legacy, rehashed::add)).isTrue();
+
+            assertThat(rehashed).hasSize(1);
+            BCrypt.Result result = BCrypt.verifyer().verify("password123".toCharArray(), rehashed.getFirst());
+            assertThat(result.verified).isTrue();
+            assertThat(result.details.cost).isEqualTo(COST);
+            assertThat(meterRegistry.counter("auth.hashing.rehashed").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should make hashes Spring's encoder can still check")
+        void hash_ReadableBySpring() {
+            String hash = hashingService.hash("password123");
+
+            assertThat(new BCryptPasswordEncoder().matches("password123", hash)).isTrue();
+        }
+    }
+
+    @Nested
+    @DisplayName("Back-pressure Tests")
+    class BackPressureTests {
+
+        @Test
+        @DisplayName("Should fail with 503 once the pool and its queue are full")
+        void verify_RejectsWhenQueueFull() throws InterruptedException {
+            ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(hashingService, "executor");
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch started = new CountDownLatch(1);
+            // One task hashing, one waiting: the pool has a single thread and a queue of one
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            started.await();
+            executor.execute(() -> {
+            });
+
+            try {
+                assertThatThrownBy(() -> hashingService.hash("password123"))
+                        .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+                assertThat(meterRegistry.counter("auth.hashing.rejected").count()).isEqualTo(1);
+            } finally {
+                release.countDown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should fail with 503 when a check waits longer than the timeout")
+        void verify_TimesOut() throws InterruptedException {
+            hashingService.destroy();
+            hashingService = new PasswordHashingServiceImpl(meterRegistry, COST, 1, 4, 50);
+            ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(hashingService, "executor");
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            try {
+                assertThatThrownBy(() -> hashingService.hash("password123"))
+                        .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+                assertThat(meterRegistry.counter("auth.hashing.timeouts").count()).isEqualTo(1);
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+}
@@ -1,130 +1,287 @@
 package dev.tomas.dma.service.implementation;
 
+import com.stripe.exception.ApiConnectionException;
 import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
 import dev.tomas.dma.dto.common.DonationDTO;
+import dev.tomas.dma.service.PaymentGateway;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.MockedStatic;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class PaymentServiceImplTest {
+    private static final long TTL_MS = 60_000;
+
+    @Mock
+    private PaymentGateway paymentGateway;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private final MutableClock clock = new MutableClock();
 
-    @InjectMocks
     private PaymentServiceImpl paymentService;
 
     private DonationDTO donationDTO;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        paymentService = new PaymentServiceImpl(paymentGateway, meterRegistry, clock, 2, 500, TTL_MS);
+
         donationDTO = new DonationDTO();
         donationDTO.setCampaignId(1);
         donationDTO.setUserId(1);
         donationDTO.setAmount(5000L); // 50.00 EUR in cents
     }
 
+    private void setTime(long millis) {
+        clock.set(millis);
+    }
+
+    private PaymentIntentCreateParams sentParams() throws StripeException {
+        ArgumentCaptor<PaymentIntentCreateParams> captor = ArgumentCaptor.forClass(PaymentIntentCreateParams.class);
+        verify(paymentGateway).createPaymentIntent(captor.capture(), anyString());
+        return captor.getValue();
+    }
+
     @Nested
     @DisplayName("CreatePaymentIntent Tests")
     class CreatePaymentIntentTests {
 
         @Test
         @DisplayName("Should create payment intent with correct parameters")
-        void createPaymentIntent_Success() throws StripeException {
+        void createPaymentIntent_Success() throws Exception {
             PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
             when(mockPaymentIntent.getClientSecret()).thenReturn("pi_test_secret");
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(mockPaymentIntent);
 
-            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                        .thenReturn(mockPaymentIntent);
-
-                PaymentIntent result = paymentService.createPaymentIntent(donationDTO);
+            PaymentIntent result = paymentService.createPaymentIntent(donationDTO).get();
 
-                assertThat(result).isNotNull();
-                assertThat(result.getClientSecret()).isEqualTo("pi_test_secret");
-
-                mockedStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)));
-            }
+            assertThat(result.getClientSecret()).isEqualTo("pi_test_secret");
+            assertThat(sentParams().getCurrency()).isEqualTo("eur");
         }
 
         @Test
         @DisplayName("Should set amount correctly in payment intent")
-        void createPaymentIntent_CorrectAmount() throws StripeException {
+        void createPaymentIntent_CorrectAmount() throws Exception {
             donationDTO.setAmount(10000L); // 100.00 EUR
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(mock(PaymentIntent.class));
 
-            PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
-            when(mockPaymentIntent.getAmount()).thenReturn(10000L);
-
-            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                        .thenReturn(mockPaymentIntent);
-
-                PaymentIntent result = paymentService.createPaymentIntent(donationDTO);
+            paymentService.createPaymentIntent(donationDTO).get();
 
-                assertThat(result).isNotNull();
-                assertThat(result.getAmount()).isEqualTo(10000L);
-            }
+            assertThat(sentParams().getAmount()).isEqualTo(10000L);
         }
 
         @Test
         @DisplayName("Should include campaign and user metadata")
-        void createPaymentIntent_IncludesMetadata() throws StripeException {
+        void createPaymentIntent_IncludesMetadata() throws Exception {
             donationDTO.setCampaignId(5);
             donationDTO.setUserId(10);
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(mock(PaymentIntent.class));
 
-            PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
-
-            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                        .thenReturn(mockPaymentIntent);
-
-                PaymentIntent result = paymentService.createPaymentIntent(donationDTO);
+            paymentService.createPaymentIntent(donationDTO).get();
 
-                assertThat(result).isNotNull();
-            }
+            assertThat(sentParams().getMetadata())
+                    .containsEntry("campaignId", "5")
+                    .containsEntry("userId", "10");
         }
 
         @Test
         @DisplayName("Should handle minimum amount donation")
-        void createPaymentIntent_MinimumAmount() throws StripeException {
+        void createPaymentIntent_MinimumAmount() throws Exception {
             donationDTO.setAmount(50L); // Minimum amount (0.50 EUR)
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(mock(PaymentIntent.class));
 
-            PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
+            assertThat(paymentService.createPaymentIntent(donationDTO).get()).isNotNull();
+            assertThat(sentParams().getAmount()).isEqualTo(50L);
+        }
+
+        @Test
+        @DisplayName("Should handle large amount donation")
+        void createPaymentIntent_LargeAmount() throws Exception {
+            donationDTO.setAmount(99999999L); // Large donation
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(mock(PaymentIntent.class));
+
+            assertThat(paymentService.createPaymentIntent(donationDTO).get()).isNotNull();
+            assertThat(sentParams().getAmount()).isEqualTo(99999999L);
+        }
+
+        @Test
+        @DisplayName("Should pass Stripe errors through to the caller")
+        void createPaymentIntent_StripeError() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenThrow(new ApiConnectionException("Connection refused"));
+
+            assertThatThrownBy(() -> paymentService.createPaymentIntent(donationDTO).get())
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(ApiConnectionException.class);
+        }
+    }
 
-            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                        .thenReturn(mockPaymentIntent);
+    @Nested
+    @DisplayName("Bulkhead Tests")
+    class BulkheadTests {
 
-                PaymentIntent result = paymentService.createPaymentIntent(donationDTO);
+        @Test
+        @DisplayName("Should fail fast once every permit is in use, and accept calls again when they finish")
+        void createPaymentIntent_Saturated() throws Exception {
+            CountDownLatch release = new CountDownLatch(1);
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenAnswer(invocation -> {
+                release.await();
+                return mock(PaymentIntent.class);
+            });
+
+            CompletableFuture<PaymentIntent> first = paymentService.createPaymentIntent(donationDTO);
+            donationDTO.setAmount(6000L);
+            CompletableFuture<PaymentIntent> second = paymentService.createPaymentIntent(donationDTO);
+            donationDTO.setAmount(7000L);
+            CompletableFuture<PaymentIntent> third = paymentService.createPaymentIntent(donationDTO);
+
+            assertThat(third).isCompletedExceptionally();
+            assertThatThrownBy(third::get)
+                    .hasCauseInstanceOf(ResponseStatusException.class)
+                    .hasMessageContaining("Payment provider is busy");
+            assertThat(meterRegistry.counter("payments.bulkhead.rejected").count()).isEqualTo(1);
+
+            release.countDown();
+            first.get();
+            second.get();
+            assertThat(paymentService.createPaymentIntent(donationDTO).get()).isNotNull();
+        }
 
-                assertThat(result).isNotNull();
+        @Test
+        @DisplayName("Should fail the request when Stripe is slower than the timeout")
+        void createPaymentIntent_Timeout() throws Exception {
+            CountDownLatch release = new CountDownLatch(1);
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenAnswer(invocation -> {
+                release.await();
+                return mock(PaymentIntent.class);
+            });
+
+            try {
+                assertThatThrownBy(() -> paymentService.createPaymentIntent(donationDTO).get())
+                        .hasCauseInstanceOf(ResponseStatusException.class)
+                        .hasMessageContaining("Payment provider timed out");
+                assertThat(meterRegistry.counter("payments.timeouts").count()).isEqualTo(1);
+            } finally {
+                release.countDown();
             }
         }
+    }
+
+    @Nested
+    @DisplayName("Intent Cache Tests")
+    class IntentCacheTests {
 
         @Test
-        @DisplayName("Should handle large amount donation")
-        void createPaymentIntent_LargeAmount() throws StripeException {
-            donationDTO.setAmount(99999999L); // Large donation
+        @DisplayName("Should hand repeat clicks the intent already created, without calling Stripe again")
+        void createPaymentIntent_RepeatReusesIntent() throws Exception {
+            PaymentIntent intent = mock(PaymentIntent.class);
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString())).thenReturn(intent);
+
+            PaymentIntent first = paymentService.createPaymentIntent(donationDTO).get();
+            PaymentIntent second = paymentService.createPaymentIntent(donationDTO).get();
+
+            assertThat(second).isSameAs(first);
+            verify(paymentGateway, times(1)).createPaymentIntent(any(PaymentIntentCreateParams.class), anyString());
+            verifyNoMoreInteractions(paymentGateway);
+            assertThat(meterRegistry.counter("payments.intents.reused").count()).isEqualTo(1);
+        }
 
-            PaymentIntent mockPaymentIntent = mock(PaymentIntent.class);
+        @Test
+        @DisplayName("Should create a new intent for a different amount")
+        void createPaymentIntent_DifferentAmount() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenAnswer(invocation -> mock(PaymentIntent.class));
 
-            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
-                        .thenReturn(mockPaymentIntent);
+            PaymentIntent first = paymentService.createPaymentIntent(donationDTO).get();
+            donationDTO.setAmount(2500L);
+            PaymentIntent second = paymentService.createPaymentIntent(donationDTO).get();
 
-                PaymentIntent result = paymentService.createPaymentIntent(donationDTO);
+            assertThat(second).isNotSameAs(first);
+            verify(paymentGateway, times(2)).createPaymentIntent(any(PaymentIntentCreateParams.class), anyString());
+        }
 
-                assertThat(result).isNotNull();
-            }
+        @Test
+        @DisplayName("Should create a new intent once the cached one expires, under a new idempotency key")
+        void createPaymentIntent_Expired() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenAnswer(invocation -> mock(PaymentIntent.class));
+            setTime(0);
+            paymentService.createPaymentIntent(donationDTO).get();
+
+            setTime(TTL_MS);
+            paymentService.createPaymentIntent(donationDTO).get();
+
+            ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+            verify(paymentGateway, times(2)).createPaymentIntent(any(PaymentIntentCreateParams.class), keys.capture());
+            assertThat(keys.getAllValues()).doesNotHaveDuplicates();
+        }
+
+        @Test
+        @DisplayName("Should retry a failed call under a new idempotency key")
+        void createPaymentIntent_FailureNotCached() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenThrow(new ApiConnectionException("Connection refused"))
+                    .thenReturn(mock(PaymentIntent.class));
+
+            assertThatThrownBy(() -> paymentService.createPaymentIntent(donationDTO).get())
+                    .hasCauseInstanceOf(ApiConnectionException.class);
+            assertThat(paymentService.createPaymentIntent(donationDTO).get()).isNotNull();
+
+            ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+            verify(paymentGateway, times(2)).createPaymentIntent(any(PaymentIntentCreateParams.class), keys.capture());
+            assertThat(keys.getAllValues()).doesNotHaveDuplicates();
+        }
+
+        @Test
+        @DisplayName("Should create a new intent, under a new idempotency key, once the cached one is paid")
+        void forgetPaymentIntent_AfterPayment() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenAnswer(invocation -> mock(PaymentIntent.class));
+            paymentService.createPaymentIntent(donationDTO).get();
+
+            paymentService.forgetPaymentIntent(donationDTO);
+            paymentService.createPaymentIntent(donationDTO).get();
+
+            ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+            verify(paymentGateway, times(2)).createPaymentIntent(any(PaymentIntentCreateParams.class), keys.capture());
+            assertThat(keys.getAllValues()).doesNotHaveDuplicates();
+        }
+
+        @Test
+        @DisplayName("Should drop expired intents on the sweep")
+        void evictExpired_DropsExpired() throws Exception {
+            when(paymentGateway.createPaymentIntent(any(PaymentIntentCreateParams.class), anyString()))
+                    .thenAnswer(invocation -> mock(PaymentIntent.class));
+            setTime(0);
+            paymentService.createPaymentIntent(donationDTO).get();
+
+            setTime(TTL_MS + 1);
+            paymentService.evictExpired();
+
+            assertThat((Map<?, ?>) ReflectionTestUtils.getField(paymentService, "intents")).isEmpty();
         }
     }
-}
\ No newline at end of file
+}
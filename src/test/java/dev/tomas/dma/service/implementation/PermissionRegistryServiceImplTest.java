@@ -0,0 +1,273 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.projection.RoleGrantRow;
+import dev.tomas.dma.dto.projection.UserAuthChangeRow;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.CompanyRoleRepo;
+import dev.tomas.dma.repository.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PermissionRegistryServiceImplTest {
+    private static final long TOKEN_LIFETIME_MS = 3_600_000;
+    private static final long NOW = 10 * TOKEN_LIFETIME_MS;
+
+    @Mock
+    private CompanyRoleRepo companyRoleRepo;
+
+    @Mock
+    private UserRepo userRepo;
+
+    private PermissionRegistryServiceImpl registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new PermissionRegistryServiceImpl(companyRoleRepo, userRepo, TOKEN_LIFETIME_MS);
+        setTime(NOW);
+    }
+
+    private void setTime(long millis) {
+        ReflectionTestUtils.setField(registry, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private LocalDateTime at(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC);
+    }
+
+    private GrantedAuthority find(Set<GrantedAuthority> authorities, String name) {
+        return authorities.stream().filter(authority -> authority.getAuthority().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Nested
+    @DisplayName("Authorities Tests")
+    class AuthoritiesTests {
+
+        @Test
+        @DisplayName("Should give a user without a company role one shared set for their system role")
+        void authorities_NoCompanyRole() {
+            Set<GrantedAuthority> donor = registry.authorities(UserRole.DONOR, null, null);
+
+            assertThat(donor).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_DONOR");
+            assertThat(registry.authorities(UserRole.DONOR, null, null)).isSameAs(donor);
+            verifyNoInteractions(companyRoleRepo);
+        }
+
+        @Test
+        @DisplayName("Should read a role it hasn't seen once and share its set between principals")
+        void authorities_LoadsOnce() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(List.of(
+                    new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS"),
+                    new RoleGrantRow(5, 3, 9, "MANAGE_EMPLOYEES")));
+
+            Set<GrantedAuthority> authorities = registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3);
+
+            assertThat(authorities).extracting(GrantedAuthority::getAuthority)
+                    .containsExactlyInAnyOrder("ROLE_COMPANY_ACCOUNT", "PERMISSION_MANAGE_CAMPAIGNS", "PERMISSION_MANAGE_EMPLOYEES");
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isSameAs(authorities);
+            verify(companyRoleRepo, times(1)).findGrantsById(5);
+        }
+
+        @Test
+        @DisplayName("Should give a role without permissions only the system role")
+        void authorities_NoPermissions() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(List.of(new RoleGrantRow(5, 3, null, null)));
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).extracting(GrantedAuthority::getAuthority)
+                    .containsExactly("ROLE_COMPANY_ACCOUNT");
+        }
+
+        @Test
+        @DisplayName("Should hand out one authority object per permission across roles")
+        void authorities_InternsPermissions() {
+            when(companyRoleRepo.findAllGrants()).thenReturn(List.of(
+                    new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS"),
+                    new RoleGrantRow(6, 1, 2, "MANAGE_CAMPAIGNS")));
+            registry.sync();
+
+            GrantedAuthority first = find(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3), "PERMISSION_MANAGE_CAMPAIGNS");
+            GrantedAuthority second = find(registry.authorities(UserRole.COMPANY_ACCOUNT, 6, 1), "PERMISSION_MANAGE_CAMPAIGNS");
+
+            assertThat(second).isSameAs(first);
+            assertThat(find(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3), "ROLE_COMPANY_ACCOUNT"))
+                    .isSameAs(UserRole.COMPANY_ACCOUNT.authority());
+            verify(companyRoleRepo, never()).findGrantsById(any());
+        }
+
+        @Test
+        @DisplayName("Should refuse a version older than the role's current one")
+        void authorities_OlderVersion() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(List.of(new RoleGrantRow(5, 4, 2, "MANAGE_CAMPAIGNS")));
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should read the role again when a request shows a newer version")
+        void authorities_NewerVersion() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(
+                    List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS")),
+                    List.of(new RoleGrantRow(5, 4, 9, "MANAGE_EMPLOYEES")));
+            registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3);
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 4)).extracting(GrantedAuthority::getAuthority)
+                    .containsExactlyInAnyOrder("ROLE_COMPANY_ACCOUNT", "PERMISSION_MANAGE_EMPLOYEES");
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should refuse a deleted role without reading it again")
+        void authorities_DeletedRole() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(List.of());
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+
+            verify(companyRoleRepo, times(1)).findGrantsById(5);
+        }
+
+        @Test
+        @DisplayName("Should refuse a token without a role version when it names a role")
+        void authorities_MissingVersion() {
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, null)).isNull();
+            verifyNoInteractions(companyRoleRepo);
+        }
+    }
+
+    @Nested
+    @DisplayName("RoleChanged Tests")
+    class RoleChangedTests {
+
+        @Test
+        @DisplayName("Should read the role again after it changes")
+        void roleChanged_Reloads() {
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(
+                    List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS")),
+                    List.of(new RoleGrantRow(5, 4, 2, "MANAGE_CAMPAIGNS")));
+            registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3);
+
+            registry.roleChanged(5);
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+            verify(companyRoleRepo, times(2)).findGrantsById(5);
+        }
+
+        @Test
+        @DisplayName("Should not keep grants read while the role was changing")
+        void roleChanged_DuringLoad() {
+            when(companyRoleRepo.findGrantsById(5)).thenAnswer(invocation -> {
+                registry.roleChanged(5);
+                return List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS"));
+            }).thenReturn(List.of(new RoleGrantRow(5, 4, 2, "MANAGE_CAMPAIGNS")));
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNotNull();
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should rebuild every role when a permission is renamed")
+        void permissionsChanged_Rebuilds() {
+            when(companyRoleRepo.findAllGrants()).thenReturn(
+                    List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS")),
+                    List.of(new RoleGrantRow(5, 3, 2, "RUN_CAMPAIGNS")));
+            registry.sync();
+
+            registry.permissionsChanged();
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).extracting(GrantedAuthority::getAuthority)
+                    .containsExactlyInAnyOrder("ROLE_COMPANY_ACCOUNT", "PERMISSION_RUN_CAMPAIGNS");
+            verify(companyRoleRepo, never()).findGrantsById(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Sync Tests")
+    class SyncTests {
+
+        @Test
+        @DisplayName("Should load every role's grants and recent user changes")
+        void sync_LoadsEverything() {
+            when(companyRoleRepo.findAllGrants()).thenReturn(List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS")));
+            when(userRepo.findAuthChangesSince(at(NOW - TOKEN_LIFETIME_MS)))
+                    .thenReturn(List.of(new UserAuthChangeRow(1, at(NOW - 1_000))));
+
+            registry.sync();
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).extracting(GrantedAuthority::getAuthority)
+                    .containsExactlyInAnyOrder("ROLE_COMPANY_ACCOUNT", "PERMISSION_MANAGE_CAMPAIGNS");
+            assertThat(registry.changedSince(1, new Date(NOW - 2_000))).isTrue();
+            assertThat(registry.changedSince(1, new Date(NOW))).isFalse();
+            assertThat(registry.changedSince(2, new Date(NOW - 2_000))).isFalse();
+            verify(companyRoleRepo, never()).findGrantsById(any());
+        }
+
+        @Test
+        @DisplayName("Should forget roles deleted since the last sync")
+        void sync_DropsDeletedRoles() {
+            when(companyRoleRepo.findAllGrants()).thenReturn(List.of(new RoleGrantRow(5, 3, 2, "MANAGE_CAMPAIGNS")), List.of());
+            when(companyRoleRepo.findGrantsById(5)).thenReturn(List.of());
+
+            registry.sync();
+            registry.sync();
+
+            assertThat(registry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should drop user changes older than any live token")
+        void sync_PrunesOldUserChanges() {
+            setTime(NOW - 2 * TOKEN_LIFETIME_MS);
+            registry.userChanged(1);
+            setTime(NOW);
+
+            registry.sync();
+
+            assertThat(registry.changedSince(1, new Date(0))).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("UserChanged Tests")
+    class UserChangedTests {
+
+        @Test
+        @DisplayName("Should treat tokens issued up to the change as stale")
+        void userChanged_StalesOlderTokens() {
+            registry.userChanged(1);
+
+            assertThat(registry.changedSince(1, new Date(NOW - 1_000))).isTrue();
+            assertThat(registry.changedSince(1, new Date(NOW))).isTrue();
+            assertThat(registry.changedSince(1, new Date(NOW + 1_000))).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should keep the latest change when a sync brings an older one")
+        void userChanged_KeepsLatest() {
+            registry.userChanged(1);
+            when(userRepo.findAuthChangesSince(any())).thenReturn(List.of(new UserAuthChangeRow(1, at(NOW - 5_000))));
+
+            registry.sync();
+
+            assertThat(registry.changedSince(1, new Date(NOW))).isTrue();
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.AuthPrincipal;
+import dev.tomas.dma.dto.common.VerifiedToken;
+import dev.tomas.dma.dto.projection.PrincipalRow;
+import dev.tomas.dma.enums.UserRole;
+import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.PermissionRegistryService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ClaimsBuilder;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrincipalCacheServiceImplTest {
+    private static final long TTL_MS = 60_000;
+    private static final String EMAIL = "employee@example.com";
+    private static final Map<String, Integer> PERMISSION_IDS = Map.of("MANAGE_CAMPAIGNS", 2, "MANAGE_EMPLOYEES", 9);
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private PermissionRegistryService permissionRegistry;
+
+    private PrincipalCacheServiceImpl principalCache;
+
+    @BeforeEach
+    void setUp() {
+        principalCache = new PrincipalCacheServiceImpl(userRepo, permissionRegistry, 2, TTL_MS);
+        setTime(0);
+    }
+
+    private void setTime(long millis) {
+        ReflectionTestUtils.setField(principalCache, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private PrincipalRow row(Integer id, String email, String username, Integer roleId, String permission) {
+        return new PrincipalRow(id, email, username, "Jane", "Doe", UserRole.COMPANY_ACCOUNT, true,
+                roleId != null ? 10 : null, roleId, roleId != null ? "Manager" : null, roleId != null ? 3 : null,
+                permission != null ? PERMISSION_IDS.get(permission) : null, permission);
+    }
+
+    private VerifiedToken token(Claims claims) {
+        return new VerifiedToken(claims.getSubject(), claims.getExpiration(), claims);
+    }
+
+    private ClaimsBuilder claims(Integer roleId, Integer roleVersion, List<Integer> permissionIds) {
+        ClaimsBuilder claims = Jwts.claims()
+                .subject(EMAIL)
+                .issuedAt(new Date(1_000_000))
+                .add(VerifiedToken.USER_ID, 1)
+                .add(VerifiedToken.SYSTEM_ROLE, "COMPANY_ACCOUNT")
+                .add(VerifiedToken.PERMISSIONS, PermissionBits.encode(permissionIds));
+        if (roleId != null) {
+            claims.add(VerifiedToken.COMPANY, 10)
+                    .add(VerifiedToken.ROLE, "Manager")
+                    .add(VerifiedToken.ROLE_ID, roleId)
+                    .add(VerifiedToken.ROLE_VERSION, roleVersion);
+        }
+        return claims;
+    }
+
+    @Nested
+    @DisplayName("Load Tests")
+    class LoadTests {
+
+        @Test
+        @DisplayName("Should build the principal and its authorities from the joined rows")
+        void load_BuildsPrincipal() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(
+                    row(1, EMAIL, "employee", 5, "MANAGE_CAMPAIGNS"),
+                    row(1, EMAIL, "employee", 5, "MANAGE_EMPLOYEES")));
+
+            AuthPrincipal principal = principalCache.load(EMAIL);
+
+            assertThat(principal.id()).isEqualTo(1);
+            assertThat(principal.getUsername()).isEqualTo(EMAIL);
+            assertThat(principal.username()).isEqualTo("employee");
+            assertThat(principal.companyId()).isEqualTo(10);
+            assertThat(principal.companyRoleName()).isEqualTo("Manager");
+            assertThat(principal.companyRoleVersion()).isEqualTo(3);
+            assertThat(principal.permissionIds()).containsExactly(2, 9);
+            assertThat(principal.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                    .containsExactlyInAnyOrder("ROLE_COMPANY_ACCOUNT", "PERMISSION_MANAGE_CAMPAIGNS", "PERMISSION_MANAGE_EMPLOYEES");
+        }
+
+        @Test
+        @DisplayName("Should share the registry's authorities for the role's current version")
+        void load_SharesRoleAuthorities() {
+            Set<GrantedAuthority> shared = Set.of(UserRole.COMPANY_ACCOUNT.authority(), new SimpleGrantedAuthority("PERMISSION_MANAGE_CAMPAIGNS"));
+            when(permissionRegistry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).thenReturn(shared);
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(row(1, EMAIL, "employee", 5, "MANAGE_CAMPAIGNS")));
+
+            assertThat(principalCache.load(EMAIL).getAuthorities()).isSameAs(shared);
+        }
+
+        @Test
+        @DisplayName("Should give a user without a company only their system role")
+        void load_WithoutCompany() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(row(1, EMAIL, "donor", null, null)));
+
+            AuthPrincipal principal = principalCache.load(EMAIL);
+
+            assertThat(principal.companyRoleId()).isNull();
+            assertThat(principal.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                    .containsExactly("ROLE_COMPANY_ACCOUNT");
+        }
+
+        @Test
+        @DisplayName("Should prefer the user whose email matches when another user has it as username")
+        void load_PrefersEmail() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(
+                    row(2, "other@example.com", EMAIL, null, null),
+                    row(1, EMAIL, "employee", null, null)));
+
+            assertThat(principalCache.load(EMAIL).id()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should throw UsernameNotFoundException for an unknown login")
+        void load_UnknownLogin() {
+            when(userRepo.findPrincipalRows("nobody")).thenReturn(List.of());
+
+            assertThatThrownBy(() -> principalCache.load("nobody"))
+                    .isInstanceOf(UsernameNotFoundException.class)
+                    .hasMessageContaining("nobody");
+        }
+
+        @Test
+        @DisplayName("Should serve repeat loads from memory until the TTL passes")
+        void load_Cached() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(row(1, EMAIL, "employee", null, null)));
+
+            AuthPrincipal first = principalCache.load(EMAIL);
+            assertThat(principalCache.load(EMAIL)).isSameAs(first);
+            verify(userRepo, times(1)).findPrincipalRows(EMAIL);
+
+            setTime(TTL_MS);
+            principalCache.load(EMAIL);
+            verify(userRepo, times(2)).findPrincipalRows(EMAIL);
+        }
+
+        @Test
+        @DisplayName("Should evict the least recently used principal past capacity")
+        void load_Bounded() {
+            when(userRepo.findPrincipalRows(anyString())).thenAnswer(invocation -> {
+                String login = invocation.getArgument(0);
+                return List.of(row(login.length(), login, login, null, null));
+            });
+
+            principalCache.load("a");
+            principalCache.load("bb");
+            principalCache.load("a");
+            principalCache.load("ccc");
+            principalCache.load("a");
+            principalCache.load("bb");
+
+            verify(userRepo, times(1)).findPrincipalRows("a");
+            verify(userRepo, times(2)).findPrincipalRows("bb");
+        }
+    }
+
+    @Nested
+    @DisplayName("Evict Tests")
+    class EvictTests {
+
+        @Test
+        @DisplayName("Should reload only the evicted user")
+        void evictUser_ReloadsUser() {
+            when(userRepo.findPrincipalRows(anyString())).thenAnswer(invocation -> {
+                String login = invocation.getArgument(0);
+                return List.of(row(EMAIL.equals(login) ? 1 : 2, login, login, null, null));
+            });
+            principalCache.load(EMAIL);
+            principalCache.load("other@example.com");
+
+            principalCache.evictUser(1);
+            principalCache.load(EMAIL);
+            principalCache.load("other@example.com");
+
+            verify(userRepo, times(2)).findPrincipalRows(EMAIL);
+            verify(userRepo, times(1)).findPrincipalRows("other@example.com");
+        }
+
+        @Test
+        @DisplayName("Should reload every holder of a changed role")
+        void evictRole_ReloadsHolders() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(row(1, EMAIL, "employee", 5, "MANAGE_CAMPAIGNS")));
+            principalCache.load(EMAIL);
+
+            when(userRepo.findPrincipalRows(EMAIL)).thenReturn(List.of(row(1, EMAIL, "employee", 5, null)));
+            principalCache.evictRole(5);
+
+            assertThat(principalCache.load(EMAIL).getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                    .containsExactly("ROLE_COMPANY_ACCOUNT");
+        }
+
+        @Test
+        @DisplayName("Should not keep a principal that was read while an eviction ran")
+        void load_RacingEvictionNotKept() {
+            when(userRepo.findPrincipalRows(EMAIL)).thenAnswer(invocation -> {
+                principalCache.evictAll();
+                return List.of(row(1, EMAIL, "employee", null, null));
+            });
+
+            principalCache.load(EMAIL);
+            principalCache.load(EMAIL);
+
+            verify(userRepo, times(2)).findPrincipalRows(EMAIL);
+        }
+    }
+
+    @Nested
+    @DisplayName("FromToken Tests")
+    class FromTokenTests {
+
+        @Test
+        @DisplayName("Should rebuild the principal from a current token without the database")
+        void fromToken_Current() {
+            Set<GrantedAuthority> shared = Set.of(UserRole.COMPANY_ACCOUNT.authority(),
+                    new SimpleGrantedAuthority("PERMISSION_MANAGE_CAMPAIGNS"), new SimpleGrantedAuthority("PERMISSION_MANAGE_EMPLOYEES"));
+            when(permissionRegistry.changedSince(eq(1), any(Date.class))).thenReturn(false);
+            when(permissionRegistry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).thenReturn(shared);
+
+            AuthPrincipal principal = principalCache.fromToken(token(claims(5, 3, List.of(2, 9)).build()));
+
+            assertThat(principal.id()).isEqualTo(1);
+            assertThat(principal.getUsername()).isEqualTo(EMAIL);
+            assertThat(principal.companyId()).isEqualTo(10);
+            assertThat(principal.companyRoleId()).isEqualTo(5);
+            assertThat(principal.permissionIds()).containsExactly(2, 9);
+            assertThat(principal.getAuthorities()).isSameAs(shared);
+            verifyNoInteractions(userRepo);
+        }
+
+        @Test
+        @DisplayName("Should give a token without a company role its system role's authorities")
+        void fromToken_WithoutCompany() {
+            Set<GrantedAuthority> systemOnly = Set.of(UserRole.COMPANY_ACCOUNT.authority());
+            when(permissionRegistry.changedSince(eq(1), any(Date.class))).thenReturn(false);
+            when(permissionRegistry.authorities(UserRole.COMPANY_ACCOUNT, null, null)).thenReturn(systemOnly);
+
+            AuthPrincipal principal = principalCache.fromToken(token(claims(null, null, List.of()).build()));
+
+            assertThat(principal.companyRoleId()).isNull();
+            assertThat(principal.getAuthorities()).isSameAs(systemOnly);
+        }
+
+        @Test
+        @DisplayName("Should reject a token whose role has changed or been deleted since it was issued")
+        void fromToken_StaleRole() {
+            when(permissionRegistry.changedSince(eq(1), any(Date.class))).thenReturn(false);
+            when(permissionRegistry.authorities(UserRole.COMPANY_ACCOUNT, 5, 3)).thenReturn(null);
+
+            assertThat(principalCache.fromToken(token(claims(5, 3, List.of(2)).build()))).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject a token issued before the user's company changed")
+        void fromToken_UserChanged() {
+            when(permissionRegistry.changedSince(eq(1), any(Date.class))).thenReturn(true);
+
+            assertThat(principalCache.fromToken(token(claims(null, null, List.of()).build()))).isNull();
+        }
+
+        @Test
+        @DisplayName("Should reject a token issued before permissions were carried in it")
+        void fromToken_OldToken() {
+            Claims claims = Jwts.claims().subject(EMAIL).issuedAt(new Date(1_000_000)).build();
+
+            assertThat(principalCache.fromToken(token(claims))).isNull();
+            verifyNoInteractions(permissionRegistry);
+        }
+    }
+
+    @Nested
+    @DisplayName("Registry Notification Tests")
+    class RegistryNotificationTests {
+
+        @Test
+        @DisplayName("Should tell the registry about user, role and permission changes")
+        void evict_NotifiesRegistry() {
+            principalCache.evictUser(1);
+            principalCache.evictRole(5);
+            principalCache.evictAll();
+
+            verify(permissionRegistry).userChanged(1);
+            verify(permissionRegistry).roleChanged(5);
+            verify(permissionRegistry).permissionsChanged();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.repository.UserRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAvailabilityServiceImplTest {
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Spy
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MutableClock clock = new MutableClock();
+
+    private UserAvailabilityServiceImpl availabilityService;
+
+    @BeforeEach
+    void setUp() {
+        availabilityService = new UserAvailabilityServiceImpl(userRepo, jdbcTemplate, meterRegistry, clock);
+        ReflectionTestUtils.setField(availabilityService, "filterCapacity", 1_000);
+    }
+
+    private void taken(String email, String username) {
+        doAnswer(invocation -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString("email")).thenReturn(email);
+            when(rs.getString("username")).thenReturn(username);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        availabilityService.rebuild();
+    }
+
+    private double checks(String source) {
+        return meterRegistry.counter("users.availability.checks", "source", source).count();
+    }
+
+    @Nested
+    @DisplayName("Availability Tests")
+    class AvailabilityTests {
+
+        @Test
+        @DisplayName("Should answer a free email and username from memory")
+        void isAvailable_FreeFromMemory() {
+            taken("jose@example.com", "jose");
+
+            assertThat(availabilityService.isEmailAvailable("ana@example.com")).isTrue();
+            assertThat(availabilityService.isUsernameAvailable("ana")).isTrue();
+
+            verifyNoInteractions(userRepo);
+            assertThat(checks("memory")).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should confirm a possibly taken name against the unique index")
+        void isAvailable_TakenLooksUp() {
+            taken("jose@example.com", "jose");
+            when(userRepo.existsByEmail("jose@example.com")).thenReturn(true);
+            when(userRepo.existsByUsername("jose")).thenReturn(true);
+
+            assertThat(availabilityService.isEmailAvailable("jose@example.com")).isFalse();
+            assertThat(availabilityService.isUsernameAvailable("jose")).isFalse();
+            assertThat(checks("lookup")).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should treat names differing only in case or accents as possibly taken, like the collation")
+        void isAvailable_FoldsLikeCollation() {
+            taken("jose@example.com", "jose");
+            when(userRepo.existsByUsername("José")).thenReturn(true);
+
+            assertThat(availabilityService.isUsernameAvailable("José")).isFalse();
+            verify(userRepo).existsByUsername("José");
+        }
+
+        @Test
+        @DisplayName("Should ask the database until the filters are built")
+        void isAvailable_BeforeRebuild() {
+            when(userRepo.existsByEmail("ana@example.com")).thenReturn(false);
+
+            assertThat(availabilityService.isEmailAvailable("ana@example.com")).isTrue();
+            verify(userRepo).existsByEmail("ana@example.com");
+        }
+
+        @Test
+        @DisplayName("Should count a name registered here as possibly taken straight away")
+        void registered_AddsToFilters() {
+            taken("jose@example.com", "jose");
+            availabilityService.registered("ana@example.com", "ana");
+            when(userRepo.existsByUsername("ana")).thenReturn(true);
+
+            assertThat(availabilityService.isUsernameAvailable("ana")).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("Probe Limit Tests")
+    class ProbeLimitTests {
+
+        @BeforeEach
+        void setUp() {
+            ReflectionTestUtils.setField(availabilityService, "probesPerMinute", 2);
+        }
+
+        @Test
+        @DisplayName("Should refuse a client past its probes for the minute")
+        void tryProbe_LimitsPerClient() {
+            assertThat(availabilityService.tryProbe("10.0.0.1")).isTrue();
+            assertThat(availabilityService.tryProbe("10.0.0.1")).isTrue();
+            assertThat(availabilityService.tryProbe("10.0.0.1")).isFalse();
+            assertThat(availabilityService.tryProbe("10.0.0.2")).isTrue();
+            assertThat(meterRegistry.counter("users.availability.throttled").count()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should let a client probe again once the minute is over")
+        void tryProbe_NextWindow() {
+            availabilityService.tryProbe("10.0.0.1");
+            availabilityService.tryProbe("10.0.0.1");
+
+            clock.set(60_000);
+
+            assertThat(availabilityService.tryProbe("10.0.0.1")).isTrue();
+        }
+    }
+}
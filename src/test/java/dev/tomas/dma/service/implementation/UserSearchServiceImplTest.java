@@ -0,0 +1,296 @@
+package dev.tomas.dma.service.implementation;
+
+import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.projection.EmployeeListRow;
+import dev.tomas.dma.dto.response.UserSearchRes;
+import dev.tomas.dma.mapper.UserMapper;
+import dev.tomas.dma.repository.UserRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchServiceImplTest {
+    private static final long TTL_MS = 10_000;
+
+    @Mock
+    private UserRepo userRepo;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private UserSearchServiceImpl searchService;
+
+    @BeforeEach
+    void setUp() {
+        searchService = new UserSearchServiceImpl(userRepo, userMapper, jdbcTemplate, transactionManager, 100, TTL_MS);
+        setTime(0);
+    }
+
+    private void setTime(long millis) {
+        ReflectionTestUtils.setField(searchService, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+
+    private EmployeeListRow row(Integer id, String email, String username, String firstName, String lastName) {
+        return new EmployeeListRow(id, email, "123", "1 Street", firstName, lastName, null, username, null, null, null);
+    }
+
+    private void mapRows() {
+        when(userMapper.rowToDTO(any())).thenAnswer(invocation -> {
+            EmployeeListRow row = invocation.getArgument(0);
+            UserDTO dto = new UserDTO();
+            dto.setId(row.id());
+            dto.setEmail(row.email());
+            return dto;
+        });
+    }
+
+    private List<Integer> ids(int from, int to) {
+        return IntStream.rangeClosed(from, to).boxed().toList();
+    }
+
+    @Nested
+    @DisplayName("Normalize Tests")
+    class NormalizeTests {
+
+        @Test
+        @DisplayName("Should fold case, accents and surrounding space")
+        void normalize_Folds() {
+            assertThat(TextKeys.normalize("  José.Ávila@Example.COM ")).isEqualTo("jose.avila@example.com");
+        }
+
+        @Test
+        @DisplayName("Should index names, username and the email local part, but not the domain")
+        void grams_LeaveOutDomain() {
+            String text = UserSearchServiceImpl.indexedText("john.smith@example.com", "jsmith", "John", "Smith");
+
+            assertThat(UserSearchServiceImpl.grams(UserSearchServiceImpl.words(text)))
+                    .contains("joh", "ohn", "smi", "mit", "ith", "jsm")
+                    .doesNotContain("exa", "com");
+        }
+
+        @Test
+        @DisplayName("Should leave words shorter than a gram out")
+        void words_SkipShort() {
+            assertThat(UserSearchServiceImpl.words("jo smith")).containsExactly("smith");
+        }
+    }
+
+    @Nested
+    @DisplayName("Prefix Tests")
+    class PrefixTests {
+
+        @Test
+        @DisplayName("Should return nothing for a query shorter than two letters, without reading")
+        void search_TooShort() {
+            assertThat(searchService.search(" j ", null, 10).getUsers()).isEmpty();
+
+            verifyNoInteractions(userRepo, jdbcTemplate);
+        }
+
+        @Test
+        @DisplayName("Should page email prefix matches with a cursor on (search key, id)")
+        void search_PrefixPages() {
+            mapRows();
+            when(userRepo.findSearchPage("jo%", "", 0, PageRequest.of(0, 3))).thenReturn(List.of(
+                    row(4, "joan@example.com", "joan", "Joan", "Ray"),
+                    row(2, "John@example.com", "john", "John", "Doe"),
+                    row(9, "jordan@example.com", "jordan", "Jordan", "Lee")));
+            when(userRepo.findSearchPage("jo%", "john@example.com", 2, PageRequest.of(0, 3))).thenReturn(List.of(
+                    row(9, "jordan@example.com", "jordan", "Jordan", "Lee")));
+
+            UserSearchRes first = searchService.search("JO", null, 2);
+            UserSearchRes second = searchService.search("jo", first.getNextCursor(), 2);
+
+            assertThat(first.getUsers()).extracting(UserDTO::getId).containsExactly(4, 2);
+            assertThat(first.getNextCursor()).isNotNull();
+            assertThat(second.getUsers()).extracting(UserDTO::getId).containsExactly(9);
+            assertThat(second.getNextCursor()).isNull();
+            verifyNoInteractions(jdbcTemplate);
+        }
+
+        @Test
+        @DisplayName("Should match wildcard characters in the query literally")
+        void search_EscapesWildcards() {
+            when(userRepo.findSearchPage("a!_b!%%", "", 0, PageRequest.of(0, 11))).thenReturn(List.of());
+
+            assertThat(searchService.search("a_b%", null, 10).getUsers()).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should reject a cursor issued for another query")
+        void search_ForeignCursor() {
+            mapRows();
+            when(userRepo.findSearchPage("jo%", "", 0, PageRequest.of(0, 2))).thenReturn(List.of(
+                    row(1, "joan@example.com", "joan", "Joan", "Ray"),
+                    row(2, "john@example.com", "john", "John", "Doe")));
+            String cursor = searchService.search("jo", null, 1).getNextCursor();
+
+            assertThatThrownBy(() -> searchService.search("ja", cursor, 1))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("does not match");
+            assertThatThrownBy(() -> searchService.search("jo", "not a cursor", 1))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("Gram Tests")
+    class GramTests {
+
+        @Test
+        @DisplayName("Should follow prefix matches with users holding every word, checked against their names")
+        void search_WordMatches() {
+            mapRows();
+            when(userRepo.findSearchPage("smith%", "", 0, PageRequest.of(0, 11))).thenReturn(List.of());
+            when(jdbcTemplate.queryForList(contains("WHERE gram = ?"), eq(Integer.class), eq("smi"), eq(0), eq(500)))
+                    .thenReturn(List.of(3, 5, 7, 8));
+            when(jdbcTemplate.queryForList(contains("HAVING COUNT(*)"), eq(Integer.class),
+                    eq(3), eq(5), eq(7), eq(8), eq("mit"), eq("ith"), eq(2))).thenReturn(List.of(3, 5, 8));
+            when(userRepo.findSearchRowsByIdIn(List.of(3, 5, 8))).thenReturn(List.of(
+                    row(3, "anna.smith@example.com", "anna", "Anna", "Smith"),
+                    // Every gram, but spread over two words
+                    row(5, "smitty@example.com", "smitty", "Keith", "Ray"),
+                    // Found by the prefix pass already
+                    row(8, "smith@example.com", "smith", "Jo", "Smith")));
+
+            UserSearchRes result = searchService.search("Smith", null, 10);
+
+            assertThat(result.getUsers()).extracting(UserDTO::getId).containsExactly(3);
+            assertThat(result.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should carry on from the last user returned once the page is full")
+        void search_WordMatchesPage() {
+            mapRows();
+            when(userRepo.findSearchPage("ann%", "", 0, PageRequest.of(0, 2))).thenReturn(List.of());
+            when(jdbcTemplate.queryForList(contains("WHERE gram = ?"), eq(Integer.class), eq("ann"), eq(0), eq(500)))
+                    .thenReturn(List.of(3, 6));
+            when(userRepo.findSearchRowsByIdIn(List.of(3, 6))).thenReturn(List.of(
+                    row(3, "a.b@example.com", "ab", "Anna", "B"),
+                    row(6, "c.d@example.com", "cd", "Joanne", "D")));
+            when(jdbcTemplate.queryForList(contains("WHERE gram = ?"), eq(Integer.class), eq("ann"), eq(3), eq(500)))
+                    .thenReturn(List.of(6));
+            when(userRepo.findSearchRowsByIdIn(List.of(6))).thenReturn(List.of(row(6, "c.d@example.com", "cd", "Joanne", "D")));
+
+            UserSearchRes first = searchService.search("ann", null, 1);
+            UserSearchRes second = searchService.search("ann", first.getNextCursor(), 1);
+
+            assertThat(first.getUsers()).extracting(UserDTO::getId).containsExactly(3);
+            assertThat(second.getUsers()).extracting(UserDTO::getId).containsExactly(6);
+            assertThat(second.getNextCursor()).isNull();
+            // The second page starts in the word pass, so the prefix pass isn't read again
+            verify(userRepo, times(1)).findSearchPage(any(), any(), any(), any());
+        }
+
+        @Test
+        @DisplayName("Should stop after a fixed number of entries and hand back where it stopped")
+        void search_ScanBudget() {
+            when(userRepo.findSearchPage("zzz%", "", 0, PageRequest.of(0, 11))).thenReturn(List.of());
+            for (int batch = 0; batch < UserSearchServiceImpl.SCAN_BUDGET / 500; batch++) {
+                when(jdbcTemplate.queryForList(contains("WHERE gram = ?"), eq(Integer.class), eq("zzz"), eq(batch * 500), eq(500)))
+                        .thenReturn(ids(batch * 500 + 1, batch * 500 + 500));
+            }
+            when(userRepo.findSearchRowsByIdIn(anyCollection())).thenReturn(List.of());
+
+            UserSearchRes first = searchService.search("zzz", null, 10);
+
+            assertThat(first.getUsers()).isEmpty();
+            assertThat(first.getNextCursor()).isNotNull();
+            verify(jdbcTemplate, times(4)).queryForList(anyString(), eq(Integer.class), any(), any(), any());
+
+            when(jdbcTemplate.queryForList(contains("WHERE gram = ?"), eq(Integer.class), eq("zzz"), eq(2_000), eq(500)))
+                    .thenReturn(List.of());
+            assertThat(searchService.search("zzz", first.getNextCursor(), 10).getNextCursor()).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("Cache Tests")
+    class CacheTests {
+
+        @Test
+        @DisplayName("Should answer a repeated keystroke from memory until the page expires")
+        void search_CachesPages() {
+            when(userRepo.findSearchPage("jo%", "", 0, PageRequest.of(0, 11))).thenReturn(List.of());
+
+            UserSearchRes first = searchService.search("jo", null, 10);
+            assertThat(searchService.search(" JO", "", 10)).isSameAs(first);
+
+            setTime(TTL_MS);
+            assertThat(searchService.search("jo", null, 10)).isNotSameAs(first);
+            verify(userRepo, times(2)).findSearchPage("jo%", "", 0, PageRequest.of(0, 11));
+        }
+    }
+
+    @Nested
+    @DisplayName("IndexPending Tests")
+    class IndexPendingTests {
+
+        @Test
+        @DisplayName("Should write grams and the search key for users not indexed yet")
+        @SuppressWarnings("unchecked")
+        void indexPending_IndexesNewUsers() throws Exception {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getInt("id")).thenReturn(7);
+            when(rs.getString("email")).thenReturn("Zoë.Ray@example.com");
+            when(rs.getString("username")).thenReturn("zr");
+            when(rs.getString("first_name")).thenReturn("Zoë");
+            when(rs.getString("last_name")).thenReturn("Ray");
+            when(jdbcTemplate.query(contains("search_key IS NULL"), any(RowMapper.class), eq(UserSearchServiceImpl.INDEX_BATCH)))
+                    .thenAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(1).mapRow(rs, 0)));
+
+            searchService.indexPending();
+
+            ArgumentCaptor<List<Object[]>> grams = ArgumentCaptor.forClass(List.class);
+            verify(jdbcTemplate).batchUpdate(contains("INSERT IGNORE INTO user_search_gram"), grams.capture());
+            assertThat(grams.getValue()).extracting(gram -> gram[0]).containsExactlyInAnyOrder("zoe", "ray");
+            assertThat(grams.getValue()).extracting(gram -> gram[1]).containsOnly(7);
+            verify(jdbcTemplate).batchUpdate(contains("DELETE FROM user_search_gram"), any(Collection.class), eq(1),
+                    any(ParameterizedPreparedStatementSetter.class));
+            verify(jdbcTemplate).batchUpdate(contains("UPDATE users SET search_key"), any(Collection.class), eq(1),
+                    any(ParameterizedPreparedStatementSetter.class));
+        }
+
+        @Test
+        @DisplayName("Should do nothing when every user is indexed")
+        void indexPending_NothingPending() {
+            when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(UserSearchServiceImpl.INDEX_BATCH))).thenReturn(List.of());
+
+            searchService.indexPending();
+
+            verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package dev.tomas.dma.service.implementation;
 
 import dev.tomas.dma.dto.common.UserDTO;
+import dev.tomas.dma.dto.request.UserSearchReq;
+import dev.tomas.dma.dto.response.UserSearchRes;
 import dev.tomas.dma.entity.Company;
 import dev.tomas.dma.entity.CompanyRole;
 import dev.tomas.dma.entity.User;
 import dev.tomas.dma.mapper.UserMapper;
 import dev.tomas.dma.repository.UserRepo;
+import dev.tomas.dma.service.UserSearchService;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -16,14 +19,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +35,9 @@ class UserServiceImplTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserSearchService userSearchService;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -137,75 +140,44 @@ class UserServiceImplTest {
     }
 
     @Nested
-    @DisplayName("SearchByEmail Tests")
-    class SearchByEmailTests {
+    @DisplayName("Search Tests")
+    class SearchTests {
 
         @Test
-        @DisplayName("Should return users matching email pattern")
-        void searchByEmail_Success() {
-            User secondUser = new User();
-            secondUser.setId(2);
-            secondUser.setEmail("user2@example.com");
-
-            UserDTO secondUserDTO = new UserDTO();
-            secondUserDTO.setId(2);
-            secondUserDTO.setEmail("user2@example.com");
+        @DisplayName("Should hand the query, cursor and limit to the user search")
+        void search_Delegates() {
+            UserSearchReq request = new UserSearchReq();
+            request.setQ("user");
+            request.setCursor("abc");
+            request.setLimit(5);
+            UserSearchRes page = new UserSearchRes();
+            page.users.add(testUserDTO);
+            when(userSearchService.search("user", "abc", 5)).thenReturn(page);
+
+            assertThat(userService.search(request)).isSameAs(page);
+        }
 
-            when(userRepo.findByEmailContainingIgnoreCase("user")).thenReturn(Arrays.asList(testUser, secondUser));
-            when(userMapper.toDTO(testUser)).thenReturn(testUserDTO);
-            when(userMapper.toDTO(secondUser)).thenReturn(secondUserDTO);
+        @Test
+        @DisplayName("Should answer the email search with the first page of the user search")
+        void searchByEmail_FirstPage() {
+            UserSearchRes page = new UserSearchRes();
+            page.users.add(testUserDTO);
+            page.setNextCursor("next");
+            when(userSearchService.search("user", null, 20)).thenReturn(page);
 
             List<UserDTO> result = userService.searchByEmail("user");
 
-            assertThat(result).hasSize(2);
-            assertThat(result).extracting(UserDTO::getEmail)
-                    .containsExactlyInAnyOrder("user@example.com", "user2@example.com");
+            assertThat(result).containsExactly(testUserDTO);
+            assertThat(result.get(0).getCompanyRoleName()).isEqualTo("Employee");
+            verifyNoInteractions(userRepo);
         }
 
         @Test
         @DisplayName("Should return empty list when no users match")
         void searchByEmail_EmptyResult() {
-            when(userRepo.findByEmailContainingIgnoreCase("nomatch")).thenReturn(new ArrayList<>());
-
-            List<UserDTO> result = userService.searchByEmail("nomatch");
-
-            assertThat(result).isEmpty();
-        }
-
-        @Test
-        @DisplayName("Should return single user when only one matches")
-        void searchByEmail_SingleMatch() {
-            when(userRepo.findByEmailContainingIgnoreCase("user@example")).thenReturn(Arrays.asList(testUser));
-            when(userMapper.toDTO(testUser)).thenReturn(testUserDTO);
-
-            List<UserDTO> result = userService.searchByEmail("user@example");
+            when(userSearchService.search("nomatch", null, 20)).thenReturn(new UserSearchRes());
 
-            assertThat(result).hasSize(1);
-            assertThat(result.get(0).getEmail()).isEqualTo("user@example.com");
-        }
-
-        @Test
-        @DisplayName("Should perform case insensitive search")
-        void searchByEmail_CaseInsensitive() {
-            when(userRepo.findByEmailContainingIgnoreCase("USER")).thenReturn(Arrays.asList(testUser));
-            when(userMapper.toDTO(testUser)).thenReturn(testUserDTO);
-
-            List<UserDTO> result = userService.searchByEmail("USER");
-
-            assertThat(result).hasSize(1);
-        }
-
-        @Test
-        @DisplayName("Should include company information in results")
-        void searchByEmail_IncludesCompanyInfo() {
-            when(userRepo.findByEmailContainingIgnoreCase("user")).thenReturn(Arrays.asList(testUser));
-            when(userMapper.toDTO(testUser)).thenReturn(testUserDTO);
-
-            List<UserDTO> result = userService.searchByEmail("user");
-
-            assertThat(result.get(0).getCompanyId()).isEqualTo(1);
-            assertThat(result.get(0).getCompanyRoleId()).isEqualTo(1);
-            assertThat(result.get(0).getCompanyRoleName()).isEqualTo("Employee");
+            assertThat(userService.searchByEmail("nomatch")).isEmpty();
         }
     }
 }